@@ -0,0 +1,167 @@
+package com.example.cliente;
+
+import com.liceolapaz.protocolo.CodecBinario;
+import com.liceolapaz.protocolo.CodecTexto;
+import com.liceolapaz.protocolo.LectorTexto;
+import com.liceolapaz.protocolo.Mensaje;
+import com.liceolapaz.protocolo.Protocolo;
+import com.liceolapaz.protocolo.TipoMensaje;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Conexión TCP con el servidor de trivia
+ * Empieza con el protocolo de texto y pasa al binario si el servidor lo ofrece en SOLICITUD_NOMBRE
+ * (salvo que se arranque con -Dtrivia.protocoloTexto=true); quien la usa siempre recibe y envía
+ * mensajes, sin saber qué protocolo hay debajo
+ * Si el servidor ofrece el modo rápido, anuncia que este cliente confirma con LISTO lo que muestra
+ */
+class ConexionServidor {
+
+    // Forzar el protocolo de texto aunque el servidor ofrezca el binario
+    private static final boolean SOLO_TEXTO = Boolean.getBoolean("trivia.protocoloTexto");
+
+    private final Socket socket; // Socket conectado al servidor
+    private final InputStream entrada; // Lectura con búfer de bytes (no de caracteres, para poder cambiar de protocolo)
+    private final OutputStream salida; // Escritura con búfer; se vacía tras cada mensaje
+    private volatile boolean entradaBinaria = false; // El servidor ya confirmó el cambio a binario
+    private boolean salidaBinaria = false; // Ya se pidió el cambio: lo siguiente se escribe en binario
+
+    // Estado de lectura reutilizado entre líneas (solo lo usa el hilo receptor)
+    private final LectorTexto lector = new LectorTexto();
+    private byte[] linea = new byte[256];
+
+    /**
+     * Abre la conexión con el servidor
+     * @param servidor Dirección del servidor
+     * @param puerto Puerto TCP
+     * @throws IOException si no se puede conectar
+     */
+    ConexionServidor(String servidor, int puerto) throws IOException {
+        this.socket = new Socket(servidor, puerto);
+        socket.setTcpNoDelay(true); // Cada mensaje ya se vacía completo: Nagle solo retrasaría las respuestas
+        this.entrada = new BufferedInputStream(socket.getInputStream());
+        this.salida = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    /**
+     * Espera el siguiente mensaje del servidor
+     * Gestiona por sí misma la negociación del protocolo, que nunca llega a quien la llama
+     * @return Mensaje recibido, o null si el servidor cerró la conexión
+     * @throws IOException si la conexión falla o llega una trama no válida
+     */
+    Mensaje recibir() throws IOException {
+        while (true) {
+            if (entradaBinaria) {
+                return CodecBinario.leer(entrada);
+            }
+
+            String texto = leerLinea();
+            if (texto == null) {
+                return null;
+            }
+            if (Protocolo.ACEPTACION_BINARIO.equals(texto)) {
+                System.out.println("🔢 Usando el protocolo binario");
+                entradaBinaria = true;
+                continue;
+            }
+
+            Mensaje mensaje = CodecTexto.decodificar(texto, lector);
+            // El anuncio va en texto y antes de pedir el binario, como indica Protocolo
+            if (mensaje.getTipo() == TipoMensaje.SOLICITUD_NOMBRE && mensaje.tieneCampo(1)
+                    && mensaje.getEntero(1) >= Protocolo.VERSION_LISTO) {
+                anunciarListo();
+            }
+            if (mensaje.getTipo() == TipoMensaje.SOLICITUD_NOMBRE && mensaje.tieneCampo(0)
+                    && mensaje.getEntero(0) >= Protocolo.VERSION_BINARIO && !SOLO_TEXTO) {
+                pedirBinario();
+            }
+            return mensaje;
+        }
+    }
+
+    /**
+     * Envía una línea del protocolo de texto (como trama LINEA si ya se usa el binario)
+     * @param linea Mensaje sin salto de línea final
+     * @throws IOException si la conexión falla
+     */
+    synchronized void enviar(String linea) throws IOException {
+        if (salidaBinaria) {
+            salida.write(CodecBinario.codificar(Mensaje.linea(linea)));
+        } else {
+            salida.write((linea + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        salida.flush();
+    }
+
+    /**
+     * Envía un mensaje estructurado en el protocolo actual
+     * @param mensaje Mensaje a enviar
+     * @throws IOException si la conexión falla
+     */
+    synchronized void enviar(Mensaje mensaje) throws IOException {
+        if (salidaBinaria) {
+            salida.write(CodecBinario.codificar(mensaje));
+            salida.flush();
+        } else {
+            enviar(mensaje.aLinea());
+        }
+    }
+
+    /**
+     * Anuncia que el cliente envía confirmaciones LISTO, para que sus partidas puedan ir a ritmo de confirmaciones
+     */
+    private synchronized void anunciarListo() throws IOException {
+        salida.write((Protocolo.ANUNCIO_LISTO + "\n").getBytes(StandardCharsets.UTF_8));
+        salida.flush();
+    }
+
+    /**
+     * Pide el cambio a binario; todo lo que se escriba después ya va en tramas
+     */
+    private synchronized void pedirBinario() throws IOException {
+        salida.write((Protocolo.PETICION_BINARIO + "\n").getBytes(StandardCharsets.UTF_8));
+        salida.flush();
+        salidaBinaria = true;
+    }
+
+    /**
+     * Lee una línea de texto UTF-8 byte a byte, sin leer nada de lo que venga detrás
+     * Reutiliza el mismo array para todas las líneas; solo se crea el String final
+     * @return Línea sin salto de línea, o null si la conexión se cerró
+     */
+    private String leerLinea() throws IOException {
+        int longitud = 0;
+        int b;
+        while ((b = entrada.read()) != '\n') {
+            if (b < 0) {
+                if (longitud == 0) return null;
+                break;
+            }
+            if (longitud == linea.length) {
+                linea = Arrays.copyOf(linea, linea.length * 2);
+            }
+            linea[longitud++] = (byte) b;
+        }
+        if (longitud > 0 && linea[longitud - 1] == '\r') {
+            longitud--;
+        }
+        return new String(linea, 0, longitud, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Cierra la conexión de forma segura
+     */
+    void cerrar() {
+        try {
+            if (!socket.isClosed()) socket.close();
+        } catch (IOException ignored) {}
+    }
+}
@@ -11,9 +11,10 @@ import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
 import javafx.util.Duration;
+import com.liceolapaz.protocolo.Mensaje;
+import com.liceolapaz.protocolo.TipoMensaje;
 
 import java.io.*;
-import java.net.Socket;
 import java.util.Optional;
 
 /**
@@ -27,10 +28,8 @@ public class TriviaController {
     private static final String SERVIDOR = "localhost"; // Dirección del servidor de trivia
     private static final int PUERTO = 65001; // Puerto TCP del servidor
 
-    // Componentes de comunicación TCP
-    private Socket socket; // Socket para la conexión con el servidor
-    private BufferedReader in; // Flujo de entrada para recibir mensajes del servidor
-    private PrintWriter out; // Flujo de salida para enviar mensajes al servidor
+    // Componente de comunicación TCP
+    private ConexionServidor conexion; // Conexión con el servidor (texto o binario según la negociación)
 
     // Variables de estado del juego
     private String categoriaSeleccionada = ""; // Categoría de preguntas elegida
@@ -42,6 +41,7 @@ public class TriviaController {
     private Timeline contadorTiempo; // Temporizador para tiempo límite de respuesta
     private boolean esPartidaSolo = true; // Flag para determinar si es partida individual
     private String oponente = ""; // Nombre del oponente en partidas multijugador
+    private String cursorHistorial = null; // Cursor de la siguiente página de historial (null = primera)
 
     // Contenedor principal que alberga todas las pantallas
     @FXML private VBox contenedorPrincipal;
@@ -56,10 +56,12 @@ public class TriviaController {
     @FXML private VBox pantallaCategorias;
     @FXML private Label categoriaLabel; // Etiqueta informativa sobre selección
     @FXML private ComboBox<String> comboCategorias; // Selector de categorías disponibles
-    @FXML private ComboBox<String> comboModo; // Selector de modo (solo/esperar)
+    @FXML private ComboBox<String> comboModo; // Selector de modo (solo/esperar/directo)
     @FXML private Button botonIniciarJuego; // Botón para iniciar la partida
     @FXML private Button botonEstadisticas; // Botón para consultar estadísticas
     @FXML private Button botonPuntuacion; // Botón para consultar puntuación total
+    @FXML private Button botonRanking; // Botón para consultar la clasificación
+    @FXML private Button botonHistorial; // Botón para consultar el historial de partidas
     @FXML private Label puntuacionTotal; // Etiqueta para mostrar puntuación acumulada
 
     // Pantalla 3: Interfaz de juego durante la partida
@@ -101,7 +103,7 @@ public class TriviaController {
      * Configura los valores iniciales de los ComboBox
      */
     private void configurarComboBoxes() {
-        comboModo.getItems().addAll("solo", "esperar");
+        comboModo.getItems().addAll("solo", "esperar", "directo");
         comboModo.setValue("solo"); // Modo individual por defecto
     }
 
@@ -160,6 +162,8 @@ public class TriviaController {
         // Mostrar mensaje apropiado según el modo seleccionado
         if ("esperar".equals(modoSeleccionado)) {
             categoriaLabel.setText("Buscando otro jugador para " + categoriaSeleccionada + "...");
+        } else if ("directo".equals(modoSeleccionado)) {
+            categoriaLabel.setText("Apuntándote al concurso en directo de " + categoriaSeleccionada + "...");
         } else {
             categoriaLabel.setText("Iniciando partida individual de " + categoriaSeleccionada + "...");
         }
@@ -181,6 +185,23 @@ public class TriviaController {
         enviar("puntuacion");
     }
 
+    /**
+     * Solicita al servidor la clasificación de la categoría seleccionada (o la global si no hay ninguna)
+     */
+    @FXML
+    public void onMostrarRanking() {
+        String categoria = comboCategorias.getValue();
+        enviar(categoria != null ? "ranking:" + categoria.toLowerCase() : "ranking");
+    }
+
+    /**
+     * Solicita al servidor la siguiente página del historial (la primera si no hay cursor)
+     */
+    @FXML
+    public void onMostrarHistorial() {
+        enviar(cursorHistorial != null ? "historial:" + cursorHistorial : "historial");
+    }
+
     /**
      * CORREGIDO: Método de responder corregido
      * Envía la respuesta seleccionada al servidor y deshabilita la interfaz
@@ -239,16 +260,14 @@ public class TriviaController {
         new Thread(() -> {
             try {
                 System.out.println("🔗 Conectando al servidor " + SERVIDOR + ":" + PUERTO + "...");
-                socket = new Socket(SERVIDOR, PUERTO);
-                in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-                out = new PrintWriter(socket.getOutputStream(), true);
+                conexion = new ConexionServidor(SERVIDOR, PUERTO);
 
                 System.out.println("✅ Conectado al servidor exitosamente");
 
                 // Bucle de recepción de mensajes
-                String mensaje;
-                while ((mensaje = in.readLine()) != null) {
-                    String finalMensaje = mensaje;
+                Mensaje mensaje;
+                while ((mensaje = conexion.recibir()) != null) {
+                    Mensaje finalMensaje = mensaje;
                     System.out.println("📥 Recibido del servidor: " + finalMensaje);
                     // Procesar mensajes en el hilo de JavaFX UI
                     Platform.runLater(() -> procesarMensaje(finalMensaje));
@@ -271,9 +290,28 @@ public class TriviaController {
      * @param mensaje Mensaje a enviar al servidor
      */
     private void enviar(String mensaje) {
-        if (out != null) {
+        if (conexion != null) {
             System.out.println("📤 Enviando: " + mensaje);
-            out.println(mensaje);
+            try {
+                conexion.enviar(mensaje);
+            } catch (IOException e) {
+                System.out.println("❌ Error al enviar: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Confirma al servidor que un mensaje de la partida ya se muestra en pantalla
+     * En modo rápido el servidor avanza con estas confirmaciones en lugar de esperar pausas fijas
+     * @param tipo Tipo de mensaje mostrado (INICIO, PREGUNTA, SOLICITUD o RESULTADO)
+     */
+    private void confirmarMostrado(String tipo) {
+        if (conexion != null) {
+            try {
+                conexion.enviar(Mensaje.de(TipoMensaje.LISTO, tipo));
+            } catch (IOException e) {
+                System.out.println("❌ Error al enviar: " + e.getMessage());
+            }
         }
     }
 
@@ -281,97 +319,150 @@ public class TriviaController {
      * Cierra la conexión TCP de forma segura
      */
     private void cerrarConexion() {
-        try {
-            if (socket != null && !socket.isClosed()) socket.close();
-        } catch (IOException ignored) {}
+        if (conexion != null) conexion.cerrar();
     }
 
     // ===================== PROCESAMIENTO DE MENSAJES =====================
 
     /**
      * Procesa los mensajes recibidos del servidor y actualiza la interfaz
-     * Centraliza toda la lógica de respuesta a diferentes tipos de mensaje
+     * Los mensajes llegan ya interpretados (en binario o desde la línea de texto),
+     * así que cada rama lee sus campos por posición sin partir cadenas
      * @param mensaje Mensaje recibido del servidor
      */
-    private void procesarMensaje(String mensaje) {
+    private void procesarMensaje(Mensaje mensaje) {
         System.out.println("🔄 Procesando: " + mensaje);
 
-        if (mensaje.startsWith("SOLICITUD_NOMBRE")) {
-            estadoLabel.setText("Introduce tu nombre:");
-            mostrarSolo(pantallaNombre);
+        switch (mensaje.getTipo()) {
+            case SOLICITUD_NOMBRE:
+                estadoLabel.setText("Introduce tu nombre:");
+                mostrarSolo(pantallaNombre);
+                break;
 
-        } else if (mensaje.startsWith("CATEGORIAS_DISPONIBLES")) {
-            // Parsear categorías disponibles y poblar el ComboBox
-            String[] partes = mensaje.split(";");
-            comboCategorias.getItems().clear();
-            for (int i = 1; i < partes.length; i++) {
-                comboCategorias.getItems().add(partes[i]);
-            }
-            if (!comboCategorias.getItems().isEmpty()) {
-                comboCategorias.setValue(comboCategorias.getItems().get(0));
-            }
-            categoriaLabel.setText("Selecciona categoría y modo de juego:");
-            mostrarSolo(pantallaCategorias);
+            case CATEGORIAS_DISPONIBLES:
+                // Poblar el ComboBox con las categorías disponibles
+                comboCategorias.getItems().clear();
+                if (mensaje.tieneCampo(0)) {
+                    comboCategorias.getItems().addAll(mensaje.getLista(0));
+                }
+                if (!comboCategorias.getItems().isEmpty()) {
+                    comboCategorias.setValue(comboCategorias.getItems().get(0));
+                }
+                categoriaLabel.setText("Selecciona categoría y modo de juego:");
+                mostrarSolo(pantallaCategorias);
+                break;
+
+            case ESTADISTICAS:
+                // Mostrar estadísticas del jugador en un diálogo
+                mostrarAlerta("Estadísticas", mensaje.getTexto(0).replace("|", "\n"));
+                break;
+
+            case RANKING:
+                // Mostrar la clasificación en un diálogo
+                mostrarAlerta("Ranking", mensaje.getTexto(0).replace("|", "\n"));
+                break;
+
+            case HISTORIAL:
+                // Campos: cursor de la siguiente página (o FIN) y líneas separadas por |
+                cursorHistorial = "FIN".equals(mensaje.getTexto(0)) ? null : mensaje.getTexto(0);
+                String historial = mensaje.getTexto(1).replace("|", "\n");
+                if (cursorHistorial != null) {
+                    historial += "\n\nPulsa Historial de nuevo para ver más partidas";
+                }
+                mostrarAlerta("Historial", historial);
+                break;
 
-        } else if (mensaje.startsWith("ESTADISTICAS")) {
-            // Mostrar estadísticas del jugador en un diálogo
-            String stats = mensaje.substring(12).replace("|", "\n");
-            mostrarAlerta("Estadísticas", stats);
+            case HISTORIAL_INVALIDO:
+                cursorHistorial = null;
+                break;
 
-        } else if (mensaje.startsWith("PUNTUACION_TOTAL")) {
-            // Actualizar y mostrar puntuación total
-            String puntos = mensaje.split(";")[1];
-            puntuacionTotal.setText("Puntuación Total: " + puntos);
-            activarNodos(puntuacionTotal);
+            case PUNTUACION_TOTAL:
+                // Actualizar y mostrar puntuación total
+                puntuacionTotal.setText("Puntuación Total: " + mensaje.getEntero(0));
+                activarNodos(puntuacionTotal);
+                break;
 
-        } else if (mensaje.startsWith("PARTIDA_ENCONTRADA")) {
-            procesarPartidaEncontrada(mensaje);
+            case PARTIDA_ENCONTRADA:
+                procesarPartidaEncontrada(mensaje);
+                break;
 
-        } else if (mensaje.startsWith("PARTIDA_SOLO_INICIADA") || mensaje.startsWith("PARTIDA_INICIADA")) {
-            procesarInicioPartida(mensaje);
+            case DIRECTO_PROGRAMADO:
+                // Campos: CATEGORIA, SEGUNDOS hasta el inicio, INSCRITOS hasta ahora
+                categoriaLabel.setText("Concurso en directo de " + mensaje.getTexto(0) + " en " +
+                        mensaje.getEntero(1) + " s (" + mensaje.getEntero(2) + " inscritos)");
+                break;
 
-        } else if (mensaje.startsWith("PREGUNTA")) {
-            procesarPregunta(mensaje);
+            case PARTIDA_SOLO_INICIADA:
+            case PARTIDA_INICIADA:
+                procesarInicioPartida();
+                confirmarMostrado("INICIO");
+                break;
 
-        } else if (mensaje.startsWith("SOLICITAR_RESPUESTA")) {
-            // CORREGIDO: Habilitar respuestas cuando el servidor lo solicite
-            habilitarRespuestas();
+            case PREGUNTA:
+                procesarPregunta(mensaje);
+                confirmarMostrado("PREGUNTA");
+                break;
 
-        } else if (mensaje.startsWith("RESPUESTA_CORRECTA")) {
-            feedbackLabel.setText("¡Correcto!");
-            feedbackLabel.setStyle("-fx-text-fill: green; -fx-font-weight: bold;");
-            activarNodos(feedbackLabel);
+            case SOLICITAR_RESPUESTA:
+                // CORREGIDO: Habilitar respuestas cuando el servidor lo solicite
+                habilitarRespuestas();
+                confirmarMostrado("SOLICITUD");
+                break;
 
-        } else if (mensaje.startsWith("RESPUESTA_INCORRECTA")) {
-            feedbackLabel.setText("Incorrecto");
-            feedbackLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
-            activarNodos(feedbackLabel);
+            case RESPUESTA_CORRECTA:
+                feedbackLabel.setText("¡Correcto!");
+                feedbackLabel.setStyle("-fx-text-fill: green; -fx-font-weight: bold;");
+                activarNodos(feedbackLabel);
+                break;
 
-        } else if (mensaje.startsWith("TIMEOUT")) {
-            feedbackLabel.setText("¡Tiempo agotado!");
-            feedbackLabel.setStyle("-fx-text-fill: orange; -fx-font-weight: bold;");
-            activarNodos(feedbackLabel);
+            case RESPUESTA_INCORRECTA:
+                feedbackLabel.setText("Incorrecto");
+                feedbackLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
+                activarNodos(feedbackLabel);
+                break;
 
-        } else if (mensaje.startsWith("RESULTADO")) {
-            procesarResultadoPregunta(mensaje);
+            case TIMEOUT:
+                feedbackLabel.setText("¡Tiempo agotado!");
+                feedbackLabel.setStyle("-fx-text-fill: orange; -fx-font-weight: bold;");
+                activarNodos(feedbackLabel);
+                break;
 
-        } else if (mensaje.startsWith("FIN_PARTIDA")) {
-            procesarFinPartida(mensaje);
+            case RESULTADO:
+                procesarResultadoPregunta(mensaje);
+                confirmarMostrado("RESULTADO");
+                break;
 
-        } else if (mensaje.startsWith("PARTIDA_CANCELADA") || mensaje.startsWith("CONEXION_CANCELADA")) {
-            mostrarFinAbrupto("La partida ha sido cancelada");
+            case POSICION_DIRECTO:
+                // Campos: PUESTO, JUGADORES y porcentaje de jugadores que ACERTARON la pregunta
+                puntosLabel.setText("Aciertos: " + puntosJ1 + "/" + preguntaActual + " - Puesto " +
+                        mensaje.getEntero(0) + " de " + mensaje.getEntero(1) + " (acertó el " + mensaje.getEntero(2) + "%)");
+                activarNodos(puntosLabel);
+                break;
 
-        } else if (mensaje.startsWith("SELECCION_INVALIDA") || mensaje.startsWith("CATEGORIA_INVALIDA") ||
-                mensaje.startsWith("MODO_INVALIDO")) {
-            mostrarAlerta("Selección inválida", mensaje);
-            habilitarSeleccion();
+            case FIN_PARTIDA:
+                procesarFinPartida(mensaje);
+                break;
 
-        } else if (mensaje.startsWith("PARTIDA_EN_CURSO")) {
-            mostrarAlerta("Hay una partida en curso. Espera o juega solo.");
-            habilitarSeleccion();
+            case PARTIDA_CANCELADA:
+            case CONEXION_CANCELADA:
+                mostrarFinAbrupto("La partida ha sido cancelada");
+                break;
 
-        } else {
-            System.out.println("⚠️ Mensaje no reconocido: " + mensaje);
+            case SELECCION_INVALIDA:
+            case CATEGORIA_INVALIDA:
+            case MODO_INVALIDO:
+                mostrarAlerta("Selección inválida", mensaje.aLinea());
+                habilitarSeleccion();
+                break;
+
+            case PARTIDA_EN_CURSO:
+                mostrarAlerta("Hay una partida en curso. Espera o juega solo.");
+                habilitarSeleccion();
+                break;
+
+            default:
+                System.out.println("⚠️ Mensaje no reconocido: " + mensaje);
+                break;
         }
     }
 
@@ -379,19 +470,19 @@ public class TriviaController {
      * Procesa el mensaje de partida encontrada
      * Extrae información sobre tipo de partida y oponente
      */
-    private void procesarPartidaEncontrada(String mensaje) {
-        String[] partes = mensaje.split(";");
-        for (String parte : partes) {
-            if (parte.startsWith("TIPO:")) {
-                String tipo = parte.substring(5);
-                esPartidaSolo = "SOLO".equals(tipo);
-            } else if (parte.startsWith("OPONENTE:")) {
-                oponente = parte.substring(9);
-            }
+    private void procesarPartidaEncontrada(Mensaje mensaje) {
+        // Campos: TIPO, OPONENTE (solo multijugador), CATEGORIA
+        // En el concurso en directo cada jugador ve solo su marcador, como en una partida individual
+        boolean esDirecto = "DIRECTO".equals(mensaje.getTexto(0));
+        esPartidaSolo = esDirecto || "SOLO".equals(mensaje.getTexto(0));
+        if (mensaje.tieneCampo(1)) {
+            oponente = mensaje.getTexto(1);
         }
 
         // Mostrar mensaje apropiado según el tipo de partida
-        if (esPartidaSolo) {
+        if (esDirecto) {
+            categoriaLabel.setText("¡El concurso en directo va a empezar!");
+        } else if (esPartidaSolo) {
             categoriaLabel.setText("¡Partida individual iniciando...");
         } else {
             categoriaLabel.setText("¡Oponente encontrado: " + oponente + "!");
@@ -402,7 +493,7 @@ public class TriviaController {
      * Procesa el inicio oficial de la partida
      * Configura la interfaz de juego y resetea contadores
      */
-    private void procesarInicioPartida(String mensaje) {
+    private void procesarInicioPartida() {
         // Mostrar información del oponente si es partida multijugador
         if (!esPartidaSolo && !oponente.isEmpty()) {
             oponenteLabel.setText("Oponente: " + oponente);
@@ -423,27 +514,15 @@ public class TriviaController {
      * Procesa una nueva pregunta recibida del servidor
      * Parsea todos los componentes de la pregunta y configura la interfaz
      */
-    private void procesarPregunta(String mensaje) {
-        // Formato: PREGUNTA;NUMERO:1;TOTAL:10;TEXTO:¿Pregunta?;A:opción1;B:opción2;C:opción3;D:opción4
-        String[] partes = mensaje.split(";");
-
-        for (String parte : partes) {
-            if (parte.startsWith("NUMERO:")) {
-                preguntaActual = Integer.parseInt(parte.substring(7));
-            } else if (parte.startsWith("TOTAL:")) {
-                totalPreguntas = Integer.parseInt(parte.substring(6));
-            } else if (parte.startsWith("TEXTO:")) {
-                preguntaLabel.setText(parte.substring(6));
-            } else if (parte.startsWith("A:")) {
-                opcionA.setText("A) " + parte.substring(2));
-            } else if (parte.startsWith("B:")) {
-                opcionB.setText("B) " + parte.substring(2));
-            } else if (parte.startsWith("C:")) {
-                opcionC.setText("C) " + parte.substring(2));
-            } else if (parte.startsWith("D:")) {
-                opcionD.setText("D) " + parte.substring(2));
-            }
-        }
+    private void procesarPregunta(Mensaje mensaje) {
+        // Campos: NUMERO, TOTAL, TEXTO, A, B, C, D
+        preguntaActual = mensaje.getEntero(0);
+        totalPreguntas = mensaje.getEntero(1);
+        preguntaLabel.setText(mensaje.getTexto(2));
+        opcionA.setText("A) " + mensaje.getTexto(3));
+        opcionB.setText("B) " + mensaje.getTexto(4));
+        opcionC.setText("C) " + mensaje.getTexto(5));
+        opcionD.setText("D) " + mensaje.getTexto(6));
 
         // CORREGIDO: Limpiar estilos anteriores y estado
         limpiarEstilosRespuestas();
@@ -465,19 +544,12 @@ public class TriviaController {
      * Procesa el resultado de una pregunta
      * Actualiza marcadores y resalta la respuesta correcta
      */
-    private void procesarResultadoPregunta(String mensaje) {
-        // Formato: RESULTADO;CORRECTA:B;PUNTOS_J1:3;PUNTOS_J2:2
-        String[] partes = mensaje.split(";");
-
-        for (String parte : partes) {
-            if (parte.startsWith("PUNTOS_J1:")) {
-                puntosJ1 = Integer.parseInt(parte.substring(10));
-            } else if (parte.startsWith("PUNTOS_J2:")) {
-                puntosJ2 = Integer.parseInt(parte.substring(10));
-            } else if (parte.startsWith("CORRECTA:")) {
-                String correcta = parte.substring(9);
-                mostrarRespuestaCorrecta(correcta);
-            }
+    private void procesarResultadoPregunta(Mensaje mensaje) {
+        // Campos: CORRECTA, PUNTOS_J1 y, solo en partidas de dos jugadores, PUNTOS_J2
+        mostrarRespuestaCorrecta(mensaje.getTexto(0));
+        puntosJ1 = mensaje.getEntero(1);
+        if (mensaje.tieneCampo(2)) {
+            puntosJ2 = mensaje.getEntero(2);
         }
 
         // CORREGIDO: Mostrar puntos solo para jugador 1 en modo solo
@@ -493,28 +565,26 @@ public class TriviaController {
      * Procesa el final de la partida
      * Determina resultado, extrae puntos ganados y muestra pantalla de resultados
      */
-    private void procesarFinPartida(String mensaje) {
-        String textoResultado = "";
-        String puntosGanados = "0";
+    private void procesarFinPartida(Mensaje mensaje) {
+        // Campos: RESULTADO (solo multijugador), PUNTOS, TOTAL_PREGUNTAS, OPONENTE_PUNTOS, PUNTOS_GANADOS
+        String resultado = mensaje.tieneCampo(0) ? mensaje.getTexto(0) : "";
+        int puntosGanados = mensaje.tieneCampo(4) ? mensaje.getEntero(4) : 0;
 
         // Determinar resultado de la partida
-        if (mensaje.contains("GANADOR")) {
-            textoResultado = "¡Has ganado la partida!";
-        } else if (mensaje.contains("PERDEDOR")) {
-            textoResultado = "Has perdido la partida";
-        } else if (mensaje.contains("EMPATE")) {
-            textoResultado = "¡Empate!";
-        } else {
-            textoResultado = "Partida completada";
-        }
-
-        // Extraer puntos ganados del mensaje
-        String[] partes = mensaje.split(";");
-        for (String parte : partes) {
-            if (parte.startsWith("PUNTOS_GANADOS:")) {
-                puntosGanados = parte.substring(15);
+        String textoResultado;
+        switch (resultado) {
+            case "GANADOR":
+                textoResultado = "¡Has ganado la partida!";
+                break;
+            case "PERDEDOR":
+                textoResultado = "Has perdido la partida";
+                break;
+            case "EMPATE":
+                textoResultado = "¡Empate!";
+                break;
+            default:
+                textoResultado = "Partida completada";
                 break;
-            }
         }
 
         resultadoLabel.setText(textoResultado);
@@ -0,0 +1,327 @@
+package com.liceolapaz.protocolo;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codificador y decodificador del protocolo binario de trivia
+ * Cada trama es: longitud de la carga (varint) + código de tipo (1 byte) + máscara de campos presentes (varint,
+ * solo si el tipo tiene campos) + campos presentes en orden
+ * Los enteros van como varint en zigzag, los textos como longitud en bytes (varint) + UTF-8
+ * y las listas como número de elementos (varint) + cada texto, así que un ';' o un salto de línea
+ * dentro de una pregunta no necesitan escaparse
+ */
+public final class CodecBinario {
+
+    // Tamaño máximo de la carga de una trama; una mayor se considera abuso o corrupción
+    public static final int LONGITUD_MAXIMA = 64 * 1024;
+
+    private CodecBinario() {}
+
+    /**
+     * Calcula los bytes que ocupa la trama de un mensaje, incluido el prefijo de longitud
+     * @param mensaje Mensaje a medir
+     * @return Número exacto de bytes
+     */
+    public static int longitud(Mensaje mensaje) {
+        int carga = longitudCarga(mensaje);
+        return longitudVarint(carga) + carga;
+    }
+
+    private static int longitudCarga(Mensaje mensaje) {
+        TipoMensaje tipo = mensaje.getTipo();
+        int bytes = 1;
+        if (tipo.getNumeroCampos() > 0) {
+            bytes += longitudVarint(mascara(mensaje));
+        }
+        return bytes + longitudCampos(mensaje, 0, tipo.getNumeroCampos());
+    }
+
+    /**
+     * Calcula los bytes que ocupan los campos presentes de un rango, sin tipo ni máscara
+     * @param mensaje Mensaje a medir
+     * @param desde Primer campo (incluido)
+     * @param hasta Último campo (excluido)
+     * @return Número exacto de bytes
+     */
+    static int longitudCampos(Mensaje mensaje, int desde, int hasta) {
+        TipoMensaje tipo = mensaje.getTipo();
+        int bytes = 0;
+        for (int i = desde; i < hasta; i++) {
+            if (!mensaje.tieneCampo(i)) continue;
+            if (tipo.esEntero(i)) {
+                bytes += longitudVarint(zigzag(mensaje.getEntero(i)));
+            } else if (tipo.esLista(i)) {
+                String[] lista = mensaje.getLista(i);
+                bytes += longitudVarint(lista.length);
+                for (String elemento : lista) {
+                    bytes += longitudTexto(elemento);
+                }
+            } else {
+                bytes += longitudTexto(mensaje.getTexto(i));
+            }
+        }
+        return bytes;
+    }
+
+    private static int longitudTexto(String texto) {
+        int bytes = Utf8.longitud(texto, false);
+        return longitudVarint(bytes) + bytes;
+    }
+
+    /**
+     * Codifica un mensaje como trama completa, con su prefijo de longitud
+     * @param mensaje Mensaje a codificar
+     * @return Bytes listos para escribir en el socket
+     */
+    public static byte[] codificar(Mensaje mensaje) {
+        ByteBuffer trama = ByteBuffer.allocate(longitud(mensaje));
+        codificar(mensaje, trama);
+        return trama.array();
+    }
+
+    /**
+     * Escribe la trama completa de un mensaje en un búfer
+     * @param mensaje Mensaje a codificar
+     * @param destino Búfer con al menos longitud(mensaje) bytes libres
+     * @throws IllegalArgumentException si la carga supera LONGITUD_MAXIMA
+     */
+    public static void codificar(Mensaje mensaje, ByteBuffer destino) {
+        int carga = longitudCarga(mensaje);
+        if (carga > LONGITUD_MAXIMA) {
+            throw new IllegalArgumentException("Mensaje demasiado largo: " + carga + " bytes");
+        }
+
+        TipoMensaje tipo = mensaje.getTipo();
+        escribirVarint(carga, destino);
+        destino.put(tipo.getCodigo());
+        if (tipo.getNumeroCampos() > 0) {
+            escribirVarint(mascara(mensaje), destino);
+        }
+        codificarCampos(mensaje, 0, tipo.getNumeroCampos(), destino);
+    }
+
+    /**
+     * Escribe los campos presentes de un rango, sin tipo ni máscara
+     * Permite codificar por separado la parte fija de un mensaje (ver TramaPregunta)
+     * @param mensaje Mensaje a codificar
+     * @param desde Primer campo (incluido)
+     * @param hasta Último campo (excluido)
+     * @param destino Búfer con al menos longitudCampos() bytes libres
+     */
+    static void codificarCampos(Mensaje mensaje, int desde, int hasta, ByteBuffer destino) {
+        TipoMensaje tipo = mensaje.getTipo();
+        for (int i = desde; i < hasta; i++) {
+            if (!mensaje.tieneCampo(i)) continue;
+            if (tipo.esEntero(i)) {
+                escribirVarint(zigzag(mensaje.getEntero(i)), destino);
+            } else if (tipo.esLista(i)) {
+                String[] lista = mensaje.getLista(i);
+                escribirVarint(lista.length, destino);
+                for (String elemento : lista) {
+                    escribirTexto(elemento, destino);
+                }
+            } else {
+                escribirTexto(mensaje.getTexto(i), destino);
+            }
+        }
+    }
+
+    private static void escribirTexto(String texto, ByteBuffer destino) {
+        escribirVarint(Utf8.longitud(texto, false), destino);
+        Utf8.escribir(texto, false, destino);
+    }
+
+    /**
+     * Calcula la máscara de campos presentes (bit i = campo i)
+     */
+    static int mascara(Mensaje mensaje) {
+        int mascara = 0;
+        for (int i = 0; i < mensaje.getNumeroCampos(); i++) {
+            if (mensaje.tieneCampo(i)) {
+                mascara |= 1 << i;
+            }
+        }
+        return mascara;
+    }
+
+    /**
+     * Calcula la longitud total de la trama que empieza en una posición
+     * @param datos Búfer con los bytes recibidos
+     * @param desde Inicio de la trama
+     * @param hasta Fin de los bytes válidos
+     * @return Longitud de prefijo más carga, o -1 si aún no han llegado todos los bytes de la trama
+     * @throws IllegalArgumentException si la longitud está mal formada o supera el máximo
+     */
+    public static int longitudTrama(byte[] datos, int desde, int hasta) {
+        int valor = 0;
+        for (int i = 0; i < 5; i++) {
+            if (desde + i >= hasta) {
+                return -1;
+            }
+            byte b = datos[desde + i];
+            valor |= (b & 0x7F) << (7 * i);
+            if (b >= 0) {
+                if (valor <= 0 || valor > LONGITUD_MAXIMA) {
+                    throw new IllegalArgumentException("Longitud de trama no válida: " + valor);
+                }
+                int total = i + 1 + valor;
+                return desde + total <= hasta ? total : -1;
+            }
+        }
+        throw new IllegalArgumentException("Prefijo de longitud mal formado");
+    }
+
+    /**
+     * Decodifica una trama completa, incluido su prefijo de longitud
+     * @param datos Búfer con la trama
+     * @param desde Inicio de la trama
+     * @param longitud Longitud total devuelta por longitudTrama()
+     * @return Mensaje decodificado
+     */
+    public static Mensaje decodificarTrama(byte[] datos, int desde, int longitud) {
+        int carga = desde;
+        while (datos[carga] < 0) {
+            carga++;
+        }
+        return decodificar(datos, carga + 1, desde + longitud);
+    }
+
+    /**
+     * Decodifica la carga de una trama (sin el prefijo de longitud)
+     * @param datos Búfer con la carga
+     * @param desde Inicio de la carga (byte de tipo)
+     * @param hasta Fin de la carga
+     * @return Mensaje decodificado
+     * @throws IllegalArgumentException si el tipo no existe o los campos están mal formados
+     */
+    public static Mensaje decodificar(byte[] datos, int desde, int hasta) {
+        TipoMensaje tipo = TipoMensaje.porCodigo(datos[desde]);
+        if (tipo == null) {
+            throw new IllegalArgumentException("Tipo de mensaje desconocido: " + datos[desde]);
+        }
+
+        Object[] campos = new Object[tipo.getNumeroCampos()];
+        int[] posicion = {desde + 1};
+        int mascara = campos.length > 0 ? (int) leerVarint(datos, posicion, hasta) : 0;
+        if ((mascara >>> campos.length) != 0) {
+            throw new IllegalArgumentException("Máscara de campos no válida en mensaje " + tipo);
+        }
+
+        for (int i = 0; i < campos.length; i++) {
+            if ((mascara & (1 << i)) == 0) continue;
+            if (tipo.esEntero(i)) {
+                long valor = leerVarint(datos, posicion, hasta);
+                campos[i] = (int) ((valor >>> 1) ^ -(valor & 1));
+            } else if (tipo.esLista(i)) {
+                long elementos = leerVarint(datos, posicion, hasta);
+                if (elementos > hasta - posicion[0]) {
+                    throw new IllegalArgumentException("Lista truncada en mensaje " + tipo);
+                }
+                String[] lista = new String[(int) elementos];
+                for (int j = 0; j < lista.length; j++) {
+                    lista[j] = leerTexto(datos, posicion, hasta, tipo);
+                }
+                campos[i] = lista;
+            } else {
+                campos[i] = leerTexto(datos, posicion, hasta, tipo);
+            }
+        }
+        if (posicion[0] != hasta) {
+            throw new IllegalArgumentException("Bytes de más en mensaje " + tipo);
+        }
+        return Mensaje.crear(tipo, campos);
+    }
+
+    private static String leerTexto(byte[] datos, int[] posicion, int hasta, TipoMensaje tipo) {
+        long longitud = leerVarint(datos, posicion, hasta);
+        if (longitud > hasta - posicion[0]) {
+            throw new IllegalArgumentException("Texto truncado en mensaje " + tipo);
+        }
+        String texto = new String(datos, posicion[0], (int) longitud, StandardCharsets.UTF_8);
+        posicion[0] += (int) longitud;
+        return texto;
+    }
+
+    /**
+     * Lee una trama completa de un flujo bloqueante
+     * @param entrada Flujo de entrada (se recomienda con búfer)
+     * @return Mensaje leído, o null si el flujo terminó limpiamente entre tramas
+     * @throws IOException si el flujo se corta a mitad de trama o la trama no es válida
+     */
+    public static Mensaje leer(InputStream entrada) throws IOException {
+        int longitud = 0;
+        for (int i = 0; ; i++) {
+            int b = entrada.read();
+            if (b < 0) {
+                if (i == 0) return null;
+                throw new EOFException("Conexión cerrada a mitad de trama");
+            }
+            if (i == 4 && b > 0x0F) {
+                throw new IOException("Prefijo de longitud mal formado");
+            }
+            longitud |= (b & 0x7F) << (7 * i);
+            if (b < 0x80) break;
+        }
+        if (longitud <= 0 || longitud > LONGITUD_MAXIMA) {
+            throw new IOException("Longitud de trama no válida: " + longitud);
+        }
+
+        byte[] carga = new byte[longitud];
+        new DataInputStream(entrada).readFully(carga);
+        try {
+            return decodificar(carga, 0, longitud);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Codifica un entero con signo en zigzag para que los negativos pequeños ocupen pocos bytes
+     */
+    static long zigzag(int valor) {
+        return ((long) (valor << 1) ^ (valor >> 31)) & 0xFFFFFFFFL;
+    }
+
+    static int longitudVarint(long valor) {
+        int bytes = 1;
+        while ((valor & ~0x7FL) != 0) {
+            valor >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    /**
+     * Escribe un entero sin signo en formato varint (7 bits por byte)
+     */
+    static void escribirVarint(long valor, ByteBuffer destino) {
+        while ((valor & ~0x7FL) != 0) {
+            destino.put((byte) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        destino.put((byte) valor);
+    }
+
+    /**
+     * Lee un varint de hasta 32 bits avanzando la posición
+     */
+    private static long leerVarint(byte[] datos, int[] posicion, int hasta) {
+        long valor = 0;
+        for (int i = 0; i < 5; i++) {
+            if (posicion[0] >= hasta) {
+                throw new IllegalArgumentException("Varint truncado");
+            }
+            byte b = datos[posicion[0]++];
+            valor |= (long) (b & 0x7F) << (7 * i);
+            if (b >= 0) {
+                return valor;
+            }
+        }
+        throw new IllegalArgumentException("Varint mal formado");
+    }
+}
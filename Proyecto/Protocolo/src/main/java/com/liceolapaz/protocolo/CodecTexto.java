@@ -0,0 +1,192 @@
+package com.liceolapaz.protocolo;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codificador y decodificador del protocolo de texto de trivia (una línea por mensaje)
+ * Formato: CLAVE;ETIQUETA:valor;...\n, con los campos ausentes omitidos y los textos escapados
+ * (ver LectorTexto), de modo que un ';' o un salto de línea en una pregunta no rompen la línea
+ *
+ * La codificación escribe directamente los bytes UTF-8 en un ByteBuffer (normalmente de ReservaBuferes)
+ * sin String.format ni cadenas intermedias; longitud() da el tamaño exacto para elegir el búfer
+ * La decodificación recorre la línea con un LectorTexto reutilizable sin partirla con split()
+ */
+public final class CodecTexto {
+
+    private CodecTexto() {}
+
+    /**
+     * Calcula los bytes que ocupa un mensaje codificado, incluido el salto de línea
+     * @param mensaje Mensaje a medir
+     * @return Número exacto de bytes
+     */
+    public static int longitud(Mensaje mensaje) {
+        TipoMensaje tipo = mensaje.getTipo();
+        if (tipo == TipoMensaje.LINEA) {
+            return Utf8.longitud(mensaje.getTexto(0), false) + 1;
+        }
+
+        return tipo.getClave().length() + longitudCampos(mensaje, 0, tipo.getNumeroCampos()) + 1;
+    }
+
+    /**
+     * Calcula los bytes que ocupan los campos presentes de un rango, cada uno con su ';' delante
+     * @param mensaje Mensaje a medir
+     * @param desde Primer campo (incluido)
+     * @param hasta Último campo (excluido)
+     * @return Número exacto de bytes
+     */
+    static int longitudCampos(Mensaje mensaje, int desde, int hasta) {
+        TipoMensaje tipo = mensaje.getTipo();
+        int bytes = 0;
+        for (int i = desde; i < hasta; i++) {
+            if (!mensaje.tieneCampo(i)) continue;
+            if (tipo.esLista(i)) {
+                for (String elemento : mensaje.getLista(i)) {
+                    bytes += 1 + Utf8.longitud(elemento, true);
+                }
+                continue;
+            }
+            bytes += 1 + tipo.getEtiqueta(i).length();
+            bytes += tipo.esEntero(i)
+                    ? Utf8.longitudEntero(mensaje.getEntero(i))
+                    : Utf8.longitud(mensaje.getTexto(i), true);
+        }
+        return bytes;
+    }
+
+    /**
+     * Escribe un mensaje como línea de texto terminada en '\n'
+     * @param mensaje Mensaje a codificar
+     * @param destino Búfer con al menos longitud(mensaje) bytes libres
+     */
+    public static void codificar(Mensaje mensaje, ByteBuffer destino) {
+        TipoMensaje tipo = mensaje.getTipo();
+        if (tipo == TipoMensaje.LINEA) {
+            // Línea libre: se envía tal cual, igual que antes de los mensajes estructurados
+            Utf8.escribir(mensaje.getTexto(0), false, destino);
+            destino.put((byte) '\n');
+            return;
+        }
+
+        Utf8.escribir(tipo.getClave(), false, destino);
+        codificarCampos(mensaje, 0, tipo.getNumeroCampos(), destino);
+        destino.put((byte) '\n');
+    }
+
+    /**
+     * Escribe los campos presentes de un rango, cada uno con su ';' delante
+     * Permite codificar por separado la parte fija de un mensaje (ver TramaPregunta)
+     * @param mensaje Mensaje a codificar
+     * @param desde Primer campo (incluido)
+     * @param hasta Último campo (excluido)
+     * @param destino Búfer con al menos longitudCampos() bytes libres
+     */
+    static void codificarCampos(Mensaje mensaje, int desde, int hasta, ByteBuffer destino) {
+        TipoMensaje tipo = mensaje.getTipo();
+        for (int i = desde; i < hasta; i++) {
+            if (!mensaje.tieneCampo(i)) continue;
+            if (tipo.esLista(i)) {
+                for (String elemento : mensaje.getLista(i)) {
+                    destino.put((byte) ';');
+                    Utf8.escribir(elemento, true, destino);
+                }
+                continue;
+            }
+            destino.put((byte) ';');
+            Utf8.escribir(tipo.getEtiqueta(i), false, destino);
+            if (tipo.esEntero(i)) {
+                Utf8.escribirEntero(mensaje.getEntero(i), destino);
+            } else {
+                Utf8.escribir(mensaje.getTexto(i), true, destino);
+            }
+        }
+    }
+
+    /**
+     * Construye la línea de texto de un mensaje como String (sin salto de línea)
+     * Pensado para registros y para entregar tramas binarias a receptores de texto
+     */
+    static String aLinea(Mensaje mensaje) {
+        TipoMensaje tipo = mensaje.getTipo();
+        if (tipo == TipoMensaje.LINEA) {
+            return mensaje.getTexto(0);
+        }
+
+        StringBuilder sb = new StringBuilder(64).append(tipo.getClave());
+        for (int i = 0; i < tipo.getNumeroCampos(); i++) {
+            if (!mensaje.tieneCampo(i)) continue;
+            if (tipo.esLista(i)) {
+                for (String elemento : mensaje.getLista(i)) {
+                    escapar(sb.append(';'), elemento);
+                }
+            } else if (tipo.esEntero(i)) {
+                sb.append(';').append(tipo.getEtiqueta(i)).append(mensaje.getEntero(i));
+            } else {
+                escapar(sb.append(';').append(tipo.getEtiqueta(i)), mensaje.getTexto(i));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void escapar(StringBuilder sb, String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (Utf8.esReservado(c)) {
+                sb.append('\\').append(c == '\n' ? 'n' : c == '\r' ? 'r' : c);
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+
+    /**
+     * Interpreta una línea del protocolo de texto
+     * Los campos con etiqueta se reconocen por ella, en el orden del tipo, saltando los ausentes;
+     * los campos sin etiqueta se toman por posición
+     * Si la línea no corresponde a un tipo estructurado, o está mal formada, se devuelve como LINEA
+     * para que el receptor la trate como texto libre
+     * @param linea Línea recibida sin salto de línea
+     * @param lector Lector reutilizable (uno por hilo)
+     * @return Mensaje equivalente
+     */
+    public static Mensaje decodificar(String linea, LectorTexto lector) {
+        lector.reiniciar(linea);
+        lector.siguiente();
+        TipoMensaje tipo = TipoMensaje.porClave(lector);
+        if (tipo == null) {
+            return Mensaje.linea(linea);
+        }
+
+        Object[] campos = new Object[tipo.getNumeroCampos()];
+        int campo = 0;
+        try {
+            while (lector.siguiente()) {
+                while (campo < campos.length && !lector.empiezaPor(tipo.getEtiqueta(campo))) {
+                    campo++;
+                }
+                if (campo == campos.length) {
+                    return Mensaje.linea(linea); // Campo que no encaja en el tipo
+                }
+
+                int desplazamiento = tipo.getEtiqueta(campo).length();
+                if (tipo.esLista(campo)) {
+                    String[] lista = new String[lector.restantes()];
+                    int i = 0;
+                    do {
+                        lista[i++] = lector.texto(0);
+                    } while (lector.siguiente());
+                    campos[campo] = lista;
+                    break;
+                }
+                campos[campo] = tipo.esEntero(campo)
+                        ? (Object) lector.entero(desplazamiento)
+                        : lector.texto(desplazamiento);
+                campo++;
+            }
+        } catch (NumberFormatException e) {
+            return Mensaje.linea(linea);
+        }
+        return Mensaje.crear(tipo, campos);
+    }
+}
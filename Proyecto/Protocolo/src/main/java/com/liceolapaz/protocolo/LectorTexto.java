@@ -0,0 +1,218 @@
+package com.liceolapaz.protocolo;
+
+/**
+ * Lector reutilizable de líneas del protocolo de texto
+ * Recorre los campos de una línea con un cursor (inicio y fin del campo actual) sin partirla en un array
+ * ni crear subcadenas: los enteros se leen en el sitio y solo se crea un String cuando se pide un texto
+ * Un mismo lector se reinicia para cada línea, por lo que no debe compartirse entre hilos
+ *
+ * En las líneas del protocolo (';' como separador) la barra invertida escapa el carácter siguiente:
+ * "\;" es un ';' dentro de un campo, "\\" una barra, "\n" y "\r" los saltos de línea
+ */
+public final class LectorTexto {
+
+    private CharSequence linea; // Línea que se está recorriendo
+    private char separador; // Separador de campos
+    private boolean escapes; // Si la barra invertida escapa al carácter siguiente
+    private int longitud; // Longitud de la línea
+    private int inicio; // Primer carácter del campo actual
+    private int fin; // Fin del campo actual (excluido); recortar() puede adelantarlo al separador
+    private int corte = -1; // Posición del separador que cierra el campo actual (o fin de línea)
+
+    /**
+     * Prepara el lector para una línea del protocolo (campos separados por ';' y con escapes)
+     * @param linea Línea sin salto de línea
+     * @return El propio lector, situado antes del primer campo
+     */
+    public LectorTexto reiniciar(CharSequence linea) {
+        return reiniciar(linea, ';', true);
+    }
+
+    /**
+     * Prepara el lector para una línea con otro separador y sin escapes (por ejemplo "categoria:modo")
+     * @param linea Línea a recorrer
+     * @param separador Carácter separador de campos
+     * @return El propio lector, situado antes del primer campo
+     */
+    public LectorTexto reiniciar(CharSequence linea, char separador) {
+        return reiniciar(linea, separador, false);
+    }
+
+    private LectorTexto reiniciar(CharSequence linea, char separador, boolean escapes) {
+        this.linea = linea;
+        this.separador = separador;
+        this.escapes = escapes;
+        this.longitud = linea.length();
+        this.inicio = 0;
+        this.fin = 0;
+        this.corte = -1;
+        return this;
+    }
+
+    /**
+     * Avanza al siguiente campo
+     * @return true si hay campo, false si se llegó al final de la línea
+     */
+    public boolean siguiente() {
+        if (corte >= longitud) {
+            return false;
+        }
+        inicio = corte + 1;
+        corte = buscarFin(inicio);
+        fin = corte;
+        return true;
+    }
+
+    /**
+     * Cuenta los campos que quedan desde la posición actual, incluido el actual si lo hay
+     * @return Número de campos restantes
+     */
+    public int restantes() {
+        if (corte >= longitud) {
+            return 0;
+        }
+        int cuenta = corte < 0 ? 0 : 1;
+        int posicion = corte;
+        while (posicion < longitud) {
+            posicion = buscarFin(posicion + 1);
+            cuenta++;
+        }
+        return cuenta;
+    }
+
+    /**
+     * Busca el separador que termina el campo que empieza en una posición
+     */
+    private int buscarFin(int desde) {
+        for (int i = desde; i < longitud; i++) {
+            char c = linea.charAt(i);
+            if (escapes && c == '\\') {
+                i++; // El carácter siguiente forma parte del campo
+            } else if (c == separador) {
+                return i;
+            }
+        }
+        return longitud;
+    }
+
+    /**
+     * Quita los espacios del principio y del final del campo actual
+     * No mueve el separador: siguiente() continúa en el campo que viene detrás
+     * @return El propio lector
+     */
+    public LectorTexto recortar() {
+        while (inicio < fin && Character.isWhitespace(linea.charAt(inicio))) inicio++;
+        while (fin > inicio && Character.isWhitespace(linea.charAt(fin - 1))) fin--;
+        return this;
+    }
+
+    /**
+     * Obtiene la longitud del campo actual (con los escapes sin resolver)
+     */
+    public int longitudCampo() {
+        return fin - inicio;
+    }
+
+    /**
+     * Comprueba si el campo actual empieza por un prefijo (normalmente su etiqueta, como "NUMERO:")
+     * @param prefijo Prefijo a comprobar
+     * @return true si el campo empieza por el prefijo
+     */
+    public boolean empiezaPor(String prefijo) {
+        int n = prefijo.length();
+        if (n > fin - inicio) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (linea.charAt(inicio + i) != prefijo.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Comprueba si el campo actual es exactamente un valor
+     * @param valor Valor a comparar
+     * @param ignorarMayusculas Si se comparan sin distinguir mayúsculas
+     * @return true si coinciden
+     */
+    public boolean esIgual(String valor, boolean ignorarMayusculas) {
+        int n = valor.length();
+        if (n != fin - inicio) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            char a = linea.charAt(inicio + i);
+            char b = valor.charAt(i);
+            if (a != b && (!ignorarMayusculas || Character.toLowerCase(a) != Character.toLowerCase(b))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lee el campo actual como entero, saltando un prefijo
+     * @param desplazamiento Caracteres a saltar (la longitud de la etiqueta)
+     * @return Valor del entero
+     * @throws NumberFormatException si el campo no es un entero válido
+     */
+    public int entero(int desplazamiento) {
+        int i = inicio + desplazamiento;
+        if (i >= fin) {
+            throw new NumberFormatException("Campo vacío");
+        }
+        boolean negativo = linea.charAt(i) == '-';
+        if (negativo && ++i >= fin) {
+            throw new NumberFormatException("Campo sin dígitos");
+        }
+        long valor = 0;
+        for (; i < fin; i++) {
+            int digito = linea.charAt(i) - '0';
+            if (digito < 0 || digito > 9) {
+                throw new NumberFormatException("Carácter no numérico en la posición " + i);
+            }
+            valor = valor * 10 + digito;
+            if (valor > Integer.MAX_VALUE + 1L) {
+                throw new NumberFormatException("Entero fuera de rango");
+            }
+        }
+        valor = negativo ? -valor : valor;
+        if (valor > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Entero fuera de rango");
+        }
+        return (int) valor;
+    }
+
+    /**
+     * Lee el campo actual como texto, saltando un prefijo y resolviendo los escapes
+     * @param desplazamiento Caracteres a saltar (la longitud de la etiqueta)
+     * @return Texto del campo (única reserva de memoria del lector)
+     */
+    public String texto(int desplazamiento) {
+        int desde = Math.min(inicio + desplazamiento, fin);
+        if (!escapes || !contieneEscape(desde)) {
+            return linea.subSequence(desde, fin).toString();
+        }
+
+        StringBuilder sb = new StringBuilder(fin - desde);
+        for (int i = desde; i < fin; i++) {
+            char c = linea.charAt(i);
+            if (c == '\\' && i + 1 < fin) {
+                char siguiente = linea.charAt(++i);
+                sb.append(siguiente == 'n' ? '\n' : siguiente == 'r' ? '\r' : siguiente);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private boolean contieneEscape(int desde) {
+        for (int i = desde; i < fin; i++) {
+            if (linea.charAt(i) == '\\') return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,144 @@
+package com.liceolapaz.protocolo;
+
+import java.util.Arrays;
+
+/**
+ * Mensaje del protocolo de trivia en forma estructurada: un tipo y sus campos en orden
+ * Es la representación común de los dos protocolos: se convierte a línea de texto para los clientes antiguos
+ * y a trama binaria (ver CodecBinario) para los que negocian el protocolo binario
+ * Los campos enteros se guardan como Integer, los de texto como String y las listas como String[];
+ * un campo null es un campo ausente
+ */
+public final class Mensaje {
+
+    private final TipoMensaje tipo; // Tipo del mensaje
+    private final Object[] campos; // Valores de los campos (null si el campo no está presente)
+
+    // Lector de texto reutilizado por cada hilo que interpreta líneas
+    private static final ThreadLocal<LectorTexto> LECTOR = ThreadLocal.withInitial(LectorTexto::new);
+
+    private Mensaje(TipoMensaje tipo, Object[] campos) {
+        this.tipo = tipo;
+        this.campos = campos;
+    }
+
+    /**
+     * Crea un mensaje comprobando que los campos encajan con su tipo
+     * @param tipo Tipo del mensaje
+     * @param campos Valores en orden (Integer para campos enteros, String para texto, String[] para listas,
+     *               null para omitir un campo opcional); los campos finales que falten se consideran ausentes
+     * @return Mensaje creado
+     */
+    public static Mensaje de(TipoMensaje tipo, Object... campos) {
+        if (campos.length > tipo.getNumeroCampos()) {
+            throw new IllegalArgumentException("Demasiados campos para " + tipo + ": " + campos.length);
+        }
+        for (int i = 0; i < campos.length; i++) {
+            boolean valido = campos[i] == null
+                    || (tipo.esEntero(i) ? campos[i] instanceof Integer
+                    : tipo.esLista(i) ? campos[i] instanceof String[] : campos[i] instanceof String);
+            if (!valido) {
+                throw new IllegalArgumentException("Campo " + i + " de " + tipo + " no válido: " + campos[i]);
+            }
+        }
+        return new Mensaje(tipo, Arrays.copyOf(campos, tipo.getNumeroCampos()));
+    }
+
+    /**
+     * Envuelve una línea de texto sin tipo estructurado
+     * @param linea Línea completa del protocolo de texto
+     * @return Mensaje de tipo LINEA
+     */
+    public static Mensaje linea(String linea) {
+        return new Mensaje(TipoMensaje.LINEA, new Object[]{linea});
+    }
+
+    /**
+     * Interpreta una línea del protocolo de texto (ver CodecTexto.decodificar)
+     * @param linea Línea recibida sin salto de línea
+     * @return Mensaje equivalente, o LINEA si no corresponde a ningún tipo estructurado
+     */
+    public static Mensaje desdeLinea(String linea) {
+        return CodecTexto.decodificar(linea, LECTOR.get());
+    }
+
+    /**
+     * Convierte el mensaje a su línea del protocolo de texto (sin salto de línea)
+     * @return Línea equivalente, idéntica a la que se enviaba antes de los mensajes estructurados
+     */
+    public String aLinea() {
+        return CodecTexto.aLinea(this);
+    }
+
+    public TipoMensaje getTipo() {
+        return tipo;
+    }
+
+    /**
+     * Obtiene el número de posiciones de campo del mensaje (presentes o no)
+     */
+    public int getNumeroCampos() {
+        return campos.length;
+    }
+
+    /**
+     * Indica si el campo está presente
+     */
+    public boolean tieneCampo(int campo) {
+        return campo < campos.length && campos[campo] != null;
+    }
+
+    /**
+     * Obtiene un campo entero
+     */
+    public int getEntero(int campo) {
+        return (Integer) campos[campo];
+    }
+
+    /**
+     * Obtiene un campo de texto
+     */
+    public String getTexto(int campo) {
+        return (String) campos[campo];
+    }
+
+    /**
+     * Obtiene un campo de lista de textos
+     */
+    public String[] getLista(int campo) {
+        return (String[]) campos[campo];
+    }
+
+    /**
+     * Obtiene el valor de un campo sin convertir
+     */
+    Object getCampo(int campo) {
+        return campos[campo];
+    }
+
+    /**
+     * Construye un mensaje sin copiar ni validar los campos (solo para los codecs del paquete)
+     * El array debe tener una posición por cada campo del tipo
+     */
+    static Mensaje crear(TipoMensaje tipo, Object[] campos) {
+        return new Mensaje(tipo, campos);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Mensaje)) return false;
+        Mensaje otro = (Mensaje) o;
+        return tipo == otro.tipo && Arrays.deepEquals(campos, otro.campos);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * tipo.hashCode() + Arrays.deepHashCode(campos);
+    }
+
+    @Override
+    public String toString() {
+        return aLinea();
+    }
+}
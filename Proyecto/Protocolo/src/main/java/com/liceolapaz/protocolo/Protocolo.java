@@ -0,0 +1,30 @@
+package com.liceolapaz.protocolo;
+
+/**
+ * Constantes de la negociación del protocolo entre cliente y servidor
+ *
+ * La conexión siempre empieza en texto. El servidor ofrece el protocolo binario con el campo BINARIO de
+ * SOLICITUD_NOMBRE ("SOLICITUD_NOMBRE;BINARIO:1"; los clientes antiguos solo miran el comienzo de la línea)
+ * Un cliente que lo soporte responde con la línea PETICION_BINARIO y, a partir de ahí, escribe en binario
+ * El servidor contesta con la línea ACEPTACION_BINARIO y, desde ese momento, también escribe en binario
+ * Así cada sentido cambia de protocolo en un punto exacto del flujo de bytes
+ *
+ * Del mismo modo, el servidor ofrece el modo rápido con el campo LISTO de SOLICITUD_NOMBRE: un cliente que confirma
+ * con LISTO lo que muestra responde con la línea ANUNCIO_LISTO, aún en texto, antes de pedir el binario y de enviar
+ * su nombre. Una partida solo se juega a ritmo de confirmaciones si todos sus jugadores lo anunciaron
+ */
+public final class Protocolo {
+
+    // Versión del protocolo binario que se anuncia en el campo BINARIO de SOLICITUD_NOMBRE
+    public static final int VERSION_BINARIO = 1;
+    // Línea con la que el cliente pide pasar al protocolo binario
+    public static final String PETICION_BINARIO = "PROTOCOLO;BINARIO";
+    // Línea con la que el servidor confirma el cambio; es la última que envía en texto
+    public static final String ACEPTACION_BINARIO = "PROTOCOLO_ACEPTADO;BINARIO";
+    // Versión de las confirmaciones LISTO que se anuncia en el campo LISTO de SOLICITUD_NOMBRE
+    public static final int VERSION_LISTO = 1;
+    // Línea con la que el cliente anuncia que envía confirmaciones LISTO
+    public static final String ANUNCIO_LISTO = "PROTOCOLO;LISTO";
+
+    private Protocolo() {}
+}
@@ -0,0 +1,71 @@
+package com.liceolapaz.protocolo;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reserva de búferes de salida reutilizables
+ * Los mensajes se codifican en un búfer prestado que se devuelve en cuanto el socket lo ha aceptado,
+ * así enviar un mensaje no deja basura en el montón; los mensajes que no caben en un búfer de la reserva
+ * usan uno propio del tamaño justo
+ * Quien devuelve un búfer debe haberlo obtenido aquí y no conservar ninguna referencia a él
+ */
+public final class ReservaBuferes {
+
+    // Tamaño de cada búfer de la reserva (cabe cualquier mensaje de partida)
+    public static final int TAMANO = 4 * 1024;
+    // Búferes libres que se conservan como máximo (propiedad "trivia.buferesReservados")
+    private static final int MAXIMO_LIBRES = Integer.getInteger("trivia.buferesReservados", 1024);
+
+    // Pila de búferes libres; un array evita los nodos que crearía una cola concurrente en cada devolución
+    private static final ByteBuffer[] libres = new ByteBuffer[MAXIMO_LIBRES];
+    private static int cima = 0;
+    private static long creados = 0; // Búferes de reserva creados desde el arranque
+
+    private ReservaBuferes() {}
+
+    /**
+     * Obtiene un búfer vacío con espacio para al menos la longitud indicada
+     * @param longitud Bytes que se van a escribir
+     * @return Búfer en modo escritura
+     */
+    public static ByteBuffer obtener(int longitud) {
+        if (longitud > TAMANO) {
+            return ByteBuffer.allocate(longitud);
+        }
+        synchronized (libres) {
+            if (cima > 0) {
+                ByteBuffer bufer = libres[--cima];
+                libres[cima] = null;
+                return bufer;
+            }
+            creados++;
+        }
+        return ByteBuffer.allocate(TAMANO);
+    }
+
+    /**
+     * Devuelve un búfer obtenido con obtener() para que otro envío lo reutilice
+     * @param bufer Búfer que ya no se va a usar
+     */
+    public static void devolver(ByteBuffer bufer) {
+        if (bufer.capacity() != TAMANO) {
+            return; // Búfer de tamaño justo: lo recoge el recolector
+        }
+        bufer.clear();
+        synchronized (libres) {
+            if (cima < libres.length) {
+                libres[cima++] = bufer;
+            }
+        }
+    }
+
+    /**
+     * Genera un resumen del uso de la reserva
+     * @return Texto con búferes creados y libres
+     */
+    public static String obtenerResumen() {
+        synchronized (libres) {
+            return String.format("🧺 Búferes de salida: %d creados, %d libres", creados, cima);
+        }
+    }
+}
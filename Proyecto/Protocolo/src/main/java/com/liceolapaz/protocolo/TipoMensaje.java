@@ -0,0 +1,135 @@
+package com.liceolapaz.protocolo;
+
+/**
+ * Tipos de mensaje del protocolo de trivia con su forma estructurada
+ * Cada tipo tiene un código de un byte para el protocolo binario, la palabra clave con la que empieza
+ * en el protocolo de texto y la lista de campos en orden
+ * Los campos se describen como "ETIQUETA:N" (entero), "ETIQUETA:T" (texto) o "L" (lista de textos, solo al final);
+ * sin etiqueta ("N" o "T") el campo va sin prefijo en la línea de texto
+ * Los campos con etiqueta son opcionales: si faltan, la línea simplemente no los incluye
+ * Los mensajes que no tienen tipo propio viajan como LINEA: la línea de texto completa en un único campo
+ */
+public enum TipoMensaje {
+
+    LINEA(0, null, "T"),
+
+    // Partida
+    PREGUNTA(1, "PREGUNTA", "NUMERO:N", "TOTAL:N", "TEXTO:T", "A:T", "B:T", "C:T", "D:T"),
+    SOLICITAR_RESPUESTA(2, "SOLICITAR_RESPUESTA"),
+    RESPUESTA_CORRECTA(3, "RESPUESTA_CORRECTA"),
+    RESPUESTA_INCORRECTA(4, "RESPUESTA_INCORRECTA"),
+    TIMEOUT(5, "TIMEOUT"),
+    RESULTADO(6, "RESULTADO", "CORRECTA:T", "PUNTOS_J1:N", "PUNTOS_J2:N"),
+    LISTO(7, "LISTO", "T"),
+    PARTIDA_ENCONTRADA(8, "PARTIDA_ENCONTRADA", "TIPO:T", "OPONENTE:T", "CATEGORIA:T"),
+    PARTIDA_SOLO_INICIADA(9, "PARTIDA_SOLO_INICIADA", "CATEGORIA:T"),
+    PARTIDA_INICIADA(10, "PARTIDA_INICIADA", "OPONENTE:T", "CATEGORIA:T"),
+    FIN_PARTIDA(11, "FIN_PARTIDA", "RESULTADO:T", "PUNTOS:N", "TOTAL_PREGUNTAS:N", "OPONENTE_PUNTOS:N", "PUNTOS_GANADOS:N"),
+    PARTIDA_CANCELADA(12, "PARTIDA_CANCELADA"),
+    ERROR(13, "ERROR", "T"),
+    PARTIDA_EN_CURSO(14, "PARTIDA_EN_CURSO"),
+
+    // Concurso en directo
+    DIRECTO_PROGRAMADO(15, "DIRECTO_PROGRAMADO", "CATEGORIA:T", "SEGUNDOS:N", "INSCRITOS:N"),
+    POSICION_DIRECTO(16, "POSICION_DIRECTO", "PUESTO:N", "JUGADORES:N", "ACERTARON:N"),
+
+    // Lobby
+    SOLICITUD_NOMBRE(20, "SOLICITUD_NOMBRE", "BINARIO:N", "LISTO:N"),
+    CATEGORIAS_DISPONIBLES(21, "CATEGORIAS_DISPONIBLES", "L"),
+    ESTADISTICAS(22, "ESTADISTICAS", "T"),
+    RANKING(23, "RANKING", "T"),
+    HISTORIAL(24, "HISTORIAL", "T", "T"),
+    HISTORIAL_INVALIDO(25, "HISTORIAL_INVALIDO", "T"),
+    PUNTUACION_TOTAL(26, "PUNTUACION_TOTAL", "N"),
+    SELECCION_INVALIDA(27, "SELECCION_INVALIDA", "FORMATO:T"),
+    CATEGORIA_INVALIDA(28, "CATEGORIA_INVALIDA", "T"),
+    MODO_INVALIDO(29, "MODO_INVALIDO", "T"),
+    CONEXION_CANCELADA(30, "CONEXION_CANCELADA");
+
+    // Tipos indexados por código para decodificar sin recorrer el enum
+    private static final TipoMensaje[] POR_CODIGO = new TipoMensaje[128];
+    // Copia única de values() (cada llamada a values() crea un array nuevo)
+    private static final TipoMensaje[] TIPOS = values();
+
+    static {
+        for (TipoMensaje tipo : TIPOS) {
+            POR_CODIGO[tipo.codigo] = tipo;
+        }
+    }
+
+    private final byte codigo; // Código del tipo en el protocolo binario
+    private final String clave; // Primera palabra de la línea en el protocolo de texto (null para LINEA)
+    private final String[] etiquetas; // Prefijo de cada campo en la línea de texto ("" si no lleva)
+    private final char[] clases; // Clase de cada campo: 'N' entero, 'T' texto, 'L' lista de textos
+
+    TipoMensaje(int codigo, String clave, String... campos) {
+        this.codigo = (byte) codigo;
+        this.clave = clave;
+        this.etiquetas = new String[campos.length];
+        this.clases = new char[campos.length];
+        for (int i = 0; i < campos.length; i++) {
+            int separador = campos[i].lastIndexOf(':');
+            etiquetas[i] = separador < 0 ? "" : campos[i].substring(0, separador + 1);
+            clases[i] = campos[i].charAt(campos[i].length() - 1);
+        }
+    }
+
+    /**
+     * Obtiene el tipo correspondiente a un código binario
+     * @param codigo Código leído de la trama
+     * @return Tipo de mensaje o null si el código no existe
+     */
+    public static TipoMensaje porCodigo(int codigo) {
+        return codigo >= 0 && codigo < POR_CODIGO.length ? POR_CODIGO[codigo] : null;
+    }
+
+    /**
+     * Busca el tipo cuya palabra clave coincide con el campo actual de un lector
+     * @param lector Lector situado sobre el primer campo de la línea
+     * @return Tipo estructurado, o null si la palabra no corresponde a ninguno
+     */
+    static TipoMensaje porClave(LectorTexto lector) {
+        for (TipoMensaje tipo : TIPOS) {
+            if (tipo.clave != null && lector.esIgual(tipo.clave, false)) {
+                return tipo;
+            }
+        }
+        return null;
+    }
+
+    public byte getCodigo() {
+        return codigo;
+    }
+
+    public String getClave() {
+        return clave;
+    }
+
+    /**
+     * Obtiene el número máximo de campos del tipo
+     */
+    public int getNumeroCampos() {
+        return etiquetas.length;
+    }
+
+    /**
+     * Obtiene el prefijo de un campo en la línea de texto
+     */
+    public String getEtiqueta(int campo) {
+        return etiquetas[campo];
+    }
+
+    /**
+     * Indica si un campo es un entero
+     */
+    public boolean esEntero(int campo) {
+        return clases[campo] == 'N';
+    }
+
+    /**
+     * Indica si un campo es una lista de textos
+     */
+    public boolean esLista(int campo) {
+        return clases[campo] == 'L';
+    }
+}
@@ -0,0 +1,90 @@
+package com.liceolapaz.protocolo;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Uno o varios mensajes codificados una sola vez en los dos protocolos para enviarlos a muchas conexiones
+ * Cada conexión escribe una vista propia de los mismos bytes, así que difundir un mensaje a miles de jugadores
+ * cuesta dos codificaciones (texto y binario) en lugar de una por jugador
+ *
+ * Los bytes son de solo lectura y no pertenecen a ReservaBuferes: nunca deben devolverse a la reserva
+ */
+public final class TramaDifundida {
+
+    private final ByteBuffer texto; // Líneas de texto seguidas
+    private final ByteBuffer binario; // Tramas binarias seguidas
+    private final int mensajes; // Número de mensajes que contiene
+
+    private TramaDifundida(ByteBuffer texto, ByteBuffer binario, int mensajes) {
+        this.texto = texto.asReadOnlyBuffer();
+        this.binario = binario.asReadOnlyBuffer();
+        this.mensajes = mensajes;
+    }
+
+    /**
+     * Codifica una secuencia de mensajes que se enviarán juntos y en este orden
+     * @param mensajes Mensajes a difundir
+     * @return Trama lista para enviar a cualquier conexión
+     */
+    public static TramaDifundida de(Mensaje... mensajes) {
+        int longitudTexto = 0;
+        int longitudBinaria = 0;
+        for (Mensaje mensaje : mensajes) {
+            longitudTexto += CodecTexto.longitud(mensaje);
+            longitudBinaria += CodecBinario.longitud(mensaje);
+        }
+
+        ByteBuffer enTexto = ByteBuffer.allocate(longitudTexto);
+        ByteBuffer enBinario = ByteBuffer.allocate(longitudBinaria);
+        for (Mensaje mensaje : mensajes) {
+            CodecTexto.codificar(mensaje, enTexto);
+            CodecBinario.codificar(mensaje, enBinario);
+        }
+        enTexto.flip();
+        enBinario.flip();
+        return new TramaDifundida(enTexto, enBinario, mensajes.length);
+    }
+
+    /**
+     * Codifica una pregunta precodificada con su número, para enviarla igual a todos los jugadores
+     * @param pregunta Pregunta precodificada
+     * @param numero Número de la pregunta
+     * @param total Total de preguntas
+     * @return Trama lista para enviar a cualquier conexión
+     */
+    public static TramaDifundida de(TramaPregunta pregunta, int numero, int total) {
+        ByteBuffer enTexto = ByteBuffer.allocate(pregunta.longitud(false, numero, total));
+        ByteBuffer enBinario = ByteBuffer.allocate(pregunta.longitud(true, numero, total));
+        pregunta.codificar(false, numero, total, enTexto);
+        pregunta.codificar(true, numero, total, enBinario);
+        enTexto.flip();
+        enBinario.flip();
+        return new TramaDifundida(enTexto, enBinario, 1);
+    }
+
+    /**
+     * Obtiene una vista independiente de los bytes, lista para escribir en un socket
+     * Es de solo lectura y no es de la reserva: no debe pasarse a ReservaBuferes.devolver()
+     * @param binario Protocolo de la conexión
+     * @return Vista con su propia posición sobre los bytes compartidos
+     */
+    public ByteBuffer cuerpo(boolean binario) {
+        return (binario ? this.binario : texto).duplicate();
+    }
+
+    /**
+     * Bytes de la trama en un protocolo
+     * @param binario Protocolo de la conexión
+     * @return Número de bytes
+     */
+    public int longitud(boolean binario) {
+        return (binario ? this.binario : texto).remaining();
+    }
+
+    /**
+     * Número de mensajes que contiene la trama
+     */
+    public int getMensajes() {
+        return mensajes;
+    }
+}
@@ -0,0 +1,165 @@
+package com.liceolapaz.protocolo;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Mensaje PREGUNTA precodificado en los dos protocolos
+ * El texto y las opciones de una pregunta no cambian, así que sus bytes se codifican una sola vez y se comparten
+ * entre todos los jugadores y todas las partidas; por cada envío solo se codifica la cabecera con NUMERO y TOTAL
+ * La trama resultante es idéntica byte a byte a la de CodecTexto o CodecBinario para el mismo mensaje
+ *
+ * Los cuerpos compartidos son de solo lectura y no pertenecen a ReservaBuferes: nunca deben devolverse a la reserva
+ */
+public final class TramaPregunta {
+
+    private static final TipoMensaje TIPO = TipoMensaje.PREGUNTA;
+    private static final int CAMPOS_CABECERA = 2; // NUMERO y TOTAL, los únicos que cambian entre envíos
+    // Bytes máximos de la cabecera binaria sin el prefijo: tipo, máscara y dos varints de 5 bytes
+    private static final int MAXIMO_CARGA_CABECERA = 1 + 1 + 5 + 5;
+
+    private final Mensaje plantilla; // PREGUNTA sin NUMERO ni TOTAL
+    private final int mascara; // Máscara binaria de campos presentes, NUMERO y TOTAL incluidos
+    private final ByteBuffer cuerpoTexto; // ;TEXTO:...;A:...;B:...;C:...;D:...\n
+    private final ByteBuffer cuerpoBinario; // Los cinco textos con su longitud
+
+    /**
+     * Codifica una pregunta en los dos protocolos
+     * @param texto Enunciado
+     * @param a Opción A
+     * @param b Opción B
+     * @param c Opción C
+     * @param d Opción D
+     * @throws IllegalArgumentException si la trama binaria superaría CodecBinario.LONGITUD_MAXIMA
+     */
+    public TramaPregunta(String texto, String a, String b, String c, String d) {
+        this.plantilla = Mensaje.de(TIPO, null, null, texto, a, b, c, d);
+        this.mascara = CodecBinario.mascara(plantilla) | ((1 << CAMPOS_CABECERA) - 1);
+        int campos = TIPO.getNumeroCampos();
+
+        ByteBuffer enTexto = ByteBuffer.allocate(CodecTexto.longitudCampos(plantilla, CAMPOS_CABECERA, campos) + 1);
+        CodecTexto.codificarCampos(plantilla, CAMPOS_CABECERA, campos, enTexto);
+        enTexto.put((byte) '\n').flip();
+        this.cuerpoTexto = enTexto.asReadOnlyBuffer();
+
+        int longitudBinaria = CodecBinario.longitudCampos(plantilla, CAMPOS_CABECERA, campos);
+        if (longitudBinaria + MAXIMO_CARGA_CABECERA > CodecBinario.LONGITUD_MAXIMA) {
+            throw new IllegalArgumentException("Pregunta demasiado larga: " + longitudBinaria + " bytes");
+        }
+        ByteBuffer enBinario = ByteBuffer.allocate(longitudBinaria);
+        CodecBinario.codificarCampos(plantilla, CAMPOS_CABECERA, campos, enBinario);
+        enBinario.flip();
+        this.cuerpoBinario = enBinario.asReadOnlyBuffer();
+    }
+
+    /**
+     * Calcula los bytes de la cabecera que precede al cuerpo compartido
+     * @param binario Protocolo de la conexión
+     * @param numero Número de la pregunta en la partida
+     * @param total Total de preguntas de la partida
+     * @return Número exacto de bytes
+     */
+    public int longitudCabecera(boolean binario, int numero, int total) {
+        if (binario) {
+            int carga = longitudCargaCabecera(numero, total) + cuerpoBinario.remaining();
+            return CodecBinario.longitudVarint(carga) + carga - cuerpoBinario.remaining();
+        }
+        return TIPO.getClave().length()
+                + 1 + TIPO.getEtiqueta(0).length() + Utf8.longitudEntero(numero)
+                + 1 + TIPO.getEtiqueta(1).length() + Utf8.longitudEntero(total);
+    }
+
+    /**
+     * Calcula los bytes de la trama completa (cabecera más cuerpo)
+     * @param binario Protocolo de la conexión
+     * @param numero Número de la pregunta en la partida
+     * @param total Total de preguntas de la partida
+     * @return Número exacto de bytes
+     */
+    public int longitud(boolean binario, int numero, int total) {
+        return longitudCabecera(binario, numero, total) + (binario ? cuerpoBinario : cuerpoTexto).remaining();
+    }
+
+    /**
+     * Escribe la cabecera con NUMERO y TOTAL; el cuerpo debe escribirse justo detrás (ver cuerpo())
+     * @param binario Protocolo de la conexión
+     * @param numero Número de la pregunta en la partida
+     * @param total Total de preguntas de la partida
+     * @param destino Búfer con al menos longitudCabecera() bytes libres
+     */
+    public void codificarCabecera(boolean binario, int numero, int total, ByteBuffer destino) {
+        if (binario) {
+            // La longitud del prefijo cubre toda la carga, cuerpo compartido incluido
+            CodecBinario.escribirVarint(longitudCargaCabecera(numero, total) + cuerpoBinario.remaining(), destino);
+            destino.put(TIPO.getCodigo());
+            CodecBinario.escribirVarint(mascara, destino);
+            CodecBinario.escribirVarint(CodecBinario.zigzag(numero), destino);
+            CodecBinario.escribirVarint(CodecBinario.zigzag(total), destino);
+            return;
+        }
+        Utf8.escribir(TIPO.getClave(), false, destino);
+        destino.put((byte) ';');
+        Utf8.escribir(TIPO.getEtiqueta(0), false, destino);
+        Utf8.escribirEntero(numero, destino);
+        destino.put((byte) ';');
+        Utf8.escribir(TIPO.getEtiqueta(1), false, destino);
+        Utf8.escribirEntero(total, destino);
+    }
+
+    /**
+     * Escribe la trama completa (cabecera más una copia del cuerpo)
+     * @param binario Protocolo de la conexión
+     * @param numero Número de la pregunta en la partida
+     * @param total Total de preguntas de la partida
+     * @param destino Búfer con al menos longitud() bytes libres
+     */
+    public void codificar(boolean binario, int numero, int total, ByteBuffer destino) {
+        codificarCabecera(binario, numero, total, destino);
+        destino.put(cuerpo(binario));
+    }
+
+    /**
+     * Obtiene una vista independiente del cuerpo compartido, lista para escribir en un socket
+     * Es de solo lectura y no es de la reserva: no debe pasarse a ReservaBuferes.devolver()
+     * @param binario Protocolo de la conexión
+     * @return Vista con su propia posición sobre los bytes compartidos
+     */
+    public ByteBuffer cuerpo(boolean binario) {
+        return (binario ? cuerpoBinario : cuerpoTexto).duplicate();
+    }
+
+    /**
+     * Construye el mensaje equivalente (para registros o clientes que trabajan con Mensaje)
+     * @param numero Número de la pregunta en la partida
+     * @param total Total de preguntas de la partida
+     * @return Mensaje PREGUNTA completo
+     */
+    public Mensaje aMensaje(int numero, int total) {
+        Object[] campos = new Object[TIPO.getNumeroCampos()];
+        campos[0] = numero;
+        campos[1] = total;
+        for (int i = CAMPOS_CABECERA; i < campos.length; i++) {
+            campos[i] = plantilla.getTexto(i);
+        }
+        return Mensaje.crear(TIPO, campos);
+    }
+
+    /**
+     * Indica si la trama corresponde a una pregunta con estos textos
+     * Sirve a las cachés para detectar preguntas modificadas desde que se codificaron
+     */
+    public boolean esDe(String texto, String a, String b, String c, String d) {
+        return Objects.equals(texto, plantilla.getTexto(2)) && Objects.equals(a, plantilla.getTexto(3))
+                && Objects.equals(b, plantilla.getTexto(4)) && Objects.equals(c, plantilla.getTexto(5))
+                && Objects.equals(d, plantilla.getTexto(6));
+    }
+
+    /**
+     * Bytes de la carga binaria que aporta la cabecera: tipo, máscara, NUMERO y TOTAL
+     */
+    private int longitudCargaCabecera(int numero, int total) {
+        return 1 + CodecBinario.longitudVarint(mascara)
+                + CodecBinario.longitudVarint(CodecBinario.zigzag(numero))
+                + CodecBinario.longitudVarint(CodecBinario.zigzag(total));
+    }
+}
@@ -0,0 +1,111 @@
+package com.liceolapaz.protocolo;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codificación UTF-8 directa sobre ByteBuffer, sin pasar por String.getBytes()
+ * Permite calcular primero el tamaño exacto de un mensaje y escribirlo después en un búfer reutilizado,
+ * opcionalmente escapando los caracteres reservados del protocolo de texto
+ */
+public final class Utf8 {
+
+    private Utf8() {}
+
+    /**
+     * Calcula cuántos bytes ocupa un texto en UTF-8
+     * @param texto Texto a medir
+     * @param escapar Si se cuentan los escapes del protocolo de texto
+     * @return Número de bytes
+     */
+    public static int longitud(CharSequence texto, boolean escapar) {
+        int bytes = 0;
+        for (int i = 0, n = texto.length(); i < n; i++) {
+            char c = texto.charAt(i);
+            if (c < 0x80) {
+                bytes += escapar && esReservado(c) ? 2 : 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Escribe un texto en UTF-8
+     * @param texto Texto a escribir
+     * @param escapar Si se escapan los caracteres reservados del protocolo de texto
+     * @param destino Búfer con espacio suficiente (ver longitud())
+     */
+    public static void escribir(CharSequence texto, boolean escapar, ByteBuffer destino) {
+        for (int i = 0, n = texto.length(); i < n; i++) {
+            char c = texto.charAt(i);
+            if (c < 0x80) {
+                if (escapar && esReservado(c)) {
+                    destino.put((byte) '\\');
+                    c = c == '\n' ? 'n' : c == '\r' ? 'r' : c;
+                }
+                destino.put((byte) c);
+            } else if (c < 0x800) {
+                destino.put((byte) (0xC0 | (c >> 6)));
+                destino.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                int punto = Character.toCodePoint(c, texto.charAt(++i));
+                destino.put((byte) (0xF0 | (punto >> 18)));
+                destino.put((byte) (0x80 | ((punto >> 12) & 0x3F)));
+                destino.put((byte) (0x80 | ((punto >> 6) & 0x3F)));
+                destino.put((byte) (0x80 | (punto & 0x3F)));
+            } else {
+                if (Character.isSurrogate(c)) {
+                    c = '?'; // Sustituto suelto: no representable en UTF-8
+                }
+                destino.put((byte) (0xE0 | (c >> 12)));
+                destino.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                destino.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * Calcula cuántos dígitos (y signo) ocupa un entero en decimal
+     */
+    public static int longitudEntero(int valor) {
+        if (valor == Integer.MIN_VALUE) return 11;
+        int bytes = valor < 0 ? 2 : 1;
+        for (int resto = Math.abs(valor); resto >= 10; resto /= 10) {
+            bytes++;
+        }
+        return bytes;
+    }
+
+    /**
+     * Escribe un entero en decimal sin crear cadenas intermedias
+     */
+    public static void escribirEntero(int valor, ByteBuffer destino) {
+        if (valor == Integer.MIN_VALUE) {
+            escribir("-2147483648", false, destino);
+            return;
+        }
+        if (valor < 0) {
+            destino.put((byte) '-');
+            valor = -valor;
+        }
+        int posicion = destino.position() + longitudEntero(valor);
+        destino.position(posicion);
+        do {
+            destino.put(--posicion, (byte) ('0' + valor % 10));
+            valor /= 10;
+        } while (valor > 0);
+    }
+
+    /**
+     * Indica si un carácter debe escaparse dentro de un campo del protocolo de texto
+     */
+    static boolean esReservado(char c) {
+        return c == ';' || c == '\\' || c == '\n' || c == '\r';
+    }
+}
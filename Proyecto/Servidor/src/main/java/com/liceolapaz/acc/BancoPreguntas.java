@@ -0,0 +1,263 @@
+package com.liceolapaz.acc;
+
+import com.liceolapaz.acc.DAO.PreguntaDAO;
+import com.liceolapaz.acc.entidades.Pregunta;
+import com.liceolapaz.protocolo.TramaPregunta;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Banco de preguntas en memoria
+ * Carga una vez cada categoría desde la base de datos en arrays inmutables (todas las preguntas y
+ * separadas por dificultad) y sirve las preguntas de cada partida con un muestreo Fisher–Yates parcial,
+ * de modo que empezar una partida no necesita ninguna consulta a la base de datos
+ * Cada índice se recarga en segundo plano al caducar (propiedad "trivia.recargaPreguntasMs")
+ * o cuando se invalida tras modificar preguntas (PreguntaDAO avisa de borrados e importaciones)
+ * También guarda cada pregunta ya codificada para el protocolo (TramaPregunta), compartida por todas las partidas
+ */
+public final class BancoPreguntas {
+
+    // Vida de un índice antes de recargarlo en segundo plano (5 minutos por defecto)
+    private static final long VIGENCIA_INDICE = Long.getLong("trivia.recargaPreguntasMs", 5 * 60 * 1000L);
+
+    /**
+     * Instantánea inmutable de las preguntas activas de una categoría
+     */
+    private static final class IndiceCategoria {
+        private final Pregunta[] todas; // Todas las preguntas activas de la categoría
+        private final Map<String, Pregunta[]> porDificultad; // Mismas preguntas agrupadas por dificultad
+        private final long cargado = System.currentTimeMillis(); // Momento de la carga
+        private final AtomicBoolean recargando = new AtomicBoolean(false); // Evita recargas simultáneas
+
+        IndiceCategoria(List<Pregunta> preguntas) {
+            this.todas = preguntas.toArray(new Pregunta[0]);
+            Map<String, List<Pregunta>> agrupadas = new HashMap<>();
+            for (Pregunta p : todas) {
+                String dificultad = p.getDificultad() != null ? p.getDificultad().toLowerCase() : "medio";
+                agrupadas.computeIfAbsent(dificultad, d -> new ArrayList<>()).add(p);
+            }
+            Map<String, Pregunta[]> indice = new HashMap<>();
+            agrupadas.forEach((dificultad, lista) -> indice.put(dificultad, lista.toArray(new Pregunta[0])));
+            this.porDificultad = Map.copyOf(indice);
+        }
+
+        /**
+         * Nueva instantánea con las mismas preguntas (reinicia la vigencia tras una recarga fallida)
+         */
+        IndiceCategoria(IndiceCategoria anterior) {
+            this.todas = anterior.todas;
+            this.porDificultad = anterior.porDificultad;
+        }
+
+        boolean caducado() {
+            return System.currentTimeMillis() - cargado > VIGENCIA_INDICE;
+        }
+    }
+
+    private static final Map<String, IndiceCategoria> indices = new ConcurrentHashMap<>();
+
+    // Preguntas precodificadas por ID; una pregunta modificada se recodifica al detectar el cambio
+    private static final Map<Integer, TramaPregunta> tramas = new ConcurrentHashMap<>();
+    private static final AtomicLong tramasReutilizadas = new AtomicLong();
+    private static final AtomicLong tramasCodificadas = new AtomicLong();
+
+    // Hilo de recargas en segundo plano
+    private static final ExecutorService recargas = Executors.newSingleThreadExecutor(r -> {
+        Thread hilo = new Thread(r, "banco-preguntas");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    static {
+        // Descartar los índices afectados cuando se borran o importan preguntas
+        PreguntaDAO.setAlModificarPreguntas(categoria -> {
+            if (categoria == null) {
+                invalidarTodo();
+            } else {
+                invalidar(categoria);
+            }
+        });
+    }
+
+    private BancoPreguntas() {
+    }
+
+    /**
+     * Carga por adelantado los índices de varias categorías (por ejemplo, al arrancar el servidor)
+     * @param categorias Categorías a cargar
+     */
+    public static void precargar(Collection<String> categorias) {
+        for (String categoria : categorias) {
+            IndiceCategoria indice = obtenerIndice(categoria.toLowerCase());
+            System.out.println("  📁 " + categoria + ": " + indice.todas.length + " preguntas en memoria " +
+                    indice.porDificultad.keySet());
+        }
+    }
+
+    /**
+     * Obtiene preguntas aleatorias de una categoría sin consultar la base de datos
+     * @param categoria Categoría de las preguntas
+     * @param cantidad Número de preguntas a devolver
+     * @return Lista de preguntas distintas (menos si la categoría no tiene suficientes)
+     */
+    public static List<Pregunta> obtenerPreguntas(String categoria, int cantidad) {
+        return obtenerPreguntas(categoria, null, cantidad);
+    }
+
+    /**
+     * Obtiene preguntas aleatorias de una categoría y dificultad sin consultar la base de datos
+     * @param categoria Categoría de las preguntas
+     * @param dificultad Dificultad deseada (null para cualquiera)
+     * @param cantidad Número de preguntas a devolver
+     * @return Lista de preguntas distintas (menos si no hay suficientes)
+     */
+    public static List<Pregunta> obtenerPreguntas(String categoria, String dificultad, int cantidad) {
+        IndiceCategoria indice = obtenerIndice(categoria.toLowerCase());
+
+        Pregunta[] origen = dificultad == null ? indice.todas
+                : indice.porDificultad.getOrDefault(dificultad.toLowerCase(), new Pregunta[0]);
+        return muestrear(origen, cantidad);
+    }
+
+    /**
+     * Devuelve el índice de una categoría, cargándolo si no existe y programando
+     * su recarga en segundo plano si ha caducado
+     */
+    private static IndiceCategoria obtenerIndice(String categoria) {
+        IndiceCategoria indice = indices.get(categoria);
+        if (indice == null || indice.todas.length == 0) {
+            // Primera carga (o categoría vacía): se hace en el hilo que la pide
+            indice = cargar(categoria);
+        } else if (indice.caducado() && indice.recargando.compareAndSet(false, true)) {
+            // Seguir sirviendo la instantánea actual mientras se recarga
+            IndiceCategoria actual = indice;
+            recargas.execute(() -> recargar(categoria, actual));
+        }
+        return indice;
+    }
+
+    /**
+     * Recarga en segundo plano una categoría caducada
+     * Si la consulta falla o no devuelve nada se conservan las preguntas actuales con la vigencia reiniciada,
+     * para reintentarlo al volver a caducar; si el índice se invalidó mientras tanto no se publica nada
+     */
+    private static void recargar(String categoria, IndiceCategoria actual) {
+        try {
+            List<Pregunta> preguntas = PreguntaDAO.obtenerTodasPorCategoria(categoria);
+            if (preguntas.isEmpty()) {
+                System.out.println("⚠️ Banco de preguntas: no se pudo recargar " + categoria +
+                        ", se mantienen " + actual.todas.length + " preguntas");
+                indices.replace(categoria, actual, new IndiceCategoria(actual));
+                return;
+            }
+            if (indices.replace(categoria, actual, new IndiceCategoria(preguntas))) {
+                System.out.println("📚 Banco de preguntas: " + categoria + " recargada con " + preguntas.size() + " preguntas");
+            }
+        } finally {
+            actual.recargando.set(false);
+        }
+    }
+
+    /**
+     * Carga una categoría desde la base de datos y publica su nuevo índice
+     */
+    private static IndiceCategoria cargar(String categoria) {
+        long inicio = System.currentTimeMillis();
+        IndiceCategoria indice = new IndiceCategoria(PreguntaDAO.obtenerTodasPorCategoria(categoria));
+        if (indice.todas.length > 0) {
+            indices.put(categoria, indice);
+        }
+        System.out.println("📚 Banco de preguntas: " + categoria + " cargada con " + indice.todas.length +
+                " preguntas en " + (System.currentTimeMillis() - inicio) + " ms");
+        return indice;
+    }
+
+    /**
+     * Fisher–Yates parcial sobre una permutación virtual del array
+     * Solo se guardan las posiciones intercambiadas, así que el coste es O(k) y el array compartido no se modifica
+     */
+    private static List<Pregunta> muestrear(Pregunta[] origen, int cantidad) {
+        int n = origen.length;
+        int k = Math.min(cantidad, n);
+        List<Pregunta> resultado = new ArrayList<>(k);
+        Map<Integer, Integer> intercambios = new HashMap<>(k * 2);
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+
+        for (int i = 0; i < k; i++) {
+            int j = i + aleatorio.nextInt(n - i);
+            int valorJ = intercambios.getOrDefault(j, j);
+            int valorI = intercambios.getOrDefault(i, i);
+            intercambios.put(j, valorI);
+            resultado.add(origen[valorJ]);
+        }
+        return resultado;
+    }
+
+    /**
+     * Obtiene la pregunta ya codificada para enviarla, codificándola la primera vez
+     * La misma trama sirve para todos los jugadores y partidas; solo cambia la cabecera con el número
+     * @param pregunta Pregunta a enviar
+     * @return Trama precodificada de la pregunta
+     */
+    public static TramaPregunta obtenerTrama(Pregunta pregunta) {
+        TramaPregunta trama = tramas.get(pregunta.getId());
+        if (trama != null && trama.esDe(pregunta.getTextoPregunta(), pregunta.getOpcionA(),
+                pregunta.getOpcionB(), pregunta.getOpcionC(), pregunta.getOpcionD())) {
+            tramasReutilizadas.incrementAndGet();
+            return trama;
+        }
+
+        // Primera vez o pregunta modificada desde que se codificó
+        trama = new TramaPregunta(pregunta.getTextoPregunta(), pregunta.getOpcionA(),
+                pregunta.getOpcionB(), pregunta.getOpcionC(), pregunta.getOpcionD());
+        tramas.put(pregunta.getId(), trama);
+        tramasCodificadas.incrementAndGet();
+        return trama;
+    }
+
+    /**
+     * Genera un resumen del uso de las preguntas precodificadas
+     * @return Texto con tramas en memoria, reutilizadas y codificadas
+     */
+    public static String obtenerResumenTramas() {
+        return String.format("🧾 Preguntas precodificadas: %d en memoria, %d envíos reutilizados, %d codificadas",
+                tramas.size(), tramasReutilizadas.get(), tramasCodificadas.get());
+    }
+
+    /**
+     * Descarta el índice de una categoría para que la próxima partida lo recargue
+     * Debe llamarse tras modificar preguntas de esa categoría
+     * @param categoria Categoría modificada
+     */
+    public static void invalidar(String categoria) {
+        indices.remove(categoria.toLowerCase());
+    }
+
+    /**
+     * Descarta todos los índices
+     */
+    public static void invalidarTodo() {
+        indices.clear();
+        tramas.clear();
+    }
+
+    /**
+     * Obtiene el número de preguntas en memoria de una categoría
+     * @param categoria Categoría a consultar
+     * @return Preguntas indexadas (0 si la categoría aún no se ha cargado)
+     */
+    public static int contarPreguntas(String categoria) {
+        IndiceCategoria indice = indices.get(categoria.toLowerCase());
+        return indice != null ? indice.todas.length : 0;
+    }
+}
@@ -0,0 +1,162 @@
+package com.liceolapaz.acc;
+
+import com.liceolapaz.acc.DAO.JugadorPartidaDAO;
+import com.liceolapaz.acc.DAO.ResultadoPartida;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clasificación en memoria de las mejores puntuaciones por partida
+ * Mantiene, de forma global y por categoría, los K jugadores con mejor puntuación en una sola partida
+ * (una entrada por jugador) y la actualiza al publicarse cada resultado, sin volver a ordenar el historial
+ * Las consultas devuelven una instantánea inmutable, así que responder al comando "ranking" no toca la base de datos
+ */
+public final class Clasificacion {
+
+    // Número de jugadores que conserva cada tabla
+    private static final int TAMANO = Integer.getInteger("trivia.tamanoRanking", 100);
+    // Posiciones que se envían al cliente
+    public static final int POSICIONES_MOSTRADAS = 10;
+    // Clave de la tabla que mezcla todas las categorías
+    public static final String GLOBAL = "global";
+
+    // Mayor puntuación primero; a igualdad, quien la consiguió antes
+    private static final Comparator<Posicion> ORDEN = Comparator
+            .comparingInt(Posicion::getPuntos).reversed()
+            .thenComparingLong(p -> p.llegada)
+            .thenComparing(Posicion::getNombre);
+
+    private static final Map<String, Tabla> tablas = new ConcurrentHashMap<>(); // Tabla por categoría y global
+    private static final AtomicLong llegadas = new AtomicLong(); // Orden de llegada para desempatar
+
+    private Clasificacion() {
+    }
+
+    /**
+     * Mejor puntuación de un jugador dentro de una tabla
+     */
+    public static final class Posicion {
+        private final String nombre;
+        private final int puntos;
+        private final long llegada;
+
+        Posicion(String nombre, int puntos, long llegada) {
+            this.nombre = nombre;
+            this.puntos = puntos;
+            this.llegada = llegada;
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+
+        public int getPuntos() {
+            return puntos;
+        }
+    }
+
+    /**
+     * Top-K de una categoría: árbol ordenado más índice por nombre, protegidos por el monitor de la tabla
+     */
+    private static final class Tabla {
+        private final TreeSet<Posicion> ordenadas = new TreeSet<>(ORDEN);
+        private final Map<String, Posicion> porNombre = new HashMap<>();
+        private volatile List<Posicion> instantanea = List.of(); // Copia para lecturas sin bloqueo
+
+        /**
+         * Registra una puntuación si mejora la del jugador y entra en el top-K
+         * Un jugador que no está en la tabla tiene como mucho la puntuación del último, así que
+         * basta compararla con él para saber si entra
+         */
+        synchronized void registrar(String nombre, int puntos, long llegada) {
+            Posicion actual = porNombre.get(nombre);
+            if (actual != null) {
+                if (puntos <= actual.puntos) return;
+                ordenadas.remove(actual);
+            } else if (ordenadas.size() >= TAMANO && puntos <= ordenadas.last().puntos) {
+                return;
+            }
+
+            Posicion nueva = new Posicion(nombre, puntos, llegada);
+            ordenadas.add(nueva);
+            porNombre.put(nombre, nueva);
+            if (ordenadas.size() > TAMANO) {
+                porNombre.remove(ordenadas.pollLast().nombre);
+            }
+            instantanea = List.copyOf(ordenadas);
+        }
+    }
+
+    /**
+     * Carga la clasificación inicial a partir del historial guardado
+     * Se llama una vez al arrancar el servidor; después se actualiza con cada resultado
+     */
+    public static void cargar() {
+        long inicio = System.currentTimeMillis();
+        List<Object[]> mejores = JugadorPartidaDAO.obtenerMejoresPorCategoria();
+        for (Object[] fila : mejores) {
+            registrar((String) fila[0], (String) fila[1], ((Number) fila[2]).intValue());
+        }
+        System.out.println("🏆 Clasificación cargada: " + mejores.size() + " marcas en " +
+                (System.currentTimeMillis() - inicio) + " ms");
+    }
+
+    /**
+     * Actualiza la clasificación con los participantes de un resultado de partida
+     * @param resultado Resultado recién publicado
+     */
+    public static void registrar(ResultadoPartida resultado) {
+        for (ResultadoPartida.Participante participante : resultado.getParticipantes()) {
+            registrar(participante.getNombre(), resultado.getCategoria(), participante.getPuntos());
+        }
+    }
+
+    /**
+     * Registra la puntuación de un jugador en su categoría y en la tabla global
+     */
+    private static void registrar(String nombre, String categoria, int puntos) {
+        long llegada = llegadas.incrementAndGet();
+        tablas.computeIfAbsent(categoria, c -> new Tabla()).registrar(nombre, puntos, llegada);
+        tablas.computeIfAbsent(GLOBAL, c -> new Tabla()).registrar(nombre, puntos, llegada);
+    }
+
+    /**
+     * Obtiene las mejores posiciones de una categoría
+     * @param categoria Categoría o GLOBAL
+     * @param cantidad Número máximo de posiciones
+     * @return Lista inmutable ordenada de mejor a peor (vacía si la categoría no tiene marcas)
+     */
+    public static List<Posicion> obtenerMejores(String categoria, int cantidad) {
+        Tabla tabla = tablas.get(categoria);
+        if (tabla == null) {
+            return List.of();
+        }
+        List<Posicion> posiciones = tabla.instantanea;
+        return posiciones.size() <= cantidad ? posiciones : posiciones.subList(0, cantidad);
+    }
+
+    /**
+     * Genera el texto de la clasificación para enviarlo al cliente
+     * @param categoria Categoría o GLOBAL
+     * @return Texto con una posición por línea
+     */
+    public static String obtenerTexto(String categoria) {
+        List<Posicion> mejores = obtenerMejores(categoria, POSICIONES_MOSTRADAS);
+        if (mejores.isEmpty()) {
+            return "🏆 Todavía no hay puntuaciones en " + categoria;
+        }
+        StringBuilder texto = new StringBuilder("🏆 Ranking " + categoria + ":");
+        int puesto = 1;
+        for (Posicion posicion : mejores) {
+            texto.append("\n").append(puesto++).append(". ")
+                    .append(posicion.nombre).append(" - ").append(posicion.puntos).append(" puntos");
+        }
+        return texto.toString();
+    }
+}
@@ -0,0 +1,466 @@
+package com.liceolapaz.acc;
+
+import com.liceolapaz.acc.DAO.EscritorResultados;
+import com.liceolapaz.acc.DAO.ResultadoPartida;
+import com.liceolapaz.acc.GestorPartidas.EstadoPartida;
+import com.liceolapaz.acc.entidades.Pregunta;
+import com.liceolapaz.acc.red.ConexionCliente;
+import com.liceolapaz.acc.red.ReceptorLineas;
+import com.liceolapaz.protocolo.Mensaje;
+import com.liceolapaz.protocolo.TipoMensaje;
+import com.liceolapaz.protocolo.TramaDifundida;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Concurso en directo: una única partida para cientos o miles de jugadores a la vez
+ * Todos reciben cada pregunta en el mismo instante y tienen el mismo plazo para responder; el ritmo lo marca
+ * solo el reloj, sin esperar confirmaciones LISTO
+ *
+ * El coste por jugador se reduce al mínimo:
+ * - Cada mensaje común se codifica una vez por protocolo (TramaDifundida) y a cada socket se le escribe una vista
+ * - Las respuestas llegan desde todos los bucles de eventos sin pasar por el monitor del concurso: cada jugador
+ *   tiene una casilla que se ocupa con CAS (gana la primera respuesta) y el reparto de votos se cuenta con LongAdder
+ * - La clasificación es un histograma de jugadores por número de aciertos que se actualiza con cada acierto;
+ *   el puesto sale de una suma acumulada, y como todos los mensajes por jugador dependen solo de sus aciertos,
+ *   se codifican una vez por número de aciertos y no una vez por jugador
+ */
+public class ConcursoEnDirecto implements PartidaPlanificada {
+
+    // Configuración del concurso
+    private static final int TOTAL_PREGUNTAS = 10; // Preguntas por concurso
+
+    // Ritmo del concurso en milisegundos (igual para todos los jugadores)
+    private static final long PAUSA_INICIO = 3000; // Tras anunciar el inicio
+    private static final long PAUSA_PREGUNTA = 1500; // Para que todos los clientes muestren la pregunta
+    private static final long ESPERA_RESPUESTA = 15000; // Plazo común para responder
+    private static final long PAUSA_RESULTADO = 1000; // Antes de publicar resultado y clasificación
+    private static final long PAUSA_ENTRE_PREGUNTAS = 3000; // Entre el resultado y la siguiente pregunta
+
+    // Mensajes comunes a todos los concursos, codificados una sola vez
+    private static final TramaDifundida SOLICITUD = TramaDifundida.de(Mensaje.de(TipoMensaje.SOLICITAR_RESPUESTA));
+    private static final TramaDifundida CORRECTA = TramaDifundida.de(Mensaje.de(TipoMensaje.RESPUESTA_CORRECTA));
+    private static final TramaDifundida INCORRECTA = TramaDifundida.de(Mensaje.de(TipoMensaje.RESPUESTA_INCORRECTA));
+    private static final TramaDifundida SIN_RESPUESTA = TramaDifundida.de(Mensaje.de(TipoMensaje.TIMEOUT));
+    private static final TramaDifundida CANCELADA = TramaDifundida.de(Mensaje.de(TipoMensaje.PARTIDA_CANCELADA));
+
+    /**
+     * Jugador inscrito en el concurso
+     */
+    private static final class Concursante {
+        private final ConexionCliente conexion; // Conexión del jugador
+        private final String nombre; // Nombre del jugador
+        private final AtomicBoolean activo = new AtomicBoolean(true); // false tras abandonar o desconectarse
+        private int aciertos = 0; // Solo lo modifican los pasos del concurso
+
+        Concursante(ConexionCliente conexion, String nombre) {
+            this.conexion = conexion;
+            this.nombre = nombre;
+        }
+    }
+
+    private final String categoria; // Categoría de las preguntas
+    private final Concursante[] concursantes; // Jugadores en orden de inscripción
+    private final List<Pregunta> preguntas; // Preguntas del concurso
+    private final AtomicInteger activos; // Jugadores que siguen conectados
+
+    // Respuestas de la ronda: casilla por jugador con (ronda << 3) | (opción + 1); una ronda anterior equivale a vacía
+    private final AtomicIntegerArray casillas;
+    private final LongAdder[] votos = {new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder()};
+    private volatile int rondaAbierta = 0; // Número de la pregunta que admite respuestas (0 = ninguna)
+
+    // Clasificación incremental (solo la modifican los pasos del concurso)
+    private final int[] porAciertos = new int[TOTAL_PREGUNTAS + 1]; // Jugadores con cada número de aciertos
+    private int acertantesRonda = 0; // Jugadores que acertaron la última pregunta
+
+    // Estado del concurso (protegido por el monitor del concurso)
+    private int preguntaActual = 0; // Índice 0-based de la pregunta en curso
+    private volatile boolean finalizado = false; // Ya no se aceptan eventos de los jugadores
+    private boolean terminado = false; // Garantiza un único aviso de fin
+    private long inicioConcurso; // Para la duración guardada en el resultado
+
+    // Entorno de ejecución proporcionado por el gestor
+    private ScheduledExecutorService planificador;
+    private Executor trabajosBloqueantes;
+    private Consumer<EstadoPartida> alTerminar;
+
+    /**
+     * Prepara un concurso con los jugadores inscritos que siguen conectados
+     * Carga las preguntas del banco en memoria (el gestor lo crea fuera del planificador)
+     * @param categoria Categoría del concurso
+     * @param inscritos Jugadores apuntados desde el lobby
+     */
+    public ConcursoEnDirecto(String categoria, List<JugadorPendiente> inscritos) {
+        this.categoria = categoria;
+        List<Concursante> presentes = new ArrayList<>(inscritos.size());
+        for (JugadorPendiente jugador : inscritos) {
+            if (jugador.esValido()) {
+                presentes.add(new Concursante(jugador.conexion, jugador.nombre));
+            }
+        }
+        this.concursantes = presentes.toArray(new Concursante[0]);
+        this.activos = new AtomicInteger(concursantes.length);
+        this.casillas = new AtomicIntegerArray(concursantes.length);
+        this.porAciertos[0] = concursantes.length;
+        this.preguntas = BancoPreguntas.obtenerPreguntas(categoria, TOTAL_PREGUNTAS);
+
+        System.out.println("🎤 Concurso en directo de " + categoria + ": " + concursantes.length + " jugadores, " +
+                preguntas.size() + " preguntas");
+    }
+
+    /**
+     * Arranca el concurso: pasa las conexiones al concurso, anuncia el inicio y programa la primera pregunta
+     */
+    @Override
+    public synchronized void iniciar(ScheduledExecutorService planificador, Executor trabajosBloqueantes,
+                                     Consumer<EstadoPartida> alTerminar) {
+        this.planificador = planificador;
+        this.trabajosBloqueantes = trabajosBloqueantes;
+        this.alTerminar = alTerminar;
+        this.inicioConcurso = System.currentTimeMillis();
+
+        if (preguntas.isEmpty() || concursantes.length == 0) {
+            System.out.println("❌ Concurso de " + categoria + " sin preguntas o sin jugadores, se cancela");
+            cancelar();
+            return;
+        }
+
+        for (int i = 0; i < concursantes.length; i++) {
+            concursantes[i].conexion.setReceptor(new ReceptorConcursante(i));
+        }
+
+        difundir(TramaDifundida.de(Mensaje.de(TipoMensaje.PARTIDA_SOLO_INICIADA, categoria)));
+        programar(PAUSA_INICIO, this::enviarPregunta);
+    }
+
+    /**
+     * Programa el siguiente paso del concurso
+     * Los pasos se encadenan (cada uno programa el siguiente), así que nunca se ejecutan dos a la vez
+     */
+    private void programar(long retraso, Runnable paso) {
+        planificador.schedule(() -> ejecutarPaso(paso), retraso, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ejecuta un paso si el concurso sigue en marcha; cualquier error lo cancela
+     */
+    private synchronized void ejecutarPaso(Runnable paso) {
+        if (finalizado) return;
+        if (activos.get() == 0) {
+            System.out.println("🔌 Todos los jugadores abandonaron el concurso de " + categoria);
+            cancelar();
+            return;
+        }
+        try {
+            paso.run();
+        } catch (Exception e) {
+            System.out.println("❌ Error en el concurso en directo: " + e.getMessage());
+            e.printStackTrace();
+            cancelar();
+        }
+    }
+
+    /**
+     * Envía la pregunta en curso a todos los jugadores con una sola codificación por protocolo
+     */
+    private void enviarPregunta() {
+        Pregunta pregunta = preguntas.get(preguntaActual);
+        int numero = preguntaActual + 1;
+        TramaDifundida trama = TramaDifundida.de(BancoPreguntas.obtenerTrama(pregunta), numero, preguntas.size());
+
+        long inicio = System.nanoTime();
+        int enviados = difundir(trama);
+        System.out.println("📤 Pregunta " + numero + "/" + preguntas.size() + " (ID:" + pregunta.getId() + ") difundida a " +
+                enviados + " jugadores en " + (System.nanoTime() - inicio) / 1000 + " µs");
+
+        programar(PAUSA_PREGUNTA, this::abrirRespuestas);
+    }
+
+    /**
+     * Abre la ronda de respuestas y se la pide a todos los jugadores
+     */
+    private void abrirRespuestas() {
+        for (LongAdder contador : votos) {
+            contador.reset(); // Nadie puede votar mientras la ronda está cerrada
+        }
+        rondaAbierta = preguntaActual + 1;
+        difundir(SOLICITUD);
+        programar(ESPERA_RESPUESTA, this::cerrarRonda);
+    }
+
+    /**
+     * Registra la respuesta de un jugador desde el hilo de su bucle de eventos, sin bloquear el concurso
+     * Solo cuenta la primera respuesta de cada jugador en la ronda abierta
+     * @param indice Posición del jugador en el concurso
+     * @param linea Línea recibida
+     */
+    private void respuestaRecibida(int indice, String linea) {
+        if (finalizado) return;
+
+        if (linea.equalsIgnoreCase("cancelar")) {
+            abandonar(indice, true);
+            return;
+        }
+
+        int ronda = rondaAbierta;
+        if (ronda == 0 || linea.length() != 1) {
+            return; // Fuera de plazo, o confirmación LISTO (el concurso no las necesita)
+        }
+        int opcion = Character.toUpperCase(linea.charAt(0)) - 'A';
+        if (opcion < 0 || opcion > 3) {
+            return;
+        }
+
+        int actual = casillas.get(indice);
+        if ((actual >>> 3) == ronda) {
+            return; // Ya respondió en esta ronda
+        }
+        if (casillas.compareAndSet(indice, actual, (ronda << 3) | (opcion + 1))) {
+            votos[opcion].increment();
+        }
+    }
+
+    /**
+     * Cierra la ronda, evalúa todas las casillas y actualiza la clasificación
+     * Cada jugador recibe una de las tres respuestas comunes ya codificadas
+     */
+    private void cerrarRonda() {
+        int ronda = rondaAbierta;
+        rondaAbierta = 0;
+        int correcta = preguntas.get(preguntaActual).getRespuestaCorrecta();
+
+        int acertantes = 0;
+        for (int i = 0; i < concursantes.length; i++) {
+            Concursante concursante = concursantes[i];
+            int casilla = casillas.get(i);
+            boolean respondio = (casilla >>> 3) == ronda;
+
+            TramaDifundida respuesta;
+            if (respondio && (casilla & 7) - 1 == correcta) {
+                // Sube un escalón en el histograma de aciertos
+                porAciertos[concursante.aciertos]--;
+                concursante.aciertos++;
+                porAciertos[concursante.aciertos]++;
+                acertantes++;
+                respuesta = CORRECTA;
+            } else {
+                respuesta = respondio ? INCORRECTA : SIN_RESPUESTA;
+            }
+            if (concursante.activo.get()) {
+                concursante.conexion.enviar(respuesta);
+            }
+        }
+        acertantesRonda = acertantes;
+
+        System.out.println("📊 Pregunta " + ronda + " de " + categoria + ": A=" + votos[0].sum() + " B=" + votos[1].sum() +
+                " C=" + votos[2].sum() + " D=" + votos[3].sum() + " - acertaron " + acertantes + " de " + concursantes.length);
+
+        programar(PAUSA_RESULTADO, this::publicarResultado);
+    }
+
+    /**
+     * Envía a cada jugador el resultado de la pregunta con su puesto, y el final del concurso tras la última
+     * Los mensajes se codifican una vez por número de aciertos (como mucho preguntas + 1 tramas)
+     */
+    private void publicarResultado() {
+        int numero = preguntaActual + 1;
+        boolean ultima = numero == preguntas.size();
+        char letra = preguntas.get(preguntaActual).getLetraRespuesta();
+        int[] superiores = jugadoresPorEncima();
+        int maximo = maximoAciertos();
+
+        TramaDifundida[] porAciertosTrama = new TramaDifundida[numero + 1];
+        for (Concursante concursante : concursantes) {
+            if (!concursante.activo.get()) continue;
+            int aciertos = concursante.aciertos;
+            TramaDifundida trama = porAciertosTrama[aciertos];
+            if (trama == null) {
+                trama = tramaResultado(letra, aciertos, superiores[aciertos] + 1, ultima, aciertos == maximo);
+                porAciertosTrama[aciertos] = trama;
+            }
+            concursante.conexion.enviar(trama);
+        }
+
+        preguntaActual++;
+        if (ultima) {
+            finalizar(superiores, maximo);
+        } else {
+            programar(PAUSA_ENTRE_PREGUNTAS, this::enviarPregunta);
+        }
+    }
+
+    /**
+     * Codifica el resultado de la pregunta para los jugadores con un número de aciertos
+     * Tras la última pregunta incluye también FIN_PARTIDA
+     */
+    private TramaDifundida tramaResultado(char letra, int aciertos, int puesto, boolean ultima, boolean lider) {
+        Mensaje resultado = Mensaje.de(TipoMensaje.RESULTADO, String.valueOf(letra), aciertos);
+        Mensaje posicion = Mensaje.de(TipoMensaje.POSICION_DIRECTO, puesto, concursantes.length,
+                porcentaje(acertantesRonda));
+        if (!ultima) {
+            return TramaDifundida.de(resultado, posicion);
+        }
+        boolean ganador = lider && aciertos > 0;
+        Mensaje fin = Mensaje.de(TipoMensaje.FIN_PARTIDA, ganador ? "GANADOR" : null,
+                aciertos, preguntas.size(), null, PartidaTrivia.calcularPuntosFinales(aciertos));
+        return TramaDifundida.de(resultado, posicion, fin);
+    }
+
+    /**
+     * Calcula, para cada número de aciertos, cuántos jugadores tienen más (el puesto es ese valor + 1)
+     */
+    private int[] jugadoresPorEncima() {
+        int[] superiores = new int[porAciertos.length];
+        for (int aciertos = porAciertos.length - 2; aciertos >= 0; aciertos--) {
+            superiores[aciertos] = superiores[aciertos + 1] + porAciertos[aciertos + 1];
+        }
+        return superiores;
+    }
+
+    /**
+     * Obtiene el mayor número de aciertos entre todos los jugadores
+     */
+    private int maximoAciertos() {
+        for (int aciertos = porAciertos.length - 1; aciertos > 0; aciertos--) {
+            if (porAciertos[aciertos] > 0) return aciertos;
+        }
+        return 0;
+    }
+
+    /**
+     * Porcentaje de jugadores del concurso que representa una cantidad
+     */
+    private int porcentaje(int jugadores) {
+        return concursantes.length > 0 ? jugadores * 100 / concursantes.length : 0;
+    }
+
+    /**
+     * Guarda el resultado de todos los jugadores fuera del planificador y cierra las conexiones
+     * Los puntos se calculan igual que en una partida individual; gana quien tenga más aciertos
+     */
+    private void finalizar(int[] superiores, int maximo) {
+        finalizado = true;
+        long duracionSegundos = (System.currentTimeMillis() - inicioConcurso) / 1000;
+        trabajosBloqueantes.execute(() -> {
+            ResultadoPartida resultado = new ResultadoPartida(categoria, "DIRECTO", preguntas.size(), duracionSegundos);
+            for (Concursante concursante : concursantes) {
+                int aciertos = concursante.aciertos;
+                resultado.agregarJugador(concursante.nombre, aciertos, PartidaTrivia.calcularPuntosFinales(aciertos),
+                        aciertos == maximo && aciertos > 0, superiores[aciertos] + 1);
+            }
+            EscritorResultados.publicar(resultado);
+            Clasificacion.registrar(resultado);
+            System.out.println("🏁 Concurso de " + categoria + " terminado: " + concursantes.length +
+                    " jugadores, máximo " + maximo + " aciertos (" + porAciertos[maximo] + " ganadores)");
+
+            cerrarConexiones();
+            synchronized (this) {
+                terminar(EstadoPartida.FINALIZADA);
+            }
+        });
+    }
+
+    /**
+     * Retira a un jugador del concurso (abandono o desconexión); el resto sigue jugando
+     * Sus aciertos hasta ese momento siguen contando para la clasificación
+     * @param indice Posición del jugador
+     * @param avisar Si hay que confirmar la cancelación al cliente y cerrar su conexión
+     */
+    private void abandonar(int indice, boolean avisar) {
+        Concursante concursante = concursantes[indice];
+        if (!concursante.activo.compareAndSet(true, false)) return;
+        activos.decrementAndGet();
+        System.out.println("🚪 " + concursante.nombre + " deja el concurso de " + categoria +
+                " (quedan " + activos.get() + ")");
+        if (avisar) {
+            concursante.conexion.enviar(CANCELADA);
+            concursante.conexion.cerrar();
+        }
+    }
+
+    /**
+     * Cancela el concurso para todos los jugadores que siguen conectados
+     */
+    private void cancelar() {
+        finalizado = true;
+        rondaAbierta = 0;
+        difundir(CANCELADA);
+        cerrarConexiones();
+        terminar(EstadoPartida.CANCELADA);
+    }
+
+    /**
+     * Envía la misma trama a todos los jugadores activos
+     * @return Número de jugadores a los que se envió
+     */
+    private int difundir(TramaDifundida trama) {
+        int enviados = 0;
+        for (Concursante concursante : concursantes) {
+            if (concursante.activo.get()) {
+                concursante.conexion.enviar(trama);
+                enviados++;
+            }
+        }
+        return enviados;
+    }
+
+    /**
+     * Cierra las conexiones de todos los jugadores
+     */
+    private void cerrarConexiones() {
+        for (Concursante concursante : concursantes) {
+            concursante.conexion.cerrar();
+        }
+    }
+
+    /**
+     * Avisa al gestor del fin del concurso (una sola vez)
+     */
+    private void terminar(EstadoPartida estadoFinal) {
+        if (terminado) return;
+        terminado = true;
+        if (alTerminar != null) {
+            alTerminar.accept(estadoFinal);
+        }
+    }
+
+    /**
+     * Receptor de un jugador del concurso: entrega sus respuestas sin pasar por el monitor del concurso
+     */
+    private class ReceptorConcursante implements ReceptorLineas {
+        private final int indice; // Posición del jugador en el concurso
+
+        ReceptorConcursante(int indice) {
+            this.indice = indice;
+        }
+
+        @Override
+        public void lineaRecibida(ConexionCliente conexion, String linea) {
+            respuestaRecibida(indice, linea);
+        }
+
+        @Override
+        public void mensajeRecibido(ConexionCliente conexion, Mensaje mensaje) {
+            if (mensaje.getTipo() == TipoMensaje.LISTO) {
+                return; // Miles de confirmaciones por paso que el concurso no usa: ni siquiera se pasan a texto
+            }
+            respuestaRecibida(indice, mensaje.aLinea());
+        }
+
+        @Override
+        public void desconectado(ConexionCliente conexion) {
+            if (!finalizado) {
+                abandonar(indice, false);
+            }
+        }
+    }
+}
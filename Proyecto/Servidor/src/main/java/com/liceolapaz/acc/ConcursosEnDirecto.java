@@ -0,0 +1,143 @@
+package com.liceolapaz.acc;
+
+import com.liceolapaz.protocolo.Mensaje;
+import com.liceolapaz.protocolo.TipoMensaje;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Programa los concursos en directo: cada categoría tiene una convocatoria abierta que arranca a una hora fija
+ * Las horas están alineadas con el reloj (cada "trivia.directoIntervaloMs", por defecto un minuto), así que todos los
+ * jugadores que se apuntan antes de esa hora juegan juntos en un único concurso, que ocupa una sola plaza del
+ * gestor de partidas. Si una convocatoria se llena ("trivia.directoMaxJugadores") se abre otra a la misma hora
+ */
+public class ConcursosEnDirecto {
+
+    private static final long INTERVALO = Long.getLong("trivia.directoIntervaloMs", 60000); // Entre concursos
+    private static final int MAX_JUGADORES = Integer.getInteger("trivia.directoMaxJugadores", 5000); // Por concurso
+    // Margen mínimo entre la inscripción y el inicio, para que el cliente vea el aviso
+    private static final long MARGEN_MINIMO = 2000;
+
+    /**
+     * Jugadores apuntados a un concurso que todavía no ha empezado
+     */
+    private static final class Convocatoria {
+        private final String categoria; // Categoría del concurso
+        private final long inicio; // Instante de arranque (milisegundos de reloj)
+        private final List<JugadorPendiente> inscritos = new ArrayList<>(); // Protegido por el monitor del programador
+
+        Convocatoria(String categoria, long inicio) {
+            this.categoria = categoria;
+            this.inicio = inicio;
+        }
+    }
+
+    private final GestorPartidas gestorPartidas; // Ejecuta los concursos
+    private final ScheduledExecutorService hilo; // Hilo único que arranca las convocatorias
+    private final Map<String, Convocatoria> abiertas = new HashMap<>(); // Convocatoria abierta por categoría
+
+    /**
+     * Constructor del programador de concursos
+     * @param gestorPartidas Gestor que ejecutará los concursos
+     */
+    public ConcursosEnDirecto(GestorPartidas gestorPartidas) {
+        this.gestorPartidas = gestorPartidas;
+        this.hilo = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "concursos-directo");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Apunta a un jugador al próximo concurso de su categoría y le avisa de cuándo empieza
+     * Puede llamarse desde cualquier hilo; los que cancelen antes del inicio solo quedan marcados
+     * @param jugador Jugador que eligió el modo directo
+     */
+    void apuntar(JugadorPendiente jugador) {
+        Convocatoria convocatoria;
+        int inscritos;
+        synchronized (this) {
+            convocatoria = abiertas.get(jugador.categoria);
+            if (convocatoria == null || convocatoria.inscritos.size() >= MAX_JUGADORES) {
+                // Nueva convocatoria; si la anterior se llenó, arranca a la misma hora que ella
+                long inicio = convocatoria != null ? convocatoria.inicio : siguienteInicio(System.currentTimeMillis());
+                convocatoria = programar(new Convocatoria(jugador.categoria, inicio));
+            }
+            convocatoria.inscritos.add(jugador);
+            inscritos = convocatoria.inscritos.size();
+        }
+
+        System.out.println("📺 " + jugador.nombre + " apuntado al concurso en directo de " + jugador.categoria +
+                " (" + inscritos + " inscritos)");
+        avisar(jugador, convocatoria.inicio, inscritos);
+    }
+
+    /**
+     * Registra una convocatoria como la abierta de su categoría y programa su arranque
+     * Debe llamarse con el monitor del programador
+     */
+    private Convocatoria programar(Convocatoria convocatoria) {
+        abiertas.put(convocatoria.categoria, convocatoria);
+        long espera = Math.max(0, convocatoria.inicio - System.currentTimeMillis());
+        hilo.schedule(() -> arrancar(convocatoria), espera, TimeUnit.MILLISECONDS);
+        return convocatoria;
+    }
+
+    /**
+     * Cierra la convocatoria y lanza el concurso con los jugadores que siguen esperando
+     * Si el servidor no tiene plazas libres, los jugadores pasan al siguiente concurso
+     */
+    private void arrancar(Convocatoria convocatoria) {
+        List<JugadorPendiente> presentes = new ArrayList<>();
+        synchronized (this) {
+            abiertas.remove(convocatoria.categoria, convocatoria);
+            for (JugadorPendiente jugador : convocatoria.inscritos) {
+                if (jugador.esValido()) {
+                    presentes.add(jugador);
+                }
+            }
+        }
+        if (presentes.isEmpty()) {
+            System.out.println("📺 Concurso de " + convocatoria.categoria + " sin jugadores, no se celebra");
+            return;
+        }
+
+        if (!gestorPartidas.reservarPlaza()) {
+            System.out.println("⏳ Sin plazas para el concurso de " + convocatoria.categoria + ", se aplaza");
+            for (JugadorPendiente jugador : presentes) {
+                apuntar(jugador);
+            }
+            return;
+        }
+
+        for (JugadorPendiente jugador : presentes) {
+            jugador.conexion.enviar(Mensaje.de(TipoMensaje.PARTIDA_ENCONTRADA, "DIRECTO", null, convocatoria.categoria));
+        }
+        gestorPartidas.lanzar("DIRECTO " + convocatoria.categoria + " (" + presentes.size() + " jugadores)",
+                () -> new ConcursoEnDirecto(convocatoria.categoria, presentes), 0);
+    }
+
+    /**
+     * Envía al jugador la hora de inicio del concurso al que está apuntado
+     */
+    private static void avisar(JugadorPendiente jugador, long inicio, int inscritos) {
+        int segundos = (int) Math.max(0, (inicio - System.currentTimeMillis() + 999) / 1000);
+        jugador.conexion.enviar(Mensaje.de(TipoMensaje.DIRECTO_PROGRAMADO, jugador.categoria, segundos, inscritos));
+    }
+
+    /**
+     * Calcula la siguiente hora de concurso alineada con el reloj que deje el margen mínimo
+     */
+    private static long siguienteInicio(long ahora) {
+        long intervalo = Math.max(MARGEN_MINIMO, INTERVALO);
+        long inicio = (ahora / intervalo + 1) * intervalo;
+        return inicio - ahora < MARGEN_MINIMO ? inicio + intervalo : inicio;
+    }
+}
@@ -0,0 +1,278 @@
+package com.liceolapaz.acc.DAO;
+
+import com.liceolapaz.acc.entidades.Jugador;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Caché acotada de jugadores por nombre, situada delante de JugadorDAO
+ * Se divide en segmentos LRU independientes para que los hilos no compitan por un único cerrojo;
+ * cada entrada caduca tras un tiempo de vida y las escrituras de estadísticas se aplican también aquí
+ * (escritura directa), de modo que las lecturas de jugadores activos no llegan a MySQL
+ * Cada escritura se anuncia antes de la transacción (iniciarEscritura) y se cierra tras ella (aplicar o
+ * abandonarEscritura); mientras hay una en curso no se publican cargas de ese jugador, porque podrían leer
+ * ya la fila confirmada y el incremento se sumaría dos veces
+ * Devuelve siempre copias: los llamantes pueden modificar el Jugador recibido sin afectar a la caché
+ */
+public class CacheJugadores {
+
+    // Número de segmentos (potencia de dos)
+    private static final int SEGMENTOS = 16;
+
+    /**
+     * Jugador almacenado junto con su instante de caducidad
+     */
+    private static final class Entrada {
+        private final Jugador jugador;
+        private final long caduca;
+
+        Entrada(Jugador jugador, long caduca) {
+            this.jugador = jugador;
+            this.caduca = caduca;
+        }
+    }
+
+    /**
+     * Segmento LRU protegido por su propio monitor
+     */
+    private final class Segmento extends LinkedHashMap<String, Entrada> {
+        private static final long serialVersionUID = 1L;
+        private final int capacidad;
+        private long version = 0; // Cambia con cada escritura para descartar cargas que se cruzaron con ella
+        private final Map<String, Integer> escriturasEnCurso = new HashMap<>(); // Anunciadas y aún sin cerrar
+
+        Segmento(int capacidad) {
+            super(16, 0.75f, true); // Orden de acceso: el primero es el menos usado recientemente
+            this.capacidad = capacidad;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entrada> mayor) {
+            if (size() > capacidad) {
+                expulsiones.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final Segmento[] segmentos = new Segmento[SEGMENTOS];
+    private final long vidaMs; // Tiempo de vida de cada entrada
+
+    // Métricas
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder expulsiones = new LongAdder();
+
+    /**
+     * Crea la caché
+     * @param capacidad Número máximo aproximado de jugadores en memoria
+     * @param vidaMs Milisegundos que una entrada puede servirse sin recargarla
+     */
+    public CacheJugadores(int capacidad, long vidaMs) {
+        int porSegmento = Math.max(1, capacidad / SEGMENTOS);
+        for (int i = 0; i < SEGMENTOS; i++) {
+            segmentos[i] = new Segmento(porSegmento);
+        }
+        this.vidaMs = vidaMs;
+    }
+
+    private Segmento segmento(String nombre) {
+        int h = nombre.hashCode();
+        return segmentos[(h ^ (h >>> 16)) & (SEGMENTOS - 1)];
+    }
+
+    /**
+     * Obtiene un jugador de la caché o lo carga con la función indicada
+     * @param nombre Nombre del jugador
+     * @param cargador Consulta a la base de datos en caso de fallo (puede devolver null)
+     * @return Copia del jugador, o null si no existe
+     */
+    public Jugador obtener(String nombre, Function<String, Jugador> cargador) {
+        Segmento seg = segmento(nombre);
+        long version;
+        synchronized (seg) {
+            Entrada entrada = seg.get(nombre);
+            if (entrada != null && entrada.caduca > System.currentTimeMillis()) {
+                aciertos.increment();
+                return copiar(entrada.jugador);
+            }
+            if (entrada != null) {
+                seg.remove(nombre);
+            }
+            version = seg.version;
+        }
+
+        // Fallo: cargar fuera del cerrojo para no bloquear al resto del segmento
+        fallos.increment();
+        Jugador cargado = cargador.apply(nombre);
+        if (cargado == null) {
+            return null;
+        }
+        Jugador copia = copiar(cargado);
+        synchronized (seg) {
+            // Si hubo una escritura mientras se cargaba, o hay una en curso, el valor leído puede estar desfasado
+            // o incluir ya un incremento que aplicar() volvería a sumar
+            if (seg.version == version && !seg.escriturasEnCurso.containsKey(nombre)) {
+                seg.put(nombre, new Entrada(copia, System.currentTimeMillis() + vidaMs));
+            }
+        }
+        return copiar(copia);
+    }
+
+    /**
+     * Indica si un jugador está en la caché y vigente, sin contar como acierto ni fallo
+     * @param nombre Nombre del jugador
+     * @return true si está en memoria
+     */
+    public boolean contiene(String nombre) {
+        Segmento seg = segmento(nombre);
+        synchronized (seg) {
+            Entrada entrada = seg.get(nombre);
+            return entrada != null && entrada.caduca > System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Guarda un jugador recién leído o creado en la base de datos
+     * Si hay una escritura en curso la fila leída puede incluir ya su incremento, así que no se guarda
+     * (igual que en obtener()) y la siguiente lectura tras cerrarla la recarga
+     * @param jugador Jugador con su estado actual
+     */
+    public void guardar(Jugador jugador) {
+        String nombre = jugador.getNombre();
+        Segmento seg = segmento(nombre);
+        synchronized (seg) {
+            seg.version++;
+            if (seg.escriturasEnCurso.containsKey(nombre)) {
+                seg.remove(nombre);
+                return;
+            }
+            seg.put(nombre, new Entrada(copiar(jugador), System.currentTimeMillis() + vidaMs));
+        }
+    }
+
+    /**
+     * Anuncia una escritura de estadísticas antes de abrir su transacción
+     * Hasta cerrarla con aplicar() o abandonarEscritura() ninguna carga de ese jugador se guarda en la caché
+     * @param nombre Nombre del jugador
+     */
+    public void iniciarEscritura(String nombre) {
+        Segmento seg = segmento(nombre);
+        synchronized (seg) {
+            seg.version++; // Descarta también las cargas que empezaron antes del anuncio
+            seg.escriturasEnCurso.merge(nombre, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Cierra una escritura anunciada aplicando a la copia en memoria los incrementos ya confirmados
+     * La copia es anterior al anuncio (durante la escritura no se publican cargas), así que aún no los incluye
+     * @param nombre Nombre del jugador
+     * @param puntos Puntos sumados
+     * @param partidasJugadas Partidas jugadas sumadas
+     * @param partidasGanadas Partidas ganadas sumadas
+     */
+    public void aplicar(String nombre, int puntos, int partidasJugadas, int partidasGanadas) {
+        Segmento seg = segmento(nombre);
+        synchronized (seg) {
+            seg.version++;
+            terminarEscritura(seg, nombre);
+            Entrada entrada = seg.get(nombre);
+            if (entrada == null) {
+                return;
+            }
+            Jugador actualizado = copiar(entrada.jugador);
+            actualizado.setPuntuacionTotal(actualizado.getPuntuacionTotal() + puntos);
+            actualizado.setPartidasJugadas(actualizado.getPartidasJugadas() + partidasJugadas);
+            actualizado.setPartidasGanadas(actualizado.getPartidasGanadas() + partidasGanadas);
+            seg.put(nombre, new Entrada(actualizado, entrada.caduca));
+        }
+    }
+
+    /**
+     * Cierra una escritura anunciada que no llegó a confirmarse (o cuyo resultado es dudoso)
+     * La entrada se elimina: la siguiente lectura la recarga desde la base de datos
+     * @param nombre Nombre del jugador
+     */
+    public void abandonarEscritura(String nombre) {
+        Segmento seg = segmento(nombre);
+        synchronized (seg) {
+            seg.version++;
+            terminarEscritura(seg, nombre);
+            seg.remove(nombre);
+        }
+    }
+
+    /**
+     * Descuenta una escritura en curso de un jugador (con el monitor del segmento)
+     */
+    private static void terminarEscritura(Segmento seg, String nombre) {
+        seg.escriturasEnCurso.computeIfPresent(nombre, (clave, enCurso) -> enCurso > 1 ? enCurso - 1 : null);
+    }
+
+    /**
+     * Elimina un jugador de la caché
+     * @param nombre Nombre del jugador
+     */
+    public void invalidar(String nombre) {
+        Segmento seg = segmento(nombre);
+        synchronized (seg) {
+            seg.version++;
+            seg.remove(nombre);
+        }
+    }
+
+    /**
+     * Copia los campos persistentes de un jugador
+     */
+    private static Jugador copiar(Jugador origen) {
+        Jugador copia = new Jugador(origen.getNombre(), origen.getPuntuacionTotal());
+        copia.setId(origen.getId());
+        copia.setPartidasJugadas(origen.getPartidasJugadas());
+        copia.setPartidasGanadas(origen.getPartidasGanadas());
+        return copia;
+    }
+
+    /**
+     * Obtiene el número de jugadores en memoria
+     * @return Entradas actuales (incluidas las caducadas aún no retiradas)
+     */
+    public int getTamano() {
+        int total = 0;
+        for (Segmento seg : segmentos) {
+            synchronized (seg) {
+                total += seg.size();
+            }
+        }
+        return total;
+    }
+
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    public long getExpulsiones() {
+        return expulsiones.sum();
+    }
+
+    /**
+     * Genera un resumen de las métricas de la caché
+     * @return Texto con tamaño, aciertos, fallos y tasa de acierto
+     */
+    public String obtenerResumen() {
+        long a = aciertos.sum();
+        long f = fallos.sum();
+        double tasa = a + f == 0 ? 0 : 100.0 * a / (a + f);
+        return String.format("🗃️ Caché de jugadores: %d en memoria | Aciertos: %d | Fallos: %d | Expulsiones: %d | Tasa: %.1f%%",
+                getTamano(), a, f, expulsiones.sum(), tasa);
+    }
+}
@@ -0,0 +1,76 @@
+package com.liceolapaz.acc.DAO;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila del historial de un jugador proyectada directamente desde la consulta
+ * Contiene solo los campos que se muestran, sin cargar las entidades Partida ni JugadorPartida
+ */
+public final class EntradaHistorial {
+
+    private final int idPartida;
+    private final LocalDateTime fechaHora;
+    private final String categoria;
+    private final String tipoPartida;
+    private final int respuestasCorrectas;
+    private final int puntosObtenidos;
+    private final boolean ganador;
+    private final Integer posicion;
+
+    /**
+     * Constructor usado por la expresión SELECT new de HQL
+     */
+    public EntradaHistorial(int idPartida, LocalDateTime fechaHora, String categoria, String tipoPartida,
+                            int respuestasCorrectas, int puntosObtenidos, boolean ganador, Integer posicion) {
+        this.idPartida = idPartida;
+        this.fechaHora = fechaHora;
+        this.categoria = categoria;
+        this.tipoPartida = tipoPartida;
+        this.respuestasCorrectas = respuestasCorrectas;
+        this.puntosObtenidos = puntosObtenidos;
+        this.ganador = ganador;
+        this.posicion = posicion;
+    }
+
+    public int getIdPartida() {
+        return idPartida;
+    }
+
+    public LocalDateTime getFechaHora() {
+        return fechaHora;
+    }
+
+    public String getCategoria() {
+        return categoria;
+    }
+
+    public String getTipoPartida() {
+        return tipoPartida;
+    }
+
+    public int getRespuestasCorrectas() {
+        return respuestasCorrectas;
+    }
+
+    public int getPuntosObtenidos() {
+        return puntosObtenidos;
+    }
+
+    public boolean isGanador() {
+        return ganador;
+    }
+
+    public Integer getPosicion() {
+        return posicion;
+    }
+
+    /**
+     * Genera una línea legible para enviarla al cliente
+     * @return Fecha, categoría, tipo, aciertos, puntos y resultado
+     */
+    public String aTexto() {
+        String resultado = ganador ? "🏆" : (posicion == null ? "🎯" : "#" + posicion);
+        return String.format("%s %s (%s) %d aciertos, %d puntos %s",
+                fechaHora.toLocalDate(), categoria, tipoPartida.toLowerCase(), respuestasCorrectas, puntosObtenidos, resultado);
+    }
+}
@@ -0,0 +1,433 @@
+package com.liceolapaz.acc.DAO;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escritor diferido de resultados de partida
+ * Las partidas publican su resultado y envían FIN_PARTIDA sin esperar a MySQL; un hilo dedicado
+ * vacía la cola por lotes, cada lote en una sola transacción
+ * Los resultados que no se pueden guardar vuelven a una lista de espera y se reintentan con espera creciente;
+ * si falla todo (base de datos caída) el escritor se pausa sin bloquear la cola, que sigue recogiendo resultados
+ * Antes de entrar en la cola, cada resultado se anota en un diario local de solo añadido, de modo que
+ * si el proceso muere antes de guardarlo se recupera al arrancar de nuevo
+ */
+public final class EscritorResultados {
+
+    // Capacidad de la cola de resultados pendientes
+    private static final int CAPACIDAD_COLA = Integer.getInteger("trivia.colaResultados", 10000);
+    // Máximo de resultados por transacción
+    private static final int TAMANO_LOTE = 50;
+    // Fallos seguidos tras los que se corta el guardado uno a uno de un lote rechazado (la base de datos no responde)
+    private static final int MAX_FALLOS_AISLADOS = 2;
+    // Espera inicial entre reintentos (se duplica en cada fallo, hasta ESPERA_MAXIMA)
+    private static final long ESPERA_REINTENTO = 500;
+    private static final long ESPERA_MAXIMA = 30000;
+    // Espera máxima del hilo escritor sin resultados nuevos ni reintentos vencidos
+    private static final long ESPERA_SONDEO = 1000;
+    // Confirmaciones anotadas tras las que el diario se reescribe solo con lo pendiente
+    private static final int MAX_CONFIRMACIONES_DIARIO = 1000;
+    // Fichero del diario de resultados pendientes
+    private static final Path RUTA_DIARIO = Paths.get(System.getProperty("trivia.diarioResultados", "resultados-pendientes.log"));
+
+    // Prefijos de las líneas del diario
+    private static final String PENDIENTE = "R ";
+    private static final String CONFIRMADO = "OK ";
+
+    private static final BlockingQueue<ResultadoPartida> cola = new ArrayBlockingQueue<>(CAPACIDAD_COLA);
+    private static final Object cerrojoDiario = new Object(); // Serializa las escrituras en el diario
+    private static FileChannel diario; // Diario abierto en modo añadir
+    // Resultados publicados aún sin confirmar, por código, con su línea del diario (para poder compactarlo)
+    private static final Map<String, String> sinConfirmar = new LinkedHashMap<>();
+    private static int confirmacionesEnDiario = 0; // Líneas OK anotadas desde la última reescritura
+    private static Thread hilo; // Hilo escritor
+    private static volatile boolean activo = false;
+
+    // Estado propio del hilo escritor: resultados en espera de (re)intento, por orden de vencimiento
+    private static final PriorityQueue<Reintento> enEspera =
+            new PriorityQueue<>(Comparator.comparingLong(reintento -> reintento.siguiente));
+    private static long pausaHasta = 0; // Sin intentos hasta este instante tras un fallo general
+    private static long esperaPausa = ESPERA_REINTENTO; // Duración de la próxima pausa
+
+    private EscritorResultados() {
+    }
+
+    /**
+     * Abre el diario, recupera los resultados que quedaron sin guardar y arranca el hilo escritor
+     */
+    public static synchronized void iniciar() {
+        if (activo) return;
+        try {
+            List<ResultadoPartida> recuperados = leerPendientes();
+
+            // Reescribir el diario solo con lo pendiente antes de seguir añadiendo
+            diario = FileChannel.open(RUTA_DIARIO, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            for (ResultadoPartida resultado : recuperados) {
+                String json = resultado.aJson();
+                anotar(PENDIENTE + json);
+                sinConfirmar.put(resultado.getCodigo(), json);
+            }
+            diario.force(false);
+
+            if (!recuperados.isEmpty()) {
+                System.out.println("♻️ Recuperados " + recuperados.size() + " resultados pendientes del diario");
+                cola.addAll(recuperados);
+            }
+        } catch (IOException e) {
+            System.out.println("⚠️ No se pudo abrir el diario de resultados (" + RUTA_DIARIO + "): " + e.getMessage());
+            diario = null;
+        }
+
+        activo = true;
+        hilo = new Thread(EscritorResultados::bucleEscritura, "escritor-resultados");
+        hilo.setDaemon(true);
+        hilo.start();
+        System.out.println("💾 Escritor de resultados iniciado (diario: " + RUTA_DIARIO.toAbsolutePath() + ")");
+    }
+
+    /**
+     * Publica el resultado de una partida para guardarlo en segundo plano
+     * Se anota en el diario antes de encolarlo; si la cola está llena se guarda en el hilo que llama
+     * @param resultado Resultado completo de la partida (no debe modificarse después)
+     */
+    public static void publicar(ResultadoPartida resultado) {
+        boolean anotado = false;
+        String json = resultado.aJson();
+        synchronized (cerrojoDiario) {
+            // Cuenta como pendiente aunque falle el diario: así no se vacía mientras haya algo sin guardar
+            sinConfirmar.put(resultado.getCodigo(), json);
+            if (diario != null) {
+                try {
+                    anotar(PENDIENTE + json);
+                    diario.force(false);
+                    anotado = true;
+                } catch (IOException e) {
+                    System.out.println("⚠️ Error escribiendo en el diario de resultados: " + e.getMessage());
+                }
+            }
+        }
+
+        if (activo && cola.offer(resultado)) {
+            return;
+        }
+
+        // Sin escritor o cola llena: guardar directamente (un solo intento, sin bloquear más a la partida)
+        System.out.println("⚠️ Cola de resultados no disponible, guardando de forma síncrona");
+        if (resultado.guardar()) {
+            confirmar(List.of(resultado));
+        } else if (anotado) {
+            System.out.println("❌ Resultado " + resultado.getCodigo() +
+                    " no guardado; queda en el diario y se recuperará en el próximo arranque");
+        } else {
+            System.out.println("❌ Resultado " + resultado.getCodigo() + " no guardado ni anotado en el diario: se pierde");
+        }
+    }
+
+    /**
+     * Bucle del hilo escritor: pasa los resultados nuevos a la lista de espera y guarda por lotes los que han vencido
+     * Al detenerse termina lo vencido; lo que esté esperando un reintento queda en el diario
+     */
+    private static void bucleEscritura() {
+        List<ResultadoPartida> nuevos = new ArrayList<>(TAMANO_LOTE);
+        List<Reintento> lote = new ArrayList<>(TAMANO_LOTE);
+        while (activo || !cola.isEmpty() || hayVencidos()) {
+            try {
+                // Esperar un resultado nuevo como mucho hasta que venza el primer reintento
+                long espera = esperaHastaVencimiento();
+                ResultadoPartida primero = null;
+                if (enEspera.size() < CAPACIDAD_COLA) {
+                    primero = cola.poll(espera, TimeUnit.MILLISECONDS);
+                } else if (espera > 0) {
+                    Thread.sleep(espera); // Lista de espera llena: lo nuevo aguarda en la cola
+                }
+                if (primero != null) {
+                    nuevos.add(primero);
+                    cola.drainTo(nuevos, TAMANO_LOTE - 1);
+                    long ahora = System.currentTimeMillis();
+                    for (ResultadoPartida resultado : nuevos) {
+                        enEspera.add(new Reintento(resultado, ahora));
+                    }
+                }
+
+                if (!hayVencidos()) continue;
+                long ahora = System.currentTimeMillis();
+                while (lote.size() < TAMANO_LOTE && !enEspera.isEmpty() && enEspera.peek().siguiente <= ahora) {
+                    lote.add(enEspera.poll());
+                }
+                guardar(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.out.println("❌ Error en el escritor de resultados: " + e.getMessage());
+                e.printStackTrace();
+            } finally {
+                nuevos.clear();
+                lote.clear();
+            }
+        }
+        if (!enEspera.isEmpty()) {
+            System.out.println("💾 " + enEspera.size() + " resultados esperando reintento quedan en el diario");
+        }
+    }
+
+    /**
+     * Guarda un lote en una transacción; si se rechaza, lo guarda resultado a resultado para que uno
+     * defectuoso no bloquee al resto. Ese paso se corta tras MAX_FALLOS_AISLADOS fallos seguidos, porque
+     * entonces lo que falla es la base de datos y cada intento solo añadiría otra espera de conexión
+     * Todo lo que no se guarda vuelve a la lista de espera
+     */
+    private static void guardar(List<Reintento> lote) {
+        if (ResultadoPartida.guardarLote(resultados(lote))) {
+            confirmar(resultados(lote));
+            reanudar();
+            return;
+        }
+        if (lote.size() == 1) {
+            aplazar(lote.get(0), true);
+            pausar();
+            return;
+        }
+
+        System.out.println("⚠️ Lote de " + lote.size() + " resultados rechazado, guardando uno a uno");
+        boolean alguno = false;
+        int fallosSeguidos = 0;
+        for (Reintento reintento : lote) {
+            if (fallosSeguidos >= MAX_FALLOS_AISLADOS) {
+                aplazar(reintento, false); // Sin intentarlo: no cuenta como fallo propio
+            } else if (ResultadoPartida.guardarLote(List.of(reintento.resultado))) {
+                confirmar(List.of(reintento.resultado));
+                alguno = true;
+                fallosSeguidos = 0;
+            } else {
+                aplazar(reintento, true);
+                fallosSeguidos++;
+            }
+        }
+        if (alguno) {
+            reanudar();
+        } else {
+            pausar();
+        }
+    }
+
+    /**
+     * Devuelve un resultado a la lista de espera
+     * @param fallido true si el resultado ha fallado (su espera crece), false si solo se ha aplazado
+     */
+    private static void aplazar(Reintento reintento, boolean fallido) {
+        long ahora = System.currentTimeMillis();
+        if (fallido) {
+            reintento.fallos++;
+            long espera = Math.min(ESPERA_REINTENTO << Math.min(reintento.fallos - 1, 16), ESPERA_MAXIMA);
+            reintento.siguiente = ahora + espera;
+            System.out.println("🔁 Resultado " + reintento.resultado.getCodigo() + " no guardado (fallo " +
+                    reintento.fallos + "), se reintentará en " + espera + " ms");
+        } else {
+            reintento.siguiente = ahora; // Por delante de los fallidos en cuanto acabe la pausa
+        }
+        enEspera.add(reintento);
+    }
+
+    /**
+     * Suspende los intentos tras un fallo general, con espera creciente entre pausas seguidas
+     */
+    private static void pausar() {
+        pausaHasta = System.currentTimeMillis() + esperaPausa;
+        System.out.println("⏸️ Guardado de resultados en pausa " + esperaPausa + " ms (" + enEspera.size() +
+                " en espera, " + cola.size() + " en cola)");
+        esperaPausa = Math.min(esperaPausa * 2, ESPERA_MAXIMA);
+    }
+
+    /**
+     * Vuelve a intentar sin pausas tras un guardado correcto
+     */
+    private static void reanudar() {
+        pausaHasta = 0;
+        esperaPausa = ESPERA_REINTENTO;
+    }
+
+    /**
+     * Indica si hay resultados en espera cuyo intento ya ha vencido (y el escritor no está en pausa)
+     */
+    private static boolean hayVencidos() {
+        long ahora = System.currentTimeMillis();
+        return ahora >= pausaHasta && !enEspera.isEmpty() && enEspera.peek().siguiente <= ahora;
+    }
+
+    /**
+     * Milisegundos hasta el siguiente intento vencido, entre 0 y ESPERA_SONDEO
+     */
+    private static long esperaHastaVencimiento() {
+        long ahora = System.currentTimeMillis();
+        long hasta = enEspera.isEmpty() ? ahora + ESPERA_SONDEO : Math.max(enEspera.peek().siguiente, pausaHasta);
+        return Math.max(0, Math.min(hasta - ahora, ESPERA_SONDEO));
+    }
+
+    private static List<ResultadoPartida> resultados(List<Reintento> lote) {
+        List<ResultadoPartida> resultados = new ArrayList<>(lote.size());
+        for (Reintento reintento : lote) {
+            resultados.add(reintento.resultado);
+        }
+        return resultados;
+    }
+
+    /**
+     * Marca resultados como guardados en el diario y lo vacía cuando no queda nada pendiente
+     */
+    private static void confirmar(List<ResultadoPartida> guardados) {
+        synchronized (cerrojoDiario) {
+            for (ResultadoPartida resultado : guardados) {
+                sinConfirmar.remove(resultado.getCodigo());
+            }
+            if (diario == null) return;
+            try {
+                if (sinConfirmar.isEmpty()) {
+                    diario.truncate(0); // Todo guardado: el diario puede empezar de cero
+                    confirmacionesEnDiario = 0;
+                } else if (confirmacionesEnDiario + guardados.size() > MAX_CONFIRMACIONES_DIARIO) {
+                    compactar(); // Algo lleva mucho sin guardarse: el diario no debe crecer sin límite
+                    return;
+                } else {
+                    for (ResultadoPartida resultado : guardados) {
+                        anotar(CONFIRMADO + resultado.getCodigo());
+                    }
+                    confirmacionesEnDiario += guardados.size();
+                }
+                diario.force(false);
+            } catch (IOException e) {
+                System.out.println("⚠️ Error actualizando el diario de resultados: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reescribe el diario solo con los resultados sin confirmar (el llamante debe poseer el cerrojo)
+     * Se escribe en un fichero aparte que sustituye al diario de una vez, así una caída a medias no pierde nada
+     */
+    private static void compactar() throws IOException {
+        Path temporal = RUTA_DIARIO.resolveSibling(RUTA_DIARIO.getFileName() + ".tmp");
+        try (FileChannel nuevo = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (String json : sinConfirmar.values()) {
+                ByteBuffer datos = ByteBuffer.wrap((PENDIENTE + json + "\n").getBytes(StandardCharsets.UTF_8));
+                while (datos.hasRemaining()) {
+                    nuevo.write(datos);
+                }
+            }
+            nuevo.force(false);
+        }
+        diario.close();
+        try {
+            Files.move(temporal, RUTA_DIARIO, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // Si el cambio falla se sigue añadiendo al diario anterior, que sigue siendo válido
+            diario = FileChannel.open(RUTA_DIARIO, StandardOpenOption.WRITE);
+        }
+        confirmacionesEnDiario = 0;
+        System.out.println("🗜️ Diario de resultados compactado (" + sinConfirmar.size() + " pendientes)");
+    }
+
+    /**
+     * Añade una línea al diario (el llamante debe poseer el cerrojo o estar en el arranque)
+     */
+    private static void anotar(String linea) throws IOException {
+        ByteBuffer datos = ByteBuffer.wrap((linea + "\n").getBytes(StandardCharsets.UTF_8));
+        diario.position(diario.size());
+        while (datos.hasRemaining()) {
+            diario.write(datos);
+        }
+    }
+
+    /**
+     * Lee del diario los resultados anotados que no llegaron a confirmarse
+     */
+    private static List<ResultadoPartida> leerPendientes() throws IOException {
+        Map<String, ResultadoPartida> pendientes = new LinkedHashMap<>();
+        if (!Files.exists(RUTA_DIARIO)) {
+            return new ArrayList<>();
+        }
+        for (String linea : Files.readAllLines(RUTA_DIARIO, StandardCharsets.UTF_8)) {
+            try {
+                if (linea.startsWith(PENDIENTE)) {
+                    ResultadoPartida resultado = ResultadoPartida.desdeJson(linea.substring(PENDIENTE.length()));
+                    pendientes.put(resultado.getCodigo(), resultado);
+                } else if (linea.startsWith(CONFIRMADO)) {
+                    pendientes.remove(linea.substring(CONFIRMADO.length()));
+                }
+            } catch (Exception e) {
+                // Una línea cortada por una caída a mitad de escritura no invalida el resto
+                System.out.println("⚠️ Línea ilegible en el diario de resultados, se ignora");
+            }
+        }
+        return new ArrayList<>(pendientes.values());
+    }
+
+    /**
+     * Resultado a la espera de un nuevo intento de guardado (solo lo usa el hilo escritor)
+     */
+    private static final class Reintento {
+        private final ResultadoPartida resultado;
+        private int fallos; // Intentos fallidos de este resultado
+        private long siguiente; // Instante (ms) a partir del cual puede intentarse
+
+        private Reintento(ResultadoPartida resultado, long siguiente) {
+            this.resultado = resultado;
+            this.siguiente = siguiente;
+        }
+    }
+
+    /**
+     * Obtiene el número de resultados esperando en la cola
+     * @return Resultados pendientes de guardar
+     */
+    public static int getPendientes() {
+        return cola.size();
+    }
+
+    /**
+     * Detiene el escritor tras guardar lo que quede en la cola (espera como máximo el tiempo indicado)
+     * @param esperaMaximaMs Milisegundos máximos de espera
+     */
+    public static void detener(long esperaMaximaMs) {
+        Thread actual;
+        synchronized (EscritorResultados.class) {
+            if (!activo) return;
+            activo = false;
+            actual = hilo;
+        }
+        try {
+            actual.join(esperaMaximaMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (cerrojoDiario) {
+            try {
+                if (diario != null) diario.close();
+            } catch (IOException ignored) {}
+            diario = null;
+        }
+        int sinGuardar;
+        synchronized (cerrojoDiario) {
+            sinGuardar = sinConfirmar.size();
+        }
+        System.out.println("💾 Escritor de resultados detenido (" + sinGuardar + " sin guardar, conservados en el diario)");
+    }
+}
@@ -0,0 +1,123 @@
+package com.liceolapaz.acc.DAO;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Punto único de arranque de Hibernate para todos los DAO
+ * Lee hibernate.cfg.xml, aplica las migraciones pendientes, valida el esquema y crea el pool de conexiones una sola vez,
+ * la primera vez que un DAO necesita la fábrica de sesiones
+ */
+public final class GestorPersistencia {
+
+    // Duración del arranque de Hibernate en milisegundos (para diagnóstico)
+    private static volatile long milisegundosArranque = -1;
+
+    /**
+     * Inicialización perezosa y segura entre hilos (idioma del contenedor estático)
+     */
+    private static final class Contenedor {
+        // Registro de servicios estándar de Hibernate configurado desde hibernate.cfg.xml
+        private static final StandardServiceRegistry sr;
+
+        // Fábrica de sesiones compartida por todos los DAO
+        private static final SessionFactory sf;
+
+        static {
+            long inicio = System.currentTimeMillis();
+            System.out.println("🔄 Arrancando Hibernate...");
+            sr = new StandardServiceRegistryBuilder().configure().build();
+            try {
+                // Migrar el esquema antes de que Hibernate lo valide contra las entidades
+                MigracionesEsquema.aplicar(sr.getService(ConnectionProvider.class));
+                sf = new MetadataSources(sr).buildMetadata().buildSessionFactory();
+            } catch (RuntimeException e) {
+                StandardServiceRegistryBuilder.destroy(sr);
+                throw e;
+            }
+            milisegundosArranque = System.currentTimeMillis() - inicio;
+            System.out.println("✅ Hibernate listo en " + milisegundosArranque + " ms");
+        }
+    }
+
+    private GestorPersistencia() {
+    }
+
+    /**
+     * Obtiene la fábrica de sesiones compartida, arrancando Hibernate si aún no se hizo
+     * @return SessionFactory única de la aplicación
+     */
+    public static SessionFactory getSessionFactory() {
+        return Contenedor.sf;
+    }
+
+    /**
+     * Arranca Hibernate por adelantado (por ejemplo, al iniciar el servidor)
+     * @return Milisegundos que tardó el arranque
+     */
+    public static long iniciar() {
+        getSessionFactory();
+        return milisegundosArranque;
+    }
+
+    /**
+     * Obtiene la duración del arranque de Hibernate
+     * @return Milisegundos, o -1 si aún no ha arrancado
+     */
+    public static long getMilisegundosArranque() {
+        return milisegundosArranque;
+    }
+
+    /**
+     * Obtiene el número de sentencias SQL preparadas desde el arranque
+     * Requiere hibernate.generate_statistics; sirve para medir cuántas consultas llegan a la base de datos
+     * @return Sentencias preparadas por Hibernate
+     */
+    public static long getSentenciasEjecutadas() {
+        return getSessionFactory().getStatistics().getPrepareStatementCount();
+    }
+
+    /**
+     * Genera un resumen de la caché de segundo nivel y de consultas, región por región
+     * @return Texto con aciertos, fallos y escrituras de cada región
+     */
+    public static String obtenerResumenCache() {
+        Statistics estadisticas = getSessionFactory().getStatistics();
+        StringBuilder resumen = new StringBuilder(String.format(
+                "🗄️ Caché de segundo nivel | Aciertos: %d | Fallos: %d | Consultas en caché: %d/%d | Sentencias SQL: %d",
+                estadisticas.getSecondLevelCacheHitCount(), estadisticas.getSecondLevelCacheMissCount(),
+                estadisticas.getQueryCacheHitCount(), estadisticas.getQueryCacheHitCount() + estadisticas.getQueryCacheMissCount(),
+                estadisticas.getPrepareStatementCount()));
+        for (String region : estadisticas.getSecondLevelCacheRegionNames()) {
+            // Regiones de entidades y de consultas
+            CacheRegionStatistics r = estadisticas.getDomainDataRegionStatistics(region);
+            if (r == null) r = estadisticas.getQueryRegionStatistics(region);
+            if (r == null) continue;
+            resumen.append(String.format("\n   %s: %d aciertos, %d fallos, %d escrituras",
+                    region, r.getHitCount(), r.getMissCount(), r.getPutCount()));
+        }
+        return resumen.toString();
+    }
+
+    /**
+     * Cierra la SessionFactory y libera el pool de conexiones
+     * No hace nada si Hibernate no llegó a arrancar
+     */
+    public static void cerrar() {
+        if (milisegundosArranque < 0) {
+            return;
+        }
+        try {
+            Contenedor.sf.close();
+            StandardServiceRegistryBuilder.destroy(Contenedor.sr);
+            System.out.println("🔒 Factory de Hibernate cerrada");
+        } catch (Exception e) {
+            System.out.println("❌ Error cerrando factory: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.liceolapaz.acc.DAO;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Importador masivo de preguntas desde los ficheros preguntas-<categoria>.json
+ * Lee el fichero con el parser en streaming de Jackson (un objeto cada vez), valida cada bloque en paralelo
+ * e inserta con lotes JDBC dentro de una única transacción por fichero
+ * Es idempotente: la huella única de cada pregunta (categoría + texto) hace que las ya existentes se ignoren
+ * Se ejecuta al arrancar el servidor o desde línea de comandos:
+ * java com.liceolapaz.acc.DAO.ImportadorPreguntas categoria|fichero.json ...
+ */
+public final class ImportadorPreguntas {
+
+    // Preguntas por lote de inserción
+    private static final int TAMANO_LOTE = 1000;
+    // Prefijo de los ficheros de preguntas en el classpath
+    private static final String PREFIJO_FICHERO = "preguntas-";
+    // Modo de importación al arrancar: "vacias" (solo categorías sin preguntas) o "siempre"
+    private static final String MODO_ARRANQUE = System.getProperty("trivia.importarPreguntas", "vacias");
+
+    private static final SessionFactory sf = GestorPersistencia.getSessionFactory();
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private ImportadorPreguntas() {
+    }
+
+    /**
+     * Pregunta validada lista para insertar
+     */
+    private static final class Fila {
+        private final String texto;
+        private final String[] opciones;
+        private final int respuesta; // 0-3
+        private final String dificultad;
+
+        Fila(String texto, String[] opciones, int respuesta, String dificultad) {
+            this.texto = texto;
+            this.opciones = opciones;
+            this.respuesta = respuesta;
+            this.dificultad = dificultad;
+        }
+    }
+
+    /**
+     * Resultado de importar un fichero
+     */
+    public static final class Informe {
+        private final String categoria;
+        private final int leidas;
+        private final int descartadas;
+        private final long insertadas;
+        private final long milisegundos;
+
+        Informe(String categoria, int leidas, int descartadas, long insertadas, long milisegundos) {
+            this.categoria = categoria;
+            this.leidas = leidas;
+            this.descartadas = descartadas;
+            this.insertadas = insertadas;
+            this.milisegundos = milisegundos;
+        }
+
+        public long getInsertadas() {
+            return insertadas;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("📥 %s: %d leídas, %d nuevas, %d ya existentes, %d descartadas en %d ms",
+                    categoria, leidas, insertadas, leidas - descartadas - insertadas, descartadas, milisegundos);
+        }
+    }
+
+    /**
+     * Importa al arrancar las preguntas de las categorías indicadas
+     * Por defecto solo las categorías sin preguntas; con -Dtrivia.importarPreguntas=siempre, todas
+     * @param categorias Categorías ofrecidas por el servidor
+     */
+    public static void importarAlArrancar(List<String> categorias) {
+        for (String categoria : categorias) {
+            if (!"siempre".equals(MODO_ARRANQUE) && PreguntaDAO.contarPreguntasPorCategoria(categoria) > 0) {
+                continue;
+            }
+            importarCategoria(categoria);
+        }
+    }
+
+    /**
+     * Importa el fichero preguntas-<categoria>.json del classpath
+     * @param categoria Categoría a importar
+     * @return Informe de la importación, o null si no hay fichero o falla
+     */
+    public static Informe importarCategoria(String categoria) {
+        String nombreArchivo = PREFIJO_FICHERO + categoria.toLowerCase() + ".json";
+        try (InputStream entrada = ImportadorPreguntas.class.getClassLoader().getResourceAsStream(nombreArchivo)) {
+            if (entrada == null) {
+                System.out.println("❌ Archivo no encontrado: " + nombreArchivo);
+                return null;
+            }
+            return importar(categoria, entrada);
+        } catch (Exception e) {
+            System.out.println("❌ Error importando " + nombreArchivo + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Importa un array JSON de preguntas en una única transacción
+     * @param categoria Categoría de las preguntas
+     * @param entrada Contenido JSON (array de objetos con pregunta, opciones, respuestaCorrecta 1-4 y dificultad)
+     * @return Informe de la importación
+     * @throws IOException Si el JSON no es un array válido (no se inserta nada)
+     */
+    public static Informe importar(String categoria, InputStream entrada) throws IOException {
+        long inicio = System.currentTimeMillis();
+        String cat = categoria.toLowerCase();
+        int leidas = 0;
+        int descartadas = 0;
+
+        Session session = sf.openSession();
+        Transaction tx = null;
+        try (JsonParser parser = JSON.createParser(entrada)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Se esperaba un array de preguntas");
+            }
+
+            tx = session.beginTransaction();
+            long antes = contar(session, cat);
+
+            List<JsonNode> bloque = new ArrayList<>(TAMANO_LOTE);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                bloque.add(parser.readValueAsTree());
+                if (bloque.size() == TAMANO_LOTE) {
+                    descartadas += insertarBloque(session, cat, bloque);
+                    leidas += bloque.size();
+                    bloque.clear();
+                }
+            }
+            if (!bloque.isEmpty()) {
+                descartadas += insertarBloque(session, cat, bloque);
+                leidas += bloque.size();
+            }
+
+            long insertadas = contar(session, cat) - antes;
+            tx.commit();
+
+            if (insertadas > 0) {
+                // Los recuentos y listados en caché ya no son válidos
+                sf.getCache().evictQueryRegion(PreguntaDAO.REGION_CONSULTAS);
+                PreguntaDAO.preguntasModificadas(cat);
+            }
+
+            Informe informe = new Informe(cat, leidas, descartadas, insertadas, System.currentTimeMillis() - inicio);
+            System.out.println(informe);
+            return informe;
+
+        } catch (IOException | RuntimeException e) {
+            if (tx != null && tx.isActive()) tx.rollback();
+            throw e;
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Valida un bloque en paralelo y lo inserta con un lote JDBC
+     * @return Número de preguntas descartadas por no ser válidas
+     */
+    private static int insertarBloque(Session session, String categoria, List<JsonNode> bloque) {
+        List<Fila> filas = bloque.parallelStream()
+                .map(ImportadorPreguntas::validar)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        session.doWork(conexion -> {
+            try (PreparedStatement insercion = conexion.prepareStatement(
+                    "INSERT INTO pregunta (texto_pregunta, opcion_a, opcion_b, opcion_c, opcion_d, " +
+                            "respuesta_correcta, categoria, dificultad, activa) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 1) " +
+                            "ON DUPLICATE KEY UPDATE id = id")) {
+                for (Fila fila : filas) {
+                    insercion.setString(1, fila.texto);
+                    for (int i = 0; i < 4; i++) {
+                        insercion.setString(2 + i, fila.opciones[i]);
+                    }
+                    insercion.setInt(6, fila.respuesta);
+                    insercion.setString(7, categoria);
+                    insercion.setString(8, fila.dificultad);
+                    insercion.addBatch();
+                }
+                insercion.executeBatch();
+            }
+        });
+        return bloque.size() - filas.size();
+    }
+
+    /**
+     * Valida una pregunta del JSON y la convierte en fila
+     * Convierte el índice de respuesta de JSON (1-4) al de base de datos (0-3)
+     * @return Fila lista para insertar, o null si la pregunta no es válida
+     */
+    private static Fila validar(JsonNode nodo) {
+        String texto = nodo.path("pregunta").asText("").trim();
+        JsonNode opciones = nodo.path("opciones");
+        int respuesta = nodo.path("respuestaCorrecta").asInt(0) - 1;
+        String dificultad = nodo.path("dificultad").asText("medio");
+
+        if (texto.isEmpty() || texto.length() > 500 || !opciones.isArray() || opciones.size() != 4
+                || respuesta < 0 || respuesta > 3 || dificultad.length() > 20) {
+            System.out.println("❌ Pregunta descartada: " + (texto.isEmpty() ? nodo : texto));
+            return null;
+        }
+
+        String[] textos = new String[4];
+        for (int i = 0; i < 4; i++) {
+            textos[i] = opciones.get(i).asText("").trim();
+            if (textos[i].isEmpty() || textos[i].length() > 200) {
+                System.out.println("❌ Pregunta descartada (opción " + (i + 1) + " no válida): " + texto);
+                return null;
+            }
+        }
+        return new Fila(texto, textos, respuesta, dificultad);
+    }
+
+    /**
+     * Cuenta las preguntas de una categoría dentro de la transacción de importación
+     */
+    private static long contar(Session session, String categoria) {
+        return session.doReturningWork(conexion -> {
+            try (PreparedStatement consulta = conexion.prepareStatement("SELECT COUNT(*) FROM pregunta WHERE categoria = ?")) {
+                consulta.setString(1, categoria);
+                try (ResultSet fila = consulta.executeQuery()) {
+                    fila.next();
+                    return fila.getLong(1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Importación desde línea de comandos
+     * Cada argumento es una categoría (se busca preguntas-<categoria>.json en el classpath)
+     * o la ruta de un fichero preguntas-<categoria>.json
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Uso: ImportadorPreguntas categoria|preguntas-<categoria>.json ...");
+            return;
+        }
+
+        GestorPersistencia.iniciar();
+        try {
+            for (String argumento : args) {
+                if (!argumento.endsWith(".json")) {
+                    importarCategoria(argumento);
+                    continue;
+                }
+                Path ruta = Paths.get(argumento);
+                String nombre = ruta.getFileName().toString();
+                String categoria = nombre.substring(nombre.startsWith(PREFIJO_FICHERO) ? PREFIJO_FICHERO.length() : 0,
+                        nombre.length() - ".json".length());
+                try (InputStream entrada = new FileInputStream(ruta.toFile())) {
+                    importar(categoria, entrada);
+                } catch (IOException e) {
+                    System.out.println("❌ Error importando " + ruta + ": " + e.getMessage());
+                }
+            }
+        } finally {
+            GestorPersistencia.cerrar();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.liceolapaz.acc.DAO;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice en memoria de la posición de cada jugador según su puntuación total
+ * Usa un árbol de Fenwick sobre los valores de puntuación: cada celda cuenta cuántos jugadores tienen
+ * esa puntuación, de modo que "cuántos tienen más puntos que yo" se responde en O(log n)
+ * sin recorrer la tabla jugador
+ * Se reconstruye desde la base de datos al arrancar y JugadorDAO le aplica los cambios de puntuación ya confirmados
+ */
+public class IndicePosiciones {
+
+    // Capacidad inicial del árbol (puntuaciones 0..capacidad-1); crece al doble cuando hace falta
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    private long[] arbol = new long[CAPACIDAD_INICIAL + 1]; // Árbol de Fenwick, base 1
+    private final Map<String, Integer> puntuaciones = new HashMap<>(); // Puntuación actual de cada jugador
+
+    /**
+     * Posición de un jugador dentro del total
+     */
+    public static final class Posicion {
+        private final int puesto;
+        private final int total;
+
+        Posicion(int puesto, int total) {
+            this.puesto = puesto;
+            this.total = total;
+        }
+
+        public int getPuesto() {
+            return puesto;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * Calcula el porcentaje de jugadores que están por delante o empatados
+         * @return Porcentaje "top X%" (100 si es el último)
+         */
+        public double getPercentil() {
+            return total == 0 ? 0 : 100.0 * puesto / total;
+        }
+    }
+
+    /**
+     * Vuelve a construir el índice con las puntuaciones indicadas
+     * @param filas Filas {nombre, puntuacionTotal}
+     */
+    public synchronized void reconstruir(List<Object[]> filas) {
+        puntuaciones.clear();
+        int maximo = 0;
+        for (Object[] fila : filas) {
+            int puntos = Math.max(0, ((Number) fila[1]).intValue());
+            puntuaciones.put((String) fila[0], puntos);
+            maximo = Math.max(maximo, puntos);
+        }
+        int capacidad = CAPACIDAD_INICIAL;
+        while (capacidad <= maximo) capacidad *= 2;
+        rellenar(capacidad);
+    }
+
+    /**
+     * Rellena el árbol con las puntuaciones actuales en O(n + capacidad)
+     */
+    private void rellenar(int capacidad) {
+        arbol = new long[capacidad + 1];
+        for (int puntos : puntuaciones.values()) {
+            arbol[puntos + 1]++;
+        }
+        for (int i = 1; i <= capacidad; i++) {
+            int padre = i + (i & -i);
+            if (padre <= capacidad) arbol[padre] += arbol[i];
+        }
+    }
+
+    /**
+     * Da de alta un jugador nuevo con su puntuación (no hace nada si ya estaba)
+     * @param nombre Nombre del jugador
+     * @param puntos Puntuación total actual
+     */
+    public synchronized void alta(String nombre, int puntos) {
+        if (puntuaciones.containsKey(nombre)) return;
+        puntos = Math.max(0, puntos);
+        asegurarCapacidad(puntos);
+        puntuaciones.put(nombre, puntos);
+        sumar(puntos, 1);
+    }
+
+    /**
+     * Aplica un cambio de puntuación ya confirmado en la base de datos
+     * @param nombre Nombre del jugador
+     * @param delta Puntos sumados (pueden ser negativos)
+     */
+    public synchronized void aplicar(String nombre, int delta) {
+        Integer anterior = puntuaciones.get(nombre);
+        if (anterior == null) return; // Jugador desconocido: lo traerá la próxima reconstrucción
+        int nueva = Math.max(0, anterior + delta);
+        if (nueva == anterior) return;
+        asegurarCapacidad(nueva);
+        sumar(anterior, -1);
+        sumar(nueva, 1);
+        puntuaciones.put(nombre, nueva);
+    }
+
+    /**
+     * Calcula la posición de un jugador: 1 + número de jugadores con más puntos
+     * @param nombre Nombre del jugador
+     * @return Posición, o null si el jugador no está en el índice
+     */
+    public synchronized Posicion obtenerPosicion(String nombre) {
+        Integer puntos = puntuaciones.get(nombre);
+        if (puntos == null) return null;
+        int total = puntuaciones.size();
+        long conMasPuntos = total - contarHasta(puntos);
+        return new Posicion((int) conMasPuntos + 1, total);
+    }
+
+    /**
+     * Obtiene el número de jugadores indexados
+     * @return Total de jugadores
+     */
+    public synchronized int getTotal() {
+        return puntuaciones.size();
+    }
+
+    private void asegurarCapacidad(int puntos) {
+        int capacidad = arbol.length - 1;
+        if (puntos < capacidad) return;
+        while (capacidad <= puntos) capacidad *= 2;
+        rellenar(capacidad);
+    }
+
+    /**
+     * Suma una cantidad a la celda de una puntuación
+     */
+    private void sumar(int puntos, long cantidad) {
+        for (int i = puntos + 1; i < arbol.length; i += i & -i) {
+            arbol[i] += cantidad;
+        }
+    }
+
+    /**
+     * Cuenta los jugadores con puntuación menor o igual que la indicada
+     */
+    private long contarHasta(int puntos) {
+        long suma = 0;
+        for (int i = Math.min(puntos + 1, arbol.length - 1); i > 0; i -= i & -i) {
+            suma += arbol[i];
+        }
+        return suma;
+    }
+}
@@ -4,25 +4,32 @@ import com.liceolapaz.acc.entidades.Jugador;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
-import org.hibernate.boot.MetadataSources;
-import org.hibernate.boot.registry.StandardServiceRegistry;
-import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+
+import java.util.List;
 
 public class JugadorDAO {
 
-    // Registro de servicios estándar de Hibernate configurado desde hibernate.cfg.xml
-    private static final StandardServiceRegistry sr =
-            new StandardServiceRegistryBuilder().configure().build();
+    // Fábrica de sesiones compartida por todos los DAO
+    private static final SessionFactory sf = GestorPersistencia.getSessionFactory();
+
+    // Caché de jugadores por nombre (capacidad y vida configurables)
+    private static final CacheJugadores cache = new CacheJugadores(
+            Integer.getInteger("trivia.cacheJugadores", 10000),
+            Long.getLong("trivia.cacheJugadoresVidaMs", 10 * 60 * 1000L));
 
-    // Fábrica de sesiones de Hibernate para gestionar conexiones a la base de datos
-    private static final SessionFactory sf =
-            new MetadataSources(sr).buildMetadata().buildSessionFactory();
+    // Posición de cada jugador según su puntuación total
+    private static final IndicePosiciones posiciones = new IndicePosiciones();
 
     /**
      * Verifica si existe un jugador por nombre y lo crea si no existe
      * @param nombre Nombre del jugador a verificar/crear
      */
     public static void verificarYCrearJugador(String nombre) {
+        if (cache.contiene(nombre)) {
+            System.out.println("👤 Jugador ya existe: " + nombre + " (en caché)");
+            return;
+        }
+
         Session session = sf.openSession();
         Transaction tx = session.beginTransaction();
 
@@ -44,6 +51,8 @@ public class JugadorDAO {
             }
 
             tx.commit();
+            cache.guardar(jugador);
+            posiciones.alta(jugador.getNombre(), jugador.getPuntuacionTotal());
         } catch (Exception e) {
             // Revertir transacción en caso de error
             if (tx != null) tx.rollback();
@@ -54,13 +63,22 @@ public class JugadorDAO {
     }
 
     /**
-     * Obtiene un jugador por su nombre
+     * Obtiene un jugador por su nombre, desde la caché si está en memoria
      * @param nombre Nombre del jugador a buscar
      * @return Objeto Jugador o null si no se encuentra
      */
     public static Jugador obtenerJugador(String nombre) {
+        return cache.obtener(nombre, JugadorDAO::consultarJugador);
+    }
+
+    /**
+     * Consulta un jugador en la base de datos
+     */
+    private static Jugador consultarJugador(String nombre) {
         Session session = sf.openSession();
         try {
+            // Jugador no usa la caché de segundo nivel: cada UPDATE de estadísticas vaciaría su región entera,
+            // así que las lecturas repetidas las sirve CacheJugadores
             Jugador jugador = session.createQuery(
                             "FROM Jugador WHERE nombre = :nombre", Jugador.class)
                     .setParameter("nombre", nombre)
@@ -80,180 +98,178 @@ public class JugadorDAO {
     }
 
     /**
-     * Método de actualización de puntuación con mejor manejo de transacciones
+     * Actualiza la puntuación sumando los puntos en la propia base de datos
      * @param nombre Nombre del jugador
      * @param puntos Puntos a sumar a la puntuación actual
      */
     public static void actualizarPuntuacionJugador(String nombre, int puntos) {
+        if (aplicarEstadisticas(nombre, puntos, 0, 0)) {
+            System.out.println("⬆️ Puntuación actualizada para " + nombre + ": +" + puntos);
+        }
+    }
+
+    /**
+     * Aplica de una vez todos los cambios de estadísticas de un jugador con una única sentencia UPDATE
+     * Los incrementos se calculan en la base de datos, así que dos partidas que terminan a la vez
+     * para el mismo jugador no pierden ninguna actualización
+     * @param nombre Nombre del jugador
+     * @param puntos Puntos a sumar
+     * @param partidasJugadas Partidas jugadas a sumar
+     * @param partidasGanadas Partidas ganadas a sumar
+     * @return true si el jugador existía y se actualizó
+     */
+    public static boolean aplicarEstadisticas(String nombre, int puntos, int partidasJugadas, int partidasGanadas) {
+        estadisticasIniciadas(nombre);
         Session session = sf.openSession();
         Transaction tx = null;
 
         try {
             tx = session.beginTransaction();
+            int filas = aplicarEstadisticas(session, nombre, puntos, partidasJugadas, partidasGanadas);
+            tx.commit();
 
-            // Buscar el jugador por nombre
-            Jugador jugador = session.createQuery(
-                            "FROM Jugador WHERE nombre = :nombre", Jugador.class)
-                    .setParameter("nombre", nombre)
-                    .uniqueResult();
-
-            if (jugador != null) {
-                int puntuacionAnterior = jugador.getPuntuacionTotal();
-                int nuevaPuntuacion = puntuacionAnterior + puntos;
-
-                jugador.setPuntuacionTotal(nuevaPuntuacion);
-                session.merge(jugador);
-
-                // CORREGIDO: Commit ANTES del logging para evitar problemas
-                tx.commit();
-                tx = null; // Marcar como completado
-
-                System.out.println("⬆️ Puntuación actualizada para " + nombre + ": " +
-                        puntuacionAnterior + " + " + puntos + " = " + nuevaPuntuacion);
+            if (filas == 0) {
+                System.out.println("❌ Jugador no encontrado para actualizar estadísticas: " + nombre);
+                estadisticasDescartadas(nombre);
             } else {
-                System.out.println("❌ Jugador no encontrado para actualizar puntuación: " + nombre);
-                if (tx != null) {
-                    tx.rollback();
-                    tx = null;
-                }
+                estadisticasConfirmadas(nombre, puntos, partidasJugadas, partidasGanadas);
             }
+            return filas > 0;
 
         } catch (Exception e) {
+            estadisticasDescartadas(nombre);
             // Manejo seguro del rollback
-            if (tx != null) {
+            if (tx != null && tx.isActive()) {
                 try {
                     tx.rollback();
                 } catch (Exception rollbackEx) {
                     System.out.println("❌ Error en rollback: " + rollbackEx.getMessage());
                 }
             }
-            System.out.println("❌ Error al actualizar la puntuación del jugador " + nombre + ": " + e.getMessage());
+            System.out.println("❌ Error al actualizar las estadísticas del jugador " + nombre + ": " + e.getMessage());
             e.printStackTrace();
+            return false;
         } finally {
             session.close();
         }
     }
 
     /**
-     * Obtiene la puntuación total de un jugador
-     * @param nombre Nombre del jugador
-     * @return Puntuación total del jugador o 0 si no se encuentra
+     * Aplica los cambios de estadísticas de un jugador dentro de una transacción ya abierta
+     * El llamante debe llamar a estadisticasIniciadas() antes de abrir la transacción y, tras ella,
+     * a estadisticasConfirmadas() o estadisticasDescartadas() para cerrar la escritura en la caché
+     * @param session Sesión con la transacción del llamante
+     * @return Número de filas actualizadas (0 si el jugador no existe)
      */
-    public static int obtenerPuntuacion(String nombre) {
-        Session session = sf.openSession();
-        try {
-            Jugador jugador = session.createQuery(
-                            "FROM Jugador WHERE nombre = :nombre", Jugador.class)
-                    .setParameter("nombre", nombre)
-                    .uniqueResult();
+    static int aplicarEstadisticas(Session session, String nombre, int puntos, int partidasJugadas, int partidasGanadas) {
+        return session.createMutationQuery(
+                        "UPDATE Jugador SET puntuacionTotal = puntuacionTotal + :puntos, " +
+                                "partidasJugadas = partidasJugadas + :jugadas, " +
+                                "partidasGanadas = partidasGanadas + :ganadas " +
+                                "WHERE nombre = :nombre")
+                .setParameter("puntos", puntos)
+                .setParameter("jugadas", partidasJugadas)
+                .setParameter("ganadas", partidasGanadas)
+                .setParameter("nombre", nombre)
+                .executeUpdate();
+    }
 
-            if (jugador != null) {
-                System.out.println("📊 Puntuación de " + nombre + ": " + jugador.getPuntuacionTotal() + " puntos");
-                return jugador.getPuntuacionTotal();
-            } else {
-                System.out.println("❌ Jugador no encontrado: " + nombre);
-                return 0;
-            }
+    /**
+     * Anuncia a la caché una actualización de estadísticas que está a punto de escribirse
+     * Mientras no se cierre, la caché no guarda cargas de ese jugador (podrían incluir ya el incremento)
+     */
+    static void estadisticasIniciadas(String nombre) {
+        cache.iniciarEscritura(nombre);
+    }
 
-        } catch (Exception e) {
-            System.out.println("❌ Error al obtener puntuación: " + e.getMessage());
-            return 0;
-        } finally {
-            session.close();
+    /**
+     * Cierra una actualización anunciada que no se confirmó; la caché olvida al jugador y lo recargará
+     */
+    static void estadisticasDescartadas(String nombre) {
+        cache.abandonarEscritura(nombre);
+    }
+
+    /**
+     * Refleja en la caché y en el índice de posiciones unos cambios de estadísticas ya confirmados en la base de datos
+     * Cierra la actualización anunciada con estadisticasIniciadas()
+     */
+    static void estadisticasConfirmadas(String nombre, int puntos, int partidasJugadas, int partidasGanadas) {
+        cache.aplicar(nombre, puntos, partidasJugadas, partidasGanadas);
+        if (puntos != 0) {
+            posiciones.aplicar(nombre, puntos);
         }
     }
 
     /**
-     * Incrementa el contador de partidas jugadas con mejor manejo de transacciones
-     * @param nombre Nombre del jugador
+     * Construye el índice de posiciones con las puntuaciones de todos los jugadores
+     * Se llama una vez al arrancar el servidor; después se mantiene con cada cambio de puntuación
      */
-    public static void incrementarPartidasJugadas(String nombre) {
+    public static void cargarPosiciones() {
+        long inicio = System.currentTimeMillis();
         Session session = sf.openSession();
-        Transaction tx = null;
-
         try {
-            tx = session.beginTransaction();
-
-            Jugador jugador = session.createQuery(
-                            "FROM Jugador WHERE nombre = :nombre", Jugador.class)
-                    .setParameter("nombre", nombre)
-                    .uniqueResult();
-
-            if (jugador != null) {
-                jugador.incrementarPartidaJugada();
-                session.merge(jugador);
-
-                tx.commit();
-                tx = null;
-
-                System.out.println("🎮 Partidas jugadas de " + nombre + ": " + jugador.getPartidasJugadas());
-            } else {
-                System.out.println("❌ Jugador no encontrado para incrementar partidas: " + nombre);
-                if (tx != null) {
-                    tx.rollback();
-                    tx = null;
-                }
-            }
-
+            List<Object[]> filas = session.createQuery(
+                            "SELECT j.nombre, j.puntuacionTotal FROM Jugador j", Object[].class)
+                    .getResultList();
+            posiciones.reconstruir(filas);
+            System.out.println("🥇 Índice de posiciones cargado: " + filas.size() + " jugadores en " +
+                    (System.currentTimeMillis() - inicio) + " ms");
         } catch (Exception e) {
-            // Manejo seguro del rollback
-            if (tx != null) {
-                try {
-                    tx.rollback();
-                } catch (Exception rollbackEx) {
-                    System.out.println("❌ Error en rollback: " + rollbackEx.getMessage());
-                }
-            }
-            System.out.println("❌ Error al incrementar partidas jugadas: " + e.getMessage());
+            System.out.println("❌ Error al cargar el índice de posiciones: " + e.getMessage());
         } finally {
             session.close();
         }
     }
 
     /**
-     * Incrementa el contador de partidas ganadas con mejor manejo de transacciones
+     * Obtiene la posición de un jugador según su puntuación total
      * @param nombre Nombre del jugador
+     * @return Posición y total de jugadores, o null si no está indexado
      */
-    public static void incrementarPartidasGanadas(String nombre) {
-        Session session = sf.openSession();
-        Transaction tx = null;
-
-        try {
-            tx = session.beginTransaction();
-
-            Jugador jugador = session.createQuery(
-                            "FROM Jugador WHERE nombre = :nombre", Jugador.class)
-                    .setParameter("nombre", nombre)
-                    .uniqueResult();
+    public static IndicePosiciones.Posicion obtenerPosicion(String nombre) {
+        return posiciones.obtenerPosicion(nombre);
+    }
 
-            if (jugador != null) {
-                jugador.incrementarPartidaGanada();
-                session.merge(jugador);
+    /**
+     * Obtiene la puntuación total de un jugador
+     * @param nombre Nombre del jugador
+     * @return Puntuación total del jugador o 0 si no se encuentra
+     */
+    public static int obtenerPuntuacion(String nombre) {
+        Jugador jugador = obtenerJugador(nombre);
+        if (jugador != null) {
+            System.out.println("📊 Puntuación de " + nombre + ": " + jugador.getPuntuacionTotal() + " puntos");
+            return jugador.getPuntuacionTotal();
+        }
+        System.out.println("❌ Jugador no encontrado: " + nombre);
+        return 0;
+    }
 
-                tx.commit();
-                tx = null;
+    /**
+     * Obtiene las métricas de la caché de jugadores
+     * @return Resumen con aciertos, fallos y tamaño
+     */
+    public static String obtenerResumenCache() {
+        return cache.obtenerResumen();
+    }
 
-                System.out.println("🏆 Partidas ganadas de " + nombre + ": " + jugador.getPartidasGanadas());
-            } else {
-                System.out.println("❌ Jugador no encontrado para incrementar victorias: " + nombre);
-                if (tx != null) {
-                    tx.rollback();
-                    tx = null;
-                }
-            }
+    /**
+     * Incrementa el contador de partidas jugadas en la propia base de datos
+     * @param nombre Nombre del jugador
+     */
+    public static void incrementarPartidasJugadas(String nombre) {
+        if (aplicarEstadisticas(nombre, 0, 1, 0)) {
+            System.out.println("🎮 Partida jugada sumada a " + nombre);
+        }
+    }
 
-        } catch (Exception e) {
-            // Manejo seguro del rollback
-            if (tx != null) {
-                try {
-                    tx.rollback();
-                } catch (Exception rollbackEx) {
-                    System.out.println("❌ Error en rollback: " + rollbackEx.getMessage());
-                }
-            }
-            System.out.println("❌ Error al incrementar partidas ganadas: " + e.getMessage());
-        } finally {
-            session.close();
+    /**
+     * Incrementa el contador de partidas ganadas en la propia base de datos
+     * @param nombre Nombre del jugador
+     */
+    public static void incrementarPartidasGanadas(String nombre) {
+        if (aplicarEstadisticas(nombre, 0, 0, 1)) {
+            System.out.println("🏆 Victoria sumada a " + nombre);
         }
     }
 
@@ -265,7 +281,7 @@ public class JugadorDAO {
     public static String obtenerEstadisticas(String nombre) {
         Jugador jugador = obtenerJugador(nombre);
         if (jugador != null) {
-            return String.format(
+            String estadisticas = String.format(
                     "📊 Estadísticas de %s:\n" +
                             "💰 Puntos totales: %d\n" +
                             "🎮 Partidas jugadas: %d\n" +
@@ -277,19 +293,14 @@ public class JugadorDAO {
                     jugador.getPartidasGanadas(),
                     jugador.getPorcentajeVictorias()
             );
-        }
-        return "❌ Jugador no encontrado: " + nombre;
-    }
 
-    /**
-     * Cierra la SessionFactory y libera recursos de Hibernate
-     */
-    public static void cerrarFactory() {
-        if (sf != null) {
-            sf.close();
-        }
-        if (sr != null) {
-            StandardServiceRegistryBuilder.destroy(sr);
+            IndicePosiciones.Posicion posicion = posiciones.obtenerPosicion(nombre);
+            if (posicion != null) {
+                estadisticas += String.format("\n🥇 Posición: #%d de %d (top %.1f%%)",
+                        posicion.getPuesto(), posicion.getTotal(), posicion.getPercentil());
+            }
+            return estadisticas;
         }
+        return "❌ Jugador no encontrado: " + nombre;
     }
-}
\ No newline at end of file
+}
@@ -3,24 +3,29 @@ package com.liceolapaz.acc.DAO;
 import com.liceolapaz.acc.entidades.Jugador;
 import com.liceolapaz.acc.entidades.JugadorPartida;
 import com.liceolapaz.acc.entidades.Partida;
+import com.liceolapaz.acc.entidades.ResumenJugador;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
-import org.hibernate.boot.MetadataSources;
-import org.hibernate.boot.registry.StandardServiceRegistry;
-import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.query.Query;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class JugadorPartidaDAO {
 
-    // Registro de servicios estándar de Hibernate configurado desde hibernate.cfg.xml
-    private static final StandardServiceRegistry sr =
-            new StandardServiceRegistryBuilder().configure().build();
+    // Fábrica de sesiones compartida por todos los DAO
+    private static final SessionFactory sf = GestorPersistencia.getSessionFactory();
 
-    // Fábrica de sesiones de Hibernate para gestionar conexiones a la base de datos
-    private static final SessionFactory sf =
-            new MetadataSources(sr).buildMetadata().buildSessionFactory();
+    // Proyección común de las consultas de historial
+    private static final String SELECT_HISTORIAL =
+            "SELECT new com.liceolapaz.acc.DAO.EntradaHistorial(p.id, jp.fechaPartida, p.categoria, p.tipoPartida, " +
+                    "jp.respuestasCorrectas, jp.puntosObtenidos, jp.ganador, jp.posicion) " +
+                    "FROM JugadorPartida jp JOIN jp.partida p JOIN jp.jugador j ";
 
     /**
      * Registra la participación de un jugador en una partida con respuestas correctas y puntos
@@ -42,6 +47,7 @@ public class JugadorPartidaDAO {
             jugadorPartida.setPuntosObtenidos(puntos); // Usar puntos proporcionados, no recalcular
 
             session.persist(jugadorPartida);
+            ResumenJugadorDAO.acumular(session, jugador.getId(), partida.getCategoria(), respuestasCorrectas, puntos, false);
             tx.commit();
 
             System.out.println("✅ Registro JugadorPartida: " +
@@ -87,6 +93,9 @@ public class JugadorPartidaDAO {
                     .uniqueResult();
 
             if (jugadorPartida != null) {
+                if (!jugadorPartida.isGanador()) {
+                    ResumenJugadorDAO.sumarVictoria(session, jugador.getId(), partida.getCategoria());
+                }
                 jugadorPartida.setGanador(true);
                 jugadorPartida.setPosicion(1);
                 session.merge(jugadorPartida);
@@ -145,6 +154,8 @@ public class JugadorPartidaDAO {
 
     /**
      * Obtiene el historial de partidas de un jugador específico
+     * Carga todo el historial en memoria; para jugadores con muchas partidas usar
+     * obtenerPaginaHistorial() o recorrerHistorial()
      * @param nombreJugador Nombre del jugador
      * @return Lista de registros JugadorPartida ordenados por fecha descendente
      */
@@ -153,7 +164,7 @@ public class JugadorPartidaDAO {
         try {
             // Consulta con JOIN FETCH para cargar datos de partida de forma eficiente
             List<JugadorPartida> historial = session.createQuery(
-                            "FROM JugadorPartida jp JOIN FETCH jp.partida WHERE jp.jugador.nombre = :nombre ORDER BY jp.partida.fechaHora DESC",
+                            "FROM JugadorPartida jp JOIN FETCH jp.partida WHERE jp.jugador.nombre = :nombre ORDER BY jp.fechaPartida DESC, jp.partida.id DESC",
                             JugadorPartida.class)
                     .setParameter("nombre", nombreJugador)
                     .getResultList();
@@ -169,6 +180,76 @@ public class JugadorPartidaDAO {
         }
     }
 
+    /**
+     * Obtiene una página del historial de un jugador, de la partida más reciente a la más antigua
+     * Usa paginación por clave sobre (fecha_partida, partida_id) de jugador_partida: el nombre es único, así que
+     * MySQL resuelve el jugador_id antes y lee idx_jugador_partida_fecha hacia atrás desde el cursor, con las filas
+     * ya en orden; se detiene en el LIMIT y solo une con partida (por clave primaria) las filas de la página
+     * @param nombreJugador Nombre del jugador
+     * @param cursor Cursor devuelto por la página anterior, o null para la primera
+     * @param tamano Número máximo de partidas por página
+     * @return Página con las entradas y el cursor de la siguiente (null si no hay más)
+     * @throws IllegalArgumentException Si el cursor no es válido
+     */
+    public static PaginaHistorial obtenerPaginaHistorial(String nombreJugador, String cursor, int tamano) {
+        // Validar el cursor antes de abrir la sesión
+        LocalDateTime fechaCursor = cursor != null ? PaginaHistorial.fechaDe(cursor) : null;
+        int idCursor = cursor != null ? PaginaHistorial.idDe(cursor) : 0;
+
+        Session session = sf.openSession();
+        try {
+            String hql = SELECT_HISTORIAL + "WHERE j.nombre = :nombre " +
+                    (cursor != null ? "AND jp.fechaPartida <= :fecha " +
+                            "AND (jp.fechaPartida < :fecha OR jp.partida.id < :id) " : "") +
+                    "ORDER BY jp.fechaPartida DESC, jp.partida.id DESC";
+            Query<EntradaHistorial> consulta = session.createQuery(hql, EntradaHistorial.class)
+                    .setParameter("nombre", nombreJugador)
+                    .setMaxResults(tamano + 1); // Una fila extra indica si hay página siguiente
+            if (cursor != null) {
+                consulta.setParameter("fecha", fechaCursor).setParameter("id", idCursor);
+            }
+            List<EntradaHistorial> filas = consulta.getResultList();
+
+            if (filas.size() > tamano) {
+                List<EntradaHistorial> pagina = filas.subList(0, tamano);
+                return new PaginaHistorial(pagina, PaginaHistorial.cursorTras(pagina.get(tamano - 1)));
+            }
+            return new PaginaHistorial(filas, null);
+
+        } catch (Exception e) {
+            System.out.println("❌ Error al obtener página de historial: " + e.getMessage());
+            return new PaginaHistorial(List.of(), null);
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Recorre todo el historial de un jugador fila a fila sin acumularlo en memoria
+     * Usa una sesión sin estado y un cursor de solo avance, así que la memoria no depende del número de partidas
+     * @param nombreJugador Nombre del jugador
+     * @param consumidor Acción a ejecutar con cada entrada, de la más reciente a la más antigua
+     * @return Número de entradas procesadas
+     */
+    public static long recorrerHistorial(String nombreJugador, Consumer<EntradaHistorial> consumidor) {
+        long procesadas = 0;
+        try (StatelessSession session = sf.openStatelessSession();
+             ScrollableResults<EntradaHistorial> filas = session.createQuery(
+                             SELECT_HISTORIAL + "WHERE j.nombre = :nombre ORDER BY jp.fechaPartida DESC, jp.partida.id DESC",
+                             EntradaHistorial.class)
+                     .setParameter("nombre", nombreJugador)
+                     .setFetchSize(Integer.MIN_VALUE) // El driver de MySQL entrega las filas una a una
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (filas.next()) {
+                consumidor.accept(filas.get());
+                procesadas++;
+            }
+        } catch (Exception e) {
+            System.out.println("❌ Error al recorrer historial de " + nombreJugador + ": " + e.getMessage());
+        }
+        return procesadas;
+    }
+
     /**
      * Obtiene los mejores jugadores basado en puntuaciones más altas
      * @param limite Número máximo de resultados a devolver
@@ -196,61 +277,66 @@ public class JugadorPartidaDAO {
     }
 
     /**
-     * Obtiene estadísticas detalladas de rendimiento de un jugador
-     * @param nombreJugador Nombre del jugador
-     * @return String formateado con estadísticas completas de rendimiento
+     * Obtiene la mejor puntuación de cada jugador en cada categoría, para cargar la clasificación en memoria
+     * @return Filas {nombre, categoria, puntos}
      */
-    public static String obtenerEstadisticasRendimiento(String nombreJugador) {
+    public static List<Object[]> obtenerMejoresPorCategoria() {
         Session session = sf.openSession();
         try {
-            // Calcular promedio de respuestas correctas
-            Double promedioAciertos = (Double) session.createQuery(
-                            "SELECT AVG(jp.respuestasCorrectas) FROM JugadorPartida jp WHERE jp.jugador.nombre = :nombre")
-                    .setParameter("nombre", nombreJugador)
-                    .uniqueResult();
-
-            // Obtener mejor puntuación alcanzada
-            Integer mejorPuntuacion = (Integer) session.createQuery(
-                            "SELECT MAX(jp.puntosObtenidos) FROM JugadorPartida jp WHERE jp.jugador.nombre = :nombre")
-                    .setParameter("nombre", nombreJugador)
-                    .uniqueResult();
-
-            // Contar número de victorias
-            Long victorias = (Long) session.createQuery(
-                            "SELECT COUNT(jp) FROM JugadorPartida jp WHERE jp.jugador.nombre = :nombre AND jp.ganador = true")
-                    .setParameter("nombre", nombreJugador)
-                    .uniqueResult();
-
-            // Contar total de partidas jugadas
-            Long totalPartidas = (Long) session.createQuery(
-                            "SELECT COUNT(jp) FROM JugadorPartida jp WHERE jp.jugador.nombre = :nombre")
-                    .setParameter("nombre", nombreJugador)
-                    .uniqueResult();
-
-            return String.format(
-                    "📊 Rendimiento de %s:\n" +
-                            "🎯 Promedio de aciertos: %.1f\n" +
-                            "🏆 Mejor puntuación: %d\n" +
-                            "✅ Victorias: %d\n" +
-                            "🎮 Total partidas: %d\n" +
-                            "📈 Tasa de victoria: %.1f%%",
-                    nombreJugador,
-                    promedioAciertos != null ? promedioAciertos : 0.0,
-                    mejorPuntuacion != null ? mejorPuntuacion : 0,
-                    victorias != null ? victorias : 0,
-                    totalPartidas != null ? totalPartidas : 0,
-                    (totalPartidas != null && totalPartidas > 0 && victorias != null) ?
-                            (victorias * 100.0 / totalPartidas) : 0.0
-            );
+            return session.createQuery(
+                            "SELECT j.nombre, p.categoria, MAX(jp.puntosObtenidos) FROM JugadorPartida jp " +
+                                    "JOIN jp.jugador j JOIN jp.partida p GROUP BY j.nombre, p.categoria",
+                            Object[].class)
+                    .getResultList();
 
         } catch (Exception e) {
-            System.out.println("❌ Error al obtener estadísticas de rendimiento: " + e.getMessage());
-            return "❌ Error al obtener estadísticas";
+            System.out.println("❌ Error al obtener mejores puntuaciones por categoría: " + e.getMessage());
+            return List.of();
         } finally {
             session.close();
         }
     }
 
+    /**
+     * Obtiene estadísticas detalladas de rendimiento de un jugador
+     * Se leen de la tabla de resúmenes (una fila por categoría), así que el coste no depende del historial
+     * @param nombreJugador Nombre del jugador
+     * @return String formateado con estadísticas completas de rendimiento y desglose por categoría
+     */
+    public static String obtenerEstadisticasRendimiento(String nombreJugador) {
+        List<ResumenJugador> resumenes = ResumenJugadorDAO.obtenerResumenes(nombreJugador);
+
+        // Totales del jugador sumando sus categorías
+        long totalPartidas = 0;
+        long victorias = 0;
+        long aciertos = 0;
+        int mejorPuntuacion = 0;
+        StringBuilder porCategoria = new StringBuilder();
+        for (ResumenJugador r : resumenes) {
+            totalPartidas += r.getPartidas();
+            victorias += r.getVictorias();
+            aciertos += r.getAciertosTotales();
+            mejorPuntuacion = Math.max(mejorPuntuacion, r.getMejorPuntuacion());
+            porCategoria.append(String.format("\n📂 %s: %d partidas, %d victorias, %.1f aciertos de media, mejor %d",
+                    r.getCategoria(), r.getPartidas(), r.getVictorias(), r.getPromedioAciertos(), r.getMejorPuntuacion()));
+        }
+
+        return String.format(
+                "📊 Rendimiento de %s:\n" +
+                        "🎯 Promedio de aciertos: %.1f\n" +
+                        "🏆 Mejor puntuación: %d\n" +
+                        "✅ Victorias: %d\n" +
+                        "🎮 Total partidas: %d\n" +
+                        "📈 Tasa de victoria: %.1f%%",
+                nombreJugador,
+                totalPartidas > 0 ? (double) aciertos / totalPartidas : 0.0,
+                mejorPuntuacion,
+                victorias,
+                totalPartidas,
+                totalPartidas > 0 ? (victorias * 100.0 / totalPartidas) : 0.0
+        ) + porCategoria;
+    }
+
     /**
      * Calcula puntos basado en respuestas correctas (usado solo como respaldo)
      * @param respuestasCorrectas Número de respuestas correctas
@@ -266,16 +352,4 @@ public class JugadorPartidaDAO {
         else if (porcentaje >= 0.5) return 1;   // 50-69%: 1 punto
         else return 0;                          // Menos del 50%: 0 puntos
     }
-
-    /**
-     * Cierra la SessionFactory y libera recursos de Hibernate
-     */
-    public static void cerrarFactory() {
-        if (sf != null) {
-            sf.close();
-        }
-        if (sr != null) {
-            StandardServiceRegistryBuilder.destroy(sr);
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,87 @@
+package com.liceolapaz.acc.DAO;
+
+import com.liceolapaz.acc.BancoPreguntas;
+import com.liceolapaz.acc.entidades.Pregunta;
+import org.hibernate.SessionFactory;
+
+import java.util.List;
+
+/**
+ * Medición de las sentencias SQL que cuesta cada partida con y sin la caché de segundo nivel
+ * Recorre el mismo camino que el servidor: inicio de sesión de los dos jugadores (JugadorDAO), preguntas y
+ * tramas de BancoPreguntas al empezar, y el guardado del resultado (ResultadoPartida) al terminar
+ * El guardado se hace en el mismo hilo, no en EscritorResultados, para poder atribuirle sus sentencias
+ * Sin caché se vacían todas las regiones antes de cada partida; las cachés propias del servidor
+ * (CacheJugadores y BancoPreguntas) siguen activas en los dos casos, como en producción
+ * Uso: java com.liceolapaz.acc.DAO.MedicionCache [partidas] [categoria] [jugador1] [jugador2]
+ * Necesita la base de datos configurada en hibernate.cfg.xml y guarda resultados reales: usar jugadores de prueba
+ */
+public final class MedicionCache {
+
+    private static final SessionFactory sf = GestorPersistencia.getSessionFactory();
+    private static final int PREGUNTAS_POR_PARTIDA = 10; // Igual que PartidaTrivia
+
+    private MedicionCache() {
+    }
+
+    public static void main(String[] args) {
+        int partidas = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        String categoria = args.length > 1 ? args[1] : "musica";
+        String jugador1 = args.length > 2 ? args[2] : "medicion-1";
+        String jugador2 = args.length > 3 ? args[3] : "medicion-2";
+
+        GestorPersistencia.iniciar();
+        // Una partida para calentar el índice de la categoría y la caché de jugadores
+        jugarPartida(categoria, jugador1, jugador2, new long[2]);
+
+        long[] conCache = medir(partidas, categoria, jugador1, jugador2, false);
+        long[] sinCache = medir(partidas, categoria, jugador1, jugador2, true);
+
+        System.out.println(String.format("📏 Sentencias SQL por partida (%d partidas de %s)", partidas, categoria));
+        System.out.println(String.format("   Inicio: con caché %.1f | sin caché %.1f",
+                (double) conCache[0] / partidas, (double) sinCache[0] / partidas));
+        System.out.println(String.format("   Fin: con caché %.1f | sin caché %.1f",
+                (double) conCache[1] / partidas, (double) sinCache[1] / partidas));
+        System.out.println(GestorPersistencia.obtenerResumenCache());
+        System.out.println(JugadorDAO.obtenerResumenCache());
+        GestorPersistencia.cerrar();
+    }
+
+    /**
+     * Juega varias partidas y devuelve las sentencias acumuladas {inicio, fin}
+     */
+    private static long[] medir(int partidas, String categoria, String jugador1, String jugador2, boolean vaciarCache) {
+        long[] sentencias = new long[2];
+        for (int i = 0; i < partidas; i++) {
+            if (vaciarCache) {
+                sf.getCache().evictAllRegions();
+            }
+            jugarPartida(categoria, jugador1, jugador2, sentencias);
+        }
+        return sentencias;
+    }
+
+    /**
+     * Recorre los accesos a datos de una partida multijugador y suma sus sentencias {inicio, fin}
+     */
+    private static void jugarPartida(String categoria, String jugador1, String jugador2, long[] sentencias) {
+        long antes = GestorPersistencia.getSentenciasEjecutadas();
+
+        // Inicio: lobby de cada jugador y construcción de PartidaTrivia
+        JugadorDAO.verificarYCrearJugador(jugador1);
+        JugadorDAO.verificarYCrearJugador(jugador2);
+        List<Pregunta> preguntas = BancoPreguntas.obtenerPreguntas(categoria, PREGUNTAS_POR_PARTIDA);
+        for (Pregunta pregunta : preguntas) {
+            BancoPreguntas.obtenerTrama(pregunta);
+        }
+        long trasInicio = GestorPersistencia.getSentenciasEjecutadas();
+        sentencias[0] += trasInicio - antes;
+
+        // Fin: el mismo guardado que hace EscritorResultados
+        new ResultadoPartida(categoria, "MULTIJUGADOR", preguntas.size(), 60)
+                .agregarJugador(jugador1, 3, 30, true, 1)
+                .agregarJugador(jugador2, 1, 10, false, 2)
+                .guardar();
+        sentencias[1] += GestorPersistencia.getSentenciasEjecutadas() - trasInicio;
+    }
+}
@@ -0,0 +1,202 @@
+package com.liceolapaz.acc.DAO;
+
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Migraciones versionadas del esquema de la base de datos
+ * Cada migración es un script SQL en db/migraciones con nombre V<n>__<descripcion>.sql;
+ * las ya aplicadas se registran en la tabla version_esquema y no se vuelven a ejecutar
+ * Se ejecutan una sola vez al arrancar Hibernate, antes de validar el esquema contra las entidades
+ */
+final class MigracionesEsquema {
+
+    // Migraciones en orden de aplicación (añadir siempre al final)
+    private static final String[] MIGRACIONES = {
+            "V1__esquema_inicial.sql",
+            "V2__indices.sql",
+            "V3__huella_preguntas.sql",
+            "V4__codigo_resultado.sql",
+            "V5__historial_por_jugador.sql"
+    };
+
+    // Carpeta de los scripts dentro del classpath
+    private static final String CARPETA = "db/migraciones/";
+    // Cerrojo de MySQL para que dos servidores no migren a la vez
+    private static final String CERROJO = "trivia_migraciones";
+    // Segundos que se espera el cerrojo
+    private static final int ESPERA_CERROJO = 60;
+    // Código de MySQL para "Duplicate column name" (columna añadida por un intento anterior que no llegó a registrarse)
+    private static final int ERROR_COLUMNA_DUPLICADA = 1060;
+    // Código de MySQL para "Duplicate key name" (índice ya creado por hbm2ddl en bases anteriores)
+    private static final int ERROR_INDICE_DUPLICADO = 1061;
+    // Código de MySQL para "Can't DROP ...; check that column/key exists" (índice ya borrado por un intento anterior)
+    private static final int ERROR_INDICE_INEXISTENTE = 1091;
+
+    private MigracionesEsquema() {
+    }
+
+    /**
+     * Aplica las migraciones pendientes
+     * @param conexiones Proveedor de conexiones de Hibernate (misma configuración que hibernate.cfg.xml)
+     * @return Número de migraciones aplicadas
+     * @throws IllegalStateException Si alguna migración falla (el servidor no debe arrancar con un esquema a medias)
+     */
+    static int aplicar(ConnectionProvider conexiones) {
+        Connection conexion = null;
+        try {
+            conexion = conexiones.getConnection();
+            conexion.setAutoCommit(true); // MySQL confirma el DDL de forma implícita
+
+            bloquear(conexion);
+            try {
+                crearTablaVersiones(conexion);
+                Set<Integer> aplicadas = leerAplicadas(conexion);
+
+                int nuevas = 0;
+                for (String script : MIGRACIONES) {
+                    int version = version(script);
+                    if (aplicadas.contains(version)) continue;
+                    ejecutar(conexion, script, version);
+                    nuevas++;
+                }
+
+                System.out.println(nuevas == 0 ? "🗂️ Esquema al día (versión " + version(MIGRACIONES[MIGRACIONES.length - 1]) + ")"
+                        : "🗂️ Migraciones aplicadas: " + nuevas);
+                return nuevas;
+            } finally {
+                desbloquear(conexion);
+            }
+
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Error al migrar el esquema: " + e.getMessage(), e);
+        } finally {
+            if (conexion != null) {
+                try {
+                    conexiones.closeConnection(conexion);
+                } catch (SQLException ignored) {}
+            }
+        }
+    }
+
+    /**
+     * Ejecuta un script y lo registra como aplicado
+     */
+    private static void ejecutar(Connection conexion, String script, int version) throws SQLException, IOException {
+        long inicio = System.currentTimeMillis();
+        System.out.println("🗂️ Aplicando migración " + script);
+
+        try (Statement sentencia = conexion.createStatement()) {
+            for (String sql : leerSentencias(script)) {
+                try {
+                    sentencia.execute(sql);
+                } catch (SQLException e) {
+                    // Un script que falló a medias se repite entero: lo que ya se creó se omite
+                    if (e.getErrorCode() != ERROR_INDICE_DUPLICADO && e.getErrorCode() != ERROR_COLUMNA_DUPLICADA
+                            && e.getErrorCode() != ERROR_INDICE_INEXISTENTE) throw e;
+                    System.out.println("   ↩️ Ya existente, se omite: " + e.getMessage());
+                }
+            }
+        }
+
+        try (PreparedStatement registro = conexion.prepareStatement(
+                "INSERT INTO version_esquema (version, script, aplicada, milisegundos) VALUES (?, ?, NOW(6), ?)")) {
+            registro.setInt(1, version);
+            registro.setString(2, script);
+            registro.setLong(3, System.currentTimeMillis() - inicio);
+            registro.executeUpdate();
+        }
+    }
+
+    /**
+     * Lee un script del classpath y lo divide en sentencias separadas por ';' a final de línea
+     * Las líneas que empiezan por "--" son comentarios
+     */
+    private static List<String> leerSentencias(String script) throws IOException {
+        InputStream entrada = MigracionesEsquema.class.getClassLoader().getResourceAsStream(CARPETA + script);
+        if (entrada == null) {
+            throw new IOException("No se encuentra la migración " + CARPETA + script);
+        }
+
+        List<String> sentencias = new ArrayList<>();
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8))) {
+            StringBuilder actual = new StringBuilder();
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                String recortada = linea.trim();
+                if (recortada.isEmpty() || recortada.startsWith("--")) continue;
+                actual.append(linea).append('\n');
+                if (recortada.endsWith(";")) {
+                    sentencias.add(actual.substring(0, actual.lastIndexOf(";")));
+                    actual.setLength(0);
+                }
+            }
+            if (actual.toString().trim().length() > 0) {
+                sentencias.add(actual.toString());
+            }
+        }
+        return sentencias;
+    }
+
+    private static void crearTablaVersiones(Connection conexion) throws SQLException {
+        try (Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("CREATE TABLE IF NOT EXISTS version_esquema (" +
+                    "version integer NOT NULL, " +
+                    "script varchar(200) NOT NULL, " +
+                    "aplicada datetime(6) NOT NULL, " +
+                    "milisegundos bigint NOT NULL, " +
+                    "PRIMARY KEY (version)) ENGINE = InnoDB");
+        }
+    }
+
+    private static Set<Integer> leerAplicadas(Connection conexion) throws SQLException {
+        Set<Integer> aplicadas = new HashSet<>();
+        try (Statement sentencia = conexion.createStatement();
+             ResultSet filas = sentencia.executeQuery("SELECT version FROM version_esquema")) {
+            while (filas.next()) {
+                aplicadas.add(filas.getInt(1));
+            }
+        }
+        return aplicadas;
+    }
+
+    private static void bloquear(Connection conexion) throws SQLException {
+        try (PreparedStatement sentencia = conexion.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            sentencia.setString(1, CERROJO);
+            sentencia.setInt(2, ESPERA_CERROJO);
+            try (ResultSet fila = sentencia.executeQuery()) {
+                if (!fila.next() || fila.getInt(1) != 1) {
+                    throw new SQLException("No se pudo obtener el cerrojo de migraciones en " + ESPERA_CERROJO + " s");
+                }
+            }
+        }
+    }
+
+    private static void desbloquear(Connection conexion) {
+        try (PreparedStatement sentencia = conexion.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            sentencia.setString(1, CERROJO);
+            sentencia.executeQuery().close();
+        } catch (SQLException ignored) {}
+    }
+
+    /**
+     * Extrae el número de versión del nombre del script (V12__algo.sql → 12)
+     */
+    private static int version(String script) {
+        return Integer.parseInt(script.substring(1, script.indexOf("__")));
+    }
+}
@@ -0,0 +1,67 @@
+package com.liceolapaz.acc.DAO;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Página del historial de un jugador con el cursor para pedir la siguiente
+ * El cursor codifica la clave (fecha_partida, partida_id) de la última fila devuelta: la página siguiente
+ * empieza justo después en idx_jugador_partida_fecha sin usar OFFSET, así que cuesta lo mismo sea cual sea la página
+ */
+public final class PaginaHistorial {
+
+    // Separador entre id y fecha dentro del cursor
+    private static final char SEPARADOR = '@';
+
+    private final List<EntradaHistorial> entradas;
+    private final String siguiente; // Cursor de la página siguiente, o null si no hay más
+
+    PaginaHistorial(List<EntradaHistorial> entradas, String siguiente) {
+        this.entradas = entradas;
+        this.siguiente = siguiente;
+    }
+
+    public List<EntradaHistorial> getEntradas() {
+        return entradas;
+    }
+
+    /**
+     * Obtiene el cursor para pedir la página siguiente
+     * @return Cursor opaco, o null si esta es la última página
+     */
+    public String getSiguiente() {
+        return siguiente;
+    }
+
+    /**
+     * Construye el cursor que apunta justo después de una fila
+     */
+    static String cursorTras(EntradaHistorial ultima) {
+        return ultima.getIdPartida() + String.valueOf(SEPARADOR) + ultima.getFechaHora();
+    }
+
+    /**
+     * Extrae el id de partida de un cursor
+     * @throws IllegalArgumentException Si el cursor no tiene el formato esperado
+     */
+    static int idDe(String cursor) {
+        int separador = cursor.indexOf(SEPARADOR);
+        if (separador <= 0) throw new IllegalArgumentException("Cursor de historial no válido: " + cursor);
+        return Integer.parseInt(cursor.substring(0, separador));
+    }
+
+    /**
+     * Extrae la fecha de partida de un cursor
+     * @throws IllegalArgumentException Si el cursor no tiene el formato esperado
+     */
+    static LocalDateTime fechaDe(String cursor) {
+        int separador = cursor.indexOf(SEPARADOR);
+        if (separador <= 0) throw new IllegalArgumentException("Cursor de historial no válido: " + cursor);
+        try {
+            return LocalDateTime.parse(cursor.substring(separador + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor de historial no válido: " + cursor, e);
+        }
+    }
+}
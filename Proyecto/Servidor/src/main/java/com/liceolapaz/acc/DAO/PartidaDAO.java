@@ -4,19 +4,11 @@ import com.liceolapaz.acc.entidades.Partida;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
-import org.hibernate.boot.MetadataSources;
-import org.hibernate.boot.registry.StandardServiceRegistry;
-import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
 
 public class PartidaDAO {
 
-    // Registro de servicios estándar de Hibernate configurado desde hibernate.cfg.xml
-    private static final StandardServiceRegistry sr =
-            new StandardServiceRegistryBuilder().configure().build();
-
-    // Fábrica de sesiones de Hibernate para gestionar conexiones a la base de datos
-    private static final SessionFactory sf =
-            new MetadataSources(sr).buildMetadata().buildSessionFactory();
+    // Fábrica de sesiones compartida por todos los DAO
+    private static final SessionFactory sf = GestorPersistencia.getSessionFactory();
 
     /**
      * Registra una nueva partida en la base de datos con categoría, estado y tipo específicos
@@ -237,16 +229,4 @@ public class PartidaDAO {
             session.close();
         }
     }
-
-    /**
-     * Cierra la SessionFactory y libera recursos de Hibernate
-     */
-    public static void cerrarFactory() {
-        if (sf != null) {
-            sf.close();
-        }
-        if (sr != null) {
-            StandardServiceRegistryBuilder.destroy(sr);
-        }
-    }
-}
\ No newline at end of file
+}
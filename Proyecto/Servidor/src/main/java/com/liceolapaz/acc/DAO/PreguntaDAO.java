@@ -1,28 +1,42 @@
 package com.liceolapaz.acc.DAO;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.liceolapaz.acc.entidades.Pregunta;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
-import org.hibernate.boot.MetadataSources;
-import org.hibernate.boot.registry.StandardServiceRegistry;
-import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
 
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class PreguntaDAO {
 
-    // Registro de servicios estándar de Hibernate configurado desde hibernate.cfg.xml
-    private static final StandardServiceRegistry sr =
-            new StandardServiceRegistryBuilder().configure().build();
+    // Fábrica de sesiones compartida por todos los DAO
+    private static final SessionFactory sf = GestorPersistencia.getSessionFactory();
 
-    // Fábrica de sesiones de Hibernate para gestionar conexiones a la base de datos
-    private static final SessionFactory sf =
-            new MetadataSources(sr).buildMetadata().buildSessionFactory();
+    // Región de la caché de consultas para categorías y recuentos de preguntas
+    static final String REGION_CONSULTAS = "consultas-preguntas";
+
+    // Aviso tras confirmar cambios en las preguntas: recibe la categoría, o null si afectan a todas
+    private static volatile Consumer<String> alModificarPreguntas;
+
+    /**
+     * Registra la acción a ejecutar cada vez que se insertan o eliminan preguntas
+     * @param aviso Acción que recibe la categoría modificada (null si son todas); debe ser rápida
+     */
+    public static void setAlModificarPreguntas(Consumer<String> aviso) {
+        alModificarPreguntas = aviso;
+    }
+
+    /**
+     * Avisa de un cambio ya confirmado en las preguntas de una categoría (null para todas)
+     */
+    static void preguntasModificadas(String categoria) {
+        Consumer<String> aviso = alModificarPreguntas;
+        if (aviso != null) {
+            aviso.accept(categoria);
+        }
+    }
 
     /**
      * Obtiene preguntas aleatorias de una categoría específica
@@ -42,21 +56,25 @@ public class PreguntaDAO {
             long count = (long) session.createQuery(
                             "SELECT COUNT(p) FROM Pregunta p WHERE p.categoria = :categoria AND p.activa = true")
                     .setParameter("categoria", categoria.toLowerCase())
+                    .setCacheable(true)
+                    .setCacheRegion(REGION_CONSULTAS)
                     .uniqueResult();
 
             System.out.println("📊 Preguntas encontradas en BD: " + count);
 
             // Si no hay preguntas, cargar desde JSON
             if (count == 0) {
-                System.out.println("📥 Cargando preguntas desde JSON para: " + categoria);
-                cargarPreguntasDesdeJSON(categoria.toLowerCase(), session);
+                // Normalmente ya se importaron al arrancar; esto cubre categorías sin importar
                 transaction.commit();
+                ImportadorPreguntas.importarCategoria(categoria);
 
                 // Reiniciar transacción para la consulta
                 transaction = session.beginTransaction();
                 count = (long) session.createQuery(
                                 "SELECT COUNT(p) FROM Pregunta p WHERE p.categoria = :categoria AND p.activa = true")
                         .setParameter("categoria", categoria.toLowerCase())
+                        .setCacheable(true)
+                        .setCacheRegion(REGION_CONSULTAS)
                         .uniqueResult();
                 System.out.println("✅ Preguntas cargadas: " + count);
             }
@@ -93,86 +111,55 @@ public class PreguntaDAO {
     }
 
     /**
-     * Carga preguntas desde un archivo JSON con validación mejorada
-     * Convierte índices de respuestas de JSON (1-4) a base de datos (0-3)
-     * @param categoria Categoría de las preguntas a cargar
-     * @param session Sesión de Hibernate activa para persistir las preguntas
+     * Obtiene todas las preguntas activas de una categoría, ordenadas por ID
+     * Si no existen preguntas en la base de datos, las carga automáticamente desde JSON
+     * Pensado para construir índices en memoria; las partidas deben usar BancoPreguntas
+     * @param categoria Categoría de las preguntas a obtener
+     * @return Lista completa de preguntas activas de la categoría
      */
-    private static void cargarPreguntasDesdeJSON(String categoria, Session session) {
-        try {
-            String nombreArchivo = "preguntas-" + categoria + ".json";
-            System.out.println("📂 Intentando cargar: " + nombreArchivo);
+    public static List<Pregunta> obtenerTodasPorCategoria(String categoria) {
+        Session session = sf.openSession();
+        Transaction transaction = session.beginTransaction();
 
-            // Buscar archivo JSON en classpath
-            InputStream inputStream = PreguntaDAO.class.getClassLoader().getResourceAsStream(nombreArchivo);
+        try {
+            List<Pregunta> preguntas = consultarActivas(session, categoria.toLowerCase());
 
-            if (inputStream == null) {
-                System.out.println("❌ Archivo no encontrado: " + nombreArchivo);
-                return;
-            }
+            // Si no hay preguntas, cargar desde JSON
+            if (preguntas.isEmpty()) {
+                // Normalmente ya se importaron al arrancar; esto cubre categorías sin importar
+                transaction.commit();
+                ImportadorPreguntas.importarCategoria(categoria);
 
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode rootNode = objectMapper.readTree(inputStream);
-
-            int preguntasCargadas = 0;
-            for (JsonNode node : rootNode) {
-                try {
-                    Pregunta pregunta = new Pregunta();
-
-                    // Extraer datos del JSON
-                    pregunta.setTextoPregunta(node.get("pregunta").asText());
-
-                    // Cargar las cuatro opciones de respuesta
-                    JsonNode opciones = node.get("opciones");
-                    pregunta.setOpcionA(opciones.get(0).asText());
-                    pregunta.setOpcionB(opciones.get(1).asText());
-                    pregunta.setOpcionC(opciones.get(2).asText());
-                    pregunta.setOpcionD(opciones.get(3).asText());
-
-                    // CORREGIDO: Conversión correcta de índices JSON a base de datos
-                    int respuestaJSON = node.get("respuestaCorrecta").asInt();
-                    // JSON usa índices 1-4, convertir a 0-3 para la base de datos
-                    int respuestaDB = respuestaJSON - 1;
-
-                    // VALIDACIÓN: Asegurar que el índice esté en rango válido
-                    if (respuestaDB < 0 || respuestaDB > 3) {
-                        System.out.println("❌ ERROR: Respuesta correcta fuera de rango en JSON: " + respuestaJSON +
-                                " para pregunta: " + pregunta.getTextoPregunta());
-                        continue; // Saltar esta pregunta
-                    }
-
-                    pregunta.setRespuestaCorrecta(respuestaDB);
-
-                    // Configurar metadatos de la pregunta
-                    pregunta.setCategoria(categoria);
-                    pregunta.setDificultad(node.has("dificultad") ? node.get("dificultad").asText() : "medio");
-                    pregunta.setActiva(true);
-
-                    // Guardar en la base de datos
-                    session.persist(pregunta);
-                    preguntasCargadas++;
-
-                    // CORREGIDO: Log mejorado para depuración
-                    System.out.println("📝 Pregunta " + preguntasCargadas + " cargada:");
-                    System.out.println("   Texto: " + pregunta.getTextoPregunta().substring(0, Math.min(50, pregunta.getTextoPregunta().length())) + "...");
-                    System.out.println("   Respuesta JSON: " + respuestaJSON + " -> DB: " + respuestaDB + " (" + pregunta.getLetraRespuesta() + ")");
-                    System.out.println("   Respuesta texto: " + pregunta.getRespuestaTexto());
-
-                } catch (Exception e) {
-                    System.out.println("❌ Error procesando pregunta individual: " + e.getMessage());
-                    e.printStackTrace();
-                }
+                transaction = session.beginTransaction();
+                preguntas = consultarActivas(session, categoria.toLowerCase());
             }
 
-            System.out.println("✅ Total cargadas para " + categoria + ": " + preguntasCargadas + " preguntas");
+            transaction.commit();
+            return preguntas;
 
         } catch (Exception e) {
-            System.out.println("❌ Error cargando JSON: " + e.getMessage());
+            if (transaction != null && transaction.isActive()) transaction.rollback();
+            System.out.println("❌ Error obteniendo preguntas: " + e.getMessage());
             e.printStackTrace();
-            throw new RuntimeException("Error al cargar preguntas desde JSON: " + e.getMessage(), e);
+            return new ArrayList<>();
+        } finally {
+            session.close();
         }
     }
 
+    /**
+     * Consulta las preguntas activas de una categoría ordenadas por ID
+     */
+    private static List<Pregunta> consultarActivas(Session session, String categoria) {
+        return session.createQuery(
+                        "FROM Pregunta WHERE categoria = :categoria AND activa = true ORDER BY id",
+                        Pregunta.class)
+                .setParameter("categoria", categoria)
+                .setCacheable(true) // Solo guarda los IDs: las preguntas salen de la región "preguntas"
+                .setCacheRegion(REGION_CONSULTAS)
+                .getResultList();
+    }
+
     /**
      * Obtiene todas las categorías disponibles en el sistema
      * Si no hay categorías en la base de datos, devuelve categorías predeterminadas
@@ -185,6 +172,8 @@ public class PreguntaDAO {
             List<String> categorias = session.createQuery(
                             "SELECT DISTINCT p.categoria FROM Pregunta p WHERE p.activa = true",
                             String.class)
+                    .setCacheable(true)
+                    .setCacheRegion(REGION_CONSULTAS)
                     .getResultList();
 
             // Si no hay categorías en BD, usar las predeterminadas
@@ -218,6 +207,8 @@ public class PreguntaDAO {
             Long count = (Long) session.createQuery(
                             "SELECT COUNT(p) FROM Pregunta p WHERE p.categoria = :categoria AND p.activa = true")
                     .setParameter("categoria", categoria.toLowerCase())
+                    .setCacheable(true)
+                    .setCacheRegion(REGION_CONSULTAS)
                     .uniqueResult();
 
             long resultado = count != null ? count : 0;
@@ -318,6 +309,7 @@ public class PreguntaDAO {
             int eliminadas = session.createQuery("DELETE FROM Pregunta").executeUpdate();
             transaction.commit();
             System.out.println("🗑️ Eliminadas " + eliminadas + " preguntas de la base de datos");
+            preguntasModificadas(null);
         } catch (Exception e) {
             if (transaction != null) transaction.rollback();
             System.out.println("❌ Error eliminando preguntas: " + e.getMessage());
@@ -325,21 +317,4 @@ public class PreguntaDAO {
             session.close();
         }
     }
-
-    /**
-     * Cierra la SessionFactory y libera recursos de Hibernate
-     */
-    public static void cerrarFactory() {
-        try {
-            if (sf != null) {
-                sf.close();
-            }
-            if (sr != null) {
-                StandardServiceRegistryBuilder.destroy(sr);
-            }
-            System.out.println("🔒 Factory de Hibernate cerrada");
-        } catch (Exception e) {
-            System.out.println("❌ Error cerrando factory: " + e.getMessage());
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,324 @@
+package com.liceolapaz.acc.DAO;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.liceolapaz.acc.entidades.Jugador;
+import com.liceolapaz.acc.entidades.JugadorPartida;
+import com.liceolapaz.acc.entidades.Partida;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Resultado completo de una partida terminada, guardado como una única unidad de trabajo
+ * Reúne la partida, la participación de cada jugador y sus estadísticas acumuladas, y lo escribe
+ * todo en una sola transacción con una sola conexión: o se guarda entero o no se guarda nada
+ * Cada resultado lleva un código único, de modo que guardarlo varias veces (reintentos o recuperación
+ * del diario tras una caída) nunca duplica la partida ni las estadísticas
+ * Una vez publicado en EscritorResultados no debe modificarse
+ */
+public class ResultadoPartida {
+
+    // Fábrica de sesiones compartida por todos los DAO
+    private static final SessionFactory sf = GestorPersistencia.getSessionFactory();
+
+    // Conversor JSON para el diario de resultados pendientes
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    /**
+     * Participación de un jugador en la partida
+     */
+    public static class Participante {
+        private final String nombre; // Nombre del jugador
+        private final int aciertos; // Respuestas correctas
+        private final int puntos; // Puntos ganados en la partida
+        private final boolean ganador; // true si ganó la partida
+        private final Integer posicion; // Posición final (null si no aplica)
+
+        Participante(String nombre, int aciertos, int puntos, boolean ganador, Integer posicion) {
+            this.nombre = nombre;
+            this.aciertos = aciertos;
+            this.puntos = puntos;
+            this.ganador = ganador;
+            this.posicion = posicion;
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+
+        public int getAciertos() {
+            return aciertos;
+        }
+
+        public int getPuntos() {
+            return puntos;
+        }
+
+        public boolean isGanador() {
+            return ganador;
+        }
+
+        public Integer getPosicion() {
+            return posicion;
+        }
+    }
+
+    private final String codigo; // Identificador único del resultado
+    private final String categoria; // Categoría de la partida
+    private final String tipoPartida; // SOLO, MULTIJUGADOR o DIRECTO
+    private final int totalPreguntas; // Preguntas de la partida
+    private final long duracionSegundos; // Duración total de la partida
+    private final List<Participante> participantes = new ArrayList<>();
+
+    /**
+     * Crea el resultado de una partida completada
+     * @param categoria Categoría de la partida
+     * @param tipoPartida Tipo de partida (SOLO, MULTIJUGADOR o DIRECTO)
+     * @param totalPreguntas Número de preguntas jugadas
+     * @param duracionSegundos Duración de la partida en segundos
+     */
+    public ResultadoPartida(String categoria, String tipoPartida, int totalPreguntas, long duracionSegundos) {
+        this(UUID.randomUUID().toString(), categoria, tipoPartida, totalPreguntas, duracionSegundos);
+    }
+
+    /**
+     * Recrea un resultado con un código ya asignado (por ejemplo, leído del diario)
+     */
+    private ResultadoPartida(String codigo, String categoria, String tipoPartida, int totalPreguntas, long duracionSegundos) {
+        this.codigo = codigo;
+        this.categoria = categoria;
+        this.tipoPartida = tipoPartida;
+        this.totalPreguntas = totalPreguntas;
+        this.duracionSegundos = duracionSegundos;
+    }
+
+    /**
+     * Añade la participación de un jugador
+     * @param nombre Nombre del jugador
+     * @param aciertos Respuestas correctas
+     * @param puntos Puntos ganados
+     * @param ganador true si ganó la partida
+     * @param posicion Posición final (null si no aplica)
+     * @return Este mismo resultado, para encadenar llamadas
+     */
+    public ResultadoPartida agregarJugador(String nombre, int aciertos, int puntos, boolean ganador, Integer posicion) {
+        participantes.add(new Participante(nombre, aciertos, puntos, ganador, posicion));
+        return this;
+    }
+
+    /**
+     * Guarda este resultado en su propia transacción
+     * @return true si quedó guardado (o ya lo estaba), false si hubo un error y no se guardó nada
+     */
+    public boolean guardar() {
+        return guardarLote(List.of(this));
+    }
+
+    /**
+     * Guarda varios resultados en una sola transacción con una sola conexión
+     * Los resultados cuyo código ya existe en la base de datos se omiten
+     * @param resultados Resultados a guardar
+     * @return true si se guardaron todos, false si hubo un error (en cuyo caso no se guarda ninguno)
+     */
+    public static boolean guardarLote(List<ResultadoPartida> resultados) {
+        long inicio = System.currentTimeMillis();
+
+        // Anunciar a la caché de jugadores cada participación antes de la transacción; todas se cierran al final
+        for (ResultadoPartida resultado : resultados) {
+            for (Participante p : resultado.participantes) {
+                JugadorDAO.estadisticasIniciadas(p.nombre);
+            }
+        }
+        Set<ResultadoPartida> confirmados = new HashSet<>();
+        Map<String, Integer> jugadores = new HashMap<>();
+
+        Session session = sf.openSession();
+        Transaction tx = null;
+
+        try {
+            tx = session.beginTransaction();
+
+            // Descartar los resultados ya guardados en un intento anterior
+            List<String> codigos = new ArrayList<>();
+            Set<String> nombres = new HashSet<>();
+            for (ResultadoPartida resultado : resultados) {
+                codigos.add(resultado.codigo);
+                for (Participante p : resultado.participantes) {
+                    nombres.add(p.nombre);
+                }
+            }
+            Set<String> yaGuardados = new HashSet<>(session.createQuery(
+                            "SELECT p.codigoResultado FROM Partida p WHERE p.codigoResultado IN (:codigos)", String.class)
+                    .setParameterList("codigos", codigos)
+                    .getResultList());
+
+            // Obtener los identificadores de todos los jugadores con una sola consulta
+            if (!nombres.isEmpty()) {
+                for (Object[] fila : session.createQuery(
+                                "SELECT j.nombre, j.id FROM Jugador j WHERE j.nombre IN (:nombres)", Object[].class)
+                        .setParameterList("nombres", nombres)
+                        .getResultList()) {
+                    jugadores.put((String) fila[0], (Integer) fila[1]);
+                }
+            }
+
+            List<ResultadoPartida> escritos = new ArrayList<>();
+            for (ResultadoPartida resultado : resultados) {
+                if (yaGuardados.contains(resultado.codigo)) {
+                    System.out.println("↩️ Resultado " + resultado.codigo + " ya guardado, se omite");
+                    continue;
+                }
+                resultado.escribir(session, jugadores);
+                escritos.add(resultado);
+            }
+
+            tx.commit();
+            confirmados.addAll(escritos);
+            System.out.println("💾 " + resultados.size() + " resultado(s) de partida guardados en una transacción (" +
+                    (System.currentTimeMillis() - inicio) + " ms)");
+            return true;
+
+        } catch (Exception e) {
+            if (tx != null && tx.isActive()) {
+                try {
+                    tx.rollback();
+                } catch (Exception rollbackEx) {
+                    System.out.println("❌ Error en rollback: " + rollbackEx.getMessage());
+                }
+            }
+            System.out.println("❌ Error al guardar resultados de partida: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        } finally {
+            session.close();
+
+            // Escritura directa en la caché de jugadores: solo se aplica lo confirmado, el resto se descarta
+            for (ResultadoPartida resultado : resultados) {
+                boolean confirmado = confirmados.contains(resultado);
+                for (Participante p : resultado.participantes) {
+                    if (confirmado && jugadores.containsKey(p.nombre)) {
+                        JugadorDAO.estadisticasConfirmadas(p.nombre, p.puntos, 1, p.ganador ? 1 : 0);
+                    } else {
+                        JugadorDAO.estadisticasDescartadas(p.nombre);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Escribe la partida, las participaciones y las estadísticas en la sesión indicada
+     */
+    private void escribir(Session session, Map<String, Integer> jugadores) {
+        // Registro de la partida
+        Partida partida = new Partida();
+        partida.setCategoria(categoria.toLowerCase());
+        partida.setCompletada(true);
+        partida.setTipoPartida(tipoPartida.toUpperCase());
+        partida.setTotalPreguntas(totalPreguntas);
+        partida.setDuracionSegundos(duracionSegundos);
+        partida.setCodigoResultado(codigo);
+        session.persist(partida);
+
+        for (Participante p : participantes) {
+            Integer idJugador = jugadores.get(p.nombre);
+            if (idJugador == null) {
+                System.out.println("❌ Jugador no encontrado al guardar el resultado: " + p.nombre);
+                continue;
+            }
+
+            // Estadísticas acumuladas con una sola sentencia UPDATE por jugador
+            JugadorDAO.aplicarEstadisticas(session, p.nombre, p.puntos, 1, p.ganador ? 1 : 0);
+            ResumenJugadorDAO.acumular(session, idJugador, categoria, p.aciertos, p.puntos, p.ganador);
+
+            // Referencia al jugador sin cargarlo
+            Jugador jugador = session.getReference(Jugador.class, idJugador);
+
+            // Participación en la partida
+            JugadorPartida jugadorPartida = new JugadorPartida(partida, jugador, p.aciertos, p.puntos);
+            jugadorPartida.setGanador(p.ganador);
+            jugadorPartida.setPosicion(p.posicion);
+            jugadorPartida.setTiempoTotalSegundos(duracionSegundos);
+            session.persist(jugadorPartida);
+        }
+    }
+
+    /**
+     * Convierte el resultado en una línea JSON para el diario
+     * @return Representación JSON en una sola línea
+     */
+    public String aJson() {
+        ObjectNode nodo = JSON.createObjectNode();
+        nodo.put("codigo", codigo);
+        nodo.put("categoria", categoria);
+        nodo.put("tipo", tipoPartida);
+        nodo.put("preguntas", totalPreguntas);
+        nodo.put("duracion", duracionSegundos);
+        ArrayNode jugadores = nodo.putArray("jugadores");
+        for (Participante p : participantes) {
+            ObjectNode j = jugadores.addObject();
+            j.put("nombre", p.nombre);
+            j.put("aciertos", p.aciertos);
+            j.put("puntos", p.puntos);
+            j.put("ganador", p.ganador);
+            if (p.posicion != null) {
+                j.put("posicion", p.posicion);
+            }
+        }
+        return nodo.toString();
+    }
+
+    /**
+     * Reconstruye un resultado a partir de su línea JSON del diario
+     * @param json Línea generada por aJson()
+     * @return Resultado con el mismo código
+     * @throws IOException Si la línea no es JSON válido
+     */
+    public static ResultadoPartida desdeJson(String json) throws IOException {
+        JsonNode nodo = JSON.readTree(json);
+        ResultadoPartida resultado = new ResultadoPartida(nodo.get("codigo").asText(), nodo.get("categoria").asText(),
+                nodo.get("tipo").asText(), nodo.get("preguntas").asInt(), nodo.get("duracion").asLong());
+        for (JsonNode j : nodo.get("jugadores")) {
+            resultado.agregarJugador(j.get("nombre").asText(), j.get("aciertos").asInt(), j.get("puntos").asInt(),
+                    j.get("ganador").asBoolean(), j.has("posicion") ? j.get("posicion").asInt() : null);
+        }
+        return resultado;
+    }
+
+    public String getCodigo() {
+        return codigo;
+    }
+
+    public String getCategoria() {
+        return categoria;
+    }
+
+    public String getTipoPartida() {
+        return tipoPartida;
+    }
+
+    public int getTotalPreguntas() {
+        return totalPreguntas;
+    }
+
+    public long getDuracionSegundos() {
+        return duracionSegundos;
+    }
+
+    public List<Participante> getParticipantes() {
+        return Collections.unmodifiableList(participantes);
+    }
+}
@@ -0,0 +1,113 @@
+package com.liceolapaz.acc.DAO;
+
+import com.liceolapaz.acc.entidades.ResumenJugador;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import java.util.List;
+
+public class ResumenJugadorDAO {
+
+    // Fábrica de sesiones compartida por todos los DAO
+    private static final SessionFactory sf = GestorPersistencia.getSessionFactory();
+
+    /**
+     * Suma una partida al resumen de un jugador en una categoría dentro de una transacción ya abierta
+     * Usa INSERT ... ON DUPLICATE KEY UPDATE para que la fila se cree o se incremente de forma atómica,
+     * aunque dos partidas del mismo jugador se guarden a la vez
+     * @param session Sesión con la transacción del llamante
+     * @param idJugador ID del jugador
+     * @param categoria Categoría de la partida
+     * @param aciertos Respuestas correctas en la partida
+     * @param puntos Puntos obtenidos en la partida
+     * @param ganador Si el jugador ganó la partida
+     */
+    static void acumular(Session session, int idJugador, String categoria, int aciertos, int puntos, boolean ganador) {
+        session.createNativeMutationQuery(
+                        "INSERT INTO resumen_jugador (jugador_id, categoria, partidas, victorias, aciertos_totales, mejor_puntuacion) " +
+                                "VALUES (:jugador, :categoria, 1, :victorias, :aciertos, :puntos) " +
+                                "ON DUPLICATE KEY UPDATE partidas = partidas + 1, " +
+                                "victorias = victorias + VALUES(victorias), " +
+                                "aciertos_totales = aciertos_totales + VALUES(aciertos_totales), " +
+                                "mejor_puntuacion = GREATEST(mejor_puntuacion, VALUES(mejor_puntuacion))")
+                .setParameter("jugador", idJugador)
+                .setParameter("categoria", categoria.toLowerCase())
+                .setParameter("victorias", ganador ? 1 : 0)
+                .setParameter("aciertos", aciertos)
+                .setParameter("puntos", puntos)
+                .executeUpdate();
+    }
+
+    /**
+     * Suma una victoria al resumen de un jugador dentro de una transacción ya abierta
+     * @param session Sesión con la transacción del llamante
+     * @param idJugador ID del jugador
+     * @param categoria Categoría de la partida
+     */
+    static void sumarVictoria(Session session, int idJugador, String categoria) {
+        session.createMutationQuery(
+                        "UPDATE ResumenJugador SET victorias = victorias + 1 " +
+                                "WHERE jugador.id = :jugador AND categoria = :categoria")
+                .setParameter("jugador", idJugador)
+                .setParameter("categoria", categoria.toLowerCase())
+                .executeUpdate();
+    }
+
+    /**
+     * Rellena la tabla de resúmenes a partir del historial si está vacía
+     * Se llama al arrancar el servidor, para bases de datos con partidas anteriores a la tabla
+     */
+    public static void reconstruirSiVacia() {
+        Session session = sf.openSession();
+        Transaction tx = null;
+        try {
+            Long resumenes = session.createQuery("SELECT COUNT(r) FROM ResumenJugador r", Long.class).uniqueResult();
+            if (resumenes != null && resumenes > 0) {
+                return;
+            }
+
+            tx = session.beginTransaction();
+            int filas = session.createNativeMutationQuery(
+                            "INSERT INTO resumen_jugador (jugador_id, categoria, partidas, victorias, aciertos_totales, mejor_puntuacion) " +
+                                    "SELECT jp.jugador_id, p.categoria, COUNT(*), SUM(CASE WHEN jp.ganador THEN 1 ELSE 0 END), " +
+                                    "SUM(jp.respuestas_correctas), MAX(jp.puntos_obtenidos) " +
+                                    "FROM jugador_partida jp JOIN partida p ON p.id = jp.partida_id " +
+                                    "GROUP BY jp.jugador_id, p.categoria")
+                    .executeUpdate();
+            tx.commit();
+
+            if (filas > 0) {
+                System.out.println("📊 Resúmenes de jugadores reconstruidos desde el historial: " + filas + " filas");
+            }
+
+        } catch (Exception e) {
+            if (tx != null && tx.isActive()) tx.rollback();
+            System.out.println("❌ Error al reconstruir los resúmenes de jugadores: " + e.getMessage());
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Obtiene los resúmenes por categoría de un jugador
+     * @param nombreJugador Nombre del jugador
+     * @return Una fila por categoría jugada, ordenadas por categoría
+     */
+    public static List<ResumenJugador> obtenerResumenes(String nombreJugador) {
+        Session session = sf.openSession();
+        try {
+            return session.createQuery(
+                            "FROM ResumenJugador r WHERE r.jugador.nombre = :nombre ORDER BY r.categoria",
+                            ResumenJugador.class)
+                    .setParameter("nombre", nombreJugador)
+                    .getResultList();
+
+        } catch (Exception e) {
+            System.out.println("❌ Error al obtener resúmenes de " + nombreJugador + ": " + e.getMessage());
+            return List.of();
+        } finally {
+            session.close();
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.liceolapaz.acc;
+
+import com.liceolapaz.protocolo.Mensaje;
+import com.liceolapaz.protocolo.TipoMensaje;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Emparejador de jugadores dirigido por eventos
+ * En lugar de revisar la cola periódicamente, reacciona al instante cuando un jugador entra en cola
+ * o cuando el gestor libera una plaza, y programa un disparo exacto para el momento en que
+ * un jugador multijugador supera el tiempo límite de espera por categoría
+ *
+ * Los jugadores llegan por una cola de entrada sin bloqueos y el hilo del emparejador los reparte en
+ * un índice que solo él modifica: una cola FIFO por categoría y otra global por orden de llegada
+ * para el emparejamiento entre categorías. Cada emparejamiento cuesta O(1) amortizado; las
+ * cancelaciones solo marcan al jugador y su entrada se descarta al llegar a la cabeza de la cola
+ */
+public class Emparejador {
+
+    // Tiempo de espera tras el cual se empareja con jugadores de otra categoría
+    private static final long TIEMPO_LIMITE_CATEGORIA = 10000; // 10 segundos
+    // Pausa para que los clientes procesen PARTIDA_ENCONTRADA antes de empezar la partida
+    private static final long PAUSA_PARTIDA_ENCONTRADA = 500;
+
+    private final GestorPartidas gestorPartidas; // Ejecuta las partidas formadas
+    private final Queue<JugadorPendiente> entrantes = new ConcurrentLinkedQueue<>(); // Altas desde el lobby, sin bloqueos
+    private final ScheduledExecutorService hilo; // Hilo único del emparejador
+    private final AtomicBoolean pasadaPendiente = new AtomicBoolean(false); // Agrupa avisos consecutivos en una pasada
+
+    // Índice de jugadores en espera (solo se usa desde el hilo del emparejador)
+    private final ArrayDeque<JugadorPendiente> colaSolo = new ArrayDeque<>(); // Jugadores en modo individual
+    private final Map<String, ArrayDeque<JugadorPendiente>> colasPorCategoria = new HashMap<>(); // Multijugador por categoría
+    private final ArrayDeque<String> categoriasConPareja = new ArrayDeque<>(); // Categorías con al menos dos jugadores
+    private final ArrayDeque<JugadorPendiente> colaLlegadaMulti = new ArrayDeque<>(); // Multijugador por tiempo de espera
+    private int jugadoresEnEspera = 0; // Jugadores indexados aún no retirados
+    private int multiEnEspera = 0; // Jugadores multijugador aún no retirados
+
+    // Disparo programado para el próximo vencimiento del tiempo límite (solo se usa desde el hilo del emparejador)
+    private ScheduledFuture<?> plazoProgramado;
+    private long instantePlazo;
+
+    /**
+     * Constructor del emparejador
+     * @param gestorPartidas Gestor que ejecutará las partidas y avisará al liberar plazas
+     */
+    public Emparejador(GestorPartidas gestorPartidas) {
+        this.gestorPartidas = gestorPartidas;
+        this.hilo = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "emparejador");
+            t.setDaemon(true);
+            return t;
+        });
+        gestorPartidas.setAlLiberarPlaza(this::notificarCambio);
+    }
+
+    /**
+     * Añade un jugador a la cola de espera y lanza una pasada de emparejamiento
+     * Puede llamarse desde cualquier hilo
+     * @param jugador Jugador que quiere partida
+     */
+    void encolar(JugadorPendiente jugador) {
+        entrantes.add(jugador);
+        System.out.println("👤 " + jugador.nombre + " agregado a la cola (" + jugador.modo + ", " + jugador.categoria + ")");
+        notificarCambio();
+    }
+
+    /**
+     * Retira de la cola a un jugador que canceló o se desconectó
+     * Solo lo marca: su entrada en el índice se descarta cuando llegue a la cabeza de su cola
+     * @param jugador Jugador a retirar
+     */
+    void cancelar(JugadorPendiente jugador) {
+        jugador.marcarCancelado();
+    }
+
+    /**
+     * Solicita una pasada de emparejamiento
+     * Varios avisos seguidos se agrupan en una sola pasada
+     */
+    public void notificarCambio() {
+        if (pasadaPendiente.compareAndSet(false, true)) {
+            hilo.execute(this::procesarCola);
+        }
+    }
+
+    /**
+     * Procesa la cola de jugadores y organiza todas las partidas posibles según disponibilidad y preferencias
+     * Prioriza partidas individuales sobre multijugador para mejor experiencia
+     * Solo retira jugadores de la cola si el gestor de partidas tiene plazas libres
+     */
+    private void procesarCola() {
+        pasadaPendiente.set(false);
+        try {
+            indexarEntrantes();
+
+            if (jugadoresEnEspera == 0) {
+                return;
+            }
+
+            while (gestorPartidas.reservarPlaza()) {
+                // Prioridad 1: Jugadores individuales (inicio inmediato)
+                JugadorPendiente jugadorSolo = extraerValido(colaSolo);
+                if (jugadorSolo != null) {
+                    System.out.println("✅ Jugador solo encontrado: " + jugadorSolo.nombre);
+                    iniciarPartidaSolo(jugadorSolo);
+                    continue;
+                }
+
+                // Prioridad 2: Parejas de la misma categoría
+                JugadorPendiente[] pareja = encontrarParejaMismaCategoria();
+                if (pareja == null) {
+                    // Prioridad 3: Parejas de distinta categoría tras el tiempo límite
+                    pareja = encontrarParejaPorTiempoLimite();
+                }
+                if (pareja != null) {
+                    iniciarPartidaMultijugador(pareja[0], pareja[1]);
+                    continue;
+                }
+
+                // No hay más partidas que formar: devolver la plaza reservada
+                gestorPartidas.liberarPlaza();
+                break;
+            }
+
+            System.out.println("📊 Jugadores en cola: " + jugadoresEnEspera + " (multijugador: " + multiEnEspera + ")");
+            if (jugadoresEnEspera > 0 && gestorPartidas.getPartidasActivas() >= gestorPartidas.getMaxPartidas()) {
+                System.out.println("⏳ Servidor al máximo de partidas, los jugadores esperan plaza");
+            }
+
+            programarPlazo();
+
+        } catch (Exception e) {
+            System.out.println("❌ Error procesando partidas: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reparte los jugadores recién llegados en las colas del índice
+     */
+    private void indexarEntrantes() {
+        JugadorPendiente jugador;
+        while ((jugador = entrantes.poll()) != null) {
+            if (jugador.cancelado) continue;
+
+            jugadoresEnEspera++;
+            if ("solo".equals(jugador.modo)) {
+                colaSolo.addLast(jugador);
+                continue;
+            }
+
+            multiEnEspera++;
+            ArrayDeque<JugadorPendiente> cola = colasPorCategoria.computeIfAbsent(jugador.categoria, c -> new ArrayDeque<>());
+            if (cabezaValida(cola) != null) {
+                categoriasConPareja.addLast(jugador.categoria); // Ya había alguien esperando esta categoría
+            }
+            cola.addLast(jugador);
+            colaLlegadaMulti.addLast(jugador);
+        }
+    }
+
+    /**
+     * Busca una pareja en alguna categoría con al menos dos jugadores esperando
+     * @return Array con dos jugadores emparejados o null si no es posible
+     */
+    private JugadorPendiente[] encontrarParejaMismaCategoria() {
+        while (!categoriasConPareja.isEmpty()) {
+            String categoria = categoriasConPareja.peekFirst();
+            ArrayDeque<JugadorPendiente> cola = colasPorCategoria.get(categoria);
+
+            JugadorPendiente j1 = extraerValido(cola);
+            JugadorPendiente j2 = j1 != null ? extraerValido(cola) : null;
+            if (j2 == null) {
+                // La categoría ya no tiene pareja (cancelaciones): devolver al primero y descartarla
+                if (j1 != null) devolver(cola, j1);
+                categoriasConPareja.pollFirst();
+                continue;
+            }
+
+            if (cabezaValida(cola) == null) {
+                categoriasConPareja.pollFirst();
+            }
+            System.out.println("✅ Pareja encontrada (misma categoría): " + j1.nombre + " + " + j2.nombre + " (" + categoria + ")");
+            return new JugadorPendiente[]{j1, j2};
+        }
+        return null;
+    }
+
+    /**
+     * Empareja a los dos jugadores que más tiempo llevan esperando si el primero superó el tiempo límite
+     * Se juega en la categoría del jugador que más ha esperado
+     * @return Array con dos jugadores emparejados o null si no es posible
+     */
+    private JugadorPendiente[] encontrarParejaPorTiempoLimite() {
+        JugadorPendiente j1 = cabezaValida(colaLlegadaMulti);
+        if (j1 == null || j1.tiempoEsperando() <= TIEMPO_LIMITE_CATEGORIA) {
+            return null;
+        }
+
+        colaLlegadaMulti.pollFirst();
+        JugadorPendiente j2 = cabezaValida(colaLlegadaMulti);
+        if (j2 == null) {
+            colaLlegadaMulti.addFirst(j1);
+            return null;
+        }
+        colaLlegadaMulti.pollFirst();
+
+        retirar(j1);
+        retirar(j2);
+        String categoriaFinal = j1.categoria;
+        j2.categoria = categoriaFinal;
+        System.out.println("✅ Pareja encontrada (tiempo límite): " + j1.nombre + " + " + j2.nombre + " (" + categoriaFinal + ")");
+        return new JugadorPendiente[]{j1, j2};
+    }
+
+    /**
+     * Descarta las entradas obsoletas de la cabeza de una cola y devuelve la primera válida sin extraerla
+     * Una entrada es obsoleta si el jugador ya fue emparejado desde otra cola, canceló o se desconectó
+     */
+    private JugadorPendiente cabezaValida(ArrayDeque<JugadorPendiente> cola) {
+        JugadorPendiente cabeza;
+        while ((cabeza = cola.peekFirst()) != null) {
+            if (!cabeza.retirado && cabeza.esValido()) {
+                return cabeza;
+            }
+            cola.pollFirst();
+            retirar(cabeza);
+        }
+        return null;
+    }
+
+    /**
+     * Extrae y retira el primer jugador válido de una cola
+     * @return Jugador extraído o null si la cola no tiene jugadores válidos
+     */
+    private JugadorPendiente extraerValido(ArrayDeque<JugadorPendiente> cola) {
+        JugadorPendiente jugador = cabezaValida(cola);
+        if (jugador != null) {
+            cola.pollFirst();
+            retirar(jugador);
+        }
+        return jugador;
+    }
+
+    /**
+     * Devuelve a la cabeza de su cola un jugador extraído que no llegó a emparejarse
+     */
+    private void devolver(ArrayDeque<JugadorPendiente> cola, JugadorPendiente jugador) {
+        jugador.retirado = false;
+        jugadoresEnEspera++;
+        if (!"solo".equals(jugador.modo)) multiEnEspera++;
+        cola.addFirst(jugador);
+    }
+
+    /**
+     * Marca a un jugador como fuera del índice; sus demás entradas pasan a ser obsoletas
+     */
+    private void retirar(JugadorPendiente jugador) {
+        if (jugador.retirado) return;
+        jugador.retirado = true;
+        jugadoresEnEspera--;
+        if (!"solo".equals(jugador.modo)) multiEnEspera--;
+    }
+
+    /**
+     * Programa una pasada para el instante en que el jugador multijugador más antiguo
+     * supere el tiempo límite, si hay al menos dos jugadores que podrían emparejarse entonces
+     */
+    private void programarPlazo() {
+        JugadorPendiente masAntiguo = cabezaValida(colaLlegadaMulti);
+        if (masAntiguo == null || multiEnEspera < 2) {
+            return;
+        }
+
+        long vencimiento = masAntiguo.tiempoEspera + TIEMPO_LIMITE_CATEGORIA + 1;
+        long retraso = vencimiento - System.currentTimeMillis();
+        if (retraso <= 0) {
+            return; // Ya vencido: solo falta una plaza libre, que avisará el gestor
+        }
+
+        // Mantener solo el disparo más próximo
+        if (plazoProgramado != null && !plazoProgramado.isDone()) {
+            if (instantePlazo <= vencimiento) {
+                return;
+            }
+            plazoProgramado.cancel(false);
+        }
+        instantePlazo = vencimiento;
+        plazoProgramado = hilo.schedule(this::notificarCambio, retraso, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Inicia una partida individual para un jugador
+     * Requiere una plaza reservada en el gestor de partidas
+     * @param jugador El jugador que participará en modo individual
+     */
+    private void iniciarPartidaSolo(JugadorPendiente jugador) {
+        System.out.println("🎮 Iniciando partida individual: " + jugador.nombre + " (" + jugador.categoria + ")");
+
+        // Notificar al cliente que se encontró la partida
+        jugador.conexion.enviar(Mensaje.de(TipoMensaje.PARTIDA_ENCONTRADA, "SOLO", null, jugador.categoria));
+
+        // Ejecutar partida en el gestor de partidas
+        gestorPartidas.lanzar("SOLO " + jugador.nombre + " (" + jugador.categoria + ")",
+                () -> new PartidaTrivia(jugador.conexion, null, jugador.nombre, null, jugador.categoria),
+                PAUSA_PARTIDA_ENCONTRADA);
+    }
+
+    /**
+     * Inicia una partida multijugador entre dos jugadores
+     * Requiere una plaza reservada en el gestor de partidas
+     * @param j1 Primer jugador
+     * @param j2 Segundo jugador
+     */
+    private void iniciarPartidaMultijugador(JugadorPendiente j1, JugadorPendiente j2) {
+        System.out.println("🆚 Iniciando partida multijugador: " + j1.nombre + " vs " + j2.nombre +
+                " (" + j1.categoria + ")");
+
+        // Notificar a ambos clientes sobre la partida encontrada
+        j1.conexion.enviar(Mensaje.de(TipoMensaje.PARTIDA_ENCONTRADA, "MULTIJUGADOR", j2.nombre, j1.categoria));
+        j2.conexion.enviar(Mensaje.de(TipoMensaje.PARTIDA_ENCONTRADA, "MULTIJUGADOR", j1.nombre, j1.categoria));
+
+        // Ejecutar partida multijugador en el gestor de partidas
+        gestorPartidas.lanzar("MULTIJUGADOR " + j1.nombre + " vs " + j2.nombre + " (" + j1.categoria + ")",
+                () -> new PartidaTrivia(j1.conexion, j2.conexion, j1.nombre, j2.nombre, j1.categoria),
+                PAUSA_PARTIDA_ENCONTRADA);
+    }
+}
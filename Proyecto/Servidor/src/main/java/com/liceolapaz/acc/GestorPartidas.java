@@ -0,0 +1,270 @@
+package com.liceolapaz.acc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Gestor de partidas concurrentes
+ * Ejecuta cualquier número de partidas a la vez y lleva el registro del ciclo de vida de cada una
+ * (en espera, en curso, finalizada, cancelada o fallida)
+ * Las partidas no ocupan hilos: avanzan con temporizadores sobre un planificador compartido de pocos hilos,
+ * y solo las operaciones lentas (carga de preguntas, guardado de resultados) usan un ejecutor aparte
+ * El número máximo de partidas simultáneas se configura con la propiedad de sistema "trivia.maxPartidas"
+ */
+public class GestorPartidas {
+
+    // Límite por defecto de partidas simultáneas
+    private static final int MAX_PARTIDAS_POR_DEFECTO = 10000;
+    // Hilos del planificador que mueven todas las partidas
+    private static final int HILOS_PLANIFICADOR = Math.max(2, Runtime.getRuntime().availableProcessors());
+    // Hilos para trabajo bloqueante de las partidas (base de datos)
+    private static final int HILOS_BLOQUEANTES = Integer.getInteger("trivia.hilosBloqueantes", 16);
+
+    /**
+     * Estados posibles de una partida gestionada
+     */
+    public enum EstadoPartida {
+        EN_ESPERA, // Aceptada, pendiente de arrancar en el ejecutor
+        EN_CURSO, // Ejecutándose
+        FINALIZADA, // Terminó normalmente
+        CANCELADA, // Terminó antes de tiempo por abandono o desconexión de un jugador
+        FALLIDA // Terminó con una excepción no controlada
+    }
+
+    /**
+     * Información de seguimiento de una partida activa
+     */
+    public static class PartidaActiva {
+        private final long id; // Identificador interno de la partida
+        private final String descripcion; // Jugadores, tipo y categoría (para logging)
+        private final long creada = System.currentTimeMillis(); // Momento de aceptación
+        private volatile long iniciada; // Momento en que empezó a ejecutarse
+        private volatile EstadoPartida estado = EstadoPartida.EN_ESPERA;
+
+        PartidaActiva(long id, String descripcion) {
+            this.id = id;
+            this.descripcion = descripcion;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getDescripcion() {
+            return descripcion;
+        }
+
+        public EstadoPartida getEstado() {
+            return estado;
+        }
+
+        /**
+         * Calcula cuánto tiempo lleva la partida en el sistema
+         * @return Milisegundos desde que fue aceptada
+         */
+        public long getMilisegundosActiva() {
+            return System.currentTimeMillis() - creada;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + id + " " + descripcion + " [" + estado + ", " + getMilisegundosActiva() / 1000 + "s]";
+        }
+    }
+
+    private final int maxPartidas; // Capacidad máxima de partidas simultáneas
+    private final Semaphore plazas; // Plazas libres para nuevas partidas
+    private final ScheduledThreadPoolExecutor planificador; // Temporizadores y pasos de todas las partidas
+    private final ThreadPoolExecutor trabajosBloqueantes; // Carga de preguntas y guardado de resultados
+    private final Map<Long, PartidaActiva> activas = new ConcurrentHashMap<>(); // Partidas en espera o en curso
+    private final AtomicLong secuencia = new AtomicLong(); // Generador de identificadores
+    private final AtomicLong finalizadas = new AtomicLong(); // Total de partidas terminadas con éxito
+    private final AtomicLong canceladas = new AtomicLong(); // Total de partidas abandonadas
+    private final AtomicLong fallidas = new AtomicLong(); // Total de partidas terminadas con error
+    private volatile Runnable alLiberarPlaza; // Aviso para el emparejador cuando termina una partida
+
+    /**
+     * Crea un gestor con la capacidad indicada en la propiedad "trivia.maxPartidas"
+     */
+    public GestorPartidas() {
+        this(Integer.getInteger("trivia.maxPartidas", MAX_PARTIDAS_POR_DEFECTO));
+    }
+
+    /**
+     * Crea un gestor con una capacidad concreta
+     * @param maxPartidas Número máximo de partidas simultáneas (mínimo 1)
+     */
+    public GestorPartidas(int maxPartidas) {
+        this.maxPartidas = Math.max(1, maxPartidas);
+        this.plazas = new Semaphore(this.maxPartidas);
+
+        this.planificador = new ScheduledThreadPoolExecutor(HILOS_PLANIFICADOR, fabricaHilos("planificador-partidas"));
+        this.planificador.setRemoveOnCancelPolicy(true);
+
+        this.trabajosBloqueantes = new ThreadPoolExecutor(HILOS_BLOQUEANTES, HILOS_BLOQUEANTES, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), fabricaHilos("partida-bd"));
+        this.trabajosBloqueantes.allowCoreThreadTimeOut(true); // No mantener hilos ociosos fuera de las horas punta
+
+        System.out.println("🎲 Gestor de partidas listo (máximo " + this.maxPartidas + " simultáneas, " +
+                HILOS_PLANIFICADOR + " hilos de planificación)");
+    }
+
+    /**
+     * Crea una fábrica de hilos daemon numerados
+     */
+    private static ThreadFactory fabricaHilos(String prefijo) {
+        AtomicInteger numeroHilo = new AtomicInteger();
+        return r -> {
+            Thread hilo = new Thread(r, prefijo + "-" + numeroHilo.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+
+    /**
+     * Reserva una plaza para una nueva partida sin esperar
+     * Debe llamarse antes de retirar jugadores de la cola, para no sacarlos si no hay capacidad
+     * @return true si se obtuvo la plaza, false si el servidor está al máximo
+     */
+    public boolean reservarPlaza() {
+        return plazas.tryAcquire();
+    }
+
+    /**
+     * Devuelve una plaza reservada que finalmente no se usó
+     */
+    public void liberarPlaza() {
+        plazas.release();
+    }
+
+    /**
+     * Lanza una partida usando una plaza reservada previamente con reservarPlaza()
+     * La partida se crea en el ejecutor de trabajo bloqueante (puede consultar la base de datos)
+     * y a partir de ahí avanza sola sobre el planificador; la plaza se libera cuando avisa de su fin
+     * @param descripcion Descripción para seguimiento y logging
+     * @param creador Construye la partida
+     * @param retrasoMs Milisegundos a esperar antes de crearla (para que los clientes procesen el aviso previo)
+     * @return Información de seguimiento de la partida
+     */
+    public PartidaActiva lanzar(String descripcion, Supplier<? extends PartidaPlanificada> creador, long retrasoMs) {
+        PartidaActiva info = new PartidaActiva(secuencia.incrementAndGet(), descripcion);
+        activas.put(info.id, info);
+
+        try {
+            planificador.schedule(() -> trabajosBloqueantes.execute(() -> arrancar(info, creador)),
+                    retrasoMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            activas.remove(info.id);
+            plazas.release();
+            throw e;
+        }
+
+        System.out.println("🎲 Partida " + info + " aceptada (" + activas.size() + "/" + maxPartidas + " activas)");
+        return info;
+    }
+
+    /**
+     * Crea la partida y la pone en marcha sobre el planificador
+     */
+    private void arrancar(PartidaActiva info, Supplier<? extends PartidaPlanificada> creador) {
+        info.iniciada = System.currentTimeMillis();
+        info.estado = EstadoPartida.EN_CURSO;
+        try {
+            PartidaPlanificada partida = creador.get();
+            partida.iniciar(planificador, trabajosBloqueantes, estadoFinal -> terminar(info, estadoFinal));
+        } catch (Exception e) {
+            System.out.println("❌ Error en la partida " + info.id + ": " + e.getMessage());
+            e.printStackTrace();
+            terminar(info, EstadoPartida.FALLIDA);
+        }
+    }
+
+    /**
+     * Registra el fin de una partida y libera su plaza (solo la primera vez que se invoca)
+     */
+    private void terminar(PartidaActiva info, EstadoPartida estadoFinal) {
+        if (activas.remove(info.id) == null) {
+            return;
+        }
+        info.estado = estadoFinal;
+        switch (estadoFinal) {
+            case FINALIZADA:
+                finalizadas.incrementAndGet();
+                break;
+            case CANCELADA:
+                canceladas.incrementAndGet();
+                break;
+            default:
+                fallidas.incrementAndGet();
+                break;
+        }
+        plazas.release();
+        System.out.println("✅ Partida " + info + " terminada en " +
+                (System.currentTimeMillis() - info.iniciada) / 1000 + "s (" + activas.size() + " activas)");
+
+        Runnable aviso = alLiberarPlaza;
+        if (aviso != null) {
+            aviso.run();
+        }
+    }
+
+    /**
+     * Registra la acción a ejecutar cada vez que una partida termina y deja libre su plaza
+     * @param aviso Acción a ejecutar (debe ser rápida y no bloqueante)
+     */
+    public void setAlLiberarPlaza(Runnable aviso) {
+        this.alLiberarPlaza = aviso;
+    }
+
+    /**
+     * Obtiene el número de partidas en espera o en curso
+     * @return Partidas activas
+     */
+    public int getPartidasActivas() {
+        return activas.size();
+    }
+
+    /**
+     * Obtiene la capacidad máxima configurada
+     * @return Número máximo de partidas simultáneas
+     */
+    public int getMaxPartidas() {
+        return maxPartidas;
+    }
+
+    /**
+     * Obtiene una copia de la información de las partidas activas
+     * @return Lista de partidas en espera o en curso
+     */
+    public List<PartidaActiva> obtenerPartidasActivas() {
+        return new ArrayList<>(activas.values());
+    }
+
+    /**
+     * Genera un resumen del estado del gestor
+     * @return Texto con partidas activas y totales acumulados
+     */
+    public String obtenerResumen() {
+        return String.format("🎲 Partidas activas: %d/%d | Finalizadas: %d | Canceladas: %d | Fallidas: %d",
+                activas.size(), maxPartidas, finalizadas.get(), canceladas.get(), fallidas.get());
+    }
+
+    /**
+     * Detiene los ejecutores sin aceptar nuevas partidas
+     */
+    public void detener() {
+        planificador.shutdown();
+        trabajosBloqueantes.shutdown();
+    }
+}
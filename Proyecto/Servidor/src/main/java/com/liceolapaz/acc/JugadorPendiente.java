@@ -0,0 +1,60 @@
+package com.liceolapaz.acc;
+
+import com.liceolapaz.acc.red.ConexionCliente;
+
+/**
+ * Jugador en espera de partida
+ * Contiene toda la información necesaria para gestionar la conexión y preferencias
+ */
+class JugadorPendiente {
+    final ConexionCliente conexion; // Conexión TCP del jugador
+    final String nombre; // Nombre del jugador
+    String categoria; // Categoría de preguntas preferida
+    final String modo; // Modo de juego: "solo", "esperar" (multijugador) o "directo" (concurso en directo)
+    final long tiempoEspera; // Timestamp de cuando entró en cola
+    volatile boolean cancelado = false; // Flag para indicar si el jugador canceló
+    boolean retirado = false; // Ya salió del índice del emparejador (solo lo usa el hilo del emparejador)
+
+    /**
+     * Constructor para crear un jugador pendiente
+     */
+    JugadorPendiente(ConexionCliente conexion, String nombre, String categoria, String modo) {
+        this.conexion = conexion;
+        this.nombre = nombre;
+        this.categoria = categoria != null ? categoria.toLowerCase() : "conocimiento-general";
+        this.modo = modo.toLowerCase();
+        this.tiempoEspera = System.currentTimeMillis();
+    }
+
+    /**
+     * Verifica si el jugador sigue siendo válido para participar en una partida
+     * @return true si el jugador está conectado y no ha cancelado
+     */
+    boolean esValido() {
+        boolean conexionValida = conexion != null && conexion.estaAbierta() && !cancelado;
+        boolean nombreValido = nombre != null && !nombre.trim().isEmpty();
+        boolean resultado = conexionValida && nombreValido;
+
+        if (!resultado) {
+            System.out.println("⚠️ Jugador inválido: " + nombre +
+                    " (conexión: " + conexionValida + ", nombre: " + nombreValido + ", cancelado: " + cancelado + ")");
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Calcula el tiempo que lleva esperando en cola
+     * @return Tiempo en milisegundos desde que entró en cola
+     */
+    long tiempoEsperando() {
+        return System.currentTimeMillis() - tiempoEspera;
+    }
+
+    /**
+     * Marca al jugador como cancelado para exclusión de la cola
+     */
+    void marcarCancelado() {
+        this.cancelado = true;
+    }
+}
@@ -0,0 +1,21 @@
+package com.liceolapaz.acc;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * Partida que avanza mediante eventos (mensajes de los jugadores) y temporizadores
+ * en lugar de ocupar un hilo propio durante toda su duración
+ */
+public interface PartidaPlanificada {
+
+    /**
+     * Arranca la partida; el método debe volver de inmediato
+     * @param planificador Planificador compartido para programar los pasos de la partida
+     * @param trabajosBloqueantes Ejecutor para operaciones lentas (base de datos) que no deben ocupar el planificador
+     * @param alTerminar Acción a invocar una única vez cuando la partida termina, con su estado final
+     */
+    void iniciar(ScheduledExecutorService planificador, Executor trabajosBloqueantes,
+                 Consumer<GestorPartidas.EstadoPartida> alTerminar);
+}
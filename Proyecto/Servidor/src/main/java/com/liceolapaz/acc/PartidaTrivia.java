@@ -1,36 +1,70 @@
 package com.liceolapaz.acc;
 
-import com.liceolapaz.acc.DAO.JugadorDAO;
-import com.liceolapaz.acc.DAO.JugadorPartidaDAO;
-import com.liceolapaz.acc.DAO.PreguntaDAO;
-import com.liceolapaz.acc.DAO.PartidaDAO;
-import com.liceolapaz.acc.entidades.Jugador;
-import com.liceolapaz.acc.entidades.Partida;
+import com.liceolapaz.acc.DAO.EscritorResultados;
+import com.liceolapaz.acc.DAO.ResultadoPartida;
+import com.liceolapaz.acc.GestorPartidas.EstadoPartida;
 import com.liceolapaz.acc.entidades.Pregunta;
+import com.liceolapaz.acc.red.ConexionCliente;
+import com.liceolapaz.acc.red.ReceptorLineas;
+import com.liceolapaz.protocolo.Mensaje;
+import com.liceolapaz.protocolo.TipoMensaje;
+import com.liceolapaz.protocolo.TramaPregunta;
 
-import java.io.*;
-import java.net.Socket;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Clase que maneja la lógica de una partida de trivia con sistema de puntos corregido
  * Gestiona tanto partidas individuales como multijugador a través de conexiones TCP
- * Implementa Runnable para ejecutarse en hilos separados
+ * Funciona como una máquina de estados: cada fase programa la siguiente en el planificador compartido
+ * y las respuestas de los jugadores llegan como eventos, de modo que la partida no ocupa ningún hilo
+ * mientras espera
  */
-public class PartidaTrivia implements Runnable {
+public class PartidaTrivia implements PartidaPlanificada {
 
     // Configuración del juego
     private static final int TOTAL_PREGUNTAS = 10; // Número fijo de preguntas por partida
     private static final int TIEMPO_RESPUESTA = 20; // Tiempo límite en segundos por pregunta
 
+    // Ritmo de la partida en milisegundos
+    private static final long PAUSA_INICIO = 2000; // Tras anunciar el inicio, para sincronizar a los clientes
+    private static final long PAUSA_PREGUNTA = 1500; // Para que el cliente procese la pregunta
+    private static final long PAUSA_SOLICITUD = 500; // Para que el cliente active los botones de respuesta
+    private static final long ESPERA_RESPUESTA = 15000; // Plazo común de la ronda para las respuestas de todos los jugadores
+    private static final long PAUSA_RESULTADO = 1000; // Antes de enviar el resultado de la pregunta
+    private static final long PAUSA_ENTRE_PREGUNTAS = 3000; // Entre el resultado y la siguiente pregunta
+
+    // Si el servidor ofrece el modo rápido (propiedad "trivia.modoRapido"); cada partida lo usa solo si
+    // todos sus clientes anunciaron confirmaciones LISTO en la negociación
+    private static final boolean MODO_RAPIDO_PERMITIDO =
+            Boolean.parseBoolean(System.getProperty("trivia.modoRapido", "true"));
+    // Tiempo mínimo que permanece en pantalla cada mensaje en modo rápido
+    private static final long VISIBLE_MINIMO = Long.getLong("trivia.visibleMinimoMs", 600);
+
+    /**
+     * Fases de la máquina de estados de la partida
+     */
+    private enum Fase {
+        PREPARADA, // Creada, aún sin iniciar
+        INICIANDO, // Inicio anunciado, esperando a la primera pregunta
+        MOSTRANDO_PREGUNTA, // Pregunta enviada, pendiente de solicitar respuestas
+        SOLICITANDO, // Respuestas solicitadas, margen para que el cliente se prepare
+        ESPERANDO_RESPUESTAS, // Esperando a que respondan todos o venza el plazo de la ronda
+        MOSTRANDO_RESULTADO, // Respuestas evaluadas, pendiente de enviar el resultado
+        FINALIZANDO, // Guardando resultados en la base de datos
+        TERMINADA // Sin más eventos que procesar
+    }
+
     // Conexiones de red TCP
-    private final Socket jugador1, jugador2; // Sockets de los jugadores conectados
+    private final ConexionCliente jugador1, jugador2; // Conexiones de los jugadores
+    // Modo rápido: el ritmo lo marcan las confirmaciones LISTO de los clientes en lugar de las pausas fijas
+    private final boolean ritmoPorConfirmacion;
     private final String nombreJ1, nombreJ2; // Nombres de los jugadores
     private final String categoria; // Categoría de preguntas para la partida
-    private PrintWriter salida1, salida2; // Flujos de salida para enviar mensajes
+    private ConexionCliente salida1, salida2; // Conexiones ya configuradas para enviar mensajes
 
     // Estado del juego - CORREGIDO: Variables corregidas para seguimiento preciso
     private final List<Pregunta> preguntas; // Lista de preguntas cargadas para la partida
@@ -39,28 +73,41 @@ public class PartidaTrivia implements Runnable {
     private boolean partidaFinalizada = false; // Flag para controlar el estado de la partida
     private long inicioPartida; // Timestamp del inicio para calcular duración
 
-    // Comunicación asíncrona entre hilos
-    private final BlockingQueue<String> colaJ1 = new LinkedBlockingQueue<>(); // Cola de mensajes jugador 1
-    private final BlockingQueue<String> colaJ2 = new LinkedBlockingQueue<>(); // Cola de mensajes jugador 2
+    // Máquina de estados (protegida por el monitor de la partida)
+    private Fase fase = Fase.PREPARADA; // Fase actual
+    private int generacion = 0; // Se incrementa en cada transición para descartar temporizadores obsoletos
+    private final RecolectorRespuestas respuestas; // Respuestas de la ronda actual, abiertas desde SOLICITAR_RESPUESTA
 
-    private final Object sincronizacion = new Object();
-    private volatile boolean esperandoRespuesta = false;
+    // Confirmaciones de la fase actual en modo rápido
+    private String confirmacionEsperada; // Tipo de LISTO que espera la fase actual (null = ninguno)
+    private int confirmados; // Jugadores que ya confirmaron (bit 0 = jugador 1, bit 1 = jugador 2)
+    private long inicioConfirmacion; // Momento en que se envió el mensaje a confirmar
+    private Runnable trasConfirmacion; // Paso a ejecutar cuando confirmen todos
+
+    // Entorno de ejecución proporcionado por el gestor
+    private ScheduledExecutorService planificador; // Temporizadores de las fases
+    private Executor trabajosBloqueantes; // Guardado de resultados en la base de datos
+    private Consumer<EstadoPartida> alTerminar; // Aviso al gestor cuando la partida termina
+    private boolean terminada = false; // Garantiza un único aviso de fin
 
     /**
      * Constructor para inicializar una partida de trivia
-     * @param jugador1 Socket del primer jugador (obligatorio)
-     * @param jugador2 Socket del segundo jugador (null para partida individual)
+     * @param jugador1 Conexión del primer jugador (obligatorio)
+     * @param jugador2 Conexión del segundo jugador (null para partida individual)
      * @param nombreJ1 Nombre del primer jugador
      * @param nombreJ2 Nombre del segundo jugador (null para partida individual)
      * @param categoria Categoría de preguntas
      */
-    public PartidaTrivia(Socket jugador1, Socket jugador2, String nombreJ1, String nombreJ2, String categoria) {
+    public PartidaTrivia(ConexionCliente jugador1, ConexionCliente jugador2, String nombreJ1, String nombreJ2, String categoria) {
         this.jugador1 = jugador1;
         this.jugador2 = jugador2;
         this.nombreJ1 = nombreJ1;
         this.nombreJ2 = nombreJ2;
         this.categoria = categoria;
-        this.preguntas = PreguntaDAO.obtenerPreguntasPorCategoria(categoria, TOTAL_PREGUNTAS);
+        this.respuestas = new RecolectorRespuestas(jugador2 != null ? 2 : 1);
+        this.ritmoPorConfirmacion = MODO_RAPIDO_PERMITIDO && jugador1.confirmaListo()
+                && (jugador2 == null || jugador2.confirmaListo());
+        this.preguntas = BancoPreguntas.obtenerPreguntas(categoria, TOTAL_PREGUNTAS);
         this.inicioPartida = System.currentTimeMillis();
 
         System.out.println("🎯 Nueva partida de trivia - Categoría: " + categoria +
@@ -80,63 +127,110 @@ public class PartidaTrivia implements Runnable {
     }
 
     /**
-     * Método principal que ejecuta la lógica completa de la partida
-     * Se ejecuta en un hilo separado
+     * Arranca la partida: configura las conexiones, anuncia el inicio y programa la primera pregunta
+     * Vuelve de inmediato; el resto de la partida avanza con temporizadores y eventos
      */
     @Override
-    public void run() {
+    public synchronized void iniciar(ScheduledExecutorService planificador, Executor trabajosBloqueantes,
+                                     Consumer<EstadoPartida> alTerminar) {
+        this.planificador = planificador;
+        this.trabajosBloqueantes = trabajosBloqueantes;
+        this.alTerminar = alTerminar;
+
+        abrirLotes();
         try {
             if (preguntas.isEmpty()) {
                 enviarError("No hay preguntas disponibles para esta categoría");
+                partidaFinalizada = true;
+                terminar(EstadoPartida.FALLIDA);
                 return;
             }
 
             configurarConexiones();
             iniciarPartida();
-            jugarTodasLasPreguntas();
+        } catch (Exception e) {
+            System.out.println("❌ Error en la partida de trivia: " + e.getMessage());
+            e.printStackTrace();
+            cancelarPartida("error del sistema");
+        } finally {
+            cerrarLotes();
+        }
+    }
 
-            if (!partidaFinalizada) {
-                finalizarPartida();
-            }
+    /**
+     * Programa el siguiente paso de la máquina de estados
+     * El paso se descarta si, antes de que venza, la partida ya ha cambiado de fase por otro evento
+     * @param retraso Milisegundos hasta ejecutar el paso
+     * @param paso Transición a ejecutar
+     */
+    private void programar(long retraso, Runnable paso) {
+        final int generacionProgramada = generacion;
+        planificador.schedule(() -> ejecutarPaso(generacionProgramada, paso), retraso, TimeUnit.MILLISECONDS);
+    }
 
+    /**
+     * Ejecuta un paso programado si sigue vigente
+     */
+    private synchronized void ejecutarPaso(int generacionProgramada, Runnable paso) {
+        if (partidaFinalizada || generacionProgramada != generacion) {
+            return; // Temporizador obsoleto: la fase ya avanzó por otro evento
+        }
+        transicion(paso);
+    }
+
+    /**
+     * Aplica una transición invalidando los temporizadores de la fase anterior
+     * Cualquier error cancela la partida para no dejar a los jugadores esperando
+     * Todo lo que el paso envía a cada jugador sale en una sola escritura al terminar
+     */
+    private void transicion(Runnable paso) {
+        generacion++;
+        confirmacionEsperada = null; // Las confirmaciones pendientes pertenecen a la fase anterior
+        abrirLotes();
+        try {
+            paso.run();
         } catch (Exception e) {
             System.out.println("❌ Error en la partida de trivia: " + e.getMessage());
             e.printStackTrace();
             cancelarPartida("error del sistema");
+        } finally {
+            cerrarLotes();
         }
     }
 
     /**
-     * Configura las conexiones de entrada y salida para ambos jugadores
-     * Inicia hilos separados para escuchar las respuestas de cada jugador
-     * @throws IOException Si hay problemas con las conexiones de red
+     * Abre un lote de salida en la conexión de cada jugador
+     */
+    private void abrirLotes() {
+        jugador1.abrirLote();
+        if (jugador2 != null) jugador2.abrirLote();
+    }
+
+    /**
+     * Cierra los lotes abiertos con abrirLotes(), escribiendo lo acumulado para cada jugador
      */
-    private void configurarConexiones() throws IOException {
-        // Configurar conexión del jugador 1
-        BufferedReader in1 = new BufferedReader(new InputStreamReader(jugador1.getInputStream()));
-        salida1 = new PrintWriter(jugador1.getOutputStream(), true);
+    private void cerrarLotes() {
+        jugador1.cerrarLote();
+        if (jugador2 != null) jugador2.cerrarLote();
+    }
 
-        // CORREGIDO: Iniciar hilo y esperar a que esté listo
-        Thread hiloJ1 = new Thread(() -> escucharJugador(in1, colaJ1, nombreJ1));
-        hiloJ1.start();
+    /**
+     * Configura las conexiones de ambos jugadores para la partida
+     * Sustituye el receptor del lobby por uno que entrega las respuestas directamente a la partida,
+     * sin necesidad de hilos de escucha dedicados
+     */
+    private void configurarConexiones() {
+        // Asignar ambas salidas antes de instalar ningún receptor: setReceptor() avisa al momento si la conexión
+        // ya se cerró, y la cancelación resultante debe poder notificar al otro jugador
+        salida1 = jugador1;
+        salida2 = jugador2;
 
-        // Configurar conexión del jugador 2 si existe
-        Thread hiloJ2 = null;
+        jugador1.setReceptor(new ReceptorJugador(1, nombreJ1));
         if (jugador2 != null) {
-            BufferedReader in2 = new BufferedReader(new InputStreamReader(jugador2.getInputStream()));
-            salida2 = new PrintWriter(jugador2.getOutputStream(), true);
-
-            hiloJ2 = new Thread(() -> escucharJugador(in2, colaJ2, nombreJ2));
-            hiloJ2.start();
+            jugador2.setReceptor(new ReceptorJugador(2, nombreJ2));
         }
 
-        // NUEVO: Pausa para asegurar que los hilos estén listos
-        try {
-            Thread.sleep(100); // 100ms debería ser suficiente
-            System.out.println("✅ Hilos de escucha iniciados y listos");
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        System.out.println("✅ Receptores de partida configurados");
     }
 
     /**
@@ -144,92 +238,92 @@ public class PartidaTrivia implements Runnable {
      * Diferencia entre partidas individuales y multijugador
      */
     private void iniciarPartida() {
+        if (partidaFinalizada) return; // Un jugador se desconectó al configurar las conexiones
+
         System.out.println("🎮 Iniciando partida de trivia...");
 
         if (jugador2 == null) {
-            salida1.println("PARTIDA_SOLO_INICIADA;CATEGORIA:" + categoria);
+            salida1.enviar(Mensaje.de(TipoMensaje.PARTIDA_SOLO_INICIADA, categoria));
             System.out.println("👤 Partida individual iniciada para " + nombreJ1);
         } else {
-            salida1.println("PARTIDA_INICIADA;OPONENTE:" + nombreJ2 + ";CATEGORIA:" + categoria);
-            salida2.println("PARTIDA_INICIADA;OPONENTE:" + nombreJ1 + ";CATEGORIA:" + categoria);
+            salida1.enviar(Mensaje.de(TipoMensaje.PARTIDA_INICIADA, nombreJ2, categoria));
+            salida2.enviar(Mensaje.de(TipoMensaje.PARTIDA_INICIADA, nombreJ1, categoria));
             System.out.println("🆚 Partida multijugador iniciada: " + nombreJ1 + " vs " + nombreJ2);
         }
-
-        // AUMENTAR: Pausa más larga para asegurar sincronización completa
-        try {
-            Thread.sleep(2000); // 2 segundos en lugar de 1
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        if (ritmoPorConfirmacion) {
+            System.out.println("⚡ Modo rápido: ritmo por confirmaciones (mínimo visible " + VISIBLE_MINIMO + " ms)");
         }
+
+        // Pausa para asegurar sincronización completa antes de la primera pregunta
+        fase = Fase.INICIANDO;
+        esperarConfirmacion("INICIO", PAUSA_INICIO, this::enviarSiguientePregunta);
     }
 
     /**
-     * Ejecuta el ciclo principal de preguntas hasta completar todas o cancelar
-     * @throws InterruptedException Si el hilo es interrumpido durante la espera
+     * Envía la siguiente pregunta o finaliza la partida si ya no quedan
      */
-    private void jugarTodasLasPreguntas() throws InterruptedException {
-        while (!partidaFinalizada && preguntaActual < preguntas.size()) {
-            System.out.println("🔄 Iniciando pregunta " + (preguntaActual + 1) + "/" + preguntas.size());
-
-            if (!jugarPregunta()) {
-                System.out.println("❌ Partida cancelada durante pregunta " + (preguntaActual + 1));
-                return;
-            }
-
-            preguntaActual++;
-
-            // Pausa entre preguntas (excepto después de la última)
-            if (preguntaActual < preguntas.size()) {
-                System.out.println("⏱️ Pausa entre preguntas...");
-                Thread.sleep(3000);
-            }
+    private void enviarSiguientePregunta() {
+        if (preguntaActual >= preguntas.size()) {
+            System.out.println("✅ Todas las preguntas completadas - Aciertos J1: " + aciertosJ1 + ", J2: " + aciertosJ2);
+            finalizar();
+            return;
         }
 
-        System.out.println("✅ Todas las preguntas completadas - Aciertos J1: " + aciertosJ1 + ", J2: " + aciertosJ2);
-    }
-
-    /**
-     * Lógica de pregunta completamente corregida
-     * Maneja una pregunta individual: envío, recepción de respuestas y evaluación
-     * @return true si la pregunta se completó exitosamente, false si se canceló
-     * @throws InterruptedException Si hay problemas con el timeout de respuestas
-     */
-    private boolean jugarPregunta() throws InterruptedException {
+        System.out.println("🔄 Iniciando pregunta " + (preguntaActual + 1) + "/" + preguntas.size());
         Pregunta pregunta = preguntas.get(preguntaActual);
         System.out.println("❓ Pregunta " + (preguntaActual + 1) + " (ID:" + pregunta.getId() + "): " + pregunta.getTextoPregunta());
         System.out.println("✅ Respuesta correcta: " + pregunta.getLetraRespuesta() + ") " + pregunta.getRespuestaTexto());
 
+        // Nueva ronda: olvidar las respuestas de la anterior
+        respuestas.reiniciar();
+
         // Enviar pregunta a ambos jugadores
         enviarPregunta(pregunta);
 
         // Pausa para que el cliente procese la pregunta
-        Thread.sleep(1500); // AUMENTADO: Más tiempo para procesar
+        fase = Fase.MOSTRANDO_PREGUNTA;
+        esperarConfirmacion("PREGUNTA", PAUSA_PREGUNTA, this::solicitarRespuestas);
+    }
 
-        // Solicitar respuestas a los jugadores
+    /**
+     * Pide las respuestas a los jugadores y abre la recepción de respuestas de la ronda
+     */
+    private void solicitarRespuestas() {
         System.out.println("📤 Solicitando respuestas a los jugadores...");
-        salida1.println("SOLICITAR_RESPUESTA");
-        if (jugador2 != null) salida2.println("SOLICITAR_RESPUESTA");
+        respuestas.abrir();
+        Mensaje solicitud = Mensaje.de(TipoMensaje.SOLICITAR_RESPUESTA);
+        salida1.enviar(solicitud);
+        if (jugador2 != null) salida2.enviar(solicitud);
 
         // Pausa adicional para asegurar que el cliente esté listo
-        Thread.sleep(500);
-
-        // Debug: verificar estado de las colas antes de esperar
-        System.out.println("🔍 Estado colas ANTES de esperar - J1: " + colaJ1.size());
-
-        // Obtener respuestas con timeout REDUCIDO para evitar desincronización
-        System.out.println("⏳ Esperando respuestas durante 15 segundos...");
-        String respuestaJ1 = colaJ1.poll(15, TimeUnit.SECONDS); // REDUCIDO de 20 a 15
-        String respuestaJ2 = jugador2 != null ? colaJ2.poll(15, TimeUnit.SECONDS) : null;
-
-        // Debug: estado después de recibir respuestas
-        System.out.println("🔍 Estado colas DESPUÉS de esperar - J1: " + colaJ1.size());
-        System.out.println("📥 Respuestas recibidas - J1: '" + respuestaJ1 + "', J2: '" + respuestaJ2 + "'");
+        fase = Fase.SOLICITANDO;
+        esperarConfirmacion("SOLICITUD", PAUSA_SOLICITUD, this::esperarRespuestas);
+    }
 
-        // Verificar si algún jugador canceló la partida
-        if (esCancelacion(respuestaJ1, nombreJ1) || esCancelacion(respuestaJ2, nombreJ2)) {
-            System.out.println("❌ Partida cancelada por respuesta de cancelación");
-            return false;
+    /**
+     * Espera las respuestas de todos los jugadores contra un único plazo común
+     * Si ya respondieron todos durante el margen previo, cierra la ronda sin esperar
+     */
+    private void esperarRespuestas() {
+        if (respuestas.estanTodas()) {
+            cerrarRonda();
+            return;
         }
+        System.out.println("⏳ Esperando respuestas durante " + ESPERA_RESPUESTA / 1000 + " segundos...");
+        fase = Fase.ESPERANDO_RESPUESTAS;
+        programar(ESPERA_RESPUESTA, this::cerrarRonda);
+    }
+
+    /**
+     * Evalúa las respuestas de la ronda (las que falten cuentan como timeout) y actualiza los aciertos
+     */
+    private void cerrarRonda() {
+        respuestas.cerrar();
+        Pregunta pregunta = preguntas.get(preguntaActual);
+        String respuestaJ1 = respuestas.obtener(0);
+        String respuestaJ2 = jugador2 != null ? respuestas.obtener(1) : null;
+        System.out.println("📥 Respuestas recibidas en " + respuestas.milisegundosAbierta() + " ms - J1: '" +
+                respuestaJ1 + "', J2: '" + respuestaJ2 + "'");
 
         // Procesar respuestas y actualizar aciertos
         boolean correctaJ1 = procesarRespuesta(respuestaJ1, pregunta, nombreJ1, salida1);
@@ -251,12 +345,108 @@ public class PartidaTrivia implements Runnable {
         }
 
         // Pausa breve antes de enviar resultado
-        Thread.sleep(1000);
+        fase = Fase.MOSTRANDO_RESULTADO;
+        programar(ritmoPorConfirmacion ? Math.min(PAUSA_RESULTADO, VISIBLE_MINIMO) : PAUSA_RESULTADO,
+                this::publicarResultado);
+    }
 
-        // Enviar resultado de la pregunta a ambos jugadores
-        enviarResultadoPregunta(pregunta);
+    /**
+     * Envía el resultado de la pregunta y programa la siguiente
+     */
+    private void publicarResultado() {
+        enviarResultadoPregunta(preguntas.get(preguntaActual));
+        preguntaActual++;
+
+        // Pausa entre preguntas (excepto después de la última)
+        if (preguntaActual < preguntas.size()) {
+            System.out.println("⏱️ Pausa entre preguntas...");
+            esperarConfirmacion("RESULTADO", PAUSA_ENTRE_PREGUNTAS, this::enviarSiguientePregunta);
+        } else {
+            enviarSiguientePregunta();
+        }
+    }
 
-        return true;
+    /**
+     * Registra la respuesta (o confirmación LISTO) de un jugador recibida desde el bucle de eventos
+     * Solo se acepta la primera respuesta de cada jugador en la ronda; cuando han respondido todos,
+     * la ronda se cierra en el acto sin esperar al plazo
+     * @param numeroJugador 1 o 2
+     * @param linea Respuesta recibida
+     */
+    private synchronized void respuestaRecibida(int numeroJugador, String linea) {
+        if (partidaFinalizada) return;
+
+        if (linea.equalsIgnoreCase("cancelar")) {
+            cancelarPartida(numeroJugador == 1 ? nombreJ1 : nombreJ2);
+            return;
+        }
+
+        if (linea.startsWith("LISTO;")) {
+            confirmacionRecibida(numeroJugador, linea.substring(6));
+            return;
+        }
+
+        if (!respuestas.registrar(numeroJugador - 1, linea)) {
+            System.out.println("⚠️ Respuesta fuera de tiempo o repetida ignorada: '" + linea + "'");
+            return;
+        }
+
+        // Cierre anticipado: no esperar al plazo si ya han respondido todos
+        if (respuestas.estanTodas() && (fase == Fase.SOLICITANDO || fase == Fase.ESPERANDO_RESPUESTAS)) {
+            System.out.println("⚡ Todos los jugadores han respondido, cerrando la ronda");
+            transicion(this::cerrarRonda);
+        }
+    }
+
+    /**
+     * Programa el paso siguiente tras enviar un mensaje que los clientes deben mostrar
+     * En modo rápido se avanza en cuanto todos confirman con LISTO;tipo, respetando el tiempo mínimo visible;
+     * la pausa fija se mantiene siempre como límite para clientes que no envían confirmaciones
+     * @param tipo Tipo de confirmación esperada (INICIO, PREGUNTA, SOLICITUD o RESULTADO)
+     * @param pausaFija Pausa clásica en milisegundos
+     * @param siguiente Paso a ejecutar después
+     */
+    private void esperarConfirmacion(String tipo, long pausaFija, Runnable siguiente) {
+        if (ritmoPorConfirmacion) {
+            confirmacionEsperada = tipo;
+            confirmados = 0;
+            inicioConfirmacion = System.currentTimeMillis();
+            trasConfirmacion = siguiente;
+        }
+        programar(pausaFija, siguiente);
+    }
+
+    /**
+     * Anota la confirmación de un jugador y avanza cuando han confirmado todos
+     * Las confirmaciones de fases ya superadas se ignoran
+     */
+    private void confirmacionRecibida(int numeroJugador, String tipo) {
+        if (confirmacionEsperada == null || !confirmacionEsperada.equals(tipo)) {
+            return;
+        }
+
+        confirmados |= 1 << (numeroJugador - 1);
+        int todos = jugador2 != null ? 0b11 : 0b01;
+        if (confirmados != todos) {
+            return;
+        }
+
+        Runnable siguiente = trasConfirmacion;
+        trasConfirmacion = null;
+        long restante = VISIBLE_MINIMO - (System.currentTimeMillis() - inicioConfirmacion);
+        if (restante <= 0) {
+            transicion(siguiente);
+        } else {
+            // Sustituye la pausa fija por lo que falta del mínimo visible
+            transicion(() -> programar(restante, siguiente));
+        }
+    }
+
+    /**
+     * Cancela la partida cuando un jugador se desconecta
+     */
+    private synchronized void jugadorDesconectado(String nombre) {
+        cancelarPartida(nombre);
     }
 
     /**
@@ -264,18 +454,13 @@ public class PartidaTrivia implements Runnable {
      * @param pregunta La pregunta a enviar con todas sus opciones
      */
     private void enviarPregunta(Pregunta pregunta) {
-        String mensajePregunta = String.format("PREGUNTA;NUMERO:%d;TOTAL:%d;TEXTO:%s;A:%s;B:%s;C:%s;D:%s",
-                preguntaActual + 1, TOTAL_PREGUNTAS,
-                pregunta.getTextoPregunta(),
-                pregunta.getOpcionA(),
-                pregunta.getOpcionB(),
-                pregunta.getOpcionC(),
-                pregunta.getOpcionD()
-        );
+        // Texto y opciones ya codificados y compartidos: solo se codifica el número de pregunta
+        TramaPregunta trama = BancoPreguntas.obtenerTrama(pregunta);
+        int numero = preguntaActual + 1;
 
-        System.out.println("📤 Enviando pregunta: " + mensajePregunta);
-        salida1.println(mensajePregunta);
-        if (jugador2 != null) salida2.println(mensajePregunta);
+        System.out.println("📤 Enviando pregunta " + numero + "/" + TOTAL_PREGUNTAS + " (ID:" + pregunta.getId() + ")");
+        salida1.enviar(trama, numero, TOTAL_PREGUNTAS);
+        if (jugador2 != null) salida2.enviar(trama, numero, TOTAL_PREGUNTAS);
     }
 
     /**
@@ -284,10 +469,10 @@ public class PartidaTrivia implements Runnable {
      * @param respuesta La respuesta del jugador (A, B, C, D o null por timeout)
      * @param pregunta La pregunta actual para validar la respuesta
      * @param nombreJugador Nombre del jugador para logging
-     * @param salida PrintWriter para enviar feedback al jugador
+     * @param salida Conexión para enviar feedback al jugador
      * @return true si la respuesta es correcta, false en caso contrario
      */
-    private boolean procesarRespuesta(String respuesta, Pregunta pregunta, String nombreJugador, PrintWriter salida) {
+    private boolean procesarRespuesta(String respuesta, Pregunta pregunta, String nombreJugador, ConexionCliente salida) {
         System.out.println("🐛 DEBUG RESPUESTA para " + nombreJugador + ":");
         System.out.println("  Pregunta ID: " + pregunta.getId());
         System.out.println("  Texto: " + pregunta.getTextoPregunta());
@@ -302,7 +487,7 @@ public class PartidaTrivia implements Runnable {
 
         if (respuesta == null) {
             // Timeout - el jugador no respondió a tiempo
-            salida.println("TIMEOUT");
+            salida.enviar(Mensaje.de(TipoMensaje.TIMEOUT));
             System.out.println("  Resultado: TIMEOUT ⏰");
             System.out.println("🔚 FIN DEBUG");
             return false;
@@ -312,7 +497,7 @@ public class PartidaTrivia implements Runnable {
         boolean correcta = pregunta.esRespuestaCorrecta(respuesta);
 
         // Enviar feedback inmediato al jugador
-        salida.println(correcta ? "RESPUESTA_CORRECTA" : "RESPUESTA_INCORRECTA");
+        salida.enviar(Mensaje.de(correcta ? TipoMensaje.RESPUESTA_CORRECTA : TipoMensaje.RESPUESTA_INCORRECTA));
 
         System.out.println("  Resultado: " + (correcta ? "CORRECTA ✅" : "INCORRECTA ❌"));
         System.out.println("🔚 FIN DEBUG");
@@ -326,111 +511,95 @@ public class PartidaTrivia implements Runnable {
      * @param pregunta La pregunta cuyo resultado se va a enviar
      */
     private void enviarResultadoPregunta(Pregunta pregunta) {
-        String resultado;
+        Mensaje resultado;
 
         if (jugador2 == null) {
             // CORREGIDO: Para modo SOLO, no enviar puntos del jugador 2
-            resultado = String.format("RESULTADO;CORRECTA:%s;PUNTOS_J1:%d",
-                    pregunta.getLetraRespuesta(), aciertosJ1);
+            resultado = Mensaje.de(TipoMensaje.RESULTADO,
+                    String.valueOf(pregunta.getLetraRespuesta()), aciertosJ1);
         } else {
             // Para modo multijugador, enviar ambos contadores
-            resultado = String.format("RESULTADO;CORRECTA:%s;PUNTOS_J1:%d;PUNTOS_J2:%d",
-                    pregunta.getLetraRespuesta(), aciertosJ1, aciertosJ2);
+            resultado = Mensaje.de(TipoMensaje.RESULTADO,
+                    String.valueOf(pregunta.getLetraRespuesta()), aciertosJ1, aciertosJ2);
         }
 
         System.out.println("📊 Enviando resultado: " + resultado);
-        salida1.println(resultado);
-        if (jugador2 != null) salida2.println(resultado);
+        salida1.enviar(resultado);
+        if (jugador2 != null) salida2.enviar(resultado);
     }
 
     /**
      * Finalización de partida con cálculo de puntos correcto
-     * Calcula duración, determina ganador y actualiza base de datos
+     * Calcula duración, determina ganador y envía FIN_PARTIDA; el guardado lo hace finalizar() fuera del planificador
+     * @return Resultado completo de la partida, pendiente de guardar
      */
-    private void finalizarPartida() {
+    private ResultadoPartida finalizarPartida() {
         long duracionSegundos = (System.currentTimeMillis() - inicioPartida) / 1000;
         System.out.println("🏁 Finalizando partida - Duración: " + duracionSegundos + " segundos");
         System.out.println("📊 Aciertos finales - " + nombreJ1 + ": " + aciertosJ1 + "/" + TOTAL_PREGUNTAS +
                 (jugador2 != null ? ", " + nombreJ2 + ": " + aciertosJ2 + "/" + TOTAL_PREGUNTAS : ""));
 
-        // Crear registro de partida en la base de datos
+        // Resultado completo de la partida, que se guarda en una sola transacción
         String tipoPartida = jugador2 != null ? "MULTIJUGADOR" : "SOLO";
-        Partida partida = PartidaDAO.registrarPartida(categoria, true, tipoPartida);
-
-        if (partida != null) {
-            PartidaDAO.establecerDuracionPartida(partida.getId(), duracionSegundos);
-        }
+        ResultadoPartida resultado = new ResultadoPartida(categoria, tipoPartida, TOTAL_PREGUNTAS, duracionSegundos);
 
         // Procesar resultado según el tipo de partida
         if (jugador2 == null) {
-            finalizarPartidaIndividual(partida);
+            finalizarPartidaIndividual(resultado);
         } else {
-            finalizarPartidaMultijugador(partida);
+            finalizarPartidaMultijugador(resultado);
         }
+        return resultado;
+    }
 
-        cerrarConexiones();
-        partidaFinalizada = true;
-        System.out.println("✅ Partida completamente finalizada");
+    /**
+     * Publica el resultado de la partida para guardarlo en segundo plano y actualiza la clasificación
+     * Los jugadores reciben FIN_PARTIDA sin esperar a la base de datos
+     * @param resultado Resultado con todos los participantes
+     */
+    private void guardarResultado(ResultadoPartida resultado) {
+        EscritorResultados.publicar(resultado);
+        Clasificacion.registrar(resultado);
     }
 
     /**
      * Finalización de partida individual con puntos correctos
-     * Calcula puntos basado en aciertos y actualiza estadísticas del jugador
-     * @param partida Registro de partida en la base de datos
+     * Calcula puntos basado en aciertos y los añade al resultado
+     * @param resultado Resultado de la partida a completar
      */
-    private void finalizarPartidaIndividual(Partida partida) {
+    private void finalizarPartidaIndividual(ResultadoPartida resultado) {
         // CORREGIDO: Calcular puntos basado en aciertos, no en el número de pregunta
         int puntosFinales = calcularPuntosFinales(aciertosJ1);
 
         System.out.println("📈 Finalizando partida individual - Aciertos: " + aciertosJ1 + "/" + TOTAL_PREGUNTAS +
                 ", Puntos ganados: " + puntosFinales);
 
-        // Actualizar base de datos correctamente
-        try {
-            JugadorDAO.incrementarPartidasJugadas(nombreJ1);
-            JugadorDAO.actualizarPuntuacionJugador(nombreJ1, puntosFinales);
-
-            // Registrar participación en la partida
-            Jugador jugador = JugadorDAO.obtenerJugador(nombreJ1);
-            if (jugador != null && partida != null) {
-                JugadorPartidaDAO.registrarJugadorPartida(jugador, partida, aciertosJ1, puntosFinales);
-            }
-
-            System.out.println("✅ Datos guardados en BD para " + nombreJ1);
-        } catch (Exception e) {
-            System.out.println("❌ Error guardando en BD: " + e.getMessage());
-            e.printStackTrace();
-        }
+        resultado.agregarJugador(nombreJ1, aciertosJ1, puntosFinales, false, null);
 
         // Enviar resultado final al cliente
-        salida1.println(String.format("FIN_PARTIDA;PUNTOS:%d;TOTAL_PREGUNTAS:%d;PUNTOS_GANADOS:%d",
-                aciertosJ1, TOTAL_PREGUNTAS, puntosFinales));
+        salida1.enviar(Mensaje.de(TipoMensaje.FIN_PARTIDA,
+                null, aciertosJ1, TOTAL_PREGUNTAS, null, puntosFinales));
     }
 
     /**
      * Finalización multijugador corregida
-     * Determina ganador, empate y actualiza estadísticas de ambos jugadores
-     * @param partida Registro de partida en la base de datos
+     * Determina ganador o empate y añade ambos jugadores al resultado
+     * @param resultado Resultado de la partida a completar
      */
-    private void finalizarPartidaMultijugador(Partida partida) {
+    private void finalizarPartidaMultijugador(ResultadoPartida resultado) {
         System.out.println("📈 Finalizando partida multijugador - " + nombreJ1 + ": " + aciertosJ1 +
                 ", " + nombreJ2 + ": " + aciertosJ2);
 
-        Jugador jugador1Obj = JugadorDAO.obtenerJugador(nombreJ1);
-        Jugador jugador2Obj = JugadorDAO.obtenerJugador(nombreJ2);
-
         try {
             if (aciertosJ1 > aciertosJ2) {
                 // Jugador 1 gana
-                procesarVictoria(nombreJ1, aciertosJ1, nombreJ2, aciertosJ2, jugador1Obj, jugador2Obj, partida,
-                        salida1, salida2);
+                procesarVictoria(nombreJ1, aciertosJ1, nombreJ2, aciertosJ2, resultado, salida1, salida2);
             } else if (aciertosJ2 > aciertosJ1) {
                 // Jugador 2 gana
-                procesarVictoria(nombreJ2, aciertosJ2, nombreJ1, aciertosJ1, jugador2Obj, jugador1Obj, partida,
-                        salida2, salida1);
+                procesarVictoria(nombreJ2, aciertosJ2, nombreJ1, aciertosJ1, resultado, salida2, salida1);
             } else {
                 // Empate
-                procesarEmpate(jugador1Obj, jugador2Obj, partida);
+                procesarEmpate(resultado);
             }
         } catch (Exception e) {
             System.out.println("❌ Error finalizando partida multijugador: " + e.getMessage());
@@ -443,8 +612,8 @@ public class PartidaTrivia implements Runnable {
      * Actualiza estadísticas de ganador y perdedor, asigna puntos correspondientes
      */
     private void procesarVictoria(String ganador, int aciertosGanador, String perdedor, int aciertosPerdedor,
-                                  Jugador jugadorGanador, Jugador jugadorPerdedor, Partida partida,
-                                  PrintWriter salidaGanador, PrintWriter salidaPerdedor) {
+                                  ResultadoPartida resultado,
+                                  ConexionCliente salidaGanador, ConexionCliente salidaPerdedor) {
 
         // Puntos basados en aciertos reales
         int puntosFinalesGanador = calcularPuntosFinales(aciertosGanador);
@@ -455,58 +624,33 @@ public class PartidaTrivia implements Runnable {
         System.out.println("💰 Puntos: " + ganador + " = " + puntosFinalesGanador + ", " +
                 perdedor + " = " + puntosFinalesPerdedor);
 
-        // Actualizar estadísticas del ganador
-        JugadorDAO.incrementarPartidasJugadas(ganador);
-        JugadorDAO.incrementarPartidasGanadas(ganador);
-        JugadorDAO.actualizarPuntuacionJugador(ganador, puntosFinalesGanador);
-
-        // Actualizar estadísticas del perdedor
-        JugadorDAO.incrementarPartidasJugadas(perdedor);
-        JugadorDAO.actualizarPuntuacionJugador(perdedor, puntosFinalesPerdedor);
-
-        // Registrar participaciones en la base de datos
-        if (jugadorGanador != null && partida != null) {
-            JugadorPartidaDAO.registrarJugadorPartida(jugadorGanador, partida, aciertosGanador, puntosFinalesGanador);
-            JugadorPartidaDAO.marcarComoGanador(jugadorGanador, partida);
-        }
-
-        if (jugadorPerdedor != null && partida != null) {
-            JugadorPartidaDAO.registrarJugadorPartida(jugadorPerdedor, partida, aciertosPerdedor, puntosFinalesPerdedor);
-        }
+        // Estadísticas y participaciones de ganador y perdedor, en una sola transacción
+        resultado.agregarJugador(ganador, aciertosGanador, puntosFinalesGanador, true, 1)
+                .agregarJugador(perdedor, aciertosPerdedor, puntosFinalesPerdedor, false, 2);
 
         // Enviar resultados finales a ambos jugadores
-        salidaGanador.println(String.format("FIN_PARTIDA;RESULTADO:GANADOR;PUNTOS:%d;OPONENTE_PUNTOS:%d;PUNTOS_GANADOS:%d",
-                aciertosGanador, aciertosPerdedor, puntosFinalesGanador));
-        salidaPerdedor.println(String.format("FIN_PARTIDA;RESULTADO:PERDEDOR;PUNTOS:%d;OPONENTE_PUNTOS:%d;PUNTOS_GANADOS:%d",
-                aciertosPerdedor, aciertosGanador, puntosFinalesPerdedor));
+        salidaGanador.enviar(Mensaje.de(TipoMensaje.FIN_PARTIDA,
+                "GANADOR", aciertosGanador, null, aciertosPerdedor, puntosFinalesGanador));
+        salidaPerdedor.enviar(Mensaje.de(TipoMensaje.FIN_PARTIDA,
+                "PERDEDOR", aciertosPerdedor, null, aciertosGanador, puntosFinalesPerdedor));
     }
 
     /**
      * Procesamiento de empate corregido
      * Asigna puntos reducidos a ambos jugadores en caso de empate
      */
-    private void procesarEmpate(Jugador jugador1Obj, Jugador jugador2Obj, Partida partida) {
+    private void procesarEmpate(ResultadoPartida resultado) {
         int puntosEmpate = Math.max(calcularPuntosFinales(aciertosJ1) / 2, 1); // Mínimo 1 punto
 
         System.out.println("🤝 Empate: " + nombreJ1 + " y " + nombreJ2 + " (" + aciertosJ1 + " aciertos c/u)");
 
-        // Actualizar estadísticas de ambos jugadores
-        JugadorDAO.incrementarPartidasJugadas(nombreJ1);
-        JugadorDAO.incrementarPartidasJugadas(nombreJ2);
-        JugadorDAO.actualizarPuntuacionJugador(nombreJ1, puntosEmpate);
-        JugadorDAO.actualizarPuntuacionJugador(nombreJ2, puntosEmpate);
-
-        // Registrar participaciones en empate
-        if (jugador1Obj != null && partida != null) {
-            JugadorPartidaDAO.registrarJugadorPartida(jugador1Obj, partida, aciertosJ1, puntosEmpate);
-        }
-        if (jugador2Obj != null && partida != null) {
-            JugadorPartidaDAO.registrarJugadorPartida(jugador2Obj, partida, aciertosJ2, puntosEmpate);
-        }
+        // Estadísticas y participaciones de ambos jugadores, en una sola transacción
+        resultado.agregarJugador(nombreJ1, aciertosJ1, puntosEmpate, false, 1)
+                .agregarJugador(nombreJ2, aciertosJ2, puntosEmpate, false, 1);
 
         // Enviar resultado de empate a ambos jugadores
-        salida1.println(String.format("FIN_PARTIDA;RESULTADO:EMPATE;PUNTOS:%d;PUNTOS_GANADOS:%d", aciertosJ1, puntosEmpate));
-        salida2.println(String.format("FIN_PARTIDA;RESULTADO:EMPATE;PUNTOS:%d;PUNTOS_GANADOS:%d", aciertosJ2, puntosEmpate));
+        salida1.enviar(Mensaje.de(TipoMensaje.FIN_PARTIDA, "EMPATE", aciertosJ1, null, null, puntosEmpate));
+        salida2.enviar(Mensaje.de(TipoMensaje.FIN_PARTIDA, "EMPATE", aciertosJ2, null, null, puntosEmpate));
     }
 
     /**
@@ -515,7 +659,7 @@ public class PartidaTrivia implements Runnable {
      * @param respuestasCorrectas Número de respuestas correctas
      * @return Puntos asignados según el porcentaje de acierto
      */
-    private int calcularPuntosFinales(int respuestasCorrectas) {
+    static int calcularPuntosFinales(int respuestasCorrectas) {
         double porcentaje = (double) respuestasCorrectas / TOTAL_PREGUNTAS;
         if (porcentaje >= 0.9) return 5;      // 90% o más = 5 puntos
         else if (porcentaje >= 0.7) return 3; // 70-89% = 3 puntos
@@ -524,48 +668,66 @@ public class PartidaTrivia implements Runnable {
     }
 
     /**
-     * Verifica si una respuesta es una cancelación de partida
-     * @param respuesta La respuesta recibida del jugador
-     * @param nombreJugador Nombre del jugador para logging
-     * @return true si es una cancelación, false en caso contrario
+     * Indica si el servidor ofrece el modo rápido a los clientes nuevos
+     * @return true si está permitido por configuración
+     */
+    public static boolean admiteModoRapido() {
+        return MODO_RAPIDO_PERMITIDO;
+    }
+
+    /**
+     * Receptor que recibe las respuestas de un jugador desde el bucle de eventos
+     * Entrega cada mensaje directamente a la máquina de estados de la partida
      */
-    private boolean esCancelacion(String respuesta, String nombreJugador) {
-        if (respuesta != null && respuesta.equalsIgnoreCase("cancelar")) {
-            cancelarPartida(nombreJugador);
-            return true;
+    private class ReceptorJugador implements ReceptorLineas {
+        private final int numeroJugador; // 1 o 2
+        private final String nombre; // Nombre del jugador para logging
+
+        ReceptorJugador(int numeroJugador, String nombre) {
+            this.numeroJugador = numeroJugador;
+            this.nombre = nombre;
+        }
+
+        @Override
+        public void lineaRecibida(ConexionCliente conexion, String linea) {
+            System.out.println("📥 " + nombre + " envió: '" + linea + "'");
+            respuestaRecibida(numeroJugador, linea);
+        }
+
+        @Override
+        public void desconectado(ConexionCliente conexion) {
+            System.out.println("🔌 " + nombre + " se ha desconectado");
+            jugadorDesconectado(nombre);
         }
-        return false;
     }
 
     /**
-     * Hilo que escucha continuamente las respuestas de un jugador
-     * Coloca los mensajes recibidos en una cola para procesamiento asíncrono
-     * @param lector BufferedReader del socket del jugador
-     * @param cola Cola donde colocar los mensajes recibidos
-     * @param nombre Nombre del jugador para logging
+     * Pasa a la fase de finalización: envía FIN_PARTIDA en este mismo paso (y por tanto en el mismo lote que
+     * el último RESULTADO) y guarda los resultados fuera del planificador, ya que el diario y la base de datos
+     * son bloqueantes
      */
-    private void escucharJugador(BufferedReader lector, BlockingQueue<String> cola, String nombre) {
-        try {
-            String linea;
-            while ((linea = lector.readLine()) != null) {
-                System.out.println("📥 " + nombre + " envió: '" + linea + "'");
-                try {
-                    cola.put(linea); // SIMPLE: solo añadir a la cola
-                    System.out.println("🔄 Mensaje de " + nombre + " añadido a cola: true (cola size: " + cola.size() + ")");
-                } catch (InterruptedException e) {
-                    System.out.println("⚠️ Hilo interrumpido al añadir mensaje de " + nombre);
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
-        } catch (Exception e) {
-            System.out.println("🔌 " + nombre + " se ha desconectado: " + e.getMessage());
+    private void finalizar() {
+        ResultadoPartida resultado = finalizarPartida(); // Si falla, transicion() cancela la partida
+        fase = Fase.FINALIZANDO;
+        partidaFinalizada = true; // A partir de aquí se ignoran respuestas y desconexiones
+
+        trabajosBloqueantes.execute(() -> {
+            EstadoPartida estadoFinal = EstadoPartida.FINALIZADA;
             try {
-                cola.put("cancelar");
-            } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
+                guardarResultado(resultado);
+                System.out.println("✅ Partida completamente finalizada");
+            } catch (Exception e) {
+                System.out.println("❌ Error finalizando la partida: " + e.getMessage());
+                e.printStackTrace();
+                estadoFinal = EstadoPartida.FALLIDA;
+            } finally {
+                cerrarConexiones();
             }
-        }
+            synchronized (this) {
+                fase = Fase.TERMINADA;
+                terminar(estadoFinal);
+            }
+        });
     }
 
     /**
@@ -577,12 +739,27 @@ public class PartidaTrivia implements Runnable {
 
         System.out.println("❌ Partida cancelada por: " + responsable);
         partidaFinalizada = true;
+        respuestas.cerrar();
+        fase = Fase.TERMINADA;
 
         // Notificar cancelación a ambos jugadores
-        if (salida1 != null) salida1.println("PARTIDA_CANCELADA");
-        if (salida2 != null) salida2.println("PARTIDA_CANCELADA");
+        Mensaje cancelada = Mensaje.de(TipoMensaje.PARTIDA_CANCELADA);
+        if (salida1 != null) salida1.enviar(cancelada);
+        if (salida2 != null) salida2.enviar(cancelada);
 
         cerrarConexiones();
+        terminar(EstadoPartida.CANCELADA);
+    }
+
+    /**
+     * Avisa al gestor del fin de la partida (una sola vez)
+     */
+    private void terminar(EstadoPartida estadoFinal) {
+        if (terminada) return;
+        terminada = true;
+        if (alTerminar != null) {
+            alTerminar.accept(estadoFinal);
+        }
     }
 
     /**
@@ -591,21 +768,17 @@ public class PartidaTrivia implements Runnable {
      */
     private void enviarError(String mensaje) {
         System.out.println("❌ Enviando error: " + mensaje);
-        if (salida1 != null) salida1.println("ERROR;" + mensaje);
-        if (salida2 != null) salida2.println("ERROR;" + mensaje);
+        Mensaje error = Mensaje.de(TipoMensaje.ERROR, mensaje);
+        if (salida1 != null) salida1.enviar(error);
+        if (salida2 != null) salida2.enviar(error);
         cerrarConexiones();
     }
 
     /**
      * Cierra todas las conexiones TCP de forma segura
-     * Maneja excepciones para evitar errores al cerrar
      */
     private void cerrarConexiones() {
-        try {
-            if (jugador1 != null && !jugador1.isClosed()) jugador1.close();
-            if (jugador2 != null && !jugador2.isClosed()) jugador2.close();
-        } catch (IOException e) {
-            System.out.println("⚠️ Error al cerrar conexiones: " + e.getMessage());
-        }
+        if (jugador1 != null) jugador1.cerrar();
+        if (jugador2 != null) jugador2.cerrar();
     }
 }
\ No newline at end of file
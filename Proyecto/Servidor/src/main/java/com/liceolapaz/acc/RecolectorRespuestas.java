@@ -0,0 +1,88 @@
+package com.liceolapaz.acc;
+
+import java.util.Arrays;
+
+/**
+ * Recolector de las respuestas de una ronda
+ * Guarda la primera respuesta de cada jugador mientras la ronda está abierta y sabe cuándo
+ * han respondido todos, para que la partida pueda cerrar la ronda sin agotar el plazo
+ * No es seguro entre hilos: la partida lo usa siempre bajo su propio monitor
+ */
+class RecolectorRespuestas {
+
+    private final String[] respuestas; // Respuesta de cada jugador (null = sin responder)
+    private int recibidas = 0; // Jugadores que ya han respondido en la ronda
+    private boolean abierta = false; // true mientras se aceptan respuestas
+    private long apertura; // Momento en que se abrió la ronda
+
+    /**
+     * Crea un recolector para un número fijo de jugadores
+     * @param jugadores Número de jugadores de la partida
+     */
+    RecolectorRespuestas(int jugadores) {
+        this.respuestas = new String[jugadores];
+    }
+
+    /**
+     * Olvida las respuestas de la ronda anterior y deja el recolector cerrado
+     */
+    void reiniciar() {
+        Arrays.fill(respuestas, null);
+        recibidas = 0;
+        abierta = false;
+    }
+
+    /**
+     * Empieza a aceptar respuestas
+     */
+    void abrir() {
+        abierta = true;
+        apertura = System.currentTimeMillis();
+    }
+
+    /**
+     * Deja de aceptar respuestas; las que falten se considerarán timeout
+     */
+    void cerrar() {
+        abierta = false;
+    }
+
+    /**
+     * Registra la respuesta de un jugador
+     * @param jugador Índice del jugador (desde 0)
+     * @param respuesta Respuesta recibida
+     * @return true si se aceptó, false si la ronda está cerrada o el jugador ya había respondido
+     */
+    boolean registrar(int jugador, String respuesta) {
+        if (!abierta || respuestas[jugador] != null) {
+            return false;
+        }
+        respuestas[jugador] = respuesta;
+        recibidas++;
+        return true;
+    }
+
+    /**
+     * Indica si todos los jugadores han respondido
+     */
+    boolean estanTodas() {
+        return recibidas == respuestas.length;
+    }
+
+    /**
+     * Obtiene la respuesta de un jugador
+     * @param jugador Índice del jugador (desde 0)
+     * @return Respuesta o null si no respondió
+     */
+    String obtener(int jugador) {
+        return respuestas[jugador];
+    }
+
+    /**
+     * Calcula cuánto tiempo lleva abierta la ronda
+     * @return Milisegundos desde la apertura
+     */
+    long milisegundosAbierta() {
+        return System.currentTimeMillis() - apertura;
+    }
+}
@@ -1,30 +1,68 @@
 package com.liceolapaz.acc;
 
+import com.liceolapaz.acc.DAO.EntradaHistorial;
+import com.liceolapaz.acc.DAO.EscritorResultados;
+import com.liceolapaz.acc.DAO.GestorPersistencia;
+import com.liceolapaz.acc.DAO.ImportadorPreguntas;
 import com.liceolapaz.acc.DAO.JugadorDAO;
+import com.liceolapaz.acc.DAO.JugadorPartidaDAO;
+import com.liceolapaz.acc.DAO.PaginaHistorial;
 import com.liceolapaz.acc.DAO.PreguntaDAO;
+import com.liceolapaz.acc.DAO.ResumenJugadorDAO;
+import com.liceolapaz.acc.red.BucleEventos;
+import com.liceolapaz.acc.red.ConexionCliente;
+import com.liceolapaz.acc.red.ReceptorLineas;
+import com.liceolapaz.protocolo.LectorTexto;
+import com.liceolapaz.protocolo.Mensaje;
+import com.liceolapaz.protocolo.Protocolo;
+import com.liceolapaz.protocolo.TipoMensaje;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.ArrayList;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Servidor TCP para el juego de Trivia
  * Maneja conexiones de múltiples clientes y organiza partidas individuales y multijugador
- * Utiliza un sistema de cola para emparejar jugadores de forma eficiente
+ * Las conexiones se atienden con unos pocos bucles de eventos NIO en lugar de un hilo por cliente
+ * Los jugadores en espera se entregan al Emparejador, que forma las partidas en cuanto es posible
  */
 public class ServidorTrivia {
 
     // Configuración del servidor
     private static final int PUERTO = 65001; // Puerto TCP para conexiones de clientes
-    private static final BlockingQueue<JugadorPendiente> colaClientes = new LinkedBlockingQueue<>(); // Cola thread-safe para jugadores en espera
-    private static volatile boolean partidaEnCurso = false; // Flag para controlar si hay una partida activa
+    private static final int BACKLOG_CONEXIONES = 1024; // Conexiones pendientes de aceptar que admite el sistema
+    private static final int NUM_BUCLES_EVENTOS = Math.max(2, Runtime.getRuntime().availableProcessors()); // Hilos selectores
+    private static final int NUM_TRABAJADORES_LOBBY = 8; // Hilos para operaciones bloqueantes del lobby (base de datos)
+    private static final int PARTIDAS_POR_PAGINA = 10; // Partidas por página en el comando historial
+    // Desactivar el algoritmo de Nagle (propiedad "trivia.tcpNoDelay"): los mensajes ya se agrupan por lotes,
+    // así que retener el último segmento solo añadiría latencia a cada paso de la partida
+    private static final boolean TCP_NO_DELAY =
+            Boolean.parseBoolean(System.getProperty("trivia.tcpNoDelay", "true"));
+    private static final GestorPartidas gestorPartidas = new GestorPartidas(); // Ejecuta las partidas en paralelo
+    private static final Emparejador emparejador = new Emparejador(gestorPartidas); // Forma partidas a partir de la cola
+    private static final ConcursosEnDirecto concursos = new ConcursosEnDirecto(gestorPartidas); // Concursos masivos
+    private static final List<String> CATEGORIAS_DISPONIBLES =
+            List.of("conocimiento-general", "musica", "geografia", "deportes"); // Categorías ofrecidas en el lobby
+    private static final List<String> MODOS_JUEGO = List.of("solo", "esperar", "directo"); // Modos que acepta la selección
+    // Lista de categorías ya construida: es la misma para todos los clientes
+    private static final Mensaje MENSAJE_CATEGORIAS = Mensaje.de(TipoMensaje.CATEGORIAS_DISPONIBLES,
+            (Object) CATEGORIAS_DISPONIBLES.toArray(new String[0]));
+
+    // Ejecutor compartido para el trabajo del lobby que no puede hacerse en el hilo del selector
+    private static final ExecutorService trabajadoresLobby = Executors.newFixedThreadPool(NUM_TRABAJADORES_LOBBY, r -> {
+        Thread hilo = new Thread(r, "trabajador-lobby");
+        hilo.setDaemon(true);
+        return hilo;
+    });
 
     /**
      * Método principal del servidor
@@ -36,34 +74,52 @@ public class ServidorTrivia {
         // Verificar conectividad y contenido de la base de datos
         inicializarBaseDatos();
 
-        try (ServerSocket servidor = new ServerSocket(PUERTO)) {
+        // Guardado diferido de resultados (recupera lo que quedó pendiente en el diario)
+        EscritorResultados.iniciar();
+
+        // Al detener el servidor: guardar los resultados pendientes y liberar el pool de conexiones
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            EscritorResultados.detener(10000);
+            if (GestorPersistencia.getMilisegundosArranque() >= 0) {
+                System.out.println(GestorPersistencia.obtenerResumenCache());
+                System.out.println(JugadorDAO.obtenerResumenCache());
+            }
+            System.out.println(ConexionCliente.obtenerResumen());
+            System.out.println(BancoPreguntas.obtenerResumenTramas());
+            GestorPersistencia.cerrar();
+        }, "cierre-persistencia"));
+
+        try (ServerSocketChannel servidor = ServerSocketChannel.open()) {
+            servidor.bind(new InetSocketAddress(PUERTO), BACKLOG_CONEXIONES);
             System.out.println("✅ Servidor Trivia iniciado en puerto " + PUERTO);
-            System.out.println("📚 Esperando conexiones de jugadores...");
 
-            // Hilo dedicado para procesar la cola de jugadores y organizar partidas
-            Thread procesadorCola = new Thread(() -> {
-                System.out.println("🔄 Hilo procesador de cola iniciado");
-                while (true) {
-                    try {
-                        if (!partidaEnCurso && !colaClientes.isEmpty()) {
-                            System.out.println("🔄 Procesando cola de clientes (" + colaClientes.size() + " en espera)");
-                            procesarSiguientePartida();
-                        }
-                        Thread.sleep(200); // Revisar cada 200ms para mejor responsividad
-                    } catch (Exception e) {
-                        System.out.println("❌ Error en el gestor de partidas: " + e.getMessage());
-                        e.printStackTrace();
-                    }
-                }
-            });
-            procesadorCola.setDaemon(true); // Hilo daemon que termina con la aplicación
-            procesadorCola.start();
+            // Bucles de eventos que atenderán la E/S de todas las conexiones
+            BucleEventos[] bucles = new BucleEventos[NUM_BUCLES_EVENTOS];
+            for (int i = 0; i < bucles.length; i++) {
+                bucles[i] = new BucleEventos("bucle-eventos-" + i);
+                bucles[i].iniciar();
+            }
+            System.out.println("📚 Esperando conexiones de jugadores (" + bucles.length + " bucles de eventos)...");
 
-            // Bucle principal - acepta conexiones entrantes indefinidamente
+            // Bucle principal - acepta conexiones y las reparte entre los bucles de eventos
+            int siguienteBucle = 0;
             while (true) {
-                Socket cliente = servidor.accept();
-                System.out.println("🔗 Nueva conexión desde: " + cliente.getInetAddress());
-                new Thread(new ManejadorCliente(cliente)).start();
+                SocketChannel canal = servidor.accept();
+                canal.configureBlocking(false);
+                canal.setOption(StandardSocketOptions.TCP_NODELAY, TCP_NO_DELAY);
+
+                BucleEventos bucle = bucles[siguienteBucle];
+                siguienteBucle = (siguienteBucle + 1) % bucles.length;
+
+                ConexionCliente conexion = new ConexionCliente(canal, bucle);
+                System.out.println("🔗 Nueva conexión desde: " + conexion.getDireccion());
+                conexion.setReceptor(new SesionLobby(conexion));
+                bucle.registrar(conexion);
+
+                // Paso 1 del protocolo: solicitar el nombre del jugador (ofreciendo el protocolo binario y el modo rápido)
+                conexion.enviar(Mensaje.de(TipoMensaje.SOLICITUD_NOMBRE,
+                        ConexionCliente.admiteBinario() ? Protocolo.VERSION_BINARIO : null,
+                        PartidaTrivia.admiteModoRapido() ? Protocolo.VERSION_LISTO : null));
             }
 
         } catch (IOException e) {
@@ -79,16 +135,21 @@ public class ServidorTrivia {
     private static void inicializarBaseDatos() {
         try {
             System.out.println("🔄 Verificando conexión con la base de datos...");
+            long arranque = GestorPersistencia.iniciar();
+            System.out.println("⏱️ Persistencia arrancada en " + arranque + " ms");
+
+            // Importar las preguntas antes de aceptar jugadores, para que ninguna partida espere a la carga
+            ImportadorPreguntas.importarAlArrancar(CATEGORIAS_DISPONIBLES);
 
             // Verificar que la conexión funciona y obtener categorías disponibles
             List<String> categorias = PreguntaDAO.obtenerCategorias();
             System.out.println("📊 Categorías disponibles: " + categorias.size() + " encontradas");
 
-            // Verificar que hay preguntas suficientes para cada categoría
-            for (String categoria : categorias) {
-                long count = PreguntaDAO.contarPreguntasPorCategoria(categoria);
-                System.out.println("  📁 " + categoria + ": " + count + " preguntas");
-            }
+            // Cargar en memoria las preguntas de cada categoría para que las partidas no consulten la BD
+            BancoPreguntas.precargar(categorias);
+            Clasificacion.cargar();
+            JugadorDAO.cargarPosiciones();
+            ResumenJugadorDAO.reconstruirSiVacia();
 
             System.out.println("✅ Base de datos conectada correctamente");
 
@@ -99,437 +160,268 @@ public class ServidorTrivia {
     }
 
     /**
-     * Clase interna para representar un jugador en espera de partida
-     * Contiene toda la información necesaria para gestionar la conexión y preferencias
+     * Estados del diálogo de lobby con un cliente
      */
-    private static class JugadorPendiente {
-        Socket socket; // Conexión TCP del jugador
-        String nombre; // Nombre del jugador
-        String categoria; // Categoría de preguntas preferida
-        String modo; // Modo de juego: "solo" o "esperar" (multijugador)
-        BufferedReader in; // Flujo de entrada para recibir mensajes
-        PrintWriter out; // Flujo de salida para enviar mensajes
-        long tiempoEspera; // Timestamp de cuando entró en cola
-        volatile boolean cancelado = false; // Flag para indicar si el jugador canceló
+    private enum EstadoLobby {
+        ESPERANDO_NOMBRE, // Se envió SOLICITUD_NOMBRE y se espera la respuesta
+        ELIGIENDO, // Se enviaron las categorías y se espera "categoria:modo" o un comando
+        EN_COLA // El jugador espera partida; solo se atiende "cancelar"
+    }
 
-        /**
-         * Constructor para crear un jugador pendiente
-         */
-        JugadorPendiente(Socket socket, String nombre, String categoria, String modo,
-                         BufferedReader in, PrintWriter out) {
-            this.socket = socket;
-            this.nombre = nombre;
-            this.categoria = categoria != null ? categoria.toLowerCase() : "conocimiento-general";
-            this.modo = modo.toLowerCase();
-            this.in = in;
-            this.out = out;
-            this.tiempoEspera = System.currentTimeMillis();
-        }
+    /**
+     * Sesión de lobby de un cliente: sustituye al antiguo hilo por conexión
+     * Recibe las líneas desde el bucle de eventos y las procesa en orden en el ejecutor del lobby,
+     * de modo que las consultas a la base de datos nunca bloquean el hilo del selector
+     */
+    private static class SesionLobby implements ReceptorLineas {
+        private final ConexionCliente conexion; // Conexión del cliente
+        private final Queue<Runnable> tareas = new ConcurrentLinkedQueue<>(); // Mensajes pendientes en orden de llegada
+        private final AtomicBoolean enEjecucion = new AtomicBoolean(false); // Evita procesar dos mensajes a la vez
+        private EstadoLobby estado = EstadoLobby.ESPERANDO_NOMBRE;
+        private String nombre; // Nombre validado del jugador
+        private JugadorPendiente jugador; // Entrada en la cola de espera (si la hay)
+        private final LectorTexto lector = new LectorTexto(); // Lector reutilizado para interpretar la selección
 
         /**
-         * Verifica si el jugador sigue siendo válido para participar en una partida
-         * @return true si el jugador está conectado y no ha cancelado
+         * Constructor de la sesión de lobby
          */
-        boolean esValido() {
-            boolean socketValido = socket != null && !socket.isClosed() && !cancelado;
-            boolean nombreValido = nombre != null && !nombre.trim().isEmpty();
-            boolean resultado = socketValido && nombreValido;
-
-            if (!resultado) {
-                System.out.println("⚠️ Jugador inválido: " + nombre +
-                        " (socket: " + socketValido + ", nombre: " + nombreValido + ", cancelado: " + cancelado + ")");
-            }
+        SesionLobby(ConexionCliente conexion) {
+            this.conexion = conexion;
+        }
 
-            return resultado;
+        @Override
+        public void lineaRecibida(ConexionCliente conexion, String linea) {
+            encolar(() -> procesarLinea(linea));
         }
 
-        /**
-         * Calcula el tiempo que lleva esperando en cola
-         * @return Tiempo en milisegundos desde que entró en cola
-         */
-        long tiempoEsperando() {
-            return System.currentTimeMillis() - tiempoEspera;
+        @Override
+        public void desconectado(ConexionCliente conexion) {
+            encolar(() -> {
+                if (jugador != null && !jugador.cancelado) {
+                    // Cliente desconectado inesperadamente mientras esperaba
+                    emparejador.cancelar(jugador);
+                    System.out.println("🔌 " + jugador.nombre + " se desconectó");
+                }
+            });
         }
 
         /**
-         * Marca al jugador como cancelado para exclusión de la cola
+         * Añade una tarea a la secuencia de la sesión y la programa si no hay otra en curso
          */
-        void marcarCancelado() {
-            this.cancelado = true;
+        private void encolar(Runnable tarea) {
+            tareas.add(tarea);
+            programar();
         }
-    }
 
-    /**
-     * Clase que maneja la comunicación con un cliente individual
-     * Se ejecuta en un hilo separado para cada conexión entrante
-     */
-    private static class ManejadorCliente implements Runnable {
-        private final Socket socket; // Socket de la conexión del cliente
-
-        /**
-         * Constructor del manejador de cliente
-         */
-        public ManejadorCliente(Socket socket) {
-            this.socket = socket;
+        private void programar() {
+            if (enEjecucion.compareAndSet(false, true)) {
+                trabajadoresLobby.execute(this::drenar);
+            }
         }
 
         /**
-         * Método principal que maneja todo el flujo de comunicación con el cliente
+         * Ejecuta las tareas pendientes de la sesión una detrás de otra
+         * Las respuestas de cada tarea (por ejemplo, estadísticas y categorías) salen en una sola escritura
          */
-        @Override
-        public void run() {
-            try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
-
-                System.out.println("👋 Cliente conectado desde: " + socket.getInetAddress());
-
-                // Paso 1: Solicitar y validar nombre del jugador
-                String nombre = solicitarNombre(in, out);
-                if (nombre == null) return;
-
-                // Paso 2: Seleccionar categoría y modo de juego
-                String[] seleccion = solicitarCategoriaYModo(in, out, nombre);
-                if (seleccion == null) return;
-
-                String categoria = seleccion[0];
-                String modo = seleccion[1];
-
-                // Paso 3: Verificar si hay partida en curso para multijugador
-                synchronized (ServidorTrivia.class) {
-                    if (partidaEnCurso && "esperar".equals(modo)) {
-                        out.println("PARTIDA_EN_CURSO;MENSAJE:Hay una partida multijugador en curso. Espera o juega solo.");
-                        System.out.println("⚠️ " + nombre + " rechazado - partida en curso");
-                        return;
+        private void drenar() {
+            try {
+                Runnable tarea;
+                while ((tarea = tareas.poll()) != null) {
+                    conexion.abrirLote();
+                    try {
+                        tarea.run();
+                    } catch (Exception e) {
+                        System.out.println("❌ Error manejando cliente: " + e.getMessage());
+                        e.printStackTrace();
+                    } finally {
+                        conexion.cerrarLote();
                     }
                 }
-
-                // Paso 4: Crear jugador pendiente y añadir a la cola de espera
-                JugadorPendiente jugador = new JugadorPendiente(socket, nombre, categoria, modo, in, out);
-
-                // Iniciar hilo para escuchar cancelaciones mientras espera
-                iniciarEscuchaCancelacion(jugador);
-
-                colaClientes.put(jugador);
-                System.out.println("👤 " + nombre + " agregado a la cola (" + modo + ", " + categoria + ")");
-                System.out.println("📊 Total en cola: " + colaClientes.size());
-
-                // IMPORTANTE: Mantener la conexión abierta para la partida
-                // La conexión se cerrará cuando termine la partida
-
-                // Mantener el hilo vivo hasta que la partida termine o se desconecte
-                while (!socket.isClosed() && jugador.esValido()) {
-                    Thread.sleep(1000);
-                }
-
-            } catch (Exception e) {
-                System.out.println("❌ Error manejando cliente: " + e.getMessage());
-                e.printStackTrace();
             } finally {
-                // Cerrar conexión solo si no está en una partida activa
-                try {
-                    if (socket != null && !socket.isClosed()) {
-                        System.out.println("🔌 Cerrando conexión del cliente");
-                        socket.close();
-                    }
-                } catch (IOException ignored) {}
+                enEjecucion.set(false);
+                if (!tareas.isEmpty()) {
+                    programar();
+                }
             }
         }
 
         /**
-         * Solicita y valida el nombre del jugador
-         * @return Nombre válido del jugador o null si se cancela
+         * Procesa una línea del cliente según el estado actual del diálogo
          */
-        private String solicitarNombre(BufferedReader in, PrintWriter out) throws IOException {
-            out.println("SOLICITUD_NOMBRE");
-            String nombre = in.readLine();
-
-            if (nombre == null || nombre.trim().isEmpty() || "cancelar".equalsIgnoreCase(nombre)) {
-                out.println("CONEXION_CANCELADA");
-                return null;
+        private void procesarLinea(String linea) {
+            switch (estado) {
+                case ESPERANDO_NOMBRE:
+                    procesarNombre(linea);
+                    break;
+                case ELIGIENDO:
+                    procesarSeleccion(linea);
+                    break;
+                case EN_COLA:
+                    procesarMensajeEnCola(linea);
+                    break;
             }
-
-            nombre = nombre.trim();
-            JugadorDAO.verificarYCrearJugador(nombre); // Crear jugador en BD si no existe
-            System.out.println("✅ Jugador identificado: " + nombre);
-            return nombre;
         }
 
         /**
-         * Solicita la categoría y modo de juego al cliente
-         * También maneja comandos especiales como estadísticas y puntuación
-         * @return Array con [categoría, modo] o null si se cancela
+         * Valida el nombre del jugador y le envía las categorías disponibles
          */
-        private String[] solicitarCategoriaYModo(BufferedReader in, PrintWriter out, String nombre) throws IOException {
-            List<String> categoriasDisponibles = List.of("conocimiento-general", "musica", "geografia", "deportes");
-
-            while (true) {
-                // Enviar lista de categorías disponibles
-                StringBuilder categoriasMsg = new StringBuilder("CATEGORIAS_DISPONIBLES");
-                for (String cat : categoriasDisponibles) {
-                    categoriasMsg.append(";").append(cat);
-                }
-                out.println(categoriasMsg.toString());
-
-                String respuesta = in.readLine();
-                if (respuesta == null || "cancelar".equalsIgnoreCase(respuesta)) {
-                    out.println("CONEXION_CANCELADA");
-                    return null;
-                }
-
-                // Procesar comandos especiales del cliente
-                if ("estadisticas".equalsIgnoreCase(respuesta)) {
-                    String stats = JugadorDAO.obtenerEstadisticas(nombre);
-                    out.println("ESTADISTICAS;" + stats.replace("\n", "|"));
-                    continue;
-                }
-
-                if ("puntuacion".equalsIgnoreCase(respuesta)) {
-                    int puntos = JugadorDAO.obtenerPuntuacion(nombre);
-                    out.println("PUNTUACION_TOTAL;" + puntos);
-                    continue;
-                }
-
-                // Parsear selección en formato: "categoria:modo" (ej: "musica:solo")
-                String[] partes = respuesta.split(":");
-                if (partes.length != 2) {
-                    out.println("SELECCION_INVALIDA;FORMATO:categoria:modo");
-                    continue;
-                }
-
-                String categoria = partes[0].toLowerCase().trim();
-                String modo = partes[1].toLowerCase().trim();
-
-                // Validar categoría seleccionada
-                if (!categoriasDisponibles.contains(categoria)) {
-                    out.println("CATEGORIA_INVALIDA;" + categoria);
-                    continue;
-                }
+        private void procesarNombre(String linea) {
+            if (linea.trim().isEmpty() || "cancelar".equalsIgnoreCase(linea)) {
+                cancelarConexion();
+                return;
+            }
 
-                // Validar modo de juego
-                if (!"solo".equals(modo) && !"esperar".equals(modo)) {
-                    out.println("MODO_INVALIDO;" + modo);
-                    continue;
-                }
+            nombre = linea.trim();
+            JugadorDAO.verificarYCrearJugador(nombre); // Crear jugador en BD si no existe
+            System.out.println("✅ Jugador identificado: " + nombre);
 
-                System.out.println("🎯 " + nombre + " eligió: " + categoria + " (" + modo + ")");
-                return new String[]{categoria, modo};
-            }
+            estado = EstadoLobby.ELIGIENDO;
+            enviarCategorias();
         }
 
         /**
-         * Inicia un hilo para escuchar cancelaciones del cliente mientras espera en cola
-         * @param jugador El jugador pendiente a monitorear
+         * Envía la lista de categorías disponibles
          */
-        private void iniciarEscuchaCancelacion(JugadorPendiente jugador) {
-            new Thread(() -> {
-                try {
-                    String linea;
-                    while ((linea = jugador.in.readLine()) != null) {
-                        if ("cancelar".equalsIgnoreCase(linea)) {
-                            System.out.println("❌ " + jugador.nombre + " canceló su espera");
-                            jugador.marcarCancelado();
-                            colaClientes.remove(jugador);
-                            jugador.out.println("CONEXION_CANCELADA");
-                            if (!jugador.socket.isClosed()) {
-                                jugador.socket.close();
-                            }
-                            break;
-                        }
-                    }
-                } catch (Exception e) {
-                    // Cliente desconectado inesperadamente
-                    jugador.marcarCancelado();
-                    colaClientes.remove(jugador);
-                    System.out.println("🔌 " + jugador.nombre + " se desconectó");
-                }
-            }).start();
+        private void enviarCategorias() {
+            conexion.enviar(MENSAJE_CATEGORIAS);
         }
-    }
 
-    /**
-     * Procesa la cola de jugadores y organiza partidas según disponibilidad y preferencias
-     * Prioriza partidas individuales sobre multijugador para mejor experiencia
-     */
-    private static void procesarSiguientePartida() {
-        synchronized (ServidorTrivia.class) {
-            try {
-                // Limpiar clientes desconectados primero
-                int clientesAntes = colaClientes.size();
-                colaClientes.removeIf(j -> !j.esValido());
-                int clientesDespues = colaClientes.size();
-
-                if (clientesAntes != clientesDespues) {
-                    System.out.println("🧹 Limpieza: " + (clientesAntes - clientesDespues) + " clientes desconectados eliminados");
-                }
-
-                if (colaClientes.isEmpty()) {
-                    return;
-                }
+        /**
+         * Procesa la selección de categoría y modo de juego
+         * También maneja comandos especiales como estadísticas y puntuación
+         */
+        private void procesarSeleccion(String respuesta) {
+            if ("cancelar".equalsIgnoreCase(respuesta)) {
+                cancelarConexion();
+                return;
+            }
 
-                System.out.println("🔍 Procesando cola: " + colaClientes.size() + " jugadores");
+            // Procesar comandos especiales del cliente
+            if ("estadisticas".equalsIgnoreCase(respuesta)) {
+                String stats = JugadorDAO.obtenerEstadisticas(nombre);
+                conexion.enviar(Mensaje.de(TipoMensaje.ESTADISTICAS, stats.replace("\n", "|")));
+                enviarCategorias();
+                return;
+            }
 
-                // Prioridad 1: Jugadores individuales (inicio inmediato)
-                JugadorPendiente jugadorSolo = encontrarJugadorSolo();
-                if (jugadorSolo != null) {
-                    iniciarPartidaSolo(jugadorSolo);
-                    return;
-                }
+            // "ranking" para la clasificación global o "ranking:categoria" para una categoría
+            if (respuesta.toLowerCase().startsWith("ranking")) {
+                String categoria = respuesta.length() > 8 ? respuesta.substring(8).toLowerCase().trim() : Clasificacion.GLOBAL;
+                conexion.enviar(Mensaje.de(TipoMensaje.RANKING, Clasificacion.obtenerTexto(categoria).replace("\n", "|")));
+                enviarCategorias();
+                return;
+            }
 
-                // Prioridad 2: Parejas multijugador
-                JugadorPendiente[] pareja = encontrarParejaMultijugador();
-                if (pareja != null) {
-                    iniciarPartidaMultijugador(pareja[0], pareja[1]);
-                }
+            // "historial" para la primera página o "historial:cursor" para la siguiente
+            if (respuesta.toLowerCase().startsWith("historial")) {
+                enviarHistorial(respuesta.length() > 10 ? respuesta.substring(10).trim() : null);
+                enviarCategorias();
+                return;
+            }
 
-            } catch (Exception e) {
-                System.out.println("❌ Error procesando partidas: " + e.getMessage());
-                e.printStackTrace();
+            if ("puntuacion".equalsIgnoreCase(respuesta)) {
+                int puntos = JugadorDAO.obtenerPuntuacion(nombre);
+                conexion.enviar(Mensaje.de(TipoMensaje.PUNTUACION_TOTAL, puntos));
+                enviarCategorias();
+                return;
             }
-        }
-    }
 
-    /**
-     * Busca un jugador que quiera jugar en modo individual
-     * @return Jugador encontrado o null si no hay ninguno
-     */
-    private static JugadorPendiente encontrarJugadorSolo() {
-        for (JugadorPendiente jugador : colaClientes) {
-            System.out.println("🔍 Revisando jugador: " + jugador.nombre +
-                    " (modo: " + jugador.modo + ", válido: " + jugador.esValido() + ")");
-            if ("solo".equals(jugador.modo) && jugador.esValido()) {
-                colaClientes.remove(jugador);
-                System.out.println("✅ Jugador solo encontrado: " + jugador.nombre);
-                return jugador;
+            // Interpretar selección en formato: "categoria:modo" (ej: "musica:solo")
+            // Se compara en el sitio con las categorías y modos conocidos, sin partir la línea
+            lector.reiniciar(respuesta, ':');
+            if (lector.restantes() != 2) {
+                conexion.enviar(Mensaje.de(TipoMensaje.SELECCION_INVALIDA, "categoria:modo"));
+                enviarCategorias();
+                return;
             }
-        }
-        System.out.println("❌ No se encontró ningún jugador solo válido");
-        return null;
-    }
 
-    /**
-     * Busca una pareja compatible para partida multijugador
-     * Prioriza emparejar por misma categoría, luego por tiempo de espera
-     * @return Array con dos jugadores emparejados o null si no es posible
-     */
-    private static JugadorPendiente[] encontrarParejaMultijugador() {
-        List<JugadorPendiente> esperando = new ArrayList<>();
+            // Validar categoría seleccionada
+            lector.siguiente();
+            String categoria = buscarCampo(CATEGORIAS_DISPONIBLES);
+            if (categoria == null) {
+                conexion.enviar(Mensaje.de(TipoMensaje.CATEGORIA_INVALIDA, lector.texto(0).toLowerCase()));
+                enviarCategorias();
+                return;
+            }
 
-        // Recopilar todos los jugadores esperando multijugador
-        for (JugadorPendiente jugador : colaClientes) {
-            if ("esperar".equals(jugador.modo) && jugador.esValido()) {
-                esperando.add(jugador);
+            // Validar modo de juego
+            lector.siguiente();
+            String modo = buscarCampo(MODOS_JUEGO);
+            if (modo == null) {
+                conexion.enviar(Mensaje.de(TipoMensaje.MODO_INVALIDO, lector.texto(0).toLowerCase()));
+                enviarCategorias();
+                return;
             }
-        }
 
-        System.out.println("👥 Jugadores esperando multijugador: " + esperando.size());
+            System.out.println("🎯 " + nombre + " eligió: " + categoria + " (" + modo + ")");
 
-        if (esperando.size() < 2) {
-            return null;
-        }
-
-        // Intentar emparejar por misma categoría primero
-        for (int i = 0; i < esperando.size(); i++) {
-            for (int j = i + 1; j < esperando.size(); j++) {
-                JugadorPendiente j1 = esperando.get(i);
-                JugadorPendiente j2 = esperando.get(j);
-
-                if (j1.categoria.equals(j2.categoria)) {
-                    colaClientes.remove(j1);
-                    colaClientes.remove(j2);
-                    System.out.println("✅ Pareja encontrada (misma categoría): " + j1.nombre + " + " + j2.nombre + " (" + j1.categoria + ")");
-                    return new JugadorPendiente[]{j1, j2};
-                }
+            // Crear jugador pendiente y añadir a la cola de espera (o al próximo concurso en directo)
+            // La conexión se mantiene abierta y se cerrará cuando termine la partida
+            jugador = new JugadorPendiente(conexion, nombre, categoria, modo);
+            estado = EstadoLobby.EN_COLA;
+            if ("directo".equals(modo)) {
+                concursos.apuntar(jugador);
+            } else {
+                emparejador.encolar(jugador);
             }
         }
 
-        // Si no hay coincidencia de categoría, emparejar cualquier dos si han esperado suficiente tiempo
-        long tiempoLimite = 10000; // 10 segundos
-        for (int i = 0; i < esperando.size(); i++) {
-            for (int j = i + 1; j < esperando.size(); j++) {
-                JugadorPendiente j1 = esperando.get(i);
-                JugadorPendiente j2 = esperando.get(j);
-
-                if (j1.tiempoEsperando() > tiempoLimite || j2.tiempoEsperando() > tiempoLimite) {
-                    colaClientes.remove(j1);
-                    colaClientes.remove(j2);
-                    // Usar la categoría del jugador que más tiempo ha esperado
-                    String categoriaFinal = j1.tiempoEsperando() > j2.tiempoEsperando() ? j1.categoria : j2.categoria;
-                    j1.categoria = categoriaFinal;
-                    j2.categoria = categoriaFinal;
-                    System.out.println("✅ Pareja encontrada (tiempo límite): " + j1.nombre + " + " + j2.nombre + " (" + categoriaFinal + ")");
-                    return new JugadorPendiente[]{j1, j2};
+        /**
+         * Busca el campo actual del lector (sin espacios ni distinción de mayúsculas) entre unos valores
+         * @return El valor coincidente, o null si no hay ninguno
+         */
+        private String buscarCampo(List<String> valores) {
+            lector.recortar();
+            for (String valor : valores) {
+                if (lector.esIgual(valor, true)) {
+                    return valor;
                 }
             }
+            return null;
         }
 
-        System.out.println("❌ No se pudo formar pareja multijugador");
-        return null;
-    }
-
-    /**
-     * Inicia una partida individual para un jugador
-     * @param jugador El jugador que participará en modo individual
-     */
-    private static void iniciarPartidaSolo(JugadorPendiente jugador) {
-        partidaEnCurso = true;
-        System.out.println("🎮 Iniciando partida individual: " + jugador.nombre + " (" + jugador.categoria + ")");
-
-        // Notificar al cliente que se encontró la partida
-        jugador.out.println("PARTIDA_ENCONTRADA;TIPO:SOLO;CATEGORIA:" + jugador.categoria);
-
-        // Pausa para que el cliente procese el mensaje
-        try {
-            Thread.sleep(500);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
-        // Ejecutar partida en hilo separado
-        new Thread(() -> {
+        /**
+         * Envía una página del historial del jugador
+         * Formato: HISTORIAL;cursor siguiente o FIN;líneas separadas por |
+         */
+        private void enviarHistorial(String cursor) {
+            PaginaHistorial pagina;
             try {
-                new PartidaTrivia(jugador.socket, null, jugador.nombre, null, jugador.categoria).run();
-            } catch (Exception e) {
-                System.out.println("❌ Error en partida individual: " + e.getMessage());
-                e.printStackTrace();
-            } finally {
-                partidaEnCurso = false;
-                System.out.println("✅ Partida individual finalizada");
+                pagina = JugadorPartidaDAO.obtenerPaginaHistorial(nombre, cursor, PARTIDAS_POR_PAGINA);
+            } catch (IllegalArgumentException e) {
+                conexion.enviar(Mensaje.de(TipoMensaje.HISTORIAL_INVALIDO, cursor));
+                return;
             }
-        }).start();
-    }
-
-    /**
-     * Inicia una partida multijugador entre dos jugadores
-     * @param j1 Primer jugador
-     * @param j2 Segundo jugador
-     */
-    private static void iniciarPartidaMultijugador(JugadorPendiente j1, JugadorPendiente j2) {
-        partidaEnCurso = true;
-        System.out.println("🆚 Iniciando partida multijugador: " + j1.nombre + " vs " + j2.nombre +
-                " (" + j1.categoria + ")");
-
-        // Notificar a ambos clientes sobre la partida encontrada
-        j1.out.println("PARTIDA_ENCONTRADA;TIPO:MULTIJUGADOR;OPONENTE:" + j2.nombre + ";CATEGORIA:" + j1.categoria);
-        j2.out.println("PARTIDA_ENCONTRADA;TIPO:MULTIJUGADOR;OPONENTE:" + j1.nombre + ";CATEGORIA:" + j1.categoria);
 
-        // Pausa para que ambos clientes procesen el mensaje
-        try {
-            Thread.sleep(500);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            StringBuilder texto = new StringBuilder("📋 Historial de " + nombre + ":");
+            if (pagina.getEntradas().isEmpty()) {
+                texto.append("|Sin partidas");
+            }
+            for (EntradaHistorial entrada : pagina.getEntradas()) {
+                texto.append("|").append(entrada.aTexto());
+            }
+            String siguiente = pagina.getSiguiente() != null ? pagina.getSiguiente() : "FIN";
+            conexion.enviar(Mensaje.de(TipoMensaje.HISTORIAL, siguiente, texto.toString()));
         }
 
-        // Ejecutar partida multijugador en hilo separado
-        new Thread(() -> {
-            try {
-                new PartidaTrivia(j1.socket, j2.socket, j1.nombre, j2.nombre, j1.categoria).run();
-            } catch (Exception e) {
-                System.out.println("❌ Error en partida multijugador: " + e.getMessage());
-                e.printStackTrace();
-            } finally {
-                partidaEnCurso = false;
-                System.out.println("✅ Partida multijugador finalizada");
+        /**
+         * Atiende los mensajes recibidos mientras el jugador espera partida
+         */
+        private void procesarMensajeEnCola(String linea) {
+            if ("cancelar".equalsIgnoreCase(linea)) {
+                System.out.println("❌ " + jugador.nombre + " canceló su espera");
+                emparejador.cancelar(jugador);
+                cancelarConexion();
             }
-        }).start();
+        }
+
+        /**
+         * Notifica la cancelación al cliente y cierra su conexión
+         */
+        private void cancelarConexion() {
+            conexion.enviar(Mensaje.de(TipoMensaje.CONEXION_CANCELADA));
+            System.out.println("🔌 Cerrando conexión del cliente");
+            conexion.cerrar();
+        }
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,8 @@ package com.liceolapaz.acc.entidades;
 
 import jakarta.persistence.*;
 
+import java.time.LocalDateTime;
+
 /**
  * Entidad que representa la participación de un jugador en una partida específica
  * Tabla de unión que almacena el rendimiento y estadísticas del jugador en cada partida
@@ -51,6 +53,10 @@ public class JugadorPartida {
     @Column(name = "ganador")
     private boolean ganador = false;
 
+    // Fecha de la partida, copiada aquí para que el historial de un jugador se lea en orden desde su índice
+    @Column(name = "fecha_partida", nullable = false)
+    private LocalDateTime fechaPartida;
+
     /**
      * Constructor por defecto requerido por JPA
      */
@@ -314,4 +320,24 @@ public class JugadorPartida {
                 ", ganador=" + ganador +
                 '}';
     }
-}
\ No newline at end of file
+
+    /**
+     * Obtiene la fecha de la partida (copia de Partida.fechaHora)
+     * @return Fecha y hora de la partida
+     */
+    public LocalDateTime getFechaPartida() {
+        return fechaPartida;
+    }
+
+    /**
+     * Callback de JPA que se ejecuta antes de persistir la entidad
+     * Copia la fecha de la partida, que ya se ha persistido antes que sus participaciones
+     */
+    @PrePersist
+    protected void onCreate() {
+        if (fechaPartida == null) {
+            LocalDateTime fecha = partida != null ? partida.getFechaHora() : null;
+            fechaPartida = fecha != null ? fecha : LocalDateTime.now();
+        }
+    }
+}
@@ -30,7 +30,7 @@ public class Partida {
     @Column(name = "completada", nullable = false)
     private boolean completada;
 
-    // Tipo de partida (SOLO o MULTIJUGADOR) - obligatorio, máximo 20 caracteres
+    // Tipo de partida (SOLO, MULTIJUGADOR o DIRECTO) - obligatorio, máximo 20 caracteres
     @Column(name = "tipo_partida", nullable = false, length = 20)
     private String tipoPartida;
 
@@ -42,6 +42,10 @@ public class Partida {
     @Column(name = "duracion_segundos")
     private Long duracionSegundos;
 
+    // Código único del resultado que originó el registro - evita duplicados al reintentar guardados
+    @Column(name = "codigo_resultado", unique = true, length = 36)
+    private String codigoResultado;
+
     /**
      * Constructor por defecto requerido por JPA
      */
@@ -52,7 +56,7 @@ public class Partida {
      * Constructor completo con todos los parámetros principales
      * @param categoria Categoría de las preguntas
      * @param completada Estado inicial de la partida
-     * @param tipoPartida Tipo de partida (SOLO o MULTIJUGADOR)
+     * @param tipoPartida Tipo de partida (SOLO, MULTIJUGADOR o DIRECTO)
      */
     public Partida(String categoria, boolean completada, String tipoPartida) {
         this.categoria = categoria;
@@ -64,7 +68,7 @@ public class Partida {
     /**
      * Constructor para crear partida nueva (no completada)
      * @param categoria Categoría de las preguntas
-     * @param tipoPartida Tipo de partida (SOLO o MULTIJUGADOR)
+     * @param tipoPartida Tipo de partida (SOLO, MULTIJUGADOR o DIRECTO)
      */
     public Partida(String categoria, String tipoPartida) {
         this.categoria = categoria;
@@ -141,7 +145,7 @@ public class Partida {
 
     /**
      * Obtiene el tipo de partida
-     * @return Tipo de partida (SOLO o MULTIJUGADOR)
+     * @return Tipo de partida (SOLO, MULTIJUGADOR o DIRECTO)
      */
     public String getTipoPartida() {
         return tipoPartida;
@@ -149,7 +153,7 @@ public class Partida {
 
     /**
      * Establece el tipo de partida
-     * @param tipoPartida Tipo de partida (SOLO o MULTIJUGADOR)
+     * @param tipoPartida Tipo de partida (SOLO, MULTIJUGADOR o DIRECTO)
      */
     public void setTipoPartida(String tipoPartida) {
         this.tipoPartida = tipoPartida;
@@ -187,6 +191,22 @@ public class Partida {
         this.duracionSegundos = duracionSegundos;
     }
 
+    /**
+     * Obtiene el código único del resultado que originó la partida
+     * @return Código del resultado o null si la partida se registró directamente
+     */
+    public String getCodigoResultado() {
+        return codigoResultado;
+    }
+
+    /**
+     * Establece el código único del resultado que originó la partida
+     * @param codigoResultado Código del resultado
+     */
+    public void setCodigoResultado(String codigoResultado) {
+        this.codigoResultado = codigoResultado;
+    }
+
     // Métodos de utilidad
 
     /**
@@ -1,6 +1,8 @@
 package com.liceolapaz.acc.entidades;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Entidad que representa una pregunta de trivia en el sistema
@@ -9,6 +11,8 @@ import jakarta.persistence.*;
  */
 @Entity
 @Table(name = "pregunta")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "preguntas") // Las preguntas no se modifican una vez cargadas
 public class Pregunta {
 
     // ID único generado automáticamente por la base de datos
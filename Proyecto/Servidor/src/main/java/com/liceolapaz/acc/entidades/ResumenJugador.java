@@ -0,0 +1,166 @@
+package com.liceolapaz.acc.entidades;
+
+import jakarta.persistence.*;
+
+/**
+ * Entidad con los totales acumulados de un jugador en una categoría
+ * Se actualiza en la misma transacción que guarda cada partida, de modo que las estadísticas
+ * de rendimiento se leen sin recorrer el historial de jugador_partida
+ * Mapea a la tabla 'resumen_jugador' en la base de datos
+ */
+@Entity
+@Table(name = "resumen_jugador",
+        uniqueConstraints = @UniqueConstraint(name = "uk_resumen_jugador_categoria", columnNames = {"jugador_id", "categoria"}))
+public class ResumenJugador {
+
+    // ID único generado automáticamente por la base de datos
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private int id;
+
+    // Jugador al que pertenece el resumen (carga perezosa para optimización)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "jugador_id", nullable = false)
+    private Jugador jugador;
+
+    // Categoría de las partidas resumidas - obligatorio, máximo 50 caracteres
+    @Column(name = "categoria", nullable = false, length = 50)
+    private String categoria;
+
+    // Número de partidas jugadas en la categoría
+    @Column(name = "partidas", nullable = false)
+    private int partidas = 0;
+
+    // Número de partidas ganadas en la categoría
+    @Column(name = "victorias", nullable = false)
+    private int victorias = 0;
+
+    // Suma de respuestas correctas de todas las partidas (para calcular el promedio)
+    @Column(name = "aciertos_totales", nullable = false)
+    private long aciertosTotales = 0;
+
+    // Mejor puntuación obtenida en una sola partida de la categoría
+    @Column(name = "mejor_puntuacion", nullable = false)
+    private int mejorPuntuacion = 0;
+
+    /**
+     * Constructor por defecto requerido por JPA
+     */
+    public ResumenJugador() {
+    }
+
+    // Getters y Setters
+
+    /**
+     * Obtiene el ID único del resumen
+     * @return ID del resumen
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Obtiene el jugador al que pertenece el resumen
+     * @return Jugador asociado
+     */
+    public Jugador getJugador() {
+        return jugador;
+    }
+
+    /**
+     * Establece el jugador al que pertenece el resumen
+     * @param jugador Jugador asociado
+     */
+    public void setJugador(Jugador jugador) {
+        this.jugador = jugador;
+    }
+
+    /**
+     * Obtiene la categoría resumida
+     * @return Categoría de las partidas
+     */
+    public String getCategoria() {
+        return categoria;
+    }
+
+    /**
+     * Establece la categoría resumida
+     * @param categoria Categoría de las partidas
+     */
+    public void setCategoria(String categoria) {
+        this.categoria = categoria;
+    }
+
+    /**
+     * Obtiene el número de partidas jugadas en la categoría
+     * @return Partidas jugadas
+     */
+    public int getPartidas() {
+        return partidas;
+    }
+
+    /**
+     * Establece el número de partidas jugadas en la categoría
+     * @param partidas Partidas jugadas
+     */
+    public void setPartidas(int partidas) {
+        this.partidas = partidas;
+    }
+
+    /**
+     * Obtiene el número de partidas ganadas en la categoría
+     * @return Partidas ganadas
+     */
+    public int getVictorias() {
+        return victorias;
+    }
+
+    /**
+     * Establece el número de partidas ganadas en la categoría
+     * @param victorias Partidas ganadas
+     */
+    public void setVictorias(int victorias) {
+        this.victorias = victorias;
+    }
+
+    /**
+     * Obtiene la suma de respuestas correctas de todas las partidas
+     * @return Total de aciertos
+     */
+    public long getAciertosTotales() {
+        return aciertosTotales;
+    }
+
+    /**
+     * Establece la suma de respuestas correctas de todas las partidas
+     * @param aciertosTotales Total de aciertos
+     */
+    public void setAciertosTotales(long aciertosTotales) {
+        this.aciertosTotales = aciertosTotales;
+    }
+
+    /**
+     * Obtiene la mejor puntuación obtenida en una partida
+     * @return Mejor puntuación
+     */
+    public int getMejorPuntuacion() {
+        return mejorPuntuacion;
+    }
+
+    /**
+     * Establece la mejor puntuación obtenida en una partida
+     * @param mejorPuntuacion Mejor puntuación
+     */
+    public void setMejorPuntuacion(int mejorPuntuacion) {
+        this.mejorPuntuacion = mejorPuntuacion;
+    }
+
+    /**
+     * Calcula el promedio de respuestas correctas por partida
+     * @return Promedio de aciertos (0 si no hay partidas)
+     */
+    public double getPromedioAciertos() {
+        return partidas == 0 ? 0.0 : (double) aciertosTotales / partidas;
+    }
+}
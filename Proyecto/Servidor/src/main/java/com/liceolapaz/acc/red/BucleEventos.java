@@ -0,0 +1,168 @@
+package com.liceolapaz.acc.red;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Bucle de eventos basado en java.nio.channels.Selector
+ * Un único hilo atiende la lectura y escritura de miles de conexiones inactivas o en partida,
+ * entregando las líneas completas a su ReceptorLineas correspondiente
+ */
+public class BucleEventos implements Runnable {
+
+    // Tamaño del búfer de lectura compartido por todas las conexiones del bucle
+    private static final int TAMANO_BUFER_LECTURA = 64 * 1024;
+
+    private final Selector selector; // Selector que multiplexa las conexiones
+    private final Queue<ConexionCliente> registrosPendientes = new ConcurrentLinkedQueue<>(); // Altas desde otros hilos
+    private final Queue<Runnable> tareas = new ConcurrentLinkedQueue<>(); // Trabajo encargado desde otros hilos
+    private final ByteBuffer buferLectura = ByteBuffer.allocate(TAMANO_BUFER_LECTURA);
+    private final Thread hilo; // Hilo dedicado del bucle
+    private volatile boolean activo = true;
+
+    /**
+     * Constructor del bucle de eventos
+     * @param nombre Nombre del hilo (para diagnóstico)
+     * @throws IOException Si no se puede abrir el selector
+     */
+    public BucleEventos(String nombre) throws IOException {
+        this.selector = Selector.open();
+        this.hilo = new Thread(this, nombre);
+        this.hilo.setDaemon(true);
+    }
+
+    /**
+     * Arranca el hilo del bucle
+     */
+    public void iniciar() {
+        hilo.start();
+    }
+
+    /**
+     * Registra una conexión nueva en este bucle
+     * Puede llamarse desde cualquier hilo; el alta efectiva se hace en el hilo del selector
+     * @param conexion Conexión a registrar
+     */
+    public void registrar(ConexionCliente conexion) {
+        registrosPendientes.add(conexion);
+        selector.wakeup();
+    }
+
+    /**
+     * Encarga una tarea al hilo del bucle, que la ejecuta sin ningún bloqueo de conexión tomado
+     * Sirve para avisar a los receptores desde código que no puede llamarlos directamente
+     * @param tarea Tarea a ejecutar
+     */
+    void ejecutar(Runnable tarea) {
+        tareas.add(tarea);
+        selector.wakeup();
+    }
+
+    /**
+     * Activa el interés de escritura de una conexión con datos pendientes
+     * @param conexion Conexión con datos en cola
+     */
+    void solicitarEscritura(ConexionCliente conexion) {
+        SelectionKey clave = conexion.getClave();
+        if (clave == null) {
+            return; // Aún no registrada: se activará OP_WRITE al registrarla
+        }
+        if (clave.isValid()) {
+            clave.interestOps(clave.interestOps() | SelectionKey.OP_WRITE);
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Bucle principal: espera eventos de E/S y los despacha a las conexiones
+     */
+    @Override
+    public void run() {
+        System.out.println("🔄 Bucle de eventos " + hilo.getName() + " iniciado");
+        while (activo) {
+            try {
+                selector.select();
+                procesarRegistros();
+                procesarTareas();
+
+                Iterator<SelectionKey> claves = selector.selectedKeys().iterator();
+                while (claves.hasNext()) {
+                    SelectionKey clave = claves.next();
+                    claves.remove();
+
+                    ConexionCliente conexion = (ConexionCliente) clave.attachment();
+                    try {
+                        if (clave.isValid() && clave.isReadable()) {
+                            conexion.alLeer(buferLectura);
+                        }
+                        if (clave.isValid() && clave.isWritable()) {
+                            conexion.alEscribir();
+                        }
+                    } catch (Exception e) {
+                        // Un fallo en el receptor de una conexión no debe detener el bucle
+                        System.out.println("❌ Error atendiendo " + conexion.getDireccion() + ": " + e.getMessage());
+                        e.printStackTrace();
+                        conexion.cerrar();
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("❌ Error en el bucle de eventos: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Da de alta en el selector las conexiones recibidas desde otros hilos
+     */
+    private void procesarRegistros() {
+        ConexionCliente conexion;
+        while ((conexion = registrosPendientes.poll()) != null) {
+            // Una conexión cerrándose con datos en cola también se registra, para poder vaciarla
+            if (!conexion.getCanal().isOpen()) continue;
+            try {
+                SelectionKey clave = conexion.getCanal().register(selector, SelectionKey.OP_READ, conexion);
+                conexion.setClave(clave);
+                // Datos encolados antes de tener clave: activar la escritura ahora
+                if (conexion.tienePendientes()) {
+                    clave.interestOps(clave.interestOps() | SelectionKey.OP_WRITE);
+                }
+            } catch (ClosedChannelException e) {
+                conexion.cerrar();
+            }
+        }
+    }
+
+    /**
+     * Ejecuta las tareas encargadas desde otros hilos
+     */
+    private void procesarTareas() {
+        Runnable tarea;
+        while ((tarea = tareas.poll()) != null) {
+            try {
+                tarea.run();
+            } catch (Exception e) {
+                // Igual que con los eventos: un receptor que falla no debe detener el bucle
+                System.out.println("❌ Error en una tarea del bucle de eventos: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Detiene el bucle y cierra el selector
+     */
+    public void detener() {
+        activo = false;
+        selector.wakeup();
+        try {
+            selector.close();
+        } catch (IOException ignored) {}
+    }
+}
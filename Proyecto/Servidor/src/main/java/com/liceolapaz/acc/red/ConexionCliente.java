@@ -0,0 +1,706 @@
+package com.liceolapaz.acc.red;
+
+import com.liceolapaz.protocolo.CodecBinario;
+import com.liceolapaz.protocolo.CodecTexto;
+import com.liceolapaz.protocolo.Mensaje;
+import com.liceolapaz.protocolo.Protocolo;
+import com.liceolapaz.protocolo.ReservaBuferes;
+import com.liceolapaz.protocolo.TramaDifundida;
+import com.liceolapaz.protocolo.TramaPregunta;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Conexión TCP no bloqueante con un cliente de trivia
+ * Separa el flujo de bytes en líneas del protocolo de texto (terminadas en '\n'), o en tramas
+ * si el cliente negoció el protocolo binario, y mantiene una cola de salida para los datos
+ * que el socket no pudo aceptar de inmediato
+ * Los mensajes enviados entre abrirLote() y cerrarLote() se acumulan y salen en una sola escritura
+ * Al cerrar se deja de leer, pero la cola de salida se termina de escribir antes de soltar el socket
+ * No reserva memoria de lectura propia: solo guarda el fragmento de línea incompleto, si lo hay
+ */
+public class ConexionCliente {
+
+    // Longitud máxima de una línea del protocolo; una línea mayor se considera abuso y cierra la conexión
+    private static final int LONGITUD_MAXIMA_LINEA = 16 * 1024;
+    // Si se acepta que los clientes pasen al protocolo binario (propiedad "trivia.protocoloBinario")
+    private static final boolean BINARIO_PERMITIDO =
+            Boolean.parseBoolean(System.getProperty("trivia.protocoloBinario", "true"));
+
+    // Tiempo máximo que un cierre ordenado espera a que el cliente acepte la cola de salida
+    private static final long ESPERA_CIERRE = Long.getLong("trivia.esperaCierreMs", 5000);
+    // Hilo que corta los cierres ordenados que no terminan a tiempo (clientes que no leen)
+    private static final ScheduledExecutorService CIERRES = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cierre-conexiones");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Métricas globales de salida: mensajes enviados y escrituras en sockets que han necesitado
+    private static final AtomicLong mensajesEnviados = new AtomicLong();
+    private static final AtomicLong escrituras = new AtomicLong();
+
+    private final SocketChannel canal; // Canal TCP en modo no bloqueante
+    private final BucleEventos bucle; // Bucle de eventos que atiende esta conexión
+    private final String direccion; // Dirección remota para logging
+    private volatile SelectionKey clave; // Clave de registro en el selector (null hasta registrarse)
+    private volatile ReceptorLineas receptor; // Destinatario actual de las líneas recibidas
+    private volatile boolean binario = false; // Si la conexión ya usa el protocolo binario en ambos sentidos
+    private volatile boolean confirmaListo = false; // Si el cliente anunció que envía confirmaciones LISTO
+
+    // Fragmento de la línea en curso cuando un paquete no termina en salto de línea
+    private byte[] parcial;
+    private int longitudParcial = 0;
+
+    // Datos pendientes de escribir cuando el socket no acepta más bytes
+    private final Deque<ByteBuffer> pendientes = new ArrayDeque<>();
+    private final AtomicBoolean cerrada = new AtomicBoolean(false);
+
+    // Lote de salida en curso (protegido por el bloqueo de pendientes)
+    private ByteBuffer lote; // Mensajes ya codificados a la espera de cerrarLote(); null si está vacío
+    private int lotesAbiertos = 0; // Profundidad de abrirLote() anidados
+    private final ByteBuffer[] cabeceraYCuerpo = new ByteBuffer[2]; // Escritura agrupada de tramas precodificadas
+
+    /**
+     * Constructor de la conexión
+     * @param canal Canal ya configurado en modo no bloqueante
+     * @param bucle Bucle de eventos al que se registrará la conexión
+     */
+    public ConexionCliente(SocketChannel canal, BucleEventos bucle) {
+        this.canal = canal;
+        this.bucle = bucle;
+        String remota;
+        try {
+            remota = String.valueOf(canal.getRemoteAddress());
+        } catch (IOException e) {
+            remota = "desconocida";
+        }
+        this.direccion = remota;
+    }
+
+    /**
+     * Cambia el receptor de líneas (por ejemplo, del lobby a la partida)
+     * Si la conexión ya estaba cerrada, el nuevo receptor recibe la desconexión inmediatamente
+     * @param receptor Nuevo receptor de eventos
+     */
+    public void setReceptor(ReceptorLineas receptor) {
+        this.receptor = receptor;
+        if (cerrada.get() && receptor != null) {
+            receptor.desconectado(this);
+        }
+    }
+
+    /**
+     * Envía una línea del protocolo al cliente
+     * Puede llamarse desde cualquier hilo; nunca bloquea
+     * @param linea Mensaje sin salto de línea final
+     */
+    public void enviar(String linea) {
+        enviar(Mensaje.linea(linea));
+    }
+
+    /**
+     * Envía un mensaje estructurado en el protocolo de la conexión
+     * En binario viaja como trama con sus campos; en texto, como la línea equivalente
+     * Se codifica directamente en un búfer de la reserva, que se devuelve en cuanto el socket lo acepta;
+     * si hay un lote abierto, se añade al lote y no se escribe hasta cerrarlo
+     * @param mensaje Mensaje a enviar
+     */
+    public void enviar(Mensaje mensaje) {
+        synchronized (pendientes) {
+            if (lotesAbiertos > 0) {
+                anadirAlLote(mensaje);
+                return;
+            }
+
+            // El protocolo se decide y se escribe con el cerrojo: así nada codificado en texto
+            // puede quedar detrás de la línea de aceptación del binario
+            mensajesEnviados.incrementAndGet();
+            boolean enBinario = binario;
+            ByteBuffer bufer = ReservaBuferes.obtener(
+                    enBinario ? CodecBinario.longitud(mensaje) : CodecTexto.longitud(mensaje));
+            if (enBinario) {
+                CodecBinario.codificar(mensaje, bufer);
+            } else {
+                CodecTexto.codificar(mensaje, bufer);
+            }
+            bufer.flip();
+            escribir(bufer, true);
+            ReservaBuferes.devolver(bufer);
+        }
+    }
+
+    /**
+     * Envía una pregunta precodificada con su número y el total de la partida
+     * Solo se codifica la cabecera; el cuerpo es una vista de los bytes compartidos de la pregunta,
+     * que se escribe sin copiarlo (o se copia al lote si hay uno abierto)
+     * @param trama Pregunta precodificada
+     * @param numero Número de la pregunta en la partida
+     * @param total Total de preguntas de la partida
+     */
+    public void enviar(TramaPregunta trama, int numero, int total) {
+        synchronized (pendientes) {
+            boolean enBinario = binario;
+            if (lotesAbiertos > 0) {
+                ByteBuffer destino = reservarLote(trama.longitud(enBinario, numero, total));
+                if (destino != null) {
+                    trama.codificar(enBinario, numero, total, destino);
+                    mensajesEnviados.incrementAndGet();
+                }
+                return;
+            }
+
+            mensajesEnviados.incrementAndGet();
+            ByteBuffer cabecera = ReservaBuferes.obtener(trama.longitudCabecera(enBinario, numero, total));
+            trama.codificarCabecera(enBinario, numero, total, cabecera);
+            cabecera.flip();
+            escribir(cabecera, trama.cuerpo(enBinario));
+            ReservaBuferes.devolver(cabecera);
+        }
+    }
+
+    /**
+     * Envía una trama ya codificada que se difunde a muchas conexiones
+     * No codifica nada: escribe una vista de los bytes compartidos (o los copia al lote si hay uno abierto)
+     * @param trama Mensajes precodificados en los dos protocolos
+     */
+    public void enviar(TramaDifundida trama) {
+        synchronized (pendientes) {
+            boolean enBinario = binario;
+            if (lotesAbiertos > 0) {
+                ByteBuffer destino = reservarLote(trama.longitud(enBinario));
+                if (destino != null) {
+                    destino.put(trama.cuerpo(enBinario));
+                    mensajesEnviados.addAndGet(trama.getMensajes());
+                }
+                return;
+            }
+
+            mensajesEnviados.addAndGet(trama.getMensajes());
+            escribir(trama.cuerpo(enBinario), false);
+        }
+    }
+
+    /**
+     * Escribe una cabecera prestada y un cuerpo compartido con una sola escritura agrupada
+     * Lo que no quepa queda en cola: la cabecera copiada (vuelve a la reserva) y el cuerpo tal cual,
+     * porque es una vista propia de bytes que nunca cambian
+     */
+    private void escribir(ByteBuffer cabecera, ByteBuffer cuerpo) {
+        synchronized (pendientes) {
+            if (cerrada.get()) return;
+
+            if (pendientes.isEmpty()) {
+                cabeceraYCuerpo[0] = cabecera;
+                cabeceraYCuerpo[1] = cuerpo;
+                try {
+                    escrituras.incrementAndGet();
+                    canal.write(cabeceraYCuerpo);
+                } catch (IOException e) {
+                    fallarEscritura(e);
+                    return;
+                } finally {
+                    cabeceraYCuerpo[0] = null;
+                    cabeceraYCuerpo[1] = null;
+                }
+            }
+
+            if (cabecera.hasRemaining()) {
+                escribir(cabecera, true);
+            }
+            if (cuerpo.hasRemaining()) {
+                pendientes.addLast(cuerpo);
+                bucle.solicitarEscritura(this);
+            }
+        }
+    }
+
+    /**
+     * Abre un lote de salida: los mensajes enviados hasta el cerrarLote() correspondiente
+     * se acumulan en un único búfer y llegan al socket con una sola escritura
+     * Los lotes pueden anidarse; solo el cierre más externo escribe
+     */
+    public void abrirLote() {
+        synchronized (pendientes) {
+            lotesAbiertos++;
+        }
+    }
+
+    /**
+     * Cierra el lote abierto con abrirLote() y, si es el más externo, escribe todo lo acumulado
+     */
+    public void cerrarLote() {
+        synchronized (pendientes) {
+            if (lotesAbiertos == 0) return;
+            if (--lotesAbiertos == 0) {
+                volcarLote();
+            }
+        }
+    }
+
+    /**
+     * Codifica un mensaje al final del lote en curso
+     * Debe llamarse con el bloqueo de pendientes
+     */
+    private void anadirAlLote(Mensaje mensaje) {
+        boolean enBinario = binario;
+        ByteBuffer destino = reservarLote(enBinario ? CodecBinario.longitud(mensaje) : CodecTexto.longitud(mensaje));
+        if (destino == null) return;
+
+        if (enBinario) {
+            CodecBinario.codificar(mensaje, destino);
+        } else {
+            CodecTexto.codificar(mensaje, destino);
+        }
+        mensajesEnviados.incrementAndGet();
+    }
+
+    /**
+     * Garantiza sitio en el lote en curso para los bytes indicados, ampliándolo si no caben
+     * Debe llamarse con el bloqueo de pendientes
+     * @return Búfer del lote, o null si la conexión ya está cerrada
+     */
+    private ByteBuffer reservarLote(int longitud) {
+        if (cerrada.get()) return null;
+
+        if (lote == null) {
+            lote = ReservaBuferes.obtener(longitud);
+        } else if (lote.remaining() < longitud) {
+            ByteBuffer mayor = ByteBuffer.allocate(Math.max(lote.capacity() * 2, lote.position() + longitud));
+            lote.flip();
+            mayor.put(lote);
+            ReservaBuferes.devolver(lote);
+            lote = mayor;
+        }
+        return lote;
+    }
+
+    /**
+     * Escribe lo acumulado en el lote en curso, si hay algo
+     * Debe llamarse con el bloqueo de pendientes
+     */
+    private void volcarLote() {
+        ByteBuffer datos = lote;
+        if (datos == null) return;
+        lote = null; // Antes de escribir: un error de E/S cierra la conexión y vuelve a pasar por aquí
+
+        datos.flip();
+        escribir(datos, true);
+        ReservaBuferes.devolver(datos);
+    }
+
+    /**
+     * Obtiene las métricas de salida de todas las conexiones
+     * @return Resumen con mensajes enviados, escrituras en sockets y mensajes por escritura
+     */
+    public static String obtenerResumen() {
+        long mensajes = mensajesEnviados.get();
+        long llamadas = escrituras.get();
+        return String.format("📦 Salida de red: %d mensajes en %d escrituras (%.2f mensajes por escritura)",
+                mensajes, llamadas, llamadas > 0 ? (double) mensajes / llamadas : 0.0);
+    }
+
+    /**
+     * Indica si el servidor ofrece el protocolo binario a los clientes nuevos
+     * @return true si está permitido por configuración
+     */
+    public static boolean admiteBinario() {
+        return BINARIO_PERMITIDO;
+    }
+
+    /**
+     * Indica si el cliente anunció en la negociación que confirma con LISTO lo que muestra
+     * @return true si las partidas de esta conexión pueden ir a ritmo de confirmaciones
+     */
+    public boolean confirmaListo() {
+        return confirmaListo;
+    }
+
+    /**
+     * Indica si la conexión ya negoció el protocolo binario
+     * @return true si los mensajes viajan como tramas
+     */
+    public boolean esBinaria() {
+        return binario;
+    }
+
+    /**
+     * Intenta escribir directamente en el socket; lo que no quepa queda en cola
+     * y se completa desde el bucle de eventos cuando el socket vuelva a ser escribible
+     * @param datos Bytes a escribir
+     * @param prestado Si el búfer es de la reserva: en ese caso lo que quede se copia a la cola,
+     *                 para que el llamante pueda devolverlo nada más volver
+     */
+    private void escribir(ByteBuffer datos, boolean prestado) {
+        synchronized (pendientes) {
+            if (cerrada.get()) return;
+
+            if (pendientes.isEmpty()) {
+                try {
+                    escrituras.incrementAndGet();
+                    canal.write(datos);
+                } catch (IOException e) {
+                    fallarEscritura(e);
+                    return;
+                }
+            }
+
+            if (datos.hasRemaining()) {
+                if (prestado) {
+                    ByteBuffer copia = ByteBuffer.allocate(datos.remaining());
+                    copia.put(datos).flip();
+                    datos = copia;
+                }
+                pendientes.addLast(datos);
+                bucle.solicitarEscritura(this);
+            }
+        }
+    }
+
+    /**
+     * Vacía la cola de salida; invocado por el bucle de eventos cuando el socket es escribible
+     */
+    void alEscribir() {
+        synchronized (pendientes) {
+            try {
+                while (!pendientes.isEmpty()) {
+                    ByteBuffer siguiente = pendientes.peekFirst();
+                    escrituras.incrementAndGet();
+                    canal.write(siguiente);
+                    if (siguiente.hasRemaining()) {
+                        return; // El socket sigue lleno, esperar al siguiente aviso
+                    }
+                    pendientes.pollFirst();
+                }
+                if (cerrada.get()) {
+                    cerrarCanal(); // Cierre ordenado: ya se ha entregado todo
+                    return;
+                }
+                SelectionKey k = clave;
+                if (k != null && k.isValid()) {
+                    k.interestOps(k.interestOps() & ~SelectionKey.OP_WRITE);
+                }
+            } catch (IOException e) {
+                fallarEscritura(e);
+            }
+        }
+    }
+
+    /**
+     * Lee los datos disponibles usando el búfer compartido del bucle y entrega las líneas completas
+     * @param bufer Búfer de lectura del bucle de eventos (se reutiliza entre conexiones)
+     */
+    void alLeer(ByteBuffer bufer) {
+        if (cerrada.get()) {
+            dejarDeLeer(); // Cerrando: solo queda vaciar la cola de salida
+            return;
+        }
+        try {
+            while (true) {
+                bufer.clear();
+                int leidos = canal.read(bufer);
+                if (leidos < 0) {
+                    cerrar();
+                    return;
+                }
+                if (leidos == 0) {
+                    return;
+                }
+                procesarBytes(bufer.array(), bufer.arrayOffset(), bufer.arrayOffset() + leidos);
+                if (cerrada.get() || bufer.position() < bufer.capacity()) {
+                    return; // Lectura parcial: no quedan más datos por ahora
+                }
+            }
+        } catch (IOException e) {
+            cerrarTrasError(e);
+        }
+    }
+
+    /**
+     * Divide los bytes recibidos en líneas y las entrega al receptor actual
+     * Si una de las líneas es la petición de protocolo binario, el resto de bytes se trata como tramas
+     */
+    private void procesarBytes(byte[] datos, int desde, int hasta) {
+        if (binario) {
+            procesarTramas(datos, desde, hasta);
+            return;
+        }
+
+        int inicio = desde;
+        for (int i = desde; i < hasta; i++) {
+            if (datos[i] != '\n') continue;
+
+            String linea;
+            if (longitudParcial > 0) {
+                acumular(datos, inicio, i);
+                linea = decodificar(parcial, 0, longitudParcial);
+                longitudParcial = 0;
+                if (parcial.length > 1024) {
+                    parcial = null; // No retener búferes grandes en conexiones inactivas
+                }
+            } else {
+                linea = decodificar(datos, inicio, i);
+            }
+            inicio = i + 1;
+
+            if (BINARIO_PERMITIDO && Protocolo.PETICION_BINARIO.equals(linea)) {
+                activarBinario();
+                procesarTramas(datos, inicio, hasta);
+                return;
+            }
+            if (Protocolo.ANUNCIO_LISTO.equals(linea)) {
+                confirmaListo = true; // Capacidad de la conexión: no llega al receptor
+                continue;
+            }
+
+            ReceptorLineas actual = receptor;
+            if (actual != null) {
+                actual.lineaRecibida(this, linea);
+            }
+            if (cerrada.get()) return;
+        }
+
+        if (inicio < hasta) {
+            acumular(datos, inicio, hasta);
+            if (longitudParcial > LONGITUD_MAXIMA_LINEA) {
+                System.out.println("⚠️ Línea demasiado larga desde " + direccion + ", cerrando conexión");
+                cerrar();
+            }
+        }
+    }
+
+    /**
+     * Confirma al cliente el cambio de protocolo y pasa la conexión a binario
+     * La confirmación es la última línea de texto: se escribe bajo el mismo bloqueo que la cola de salida
+     * para que ningún mensaje posterior pueda adelantarse en texto; un lote abierto, ya codificado
+     * en texto, sale antes que ella
+     */
+    private void activarBinario() {
+        byte[] aceptacion = (Protocolo.ACEPTACION_BINARIO + "\n").getBytes(StandardCharsets.UTF_8);
+        synchronized (pendientes) {
+            volcarLote();
+            escribir(ByteBuffer.wrap(aceptacion), false);
+            binario = true;
+        }
+        System.out.println("🔢 " + direccion + " usa el protocolo binario");
+    }
+
+    /**
+     * Separa los bytes recibidos en tramas binarias y entrega cada mensaje al receptor actual
+     * Las tramas incompletas se guardan en el mismo búfer que las líneas a medias
+     */
+    private void procesarTramas(byte[] datos, int desde, int hasta) {
+        boolean enParcial = longitudParcial > 0;
+        if (enParcial) {
+            acumular(datos, desde, hasta);
+            datos = parcial;
+            desde = 0;
+            hasta = longitudParcial;
+        }
+
+        int inicio = desde;
+        try {
+            while (inicio < hasta) {
+                int longitud = CodecBinario.longitudTrama(datos, inicio, hasta);
+                if (longitud < 0) break;
+
+                Mensaje mensaje = CodecBinario.decodificarTrama(datos, inicio, longitud);
+                inicio += longitud;
+
+                ReceptorLineas actual = receptor;
+                if (actual != null) {
+                    actual.mensajeRecibido(this, mensaje);
+                }
+                if (cerrada.get()) return;
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("⚠️ Trama no válida desde " + direccion + " (" + e.getMessage() + "), cerrando conexión");
+            cerrar();
+            return;
+        }
+
+        if (enParcial) {
+            longitudParcial = hasta - inicio;
+            System.arraycopy(parcial, inicio, parcial, 0, longitudParcial);
+            if (longitudParcial == 0 && parcial.length > 1024) {
+                parcial = null; // No retener búferes grandes en conexiones inactivas
+            }
+        } else if (inicio < hasta) {
+            acumular(datos, inicio, hasta);
+        }
+    }
+
+    /**
+     * Añade un fragmento al búfer de línea incompleta, ampliándolo si es necesario
+     */
+    private void acumular(byte[] datos, int desde, int hasta) {
+        int longitud = hasta - desde;
+        if (parcial == null) {
+            parcial = new byte[Math.max(128, longitud)];
+        } else if (longitudParcial + longitud > parcial.length) {
+            parcial = Arrays.copyOf(parcial, Math.max(parcial.length * 2, longitudParcial + longitud));
+        }
+        System.arraycopy(datos, desde, parcial, longitudParcial, longitud);
+        longitudParcial += longitud;
+    }
+
+    /**
+     * Decodifica una línea UTF-8 eliminando el retorno de carro final si existe
+     */
+    private static String decodificar(byte[] datos, int desde, int hasta) {
+        if (hasta > desde && datos[hasta - 1] == '\r') {
+            hasta--;
+        }
+        return new String(datos, desde, hasta - desde, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Cierra la conexión tras un error de E/S al leer (sin el bloqueo de pendientes)
+     */
+    private void cerrarTrasError(IOException e) {
+        if (!cerrada.get()) {
+            System.out.println("🔌 Error de E/S con " + direccion + ": " + e.getMessage());
+        }
+        cerrar();
+    }
+
+    /**
+     * Cierra la conexión tras un error de E/S al escribir
+     * Se llama con el bloqueo de pendientes, así que no puede avisar al receptor aquí: la partida avisada
+     * necesita su propio monitor, y otro hilo puede tenerlo mientras espera este bloqueo para enviar
+     * El aviso se encarga al bucle de eventos, que lo da sin ningún bloqueo tomado
+     */
+    private void fallarEscritura(IOException e) {
+        boolean primera = cerrada.compareAndSet(false, true); // Si no, falló el vaciado de un cierre ordenado
+        System.out.println("🔌 Error de E/S con " + direccion + ": " + e.getMessage());
+        cerrarCanal();
+        if (primera) {
+            bucle.ejecutar(this::avisarCierre);
+        }
+    }
+
+    /**
+     * Cierra la conexión de forma ordenada y notifica al receptor actual (una sola vez)
+     * Lo acumulado en un lote abierto se vuelca antes y, si el socket no lo acepta todo de inmediato,
+     * el bucle de eventos termina de escribir la cola antes de soltarlo, para no perder el último aviso
+     * (por ejemplo, el final de un lote con FIN_PARTIDA o PARTIDA_CANCELADA)
+     * Si el cliente no lo acepta en ESPERA_CIERRE milisegundos, la cola se descarta
+     * No debe llamarse con el bloqueo de pendientes tomado
+     */
+    public void cerrar() {
+        boolean vacia;
+        synchronized (pendientes) {
+            if (cerrada.get()) return;
+            volcarLote();
+            if (!cerrada.compareAndSet(false, true)) return; // Falló al volcar: ya se encargó el aviso
+
+            vacia = pendientes.isEmpty();
+            if (!vacia) {
+                dejarDeLeer();
+                bucle.solicitarEscritura(this);
+                CIERRES.schedule(this::cerrarCanal, ESPERA_CIERRE, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (vacia) {
+            cerrarCanal();
+        }
+        avisarCierre();
+    }
+
+    /**
+     * Quita el interés de lectura: una conexión que se está cerrando ya no atiende al cliente
+     */
+    private void dejarDeLeer() {
+        SelectionKey k = clave;
+        if (k != null && k.isValid()) {
+            k.interestOps(k.interestOps() & ~SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Libera el canal y descarta la cola de salida, sin avisar a nadie
+     * Puede llamarse varias veces (vaciado completo, plazo agotado o error)
+     */
+    private void cerrarCanal() {
+        SelectionKey k = clave;
+        if (k != null) {
+            k.cancel();
+        }
+        try {
+            canal.close();
+        } catch (IOException ignored) {}
+
+        synchronized (pendientes) {
+            pendientes.clear();
+        }
+    }
+
+    /**
+     * Notifica la desconexión al receptor actual; nunca con el bloqueo de pendientes tomado
+     */
+    private void avisarCierre() {
+        ReceptorLineas actual = receptor;
+        if (actual != null) {
+            actual.desconectado(this);
+        }
+    }
+
+    /**
+     * Indica si la conexión sigue abierta
+     * @return true si no se ha cerrado ni desconectado
+     */
+    public boolean estaAbierta() {
+        return !cerrada.get() && canal.isOpen();
+    }
+
+    /**
+     * Indica si hay datos de salida pendientes de enviar
+     */
+    boolean tienePendientes() {
+        synchronized (pendientes) {
+            return !pendientes.isEmpty();
+        }
+    }
+
+    /**
+     * Obtiene el canal subyacente
+     * @return Canal TCP de la conexión
+     */
+    SocketChannel getCanal() {
+        return canal;
+    }
+
+    /**
+     * Asigna la clave de registro en el selector
+     */
+    void setClave(SelectionKey clave) {
+        this.clave = clave;
+    }
+
+    /**
+     * Obtiene la clave de registro en el selector
+     */
+    SelectionKey getClave() {
+        return clave;
+    }
+
+    /**
+     * Obtiene la dirección remota del cliente
+     * @return Dirección en formato texto
+     */
+    public String getDireccion() {
+        return direccion;
+    }
+}
@@ -0,0 +1,158 @@
+package com.liceolapaz.acc.red;
+
+import com.liceolapaz.protocolo.CodecTexto;
+import com.liceolapaz.protocolo.LectorTexto;
+import com.liceolapaz.protocolo.Mensaje;
+import com.liceolapaz.protocolo.ReservaBuferes;
+import com.liceolapaz.protocolo.TipoMensaje;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Medición de la memoria reservada por partida al codificar y decodificar el protocolo de texto
+ * Compara el formato anterior (String.format + getBytes al enviar, split + substring al recibir)
+ * con CodecTexto sobre búferes de ReservaBuferes y LectorTexto, para una partida de dos jugadores
+ * y diez preguntas (inicio, pregunta, solicitud, respuesta, resultado y fin)
+ * En los dos casos cada mensaje hace el mismo viaje: sus bytes se copian al búfer de recepción, se
+ * decodifican a una línea como en ConexionCliente y se leen los mismos campos de esa línea
+ * Uso: java com.liceolapaz.acc.red.MedicionAsignaciones [partidas]
+ * No necesita base de datos ni red
+ */
+public final class MedicionAsignaciones {
+
+    private static final int PREGUNTAS = 10;
+    private static final String TEXTO = "¿Qué compositor escribió «Las cuatro estaciones»?";
+    private static final String[] OPCIONES = {"Antonio Vivaldi", "Johann Sebastian Bach", "Wolfgang A. Mozart", "Ludwig van Beethoven"};
+
+    // Búfer de recepción reutilizado, como el de lectura de una conexión
+    private static final byte[] recepcion = new byte[ReservaBuferes.TAMANO];
+
+    // Evita que el compilador JIT descarte el trabajo medido
+    private static long sumidero;
+
+    private MedicionAsignaciones() {
+    }
+
+    public static void main(String[] args) {
+        int partidas = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long hilo = Thread.currentThread().getId();
+        LectorTexto lector = new LectorTexto();
+
+        // Calentamiento para medir el código ya compilado
+        for (int i = 0; i < partidas; i++) {
+            partidaAnterior();
+            partidaCodec(lector);
+        }
+
+        long inicio = hilos.getThreadAllocatedBytes(hilo);
+        for (int i = 0; i < partidas; i++) {
+            partidaAnterior();
+        }
+        long anterior = (hilos.getThreadAllocatedBytes(hilo) - inicio) / partidas;
+
+        inicio = hilos.getThreadAllocatedBytes(hilo);
+        for (int i = 0; i < partidas; i++) {
+            partidaCodec(lector);
+        }
+        long codec = (hilos.getThreadAllocatedBytes(hilo) - inicio) / partidas;
+
+        System.out.println("📏 Bytes reservados por partida (" + partidas + " partidas, " + PREGUNTAS + " preguntas, 2 jugadores)");
+        System.out.println("   Formato anterior: " + anterior + " B/partida");
+        System.out.println("   CodecTexto:       " + codec + " B/partida");
+        System.out.println("   " + ReservaBuferes.obtenerResumen() + " (sumidero " + sumidero + ")");
+    }
+
+    /**
+     * Una partida con el formato anterior: cada mensaje se formatea a String y se pasa a bytes,
+     * y la línea recibida se parte con split y substring
+     */
+    private static void partidaAnterior() {
+        for (int jugador = 0; jugador < 2; jugador++) {
+            enviarAnterior("PARTIDA_INICIADA;OPONENTE:rival;CATEGORIA:musica");
+            for (int n = 1; n <= PREGUNTAS; n++) {
+                String pregunta = enviarAnterior(String.format("PREGUNTA;NUMERO:%d;TOTAL:%d;TEXTO:%s;A:%s;B:%s;C:%s;D:%s",
+                        n, PREGUNTAS, TEXTO, OPCIONES[0], OPCIONES[1], OPCIONES[2], OPCIONES[3]));
+                for (String parte : pregunta.split(";")) {
+                    if (parte.startsWith("NUMERO:")) sumidero += Integer.parseInt(parte.substring(7));
+                    else if (parte.startsWith("TEXTO:")) sumidero += parte.substring(6).length();
+                    else if (parte.startsWith("A:")) sumidero += parte.substring(2).length();
+                }
+                enviarAnterior("SOLICITAR_RESPUESTA");
+                enviarAnterior("RESPUESTA_CORRECTA");
+                String resultado = enviarAnterior(String.format("RESULTADO;CORRECTA:%s;PUNTOS_J1:%d;PUNTOS_J2:%d", "A", n, n - 1));
+                for (String parte : resultado.split(";")) {
+                    if (parte.startsWith("PUNTOS_J1:")) sumidero += Integer.parseInt(parte.substring(10));
+                }
+            }
+            String fin = enviarAnterior(String.format("FIN_PARTIDA;RESULTADO:GANADOR;PUNTOS:%d;OPONENTE_PUNTOS:%d;PUNTOS_GANADOS:%d",
+                    PREGUNTAS, PREGUNTAS - 1, 20));
+            for (String parte : fin.split(";")) {
+                if (parte.startsWith("PUNTOS_GANADOS:")) sumidero += Integer.parseInt(parte.substring(15));
+            }
+        }
+    }
+
+    /**
+     * Envía una línea con el formato anterior y devuelve la que decodifica el receptor
+     */
+    private static String enviarAnterior(String linea) {
+        byte[] bytes = (linea + "\n").getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, recepcion, 0, bytes.length);
+        return recibir(bytes.length);
+    }
+
+    /**
+     * La misma partida con CodecTexto: mensajes codificados en búferes de la reserva
+     * y líneas recibidas leídas con el cursor del LectorTexto
+     */
+    private static void partidaCodec(LectorTexto lector) {
+        Mensaje inicio = Mensaje.de(TipoMensaje.PARTIDA_INICIADA, "rival", "musica");
+        Mensaje solicitud = Mensaje.de(TipoMensaje.SOLICITAR_RESPUESTA);
+        Mensaje correcta = Mensaje.de(TipoMensaje.RESPUESTA_CORRECTA);
+        for (int jugador = 0; jugador < 2; jugador++) {
+            enviarCodec(inicio);
+            for (int n = 1; n <= PREGUNTAS; n++) {
+                lector.reiniciar(enviarCodec(Mensaje.de(TipoMensaje.PREGUNTA, n, PREGUNTAS, TEXTO,
+                        OPCIONES[0], OPCIONES[1], OPCIONES[2], OPCIONES[3])));
+                while (lector.siguiente()) {
+                    if (lector.empiezaPor("NUMERO:")) sumidero += lector.entero(7);
+                    else if (lector.empiezaPor("TEXTO:") || lector.empiezaPor("A:")) sumidero += lector.longitudCampo();
+                }
+                enviarCodec(solicitud);
+                enviarCodec(correcta);
+                lector.reiniciar(enviarCodec(Mensaje.de(TipoMensaje.RESULTADO, "A", n, n - 1)));
+                while (lector.siguiente()) {
+                    if (lector.empiezaPor("PUNTOS_J1:")) sumidero += lector.entero(10);
+                }
+            }
+            lector.reiniciar(enviarCodec(Mensaje.de(TipoMensaje.FIN_PARTIDA, "GANADOR", PREGUNTAS, null, PREGUNTAS - 1, 20)));
+            while (lector.siguiente()) {
+                if (lector.empiezaPor("PUNTOS_GANADOS:")) sumidero += lector.entero(15);
+            }
+        }
+    }
+
+    /**
+     * Codifica un mensaje en un búfer de la reserva y devuelve la línea que decodifica el receptor
+     */
+    private static String enviarCodec(Mensaje mensaje) {
+        ByteBuffer bufer = ReservaBuferes.obtener(CodecTexto.longitud(mensaje));
+        CodecTexto.codificar(mensaje, bufer);
+        bufer.flip();
+        int longitud = bufer.remaining();
+        bufer.get(recepcion, 0, longitud);
+        ReservaBuferes.devolver(bufer);
+        return recibir(longitud);
+    }
+
+    /**
+     * Decodifica la línea que ocupa el búfer de recepción sin el salto final, como ConexionCliente
+     */
+    private static String recibir(int longitud) {
+        sumidero += longitud;
+        return new String(recepcion, 0, longitud - 1, StandardCharsets.UTF_8);
+    }
+}
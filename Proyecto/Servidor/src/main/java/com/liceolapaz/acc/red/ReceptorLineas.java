@@ -0,0 +1,34 @@
+package com.liceolapaz.acc.red;
+
+import com.liceolapaz.protocolo.Mensaje;
+
+/**
+ * Receptor de eventos de una conexión gestionada por un bucle de eventos
+ * Los métodos se invocan desde el hilo del selector, por lo que no deben bloquear:
+ * cualquier trabajo lento (base de datos, esperas) debe delegarse a otro ejecutor
+ */
+public interface ReceptorLineas {
+
+    /**
+     * Se invoca por cada línea completa recibida del cliente (sin el salto de línea)
+     * @param conexion Conexión que recibió la línea
+     * @param linea Contenido de la línea
+     */
+    void lineaRecibida(ConexionCliente conexion, String linea);
+
+    /**
+     * Se invoca por cada trama recibida de un cliente que negoció el protocolo binario
+     * Por defecto la convierte a su línea de texto equivalente, así los receptores no distinguen protocolos
+     * @param conexion Conexión que recibió la trama
+     * @param mensaje Mensaje decodificado
+     */
+    default void mensajeRecibido(ConexionCliente conexion, Mensaje mensaje) {
+        lineaRecibida(conexion, mensaje.aLinea());
+    }
+
+    /**
+     * Se invoca una única vez cuando la conexión se cierra o el cliente se desconecta
+     * @param conexion Conexión cerrada
+     */
+    void desconectado(ConexionCliente conexion);
+}
@@ -0,0 +1,67 @@
+-- Esquema inicial: las mismas tablas que generaba hbm2ddl=update a partir de las entidades
+-- IF NOT EXISTS permite aplicarla sobre bases de datos creadas antes de las migraciones
+
+CREATE TABLE IF NOT EXISTS pregunta (
+    id integer NOT NULL AUTO_INCREMENT,
+    texto_pregunta varchar(500) NOT NULL,
+    opcion_a varchar(200) NOT NULL,
+    opcion_b varchar(200) NOT NULL,
+    opcion_c varchar(200) NOT NULL,
+    opcion_d varchar(200) NOT NULL,
+    respuesta_correcta integer NOT NULL,
+    categoria varchar(50) NOT NULL,
+    dificultad varchar(20),
+    activa bit NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS jugador (
+    id integer NOT NULL AUTO_INCREMENT,
+    nombre varchar(50) NOT NULL,
+    puntuacion_total integer DEFAULT 0 NOT NULL,
+    partidas_jugadas integer DEFAULT 0 NOT NULL,
+    partidas_ganadas integer DEFAULT 0 NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_jugador_nombre UNIQUE (nombre)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS partida (
+    id integer NOT NULL AUTO_INCREMENT,
+    categoria varchar(50) NOT NULL,
+    fecha_hora datetime(6) NOT NULL,
+    completada bit NOT NULL,
+    tipo_partida varchar(20) NOT NULL,
+    total_preguntas integer NOT NULL,
+    duracion_segundos bigint,
+    codigo_resultado varchar(36),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_partida_codigo_resultado UNIQUE (codigo_resultado)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS jugador_partida (
+    id integer NOT NULL AUTO_INCREMENT,
+    partida_id integer NOT NULL,
+    jugador_id integer NOT NULL,
+    respuestas_correctas integer NOT NULL,
+    respuestas_incorrectas integer NOT NULL,
+    puntos_obtenidos integer NOT NULL,
+    tiempo_total_segundos bigint,
+    posicion integer,
+    ganador bit NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_jugador_partida_partida FOREIGN KEY (partida_id) REFERENCES partida (id),
+    CONSTRAINT fk_jugador_partida_jugador FOREIGN KEY (jugador_id) REFERENCES jugador (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS resumen_jugador (
+    id integer NOT NULL AUTO_INCREMENT,
+    jugador_id integer NOT NULL,
+    categoria varchar(50) NOT NULL,
+    partidas integer NOT NULL,
+    victorias integer NOT NULL,
+    aciertos_totales bigint NOT NULL,
+    mejor_puntuacion integer NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_resumen_jugador_categoria UNIQUE (jugador_id, categoria),
+    CONSTRAINT fk_resumen_jugador_jugador FOREIGN KEY (jugador_id) REFERENCES jugador (id)
+) ENGINE = InnoDB;
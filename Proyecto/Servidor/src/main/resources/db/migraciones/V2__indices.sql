@@ -0,0 +1,16 @@
+-- Índices de las consultas frecuentes
+
+-- PreguntaDAO: recuentos y carga de preguntas activas por categoría (el id va implícito en InnoDB,
+-- así que COUNT y el orden por id se resuelven solo con el índice)
+CREATE INDEX idx_pregunta_categoria_activa ON pregunta (categoria, activa);
+
+-- Historial paginado por (fecha_hora, id) y consultas de partidas por categoría y fecha
+CREATE INDEX idx_partida_fecha_id ON partida (fecha_hora, id);
+CREATE INDEX idx_partida_categoria_fecha ON partida (categoria, fecha_hora);
+
+-- JugadorPartidaDAO: historial de un jugador; incluye las columnas proyectadas para no leer la fila
+CREATE INDEX idx_jugador_partida_historial
+    ON jugador_partida (jugador_id, partida_id, respuestas_correctas, puntos_obtenidos, ganador, posicion);
+
+-- JugadorPartidaDAO: mejores puntuaciones por partida
+CREATE INDEX idx_jugador_partida_puntos ON jugador_partida (puntos_obtenidos);
@@ -0,0 +1,6 @@
+-- Huella de cada pregunta (categoría + texto) calculada por MySQL
+-- El índice único permite que el importador de preguntas se ejecute varias veces sin duplicarlas
+ALTER TABLE pregunta
+    ADD COLUMN huella binary(16) AS (UNHEX(MD5(CONCAT(categoria, '|', texto_pregunta)))) STORED;
+
+CREATE UNIQUE INDEX uk_pregunta_huella ON pregunta (huella);
@@ -0,0 +1,20 @@
+-- Código de resultado de las partidas en bases de datos creadas antes de las migraciones
+-- Esas bases ya tenían la tabla partida, así que V1 no la tocó; la columna solo existe si la añadió
+-- hbm2ddl=update, de modo que se añade (con su índice único) únicamente cuando falta
+
+SET @falta_columna = (SELECT COUNT(*) = 0 FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'partida' AND column_name = 'codigo_resultado');
+SET @sentencia = IF(@falta_columna, 'ALTER TABLE partida ADD COLUMN codigo_resultado varchar(36)', 'DO 0');
+PREPARE anadir_columna FROM @sentencia;
+EXECUTE anadir_columna;
+DEALLOCATE PREPARE anadir_columna;
+
+-- Cualquier índice único sobre la columna vale (hbm2ddl lo creaba con un nombre generado)
+SET @falta_indice = (SELECT COUNT(*) = 0 FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'partida' AND column_name = 'codigo_resultado'
+      AND non_unique = 0);
+SET @sentencia = IF(@falta_indice,
+    'ALTER TABLE partida ADD CONSTRAINT uk_partida_codigo_resultado UNIQUE (codigo_resultado)', 'DO 0');
+PREPARE anadir_indice FROM @sentencia;
+EXECUTE anadir_indice;
+DEALLOCATE PREPARE anadir_indice;
@@ -0,0 +1,17 @@
+-- Historial de un jugador leído en orden desde su propio índice
+-- El filtro (jugador_id) estaba en jugador_partida y el orden (fecha_hora, id) en partida, así que MySQL unía y
+-- ordenaba todas las partidas del jugador en cada página; con la fecha copiada en jugador_partida, el índice
+-- (jugador_id, fecha_partida, partida_id) entrega las filas ya ordenadas y la consulta se corta en el LIMIT
+ALTER TABLE jugador_partida ADD COLUMN fecha_partida datetime(6);
+
+UPDATE jugador_partida jp JOIN partida p ON p.id = jp.partida_id
+SET jp.fecha_partida = p.fecha_hora
+WHERE jp.fecha_partida IS NULL;
+
+ALTER TABLE jugador_partida MODIFY fecha_partida datetime(6) NOT NULL;
+
+CREATE INDEX idx_jugador_partida_fecha ON jugador_partida (jugador_id, fecha_partida, partida_id);
+
+-- Sustituidos por el anterior (que también sirve a la clave foránea de jugador_id): ninguna consulta los usa ya
+DROP INDEX idx_jugador_partida_historial ON jugador_partida;
+DROP INDEX idx_partida_fecha_id ON partida;
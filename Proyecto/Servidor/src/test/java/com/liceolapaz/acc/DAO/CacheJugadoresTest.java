@@ -0,0 +1,160 @@
+package com.liceolapaz.acc.DAO;
+
+import com.liceolapaz.acc.entidades.Jugador;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la caché de jugadores: copias, caducidad, expulsión y escrituras cruzadas con cargas
+ */
+class CacheJugadoresTest {
+
+    private static Jugador jugador(String nombre, int puntos, int jugadas, int ganadas) {
+        Jugador jugador = new Jugador(nombre, puntos);
+        jugador.setPartidasJugadas(jugadas);
+        jugador.setPartidasGanadas(ganadas);
+        return jugador;
+    }
+
+    @Test
+    void devuelveCopiasIndependientes() {
+        CacheJugadores cache = new CacheJugadores(64, 60000);
+        cache.guardar(jugador("ana", 10, 1, 0));
+
+        Jugador leido = cache.obtener("ana", nombre -> null);
+        leido.setPuntuacionTotal(999);
+        assertEquals(10, cache.obtener("ana", nombre -> null).getPuntuacionTotal());
+        assertEquals(2, cache.getAciertos());
+        assertEquals(0, cache.getFallos());
+    }
+
+    @Test
+    void cargaSoloEnFalloYNoGuardaInexistentes() {
+        CacheJugadores cache = new CacheJugadores(64, 60000);
+        AtomicInteger cargas = new AtomicInteger();
+
+        assertNull(cache.obtener("nadie", nombre -> { cargas.incrementAndGet(); return null; }));
+        assertFalse(cache.contiene("nadie"));
+
+        cache.obtener("luis", nombre -> { cargas.incrementAndGet(); return jugador(nombre, 5, 0, 0); });
+        cache.obtener("luis", nombre -> { cargas.incrementAndGet(); return jugador(nombre, 7, 0, 0); });
+        assertEquals(2, cargas.get());
+        assertTrue(cache.contiene("luis"));
+        assertEquals(1, cache.getAciertos());
+        assertEquals(2, cache.getFallos());
+    }
+
+    @Test
+    void entradasCaducadasSeRecargan() throws InterruptedException {
+        CacheJugadores cache = new CacheJugadores(64, 20);
+        cache.guardar(jugador("ana", 10, 0, 0));
+        Thread.sleep(40);
+
+        assertFalse(cache.contiene("ana"));
+        assertEquals(15, cache.obtener("ana", nombre -> jugador(nombre, 15, 0, 0)).getPuntuacionTotal());
+    }
+
+    @Test
+    void aplicarSumaSobreLaCopiaEnMemoria() {
+        CacheJugadores cache = new CacheJugadores(64, 60000);
+        cache.guardar(jugador("ana", 10, 3, 1));
+
+        cache.iniciarEscritura("ana");
+        cache.aplicar("ana", 5, 1, 1);
+
+        Jugador leido = cache.obtener("ana", nombre -> null);
+        assertEquals(15, leido.getPuntuacionTotal());
+        assertEquals(4, leido.getPartidasJugadas());
+        assertEquals(2, leido.getPartidasGanadas());
+    }
+
+    @Test
+    void cargaCruzadaConEscrituraNoSeSumaDosVeces() {
+        CacheJugadores cache = new CacheJugadores(64, 60000);
+
+        // La carga empieza antes del anuncio pero lee la fila ya confirmada: no debe publicarse
+        Jugador leido = cache.obtener("ana", nombre -> {
+            cache.iniciarEscritura(nombre);
+            return jugador(nombre, 15, 4, 2);
+        });
+        assertEquals(15, leido.getPuntuacionTotal());
+        assertFalse(cache.contiene("ana"));
+
+        cache.aplicar("ana", 5, 1, 1);
+        assertFalse(cache.contiene("ana"));
+        assertEquals(15, cache.obtener("ana", nombre -> jugador(nombre, 15, 4, 2)).getPuntuacionTotal());
+    }
+
+    @Test
+    void noSePublicanCargasMientrasHayEscriturasEnCurso() {
+        CacheJugadores cache = new CacheJugadores(64, 60000);
+        cache.iniciarEscritura("ana");
+        cache.iniciarEscritura("ana");
+
+        cache.obtener("ana", nombre -> jugador(nombre, 10, 0, 0));
+        assertFalse(cache.contiene("ana"));
+
+        cache.aplicar("ana", 5, 1, 0);
+        cache.obtener("ana", nombre -> jugador(nombre, 15, 1, 0));
+        assertFalse(cache.contiene("ana"), "aún queda una escritura en curso");
+
+        cache.abandonarEscritura("ana");
+        cache.obtener("ana", nombre -> jugador(nombre, 15, 1, 0));
+        assertTrue(cache.contiene("ana"));
+    }
+
+    @Test
+    void inicioDeSesionCruzadoConEscrituraNoSeSumaDosVeces() {
+        CacheJugadores cache = new CacheJugadores(64, 60000);
+        cache.guardar(jugador("ana", 10, 3, 1));
+        cache.iniciarEscritura("ana");
+
+        // El jugador vuelve a entrar y verificarYCrearJugador lee la fila ya confirmada
+        cache.guardar(jugador("ana", 15, 4, 2));
+        assertFalse(cache.contiene("ana"));
+
+        cache.aplicar("ana", 5, 1, 1);
+        Jugador leido = cache.obtener("ana", nombre -> jugador(nombre, 15, 4, 2));
+        assertEquals(15, leido.getPuntuacionTotal());
+        assertEquals(4, leido.getPartidasJugadas());
+        assertEquals(2, leido.getPartidasGanadas());
+        assertTrue(cache.contiene("ana"));
+    }
+
+    @Test
+    void abandonarEscrituraEliminaLaEntrada() {
+        CacheJugadores cache = new CacheJugadores(64, 60000);
+        cache.guardar(jugador("ana", 10, 0, 0));
+
+        cache.iniciarEscritura("ana");
+        cache.abandonarEscritura("ana");
+        assertFalse(cache.contiene("ana"));
+        assertEquals(20, cache.obtener("ana", nombre -> jugador(nombre, 20, 0, 0)).getPuntuacionTotal());
+        assertTrue(cache.contiene("ana"));
+    }
+
+    @Test
+    void invalidarEliminaLaEntrada() {
+        CacheJugadores cache = new CacheJugadores(64, 60000);
+        cache.guardar(jugador("ana", 10, 0, 0));
+        cache.invalidar("ana");
+        assertFalse(cache.contiene("ana"));
+        assertEquals(0, cache.getTamano());
+    }
+
+    @Test
+    void capacidadAcotadaExpulsaLosMenosUsados() {
+        CacheJugadores cache = new CacheJugadores(16, 60000); // Un jugador por segmento
+        for (int i = 0; i < 200; i++) {
+            cache.guardar(jugador("j" + i, i, 0, 0));
+        }
+        assertTrue(cache.getTamano() <= 16);
+        assertEquals(200 - cache.getTamano(), cache.getExpulsiones());
+    }
+}
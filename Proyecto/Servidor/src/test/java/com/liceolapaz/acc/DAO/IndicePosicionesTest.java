@@ -0,0 +1,130 @@
+package com.liceolapaz.acc.DAO;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Pruebas del índice de posiciones contra un cálculo ingenuo sobre todas las puntuaciones
+ */
+class IndicePosicionesTest {
+
+    /**
+     * Comprueba el puesto y el total de cada jugador contando a mano los que tienen más puntos
+     */
+    private static void comprobar(IndicePosiciones indice, Map<String, Integer> esperadas) {
+        assertEquals(esperadas.size(), indice.getTotal());
+        for (Map.Entry<String, Integer> jugador : esperadas.entrySet()) {
+            int conMasPuntos = 0;
+            for (int puntos : esperadas.values()) {
+                if (puntos > jugador.getValue()) conMasPuntos++;
+            }
+            IndicePosiciones.Posicion posicion = indice.obtenerPosicion(jugador.getKey());
+            assertEquals(conMasPuntos + 1, posicion.getPuesto(), "puesto de " + jugador.getKey());
+            assertEquals(esperadas.size(), posicion.getTotal());
+        }
+    }
+
+    private static List<Object[]> filas(Map<String, Integer> puntuaciones) {
+        List<Object[]> filas = new ArrayList<>();
+        for (Map.Entry<String, Integer> jugador : puntuaciones.entrySet()) {
+            filas.add(new Object[]{jugador.getKey(), jugador.getValue()});
+        }
+        return filas;
+    }
+
+    @Test
+    void reconstruirCoincideConOrdenIngenuo() {
+        Random azar = new Random(42);
+        Map<String, Integer> puntuaciones = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            puntuaciones.put("j" + i, azar.nextInt(50)); // Muchos empates
+        }
+        puntuaciones.put("lejano", 5000); // Obliga a crecer por encima de la capacidad inicial
+
+        IndicePosiciones indice = new IndicePosiciones();
+        indice.reconstruir(filas(puntuaciones));
+        comprobar(indice, puntuaciones);
+        assertEquals(1, indice.obtenerPosicion("lejano").getPuesto());
+    }
+
+    @Test
+    void altasYCambiosAleatoriosCoincidenConOrdenIngenuo() {
+        Random azar = new Random(7);
+        Map<String, Integer> esperadas = new HashMap<>();
+        IndicePosiciones indice = new IndicePosiciones();
+
+        for (int paso = 0; paso < 3000; paso++) {
+            String nombre = "j" + azar.nextInt(200);
+            if (!esperadas.containsKey(nombre)) {
+                int puntos = azar.nextInt(100);
+                indice.alta(nombre, puntos);
+                esperadas.put(nombre, puntos);
+            } else {
+                // De vez en cuando un salto grande para forzar el crecimiento del árbol
+                int delta = azar.nextInt(20) == 0 ? azar.nextInt(3000) : azar.nextInt(41) - 20;
+                indice.aplicar(nombre, delta);
+                esperadas.put(nombre, Math.max(0, esperadas.get(nombre) + delta));
+            }
+            if (paso % 250 == 0) {
+                comprobar(indice, esperadas);
+            }
+        }
+        comprobar(indice, esperadas);
+    }
+
+    @Test
+    void puntuacionesNegativasSeQuedanEnCero() {
+        IndicePosiciones indice = new IndicePosiciones();
+        indice.alta("negativo", -10);
+        indice.alta("cero", 0);
+        indice.alta("cinco", 5);
+        indice.aplicar("cinco", -100);
+
+        Map<String, Integer> esperadas = new HashMap<>();
+        esperadas.put("negativo", 0);
+        esperadas.put("cero", 0);
+        esperadas.put("cinco", 0);
+        comprobar(indice, esperadas);
+    }
+
+    @Test
+    void altaRepetidaYJugadorDesconocidoSeIgnoran() {
+        IndicePosiciones indice = new IndicePosiciones();
+        indice.alta("ana", 10);
+        indice.alta("ana", 99);
+        indice.aplicar("desconocido", 50);
+
+        assertEquals(1, indice.getTotal());
+        assertNull(indice.obtenerPosicion("desconocido"));
+        assertEquals(1, indice.obtenerPosicion("ana").getPuesto());
+
+        indice.alta("luis", 11);
+        assertEquals(2, indice.obtenerPosicion("ana").getPuesto());
+        assertEquals(100.0, indice.obtenerPosicion("ana").getPercentil(), 1e-9);
+        assertEquals(50.0, indice.obtenerPosicion("luis").getPercentil(), 1e-9);
+    }
+
+    @Test
+    void reconstruirDescartaElEstadoAnterior() {
+        IndicePosiciones indice = new IndicePosiciones();
+        indice.alta("viejo", 3000);
+        indice.alta("otro", 1);
+
+        Map<String, Integer> nuevas = new HashMap<>();
+        nuevas.put("a", 2);
+        nuevas.put("b", 2);
+        nuevas.put("c", 1);
+        indice.reconstruir(filas(nuevas));
+
+        assertNull(indice.obtenerPosicion("viejo"));
+        comprobar(indice, nuevas);
+    }
+}
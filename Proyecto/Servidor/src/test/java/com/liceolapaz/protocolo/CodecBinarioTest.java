@@ -0,0 +1,127 @@
+package com.liceolapaz.protocolo;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas del protocolo binario: tramas con prefijo de longitud, máscara de campos y enteros en zigzag
+ */
+class CodecBinarioTest {
+
+    private static Mensaje idaYVuelta(Mensaje mensaje) {
+        byte[] trama = CodecBinario.codificar(mensaje);
+        assertEquals(trama.length, CodecBinario.longitud(mensaje), "longitud() debe ser exacta");
+        assertEquals(trama.length, CodecBinario.longitudTrama(trama, 0, trama.length));
+        return CodecBinario.decodificarTrama(trama, 0, trama.length);
+    }
+
+    @Test
+    void textosConCaracteresEspecialesIdaYVuelta() {
+        String[] textos = {"", "a;b", "\\", "línea\nnueva\r", "😀 𝄞", "ñ".repeat(300)};
+        for (String texto : textos) {
+            Mensaje pregunta = Mensaje.de(TipoMensaje.PREGUNTA, 1, 10, texto, "A", texto, "C", texto);
+            assertEquals(pregunta, idaYVuelta(pregunta));
+        }
+    }
+
+    @Test
+    void enterosExtremosIdaYVuelta() {
+        int[] valores = {0, 1, -1, 63, -64, 64, 127, 128, 16383, 16384, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int valor : valores) {
+            Mensaje mensaje = Mensaje.de(TipoMensaje.FIN_PARTIDA, "EMPATE", valor, -valor, null, valor);
+            assertEquals(mensaje, idaYVuelta(mensaje), "entero " + valor);
+        }
+    }
+
+    @Test
+    void camposAusentesYListasIdaYVuelta() {
+        Mensaje encontrada = Mensaje.de(TipoMensaje.PARTIDA_ENCONTRADA, "SOLO", null, "musica");
+        assertEquals(encontrada, idaYVuelta(encontrada));
+
+        Mensaje categorias = Mensaje.de(TipoMensaje.CATEGORIAS_DISPONIBLES, (Object) new String[]{"a", "", "c;d"});
+        assertEquals(categorias, idaYVuelta(categorias));
+
+        Mensaje vacia = Mensaje.de(TipoMensaje.CATEGORIAS_DISPONIBLES, (Object) new String[0]);
+        assertEquals(vacia, idaYVuelta(vacia));
+
+        Mensaje sinCampos = Mensaje.de(TipoMensaje.CONEXION_CANCELADA);
+        assertEquals(sinCampos, idaYVuelta(sinCampos));
+    }
+
+    @Test
+    void codificarEnBuferCoincideConCodificarEnArray() {
+        Mensaje mensaje = Mensaje.de(TipoMensaje.RESULTADO, "C", 4, 2);
+        ByteBuffer bufer = ByteBuffer.allocate(CodecBinario.longitud(mensaje));
+        CodecBinario.codificar(mensaje, bufer);
+        assertArrayEquals(CodecBinario.codificar(mensaje), bufer.array());
+    }
+
+    @Test
+    void tramaIncompletaPideMasBytes() {
+        byte[] trama = CodecBinario.codificar(Mensaje.de(TipoMensaje.ERROR, "x".repeat(200)));
+        assertEquals(-1, CodecBinario.longitudTrama(trama, 0, 0));
+        assertEquals(-1, CodecBinario.longitudTrama(trama, 0, 1)); // Prefijo de dos bytes a medias
+        assertEquals(-1, CodecBinario.longitudTrama(trama, 0, trama.length - 1));
+        assertEquals(trama.length, CodecBinario.longitudTrama(trama, 0, trama.length));
+    }
+
+    @Test
+    void variasTramasSeguidasSeSeparanBien() {
+        Mensaje[] mensajes = {
+                Mensaje.de(TipoMensaje.SOLICITAR_RESPUESTA),
+                Mensaje.de(TipoMensaje.RESULTADO, "B", 1),
+                Mensaje.de(TipoMensaje.LISTO, "PREGUNTA"),
+        };
+        ByteBuffer flujo = ByteBuffer.allocate(1024);
+        for (Mensaje mensaje : mensajes) {
+            flujo.put(CodecBinario.codificar(mensaje));
+        }
+        byte[] datos = Arrays.copyOf(flujo.array(), flujo.position());
+
+        int posicion = 0;
+        for (Mensaje esperado : mensajes) {
+            int longitud = CodecBinario.longitudTrama(datos, posicion, datos.length);
+            assertEquals(esperado, CodecBinario.decodificarTrama(datos, posicion, longitud));
+            posicion += longitud;
+        }
+        assertEquals(datos.length, posicion);
+    }
+
+    @Test
+    void leerDeFlujoBloqueante() throws IOException {
+        Mensaje mensaje = Mensaje.de(TipoMensaje.HISTORIAL, "FIN", "📋 a|b");
+        byte[] trama = CodecBinario.codificar(mensaje);
+
+        ByteArrayInputStream entrada = new ByteArrayInputStream(trama);
+        assertEquals(mensaje, CodecBinario.leer(entrada));
+        assertNull(CodecBinario.leer(entrada), "fin limpio entre tramas");
+
+        byte[] cortada = Arrays.copyOf(trama, trama.length - 1);
+        assertThrows(EOFException.class, () -> CodecBinario.leer(new ByteArrayInputStream(cortada)));
+    }
+
+    @Test
+    void tramasMalFormadasSeRechazan() {
+        byte[] desconocido = {2, 127, 0};
+        assertThrows(IllegalArgumentException.class, () -> CodecBinario.decodificar(desconocido, 1, 3));
+
+        byte[] longitudExcesiva = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F};
+        assertThrows(IllegalArgumentException.class,
+                () -> CodecBinario.longitudTrama(longitudExcesiva, 0, longitudExcesiva.length));
+
+        // Texto que dice medir más de lo que queda en la trama
+        byte[] trama = CodecBinario.codificar(Mensaje.de(TipoMensaje.ERROR, "abc"));
+        trama[trama.length - 4] = 100;
+        assertThrows(IllegalArgumentException.class, () -> CodecBinario.decodificarTrama(trama, 0, trama.length));
+    }
+}
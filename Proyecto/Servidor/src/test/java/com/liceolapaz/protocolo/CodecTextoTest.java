@@ -0,0 +1,166 @@
+package com.liceolapaz.protocolo;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del protocolo de texto: codificación, decodificación y lector de campos
+ */
+class CodecTextoTest {
+
+    // Textos que el protocolo debe escapar o codificar con más de un byte por carácter
+    private static final String[] TEXTOS_DIFICILES = {
+            "",
+            "sin nada especial",
+            "punto;y;coma",
+            "barra\\invertida y \\; escapada",
+            "salto\nde línea\r\ny retorno",
+            "termina en barra\\",
+            "ETIQUETA:falsa;A:otra",
+            "acentos: áéíóú ñ ¿? ¡!",
+            "pares suplentes: 😀 𝄞 🎲",
+    };
+
+    /**
+     * Codifica un mensaje y devuelve la línea sin el salto final, comprobando longitud() por el camino
+     */
+    private static String codificar(Mensaje mensaje) {
+        ByteBuffer bufer = ByteBuffer.allocate(CodecTexto.longitud(mensaje));
+        CodecTexto.codificar(mensaje, bufer);
+        assertEquals(0, bufer.remaining(), "longitud() debe ser exacta");
+        assertEquals('\n', bufer.get(bufer.limit() - 1));
+        return new String(bufer.array(), 0, bufer.limit() - 1, StandardCharsets.UTF_8);
+    }
+
+    private static Mensaje idaYVuelta(Mensaje mensaje) {
+        return CodecTexto.decodificar(codificar(mensaje), new LectorTexto());
+    }
+
+    @Test
+    void textosDificilesIdaYVuelta() {
+        for (String texto : TEXTOS_DIFICILES) {
+            Mensaje pregunta = Mensaje.de(TipoMensaje.PREGUNTA, 3, 10, texto, texto, "B", texto, "D");
+            assertEquals(pregunta, idaYVuelta(pregunta), "PREGUNTA con «" + texto + "»");
+
+            Mensaje error = Mensaje.de(TipoMensaje.ERROR, texto);
+            assertEquals(error, idaYVuelta(error), "ERROR con «" + texto + "»");
+        }
+    }
+
+    @Test
+    void lineaCodificadaNoContieneSaltosNiSeparadoresSinEscapar() {
+        String linea = codificar(Mensaje.de(TipoMensaje.ERROR, "a;b\nc\\d"));
+        assertFalse(linea.contains("\n"));
+        assertEquals("ERROR;a\\;b\\nc\\\\d", linea);
+    }
+
+    @Test
+    void camposAusentesSeOmitenYSeRecuperanComoAusentes() {
+        Mensaje fin = Mensaje.de(TipoMensaje.FIN_PARTIDA, null, 7, null, null, 3);
+        assertEquals("FIN_PARTIDA;PUNTOS:7;PUNTOS_GANADOS:3", codificar(fin));
+
+        Mensaje decodificado = idaYVuelta(fin);
+        assertEquals(fin, decodificado);
+        assertFalse(decodificado.tieneCampo(0));
+        assertFalse(decodificado.tieneCampo(2));
+        assertEquals(3, decodificado.getEntero(4));
+    }
+
+    @Test
+    void ofertasDeSolicitudNombreIndependientes() {
+        Mensaje ambas = Mensaje.de(TipoMensaje.SOLICITUD_NOMBRE, Protocolo.VERSION_BINARIO, Protocolo.VERSION_LISTO);
+        assertEquals("SOLICITUD_NOMBRE;BINARIO:1;LISTO:1", codificar(ambas));
+        assertEquals(ambas, idaYVuelta(ambas));
+
+        // Servidor sin binario que ofrece el modo rápido: el cliente no debe ver oferta binaria
+        Mensaje soloListo = idaYVuelta(Mensaje.de(TipoMensaje.SOLICITUD_NOMBRE, null, Protocolo.VERSION_LISTO));
+        assertEquals(TipoMensaje.SOLICITUD_NOMBRE, soloListo.getTipo());
+        assertFalse(soloListo.tieneCampo(0));
+        assertEquals(Protocolo.VERSION_LISTO, soloListo.getEntero(1));
+    }
+
+    @Test
+    void enterosExtremosIdaYVuelta() {
+        int[] valores = {0, 1, -1, 9, 10, -10, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int valor : valores) {
+            Mensaje mensaje = Mensaje.de(TipoMensaje.RESULTADO, "A", valor, -valor);
+            assertEquals(mensaje, idaYVuelta(mensaje), "entero " + valor);
+        }
+    }
+
+    @Test
+    void listaIdaYVuelta() {
+        Mensaje categorias = Mensaje.de(TipoMensaje.CATEGORIAS_DISPONIBLES,
+                (Object) new String[]{"musica", "geo;grafía", "", "😀\\"});
+        assertEquals(categorias, idaYVuelta(categorias));
+    }
+
+    @Test
+    void mensajesSinCamposIdaYVuelta() {
+        for (TipoMensaje tipo : new TipoMensaje[]{TipoMensaje.SOLICITAR_RESPUESTA, TipoMensaje.TIMEOUT,
+                TipoMensaje.PARTIDA_CANCELADA}) {
+            Mensaje mensaje = Mensaje.de(tipo);
+            assertEquals(tipo.getClave(), codificar(mensaje));
+            assertEquals(mensaje, idaYVuelta(mensaje));
+        }
+    }
+
+    @Test
+    void lineaLibreSeEnviaTalCual() {
+        Mensaje linea = Mensaje.linea("hola; sin escapar");
+        assertEquals("hola; sin escapar", codificar(linea));
+        assertEquals(TipoMensaje.LINEA, CodecTexto.decodificar("cancelar", new LectorTexto()).getTipo());
+    }
+
+    @Test
+    void lineasMalFormadasSeEntreganComoLinea() {
+        LectorTexto lector = new LectorTexto();
+        assertEquals(TipoMensaje.LINEA, CodecTexto.decodificar("PREGUNTA;NUMERO:x", lector).getTipo());
+        assertEquals(TipoMensaje.LINEA, CodecTexto.decodificar("RESULTADO;DESCONOCIDO:1", lector).getTipo());
+        assertEquals(TipoMensaje.LINEA, CodecTexto.decodificar("PUNTUACION_TOTAL;99999999999", lector).getTipo());
+    }
+
+    @Test
+    void lectorRecorreCamposConSeparadorPropio() {
+        LectorTexto lector = new LectorTexto().reiniciar("  Musica : solo ", ':');
+        assertEquals(2, lector.restantes());
+        assertTrue(lector.siguiente());
+        assertTrue(lector.recortar().esIgual("musica", true));
+        assertFalse(lector.esIgual("musica", false));
+        assertTrue(lector.siguiente());
+        assertEquals("solo", lector.recortar().texto(0));
+        assertFalse(lector.siguiente());
+    }
+
+    @Test
+    void lectorLeeEnterosYRechazaLosNoValidos() {
+        LectorTexto lector = new LectorTexto().reiniciar("N:-2147483648;N:2147483647;N:2147483648;N:;N:-;N:1a");
+        lector.siguiente();
+        assertEquals(Integer.MIN_VALUE, lector.entero(2));
+        lector.siguiente();
+        assertEquals(Integer.MAX_VALUE, lector.entero(2));
+        for (int i = 0; i < 4; i++) {
+            lector.siguiente();
+            assertThrows(NumberFormatException.class, () -> lector.entero(2));
+        }
+    }
+
+    @Test
+    void lectorNoCortaPorSeparadoresEscapados() {
+        LectorTexto lector = new LectorTexto().reiniciar("a\\;b;c\\\\;d");
+        assertEquals(3, lector.restantes());
+        lector.siguiente();
+        assertEquals("a;b", lector.texto(0));
+        lector.siguiente();
+        assertEquals("c\\", lector.texto(0));
+        lector.siguiente();
+        assertEquals("d", lector.texto(0));
+    }
+}
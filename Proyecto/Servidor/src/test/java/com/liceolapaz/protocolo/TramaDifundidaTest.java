@@ -0,0 +1,68 @@
+package com.liceolapaz.protocolo;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de las tramas difundidas: deben ser la concatenación exacta de lo que escribirían los codecs
+ */
+class TramaDifundidaTest {
+
+    private static byte[] bytes(ByteBuffer bufer) {
+        byte[] copia = new byte[bufer.remaining()];
+        bufer.duplicate().get(copia);
+        return copia;
+    }
+
+    private static byte[] codecTexto(Mensaje mensaje) {
+        ByteBuffer bufer = ByteBuffer.allocate(CodecTexto.longitud(mensaje));
+        CodecTexto.codificar(mensaje, bufer);
+        return bufer.array();
+    }
+
+    @Test
+    void difundidaIgualALaConcatenacionDeMensajes() {
+        Mensaje[] mensajes = {
+                Mensaje.de(TipoMensaje.RESULTADO, "B;", 3, 1),
+                Mensaje.de(TipoMensaje.POSICION_DIRECTO, 1, 4000, 12),
+                Mensaje.de(TipoMensaje.FIN_PARTIDA, "GANADOR\n", 9, 10, null, 5),
+        };
+        TramaDifundida difundida = TramaDifundida.de(mensajes);
+        assertEquals(mensajes.length, difundida.getMensajes());
+
+        ByteBuffer texto = ByteBuffer.allocate(difundida.longitud(false));
+        ByteBuffer binario = ByteBuffer.allocate(difundida.longitud(true));
+        for (Mensaje mensaje : mensajes) {
+            texto.put(codecTexto(mensaje));
+            binario.put(CodecBinario.codificar(mensaje));
+        }
+        assertArrayEquals(texto.array(), bytes(difundida.cuerpo(false)));
+        assertArrayEquals(binario.array(), bytes(difundida.cuerpo(true)));
+    }
+
+    @Test
+    void difundidaDePreguntaIgualALaTrama() {
+        TramaPregunta pregunta = new TramaPregunta("¿Cuál; lleva\\escapes?\ny salto", "a;b", "c\\", "\r", "😀");
+        TramaDifundida difundida = TramaDifundida.de(pregunta, 2, 10);
+        assertEquals(1, difundida.getMensajes());
+
+        Mensaje mensaje = pregunta.aMensaje(2, 10);
+        assertArrayEquals(codecTexto(mensaje), bytes(difundida.cuerpo(false)));
+        assertArrayEquals(CodecBinario.codificar(mensaje), bytes(difundida.cuerpo(true)));
+    }
+
+    @Test
+    void cadaVistaTienePosicionPropia() {
+        TramaDifundida difundida = TramaDifundida.de(Mensaje.de(TipoMensaje.TIMEOUT));
+        ByteBuffer primera = difundida.cuerpo(true);
+        primera.position(primera.limit());
+        assertTrue(difundida.cuerpo(true).hasRemaining());
+        assertEquals(difundida.longitud(true), difundida.cuerpo(true).remaining());
+        assertTrue(difundida.cuerpo(false).isReadOnly());
+    }
+}
@@ -0,0 +1,102 @@
+package com.liceolapaz.protocolo;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de las tramas precodificadas: deben ser idénticas byte a byte a las de los codecs
+ */
+class TramaPreguntaTest {
+
+    private static final TramaPregunta[] PREGUNTAS = {
+            new TramaPregunta("¿Capital de Francia?", "Madrid", "París", "Roma", "Berlín"),
+            new TramaPregunta("¿Cuál; lleva\\escapes?\ny salto", "a;b", "c\\", "\r", ""),
+            new TramaPregunta("Emoji 😀 y clave 𝄞", "🎲", null, "C", null),
+            new TramaPregunta(null, null, null, null, null),
+    };
+
+    private static final int[][] NUMEROS = {
+            {1, 10}, {0, 0}, {63, 64}, {127, 128}, {-1, -64}, {Integer.MAX_VALUE, Integer.MIN_VALUE},
+    };
+
+    private static byte[] codecTexto(Mensaje mensaje) {
+        ByteBuffer bufer = ByteBuffer.allocate(CodecTexto.longitud(mensaje));
+        CodecTexto.codificar(mensaje, bufer);
+        return bufer.array();
+    }
+
+    private static byte[] trama(TramaPregunta pregunta, boolean binario, int numero, int total) {
+        ByteBuffer bufer = ByteBuffer.allocate(pregunta.longitud(binario, numero, total));
+        pregunta.codificar(binario, numero, total, bufer);
+        assertEquals(0, bufer.remaining(), "longitud() debe ser exacta");
+        return bufer.array();
+    }
+
+    @Test
+    void tramaIgualALaDeLosCodecs() {
+        for (TramaPregunta pregunta : PREGUNTAS) {
+            for (int[] n : NUMEROS) {
+                Mensaje mensaje = pregunta.aMensaje(n[0], n[1]);
+                assertArrayEquals(codecTexto(mensaje), trama(pregunta, false, n[0], n[1]), "texto " + mensaje);
+                assertArrayEquals(CodecBinario.codificar(mensaje), trama(pregunta, true, n[0], n[1]),
+                        "binario " + mensaje);
+            }
+        }
+    }
+
+    @Test
+    void cabeceraMasCuerpoIgualATramaCompleta() {
+        TramaPregunta pregunta = PREGUNTAS[1];
+        for (boolean binario : new boolean[]{false, true}) {
+            ByteBuffer bufer = ByteBuffer.allocate(pregunta.longitud(binario, 5, 300));
+            pregunta.codificarCabecera(binario, 5, 300, bufer);
+            assertEquals(pregunta.longitudCabecera(binario, 5, 300), bufer.position());
+            bufer.put(pregunta.cuerpo(binario));
+            assertArrayEquals(trama(pregunta, binario, 5, 300), bufer.array());
+        }
+    }
+
+    @Test
+    void cuerpoCompartidoNoSeConsume() {
+        TramaPregunta pregunta = PREGUNTAS[0];
+        ByteBuffer primera = pregunta.cuerpo(true);
+        primera.position(primera.limit());
+        assertTrue(pregunta.cuerpo(true).hasRemaining());
+        assertTrue(pregunta.cuerpo(false).isReadOnly());
+    }
+
+    @Test
+    void tramaSeDecodificaAlMismoMensaje() {
+        for (TramaPregunta pregunta : PREGUNTAS) {
+            Mensaje esperado = pregunta.aMensaje(3, 7);
+
+            byte[] binaria = trama(pregunta, true, 3, 7);
+            assertEquals(esperado, CodecBinario.decodificarTrama(binaria, 0, binaria.length));
+
+            byte[] texto = trama(pregunta, false, 3, 7);
+            String linea = new String(texto, 0, texto.length - 1, StandardCharsets.UTF_8);
+            assertEquals(esperado, CodecTexto.decodificar(linea, new LectorTexto()));
+        }
+    }
+
+    @Test
+    void esDeDistingueTextosCambiados() {
+        TramaPregunta pregunta = PREGUNTAS[2];
+        assertTrue(pregunta.esDe("Emoji 😀 y clave 𝄞", "🎲", null, "C", null));
+        assertFalse(pregunta.esDe("Emoji 😀 y clave 𝄞", "🎲", "", "C", null));
+    }
+
+    @Test
+    void preguntaDemasiadoLargaSeRechaza() {
+        String enorme = "x".repeat(CodecBinario.LONGITUD_MAXIMA);
+        assertThrows(IllegalArgumentException.class, () -> new TramaPregunta(enorme, "A", "B", "C", "D"));
+    }
+}